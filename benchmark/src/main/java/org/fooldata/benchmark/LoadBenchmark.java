@@ -0,0 +1,84 @@
+package org.fooldata.benchmark;
+
+import org.fooldata.model.Word2VecModel;
+import org.fooldata.storage.VectorStore;
+import org.fooldata.util.VectorIoUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 加载耗时：解析文本与二进制词向量文件、加载并构建索引、打开模型快照
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LoadBenchmark {
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    @Param({"100", "300"})
+    public int dimension;
+
+    private Path directory;
+    private Path textFile;
+    private Path binaryFile;
+    private Path snapshotFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        SyntheticModel model = SyntheticModel.generate(size, dimension);
+        directory = Files.createTempDirectory("word2vec-benchmark");
+        textFile = directory.resolve("vectors.txt");
+        binaryFile = directory.resolve("vectors.bin");
+        snapshotFile = directory.resolve("model.snapshot");
+        model.writeText(textFile);
+        model.writeBinary(binaryFile);
+        new Word2VecModel(model.vocabulary(), model.store()).saveSnapshot(snapshotFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(textFile);
+        Files.deleteIfExists(binaryFile);
+        Files.deleteIfExists(snapshotFile);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public VectorStore readText() throws IOException {
+        VectorIoUtil reader = new VectorIoUtil(textFile.toString());
+        reader.readVectorFile();
+        return reader.getStore();
+    }
+
+    @Benchmark
+    public VectorStore readBinary() throws IOException {
+        VectorIoUtil reader = new VectorIoUtil(binaryFile.toString());
+        reader.readVectorFile();
+        return reader.getStore();
+    }
+
+    /**
+     * 解析文本并构建平衡KD树，即 new Word2VecModel(path) 的完整启动耗时
+     */
+    @Benchmark
+    public Word2VecModel loadModel() throws IOException {
+        return new Word2VecModel(textFile.toString());
+    }
+
+    @Benchmark
+    public Word2VecModel openSnapshot() throws IOException {
+        return Word2VecModel.openSnapshot(snapshotFile);
+    }
+}
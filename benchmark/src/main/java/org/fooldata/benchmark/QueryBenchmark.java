@@ -0,0 +1,92 @@
+package org.fooldata.benchmark;
+
+import org.fooldata.kdtree.WordVector;
+import org.fooldata.model.Word2VecModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询耗时：平衡KD树的 nearest 与全量扫描的 nearest2、similarity、centerWordList
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+
+    /**
+     * 预先选好的查询词数，轮流使用
+     */
+    private static final int QUERIES = 1024;
+    private static final int TOP_N = 10;
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    @Param({"100", "300"})
+    public int dimension;
+
+    private Word2VecModel model;
+    private String[] queries;
+    private List<List<String>> wordLists;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SyntheticModel synthetic = SyntheticModel.generate(size, dimension);
+        model = new Word2VecModel(synthetic.vocabulary(), synthetic.store());
+        Random random = new Random(SyntheticModel.DEFAULT_SEED);
+        queries = new String[QUERIES];
+        wordLists = new ArrayList<>(QUERIES);
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = synthetic.word(random.nextInt(size));
+            List<String> words = new ArrayList<>(10);
+            for (int j = 0; j < 10; j++) {
+                words.add(synthetic.word(random.nextInt(size)));
+            }
+            wordLists.add(words);
+        }
+    }
+
+    /**
+     * 每个线程各自轮流取查询词
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int next() {
+            next = (next + 1) & (QUERIES - 1);
+            return next;
+        }
+    }
+
+    @Benchmark
+    public Map<String, Float> nearestKdTree(Cursor cursor) {
+        return model.nearest(queries[cursor.next()], TOP_N);
+    }
+
+    @Benchmark
+    public Map<String, Float> nearestBruteForce(Cursor cursor) {
+        return model.nearest2(queries[cursor.next()], TOP_N);
+    }
+
+    @Benchmark
+    public float similarity(Cursor cursor) {
+        return model.similarity(queries[cursor.next()], queries[cursor.next()]);
+    }
+
+    @Benchmark
+    public WordVector centerWordList(Cursor cursor) {
+        return model.centerWordList(wordLists.get(cursor.next()));
+    }
+}
@@ -0,0 +1,153 @@
+package org.fooldata.benchmark;
+
+import org.fooldata.storage.HeapVectorStore;
+import org.fooldata.storage.Vocabulary;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * 确定性的合成词向量：同样的参数与种子总是生成同样的模型，基准测试不依赖真实模型文件<br>
+ * 向量按簇分布，接近真实词向量“近义词聚在一起”的结构：先随机生成 √n 个簇中心，
+ * 每个词取一个簇中心加高斯噪声后归一化。均匀随机的向量在高维下彼此几乎正交，KD树等索引的表现与真实数据差别很大。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public final class SyntheticModel {
+
+    public static final long DEFAULT_SEED = 20181123L;
+    /**
+     * 噪声相对簇中心的比例，越大簇越松散
+     */
+    private static final double NOISE = 0.6;
+
+    private final String[] words;
+    private final HeapVectorStore store;
+
+    private SyntheticModel(String[] words, HeapVectorStore store) {
+        this.words = words;
+        this.store = store;
+    }
+
+    public static SyntheticModel generate(int size, int dimension) {
+        return generate(size, dimension, DEFAULT_SEED);
+    }
+
+    /**
+     * 生成合成模型
+     *
+     * @param size      词数
+     * @param dimension 维度
+     * @param seed      随机种子
+     * @return 模型
+     */
+    public static SyntheticModel generate(int size, int dimension, long seed) {
+        Random random = new Random(seed);
+        int clusters = Math.max(1, (int) Math.sqrt(size));
+        float[][] centroids = new float[clusters][dimension];
+        for (float[] centroid : centroids) {
+            for (int d = 0; d < dimension; d++) {
+                centroid[d] = (float) random.nextGaussian();
+            }
+            normalize(centroid);
+        }
+        String[] words = new String[size];
+        HeapVectorStore store = new HeapVectorStore(size, dimension);
+        float[] row = new float[dimension];
+        double noise = NOISE / Math.sqrt(dimension);
+        for (int i = 0; i < size; i++) {
+            words[i] = "词" + i;
+            float[] centroid = centroids[random.nextInt(clusters)];
+            for (int d = 0; d < dimension; d++) {
+                row[d] = (float) (centroid[d] + random.nextGaussian() * noise);
+            }
+            normalize(row);
+            store.setRow(i, row);
+        }
+        return new SyntheticModel(words, store);
+    }
+
+    private static void normalize(float[] vector) {
+        double sum = 0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        float norm = (float) Math.sqrt(sum);
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] /= norm;
+        }
+    }
+
+    public int size() {
+        return words.length;
+    }
+
+    public int dimension() {
+        return store.dimension();
+    }
+
+    public String word(int id) {
+        return words[id];
+    }
+
+    public Vocabulary vocabulary() {
+        return new Vocabulary(words);
+    }
+
+    public HeapVectorStore store() {
+        return store;
+    }
+
+    /**
+     * 写成文本格式：首行为“词数 维度”，之后每行一个词及其向量
+     *
+     * @param path 文件
+     * @throws IOException 写入错误
+     */
+    public void writeText(Path path) throws IOException {
+        float[] row = new float[dimension()];
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(size() + " " + dimension() + "\n");
+            for (int i = 0; i < size(); i++) {
+                store.getRow(i, row);
+                writer.write(words[i]);
+                for (float v : row) {
+                    writer.write(' ');
+                    writer.write(Float.toString(v));
+                }
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * 写成 word2vec 原版二进制格式：文本首行之后，每个词以空格结尾，紧跟维度个小端序 float32 与换行
+     *
+     * @param path 文件
+     * @throws IOException 写入错误
+     */
+    public void writeBinary(Path path) throws IOException {
+        float[] row = new float[dimension()];
+        ByteBuffer buffer = ByteBuffer.allocate(dimension() * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), 1 << 16)) {
+            out.write((size() + " " + dimension() + "\n").getBytes(StandardCharsets.UTF_8));
+            for (int i = 0; i < size(); i++) {
+                store.getRow(i, row);
+                out.write((words[i] + " ").getBytes(StandardCharsets.UTF_8));
+                buffer.clear();
+                buffer.asFloatBuffer().put(row);
+                out.write(buffer.array());
+                out.write('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.fooldata.benchmark;
+
+import org.fooldata.storage.VectorStore;
+import org.fooldata.storage.Vocabulary;
+import org.fooldata.util.VectorFileFormat;
+import org.fooldata.util.VectorFileWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 写出耗时：文本、二进制与 gzip 压缩的词向量文件，单线程与多线程编码
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WriteBenchmark {
+
+    @Param({"100000"})
+    public int size;
+
+    @Param({"300"})
+    public int dimension;
+
+    @Param({"TEXT", "BINARY"})
+    public VectorFileFormat format;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private Vocabulary vocabulary;
+    private VectorStore store;
+    private Path output;
+    private VectorFileWriter writer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        SyntheticModel model = SyntheticModel.generate(size, dimension);
+        vocabulary = model.vocabulary();
+        store = model.store();
+        output = Files.createTempFile("word2vec-benchmark", ".vectors");
+        writer = new VectorFileWriter();
+        writer.setFormat(format);
+        writer.setGzip(gzip);
+        writer.setThreads(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(output);
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        writer.write(vocabulary, store, output);
+        return Files.size(output);
+    }
+}
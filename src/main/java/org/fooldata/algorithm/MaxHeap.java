@@ -87,11 +87,12 @@ public class MaxHeap<E> implements Iterable<E> {
      * @return 转换后的对象
      */
     public List<E> toList() {
+        // 依次弹出得到逆序，整体翻转一次，避免在列表头部反复插入
         ArrayList<E> list = new ArrayList<>(queue.size());
         while (!queue.isEmpty()) {
-            list.add(0, queue.poll());
+            list.add(queue.poll());
         }
-
+        Collections.reverse(list);
         return list;
     }
 
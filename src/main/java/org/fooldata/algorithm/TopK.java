@@ -0,0 +1,199 @@
+package org.fooldata.algorithm;
+
+/**
+ * 保留分数最高的K个id<br>
+ * 基于 int[] 与 float[] 两个并列数组的定长最小堆，堆顶是当前第K高的分数。
+ * 堆满后新分数先与堆顶比较，不超过堆顶的直接拒绝，不会触碰堆；整个过程不为候选创建任何对象，
+ * 查询结束后 {@link #reset()} 即可复用。距离越小越相似时把距离取负作为分数。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public final class TopK {
+
+    private int[] ids;
+    private float[] scores;
+    private int capacity;
+    private int size;
+
+    /**
+     * @param capacity 保留多少个
+     */
+    public TopK(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("容量必须为正数：" + capacity);
+        }
+        this.capacity = capacity;
+        this.ids = new int[capacity];
+        this.scores = new float[capacity];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * 新分数必须超过的门槛，未满时为负无穷
+     *
+     * @return 门槛
+     */
+    public float threshold() {
+        return size < capacity ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    /**
+     * 当前保留的最低分数
+     *
+     * @return 最低分数，为空时为负无穷
+     */
+    public float minScore() {
+        return size == 0 ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    /**
+     * 是否会接受该分数，可以在计算完整分数之前用部分结果提前判断
+     *
+     * @param score 分数
+     * @return 是否会接受
+     */
+    public boolean accepts(float score) {
+        return size < capacity || score > scores[0];
+    }
+
+    /**
+     * 提交一个候选
+     *
+     * @param id    id
+     * @param score 分数，越高越好
+     * @return 是否被保留
+     */
+    public boolean offer(int id, float score) {
+        if (size < capacity) {
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[parent] <= score) {
+                    break;
+                }
+                ids[i] = ids[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            ids[i] = id;
+            scores[i] = score;
+            return true;
+        }
+        if (score > scores[0]) {
+            siftDown(id, score);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 替换堆顶后下沉
+     */
+    private void siftDown(int id, float score) {
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && scores[child + 1] < scores[child]) {
+                child++;
+            }
+            if (scores[child] >= score) {
+                break;
+            }
+            ids[i] = ids[child];
+            scores[i] = scores[child];
+            i = child;
+        }
+        ids[i] = id;
+        scores[i] = score;
+    }
+
+    /**
+     * 合并另一个收集器的全部候选，另一个收集器不变
+     *
+     * @param other 另一个收集器
+     * @return this
+     */
+    public TopK merge(TopK other) {
+        for (int i = 0; i < other.size; i++) {
+            if (accepts(other.scores[i])) {
+                offer(other.ids[i], other.scores[i]);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 清空，保留容量
+     */
+    public void reset() {
+        size = 0;
+    }
+
+    /**
+     * 清空并修改容量，容量变大时才重新分配数组
+     *
+     * @param capacity 新容量
+     */
+    public void reset(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("容量必须为正数：" + capacity);
+        }
+        if (capacity > ids.length) {
+            ids = new int[capacity];
+            scores = new float[capacity];
+        }
+        this.capacity = capacity;
+        this.size = 0;
+    }
+
+    /**
+     * 按分数降序取出全部候选，之后收集器为空
+     *
+     * @param destIds    id，长度不小于 size()
+     * @param destScores 分数，长度不小于 size()
+     * @return 取出的个数
+     */
+    public int drainDescending(int[] destIds, float[] destScores) {
+        int count = size;
+        // 依次弹出堆顶得到升序，倒序写入
+        for (int i = count - 1; i >= 0; i--) {
+            destIds[i] = ids[0];
+            destScores[i] = scores[0];
+            size--;
+            if (size > 0) {
+                siftDown(ids[size], scores[size]);
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        int[] sortedIds = new int[size];
+        float[] sortedScores = new float[size];
+        TopK copy = new TopK(capacity);
+        copy.merge(this);
+        copy.drainDescending(sortedIds, sortedScores);
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < sortedIds.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(sortedIds[i]).append('=').append(sortedScores[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
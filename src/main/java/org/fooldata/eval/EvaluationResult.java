@@ -0,0 +1,93 @@
+package org.fooldata.eval;
+
+/**
+ * 一种索引配置的评测结果
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class EvaluationResult {
+
+    private final String name;
+    private final int queries;
+    private final int k;
+    private final double recall;
+    private final double meanRankError;
+    private final double qps;
+    private final double p50Micros;
+    private final double p99Micros;
+    private final long buildMillis;
+
+    public EvaluationResult(String name, int queries, int k, double recall, double meanRankError, double qps,
+                            double p50Micros, double p99Micros, long buildMillis) {
+        this.name = name;
+        this.queries = queries;
+        this.k = k;
+        this.recall = recall;
+        this.meanRankError = meanRankError;
+        this.qps = qps;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.buildMillis = buildMillis;
+    }
+
+    /**
+     * 配置名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 查询数
+     */
+    public int getQueries() {
+        return queries;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * recall@k：结果中属于精确前 k 个的比例，对全部查询取平均
+     */
+    public double getRecall() {
+        return recall;
+    }
+
+    /**
+     * 平均排名误差：结果中第 i 个在精确排序中的名次与 i 之差的绝对值，对全部位置取平均，0表示与精确结果一致
+     */
+    public double getMeanRankError() {
+        return meanRankError;
+    }
+
+    /**
+     * 单线程每秒查询数
+     */
+    public double getQps() {
+        return qps;
+    }
+
+    public double getP50Micros() {
+        return p50Micros;
+    }
+
+    public double getP99Micros() {
+        return p99Micros;
+    }
+
+    /**
+     * 构建索引的耗时
+     */
+    public long getBuildMillis() {
+        return buildMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-24s recall@%d=%.4f  平均排名误差=%.3f  QPS=%.0f  p50=%.1fus  p99=%.1fus  构建=%dms",
+                name, k, recall, meanRankError, qps, p50Micros, p99Micros, buildMillis);
+    }
+}
@@ -0,0 +1,254 @@
+package org.fooldata.eval;
+
+import org.fooldata.index.ExactSearcher;
+import org.fooldata.index.IndexType;
+import org.fooldata.index.Neighbors;
+import org.fooldata.metrics.LatencyHistogram;
+import org.fooldata.model.ModelOptions;
+import org.fooldata.model.Word2VecModel;
+import org.fooldata.storage.VectorStore;
+import org.fooldata.storage.Vocabulary;
+import org.fooldata.util.VectorIoUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 近似索引的召回率与耗时评测<br>
+ * 从词表中随机抽取查询词，用全量扫描计算精确结果作为标准答案，再用每种索引配置构建模型、
+ * 以 {@link Word2VecModel#nearest(String, int)} 查询（不包括查询词自身），统计 recall@k、平均排名误差与单线程 QPS。
+ * 精确结果计算一次，在各配置之间共用；排名按精确的点积计算，量化索引返回的近似分数不影响排名。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class RecallEvaluator {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecallEvaluator.class);
+
+    /**
+     * 精确结果保留前 k × RANK_DEPTH 个，用于计算排名误差；排在更后面的结果按该深度计
+     */
+    private static final int RANK_DEPTH = 10;
+
+    private final Vocabulary vocabulary;
+    private final VectorStore store;
+    private final int k;
+    private final int[] queries;
+    private final String[] queryWords;
+    /**
+     * 每个查询的精确结果的分数，降序，不包括查询词自身
+     */
+    private final float[][] truthScores;
+    private final int[][] truthIds;
+
+    /**
+     * 抽取查询并计算精确结果
+     *
+     * @param vocabulary 词表
+     * @param store      归一化后的向量，行号与词id一致
+     * @param k          评测的近邻数
+     * @param queryCount 查询数，超过词表大小时使用全部词
+     * @param seed       抽取查询的随机种子
+     */
+    public RecallEvaluator(Vocabulary vocabulary, VectorStore store, int k, int queryCount, long seed) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k 必须大于0：" + k);
+        }
+        this.vocabulary = vocabulary;
+        this.store = store;
+        this.k = k;
+        this.queries = sample(store.size(), Math.min(queryCount, store.size()), seed);
+        this.queryWords = new String[queries.length];
+        float[][] vectors = new float[queries.length][store.dimension()];
+        for (int q = 0; q < queries.length; q++) {
+            queryWords[q] = vocabulary.word(queries[q]);
+            store.getRow(queries[q], vectors[q]);
+        }
+        long start = System.currentTimeMillis();
+        int depth = k * RANK_DEPTH;
+        Neighbors[] found = new ExactSearcher(store).searchBatch(vectors, depth + 1);
+        this.truthScores = new float[queries.length][];
+        this.truthIds = new int[queries.length][];
+        for (int q = 0; q < queries.length; q++) {
+            int[] ids = new int[depth];
+            float[] scores = new float[depth];
+            int count = 0;
+            for (int i = 0; i < found[q].size() && count < depth; i++) {
+                if (found[q].id(i) != queries[q]) {
+                    ids[count] = found[q].id(i);
+                    scores[count++] = found[q].score(i);
+                }
+            }
+            truthIds[q] = Arrays.copyOf(ids, count);
+            truthScores[q] = Arrays.copyOf(scores, count);
+        }
+        logger.info("精确结果计算完毕，查询数：{}，耗时{}毫秒", queries.length, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 从 [0, size) 中不重复地抽取 count 个数
+     */
+    private static int[] sample(int size, int count, long seed) {
+        int[] all = new int[size];
+        for (int i = 0; i < size; i++) {
+            all[i] = i;
+        }
+        Random random = new Random(seed);
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(size - i);
+            int tmp = all[i];
+            all[i] = all[j];
+            all[j] = tmp;
+        }
+        return Arrays.copyOf(all, count);
+    }
+
+    /**
+     * 用一种配置构建模型并评测。先完整查询一遍预热并计算召回率，再计时查询一遍
+     *
+     * @param name    配置名称
+     * @param options 模型选项，应当关闭缓存，否则第二遍查询全部命中缓存
+     * @return 评测结果
+     */
+    public EvaluationResult evaluate(String name, ModelOptions options) {
+        if (options.getCacheSize() > 0) {
+            logger.warn("配置{}开启了近邻缓存，QPS 不能反映索引的速度", name);
+        }
+        long start = System.currentTimeMillis();
+        Word2VecModel model = new Word2VecModel(vocabulary, store, options);
+        long buildMillis = System.currentTimeMillis() - start;
+
+        double recallSum = 0;
+        double rankErrorSum = 0;
+        long positions = 0;
+        float[] query = new float[store.dimension()];
+        for (int q = 0; q < queries.length; q++) {
+            Map<String, Float> result = model.nearest(queryWords[q], k);
+            store.getRow(queries[q], query);
+            int hits = 0;
+            int position = 0;
+            for (String word : result.keySet()) {
+                int id = vocabulary.id(word);
+                if (contains(truthIds[q], Math.min(k, truthIds[q].length), id)) {
+                    hits++;
+                }
+                rankErrorSum += Math.abs(rank(truthScores[q], store.dot(id, query)) - position);
+                position++;
+            }
+            // 结果不足 k 个时，缺少的位置按排在精确结果之后计
+            for (; position < k; position++) {
+                rankErrorSum += truthScores[q].length - position;
+            }
+            positions += k;
+            recallSum += (double) hits / Math.min(k, Math.max(1, truthIds[q].length));
+        }
+
+        LatencyHistogram latency = new LatencyHistogram();
+        long total = System.nanoTime();
+        for (String word : queryWords) {
+            long queryStart = System.nanoTime();
+            model.nearest(word, k);
+            latency.record(System.nanoTime() - queryStart);
+        }
+        total = System.nanoTime() - total;
+
+        EvaluationResult result = new EvaluationResult(name, queries.length, k, recallSum / queries.length,
+                rankErrorSum / positions, queries.length * 1e9 / Math.max(1, total),
+                latency.percentile(0.5) / 1000.0, latency.percentile(0.99) / 1000.0, buildMillis);
+        logger.info("{}", result);
+        return result;
+    }
+
+    private static boolean contains(int[] ids, int length, int id) {
+        for (int i = 0; i < length; i++) {
+            if (ids[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 分数在精确结果中的名次（从0开始）：精确结果中分数更高的个数，超出保留的深度时为深度
+     */
+    private static int rank(float[] scores, float score) {
+        int lo = 0;
+        int hi = scores.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (scores[mid] > score) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public int getQueryCount() {
+        return queries.length;
+    }
+
+    /**
+     * 默认评测的配置：平衡KD树、不同搜索宽度的HNSW、量化索引与全量扫描
+     *
+     * @return 配置名称与选项
+     */
+    public static Map<String, ModelOptions> defaultConfigurations() {
+        Map<String, ModelOptions> configurations = new LinkedHashMap<>();
+        configurations.put("BALANCED_KD_TREE", options(IndexType.BALANCED_KD_TREE));
+        for (int ef : new int[]{20, 50, 100, 200}) {
+            ModelOptions hnsw = options(IndexType.HNSW);
+            hnsw.setHnswEfSearch(ef);
+            configurations.put("HNSW efSearch=" + ef, hnsw);
+        }
+        configurations.put("PQ", options(IndexType.PQ));
+        configurations.put("INT8", options(IndexType.INT8));
+        configurations.put("EXACT", options(IndexType.EXACT));
+        return configurations;
+    }
+
+    private static ModelOptions options(IndexType indexType) {
+        ModelOptions options = new ModelOptions();
+        options.setIndexType(indexType);
+        return options;
+    }
+
+    /**
+     * 命令行入口：java RecallEvaluator 词向量文件 [k] [查询数]
+     *
+     * @param args 参数
+     * @throws IOException 读取错误
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("用法：RecallEvaluator 词向量文件 [k，默认10] [查询数，默认1000]");
+            return;
+        }
+        VectorIoUtil reader = new VectorIoUtil(args[0]);
+        reader.readVectorFile();
+        int k = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int queryCount = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        RecallEvaluator evaluator = new RecallEvaluator(new Vocabulary(reader.getVocab()), reader.getStore(), k,
+                queryCount, 42);
+        List<EvaluationResult> results = new ArrayList<>();
+        for (Map.Entry<String, ModelOptions> entry : defaultConfigurations().entrySet()) {
+            results.add(evaluator.evaluate(entry.getKey(), entry.getValue()));
+        }
+        for (EvaluationResult result : results) {
+            System.out.println(result);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.fooldata.index;
+
+/**
+ * 类比查询（a − b + c）的打分方式
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public enum AnalogyMethod {
+    /**
+     * 3CosAdd：cos(x, a) − cos(x, b) + cos(x, c)，单位向量下等于 x 与 a − b + c 的点积，每行只需一次点积
+     */
+    COS_ADD,
+    /**
+     * 3CosMul：cos'(x, a) · cos'(x, c) / (cos'(x, b) + ε)，cos' = (cos + 1) / 2 缩放到 [0, 1]，
+     * 避免某一项相似度过大主导结果，通常比 3CosAdd 准确；每行需要三次点积
+     */
+    COS_MUL
+}
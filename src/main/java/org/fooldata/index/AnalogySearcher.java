@@ -0,0 +1,169 @@
+package org.fooldata.index;
+
+import org.fooldata.storage.VectorStore;
+
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 类比查询：与 a − b + c 最相似的词，扫描全部向量，结果精确<br>
+ * 由 {@link ParallelScanner} 分区并行扫描，按块批量计算点积后直接组合成类比分数，不构造中间向量；
+ * 查询中的三个词在块内把分数置为负无穷，不会进入 topN。
+ * 3CosMul 每行与 a、b、c 的点积用 {@link VectorStore#dots(int, int, float[][], int, int, float[])} 一次算出，每行只读取一次；
+ * 点积缓冲区按线程复用，扫描过程中不分配内存。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class AnalogySearcher {
+
+    /**
+     * 3CosMul 分母中防止除以0的小量
+     */
+    public static final float COS_MUL_EPSILON = 0.001f;
+
+    private static final ThreadLocal<float[]> BUFFERS =
+            ThreadLocal.withInitial(() -> new float[3 * ParallelScanner.BLOCK_SIZE * ParallelScanner.QUERY_TILE]);
+
+    private final VectorStore store;
+    private final ParallelScanner scanner;
+
+    public AnalogySearcher(VectorStore store) {
+        this(store, ForkJoinPool.commonPool());
+    }
+
+    public AnalogySearcher(VectorStore store, ForkJoinPool pool) {
+        this.store = store;
+        this.scanner = new ParallelScanner(pool);
+    }
+
+    /**
+     * 由三个相似度计算类比分数
+     *
+     * @param method 打分方式
+     * @param simA   与 a 的余弦相似度
+     * @param simB   与 b 的余弦相似度
+     * @param simC   与 c 的余弦相似度
+     * @return 分数，越高越符合类比
+     */
+    public static float score(AnalogyMethod method, float simA, float simB, float simC) {
+        if (method == AnalogyMethod.COS_ADD) {
+            return simA - simB + simC;
+        }
+        return (simA + 1) * 0.5f * ((simC + 1) * 0.5f) / ((simB + 1) * 0.5f + COS_MUL_EPSILON);
+    }
+
+    /**
+     * 类比查询
+     *
+     * @param a        向量 a（单位向量）
+     * @param b        向量 b（单位向量）
+     * @param c        向量 c（单位向量）
+     * @param exclude  结果中排除的行号，通常是 a、b、c 本身
+     * @param topN     前topN个
+     * @param method   打分方式
+     * @param excluded 需要跳过的行号，可以为null
+     * @return 行号与类比分数，按分数降序排列
+     */
+    public Neighbors search(float[] a, float[] b, float[] c, int[] exclude, int topN, AnalogyMethod method,
+                            BitSet excluded) {
+        Neighbors result;
+        if (method == AnalogyMethod.COS_ADD) {
+            float[] query = new float[a.length];
+            for (int i = 0; i < query.length; i++) {
+                query[i] = a[i] - b[i] + c[i];
+            }
+            result = scanner.scan(store.size(), topN, excluded, (from, to, dest) -> {
+                store.dots(from, to, query, dest);
+                exclude(exclude, from, to, dest, 0);
+            });
+        } else {
+            float[][] vectors = {a, b, c};
+            result = scanner.scan(store.size(), topN, excluded, (from, to, dest) -> {
+                float[] sims = BUFFERS.get();
+                int rows = to - from;
+                store.dots(from, to, vectors, 0, 3, sims);
+                for (int i = 0; i < rows; i++) {
+                    dest[i] = score(method, sims[i], sims[rows + i], sims[2 * rows + i]);
+                }
+                exclude(exclude, from, to, dest, 0);
+            });
+        }
+        return withoutExcluded(result);
+    }
+
+    /**
+     * 批量类比查询，按查询分块后每块查询只扫描一遍全部向量，适合评测整个类比测试集
+     *
+     * @param vectors  第 q 个查询的 a、b、c 为 vectors[3q]、vectors[3q + 1]、vectors[3q + 2]（单位向量）
+     * @param exclude  第 q 个查询结果中排除的行号
+     * @param topN     每个查询的前topN个
+     * @param method   打分方式
+     * @param excluded 需要跳过的行号，可以为null
+     * @return 与查询一一对应的结果
+     */
+    public Neighbors[] searchBatch(float[][] vectors, int[][] exclude, int topN, AnalogyMethod method,
+                                   BitSet excluded) {
+        int queries = exclude.length;
+        Neighbors[] result;
+        if (method == AnalogyMethod.COS_ADD) {
+            float[][] combined = new float[queries][];
+            for (int q = 0; q < queries; q++) {
+                float[] a = vectors[3 * q];
+                float[] b = vectors[3 * q + 1];
+                float[] c = vectors[3 * q + 2];
+                combined[q] = new float[a.length];
+                for (int i = 0; i < a.length; i++) {
+                    combined[q][i] = a[i] - b[i] + c[i];
+                }
+            }
+            result = scanner.scanBatch(store.size(), queries, topN, excluded,
+                    (fromRow, toRow, fromQuery, toQuery, dest) -> {
+                        store.dots(fromRow, toRow, combined, fromQuery, toQuery, dest);
+                        int rows = toRow - fromRow;
+                        for (int q = fromQuery; q < toQuery; q++) {
+                            exclude(exclude[q], fromRow, toRow, dest, (q - fromQuery) * rows);
+                        }
+                    });
+        } else {
+            result = scanner.scanBatch(store.size(), queries, topN, excluded,
+                    (fromRow, toRow, fromQuery, toQuery, dest) -> {
+                        float[] sims = BUFFERS.get();
+                        int rows = toRow - fromRow;
+                        store.dots(fromRow, toRow, vectors, 3 * fromQuery, 3 * toQuery, sims);
+                        for (int q = fromQuery; q < toQuery; q++) {
+                            int base = 3 * (q - fromQuery) * rows;
+                            int offset = (q - fromQuery) * rows;
+                            for (int i = 0; i < rows; i++) {
+                                dest[offset + i] = score(method, sims[base + i], sims[base + rows + i],
+                                        sims[base + 2 * rows + i]);
+                            }
+                            exclude(exclude[q], fromRow, toRow, dest, offset);
+                        }
+                    });
+        }
+        for (int q = 0; q < queries; q++) {
+            result[q] = withoutExcluded(result[q]);
+        }
+        return result;
+    }
+
+    private static void exclude(int[] rows, int fromRow, int toRow, float[] dest, int offset) {
+        for (int row : rows) {
+            if (row >= fromRow && row < toRow) {
+                dest[offset + row - fromRow] = Float.NEGATIVE_INFINITY;
+            }
+        }
+    }
+
+    /**
+     * 候选不足 topN 时，被排除的行可能以负无穷分数留在堆中，去掉它们
+     */
+    private static Neighbors withoutExcluded(Neighbors neighbors) {
+        int count = neighbors.size();
+        while (count > 0 && neighbors.score(count - 1) == Float.NEGATIVE_INFINITY) {
+            count--;
+        }
+        return neighbors.limit(count);
+    }
+}
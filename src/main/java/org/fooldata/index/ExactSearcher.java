@@ -0,0 +1,86 @@
+package org.fooldata.index;
+
+import org.fooldata.metrics.SearchStats;
+import org.fooldata.storage.VectorStore;
+
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 精确近邻查询：扫描全部向量<br>
+ * 由 {@link ParallelScanner} 分区并行扫描，每个分区按块调用 {@link VectorStore#dots} 批量计算点积。
+ * 作为近似索引的基准结果，也可以在近似索引不可靠时直接使用。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class ExactSearcher implements NearestIndex {
+
+    private final VectorStore store;
+    private final ParallelScanner scanner;
+
+    public ExactSearcher(VectorStore store) {
+        this(store, ForkJoinPool.commonPool());
+    }
+
+    public ExactSearcher(VectorStore store, ForkJoinPool pool) {
+        this.store = store;
+        this.scanner = new ParallelScanner(pool);
+    }
+
+    @Override
+    public Neighbors search(float[] vector, int topN) {
+        return search(vector, topN, (BitSet) null);
+    }
+
+    @Override
+    public Neighbors search(float[] vector, int topN, SearchStats stats) {
+        if (stats != null) {
+            stats.addDistanceComputations(store.size());
+        }
+        return search(vector, topN, (BitSet) null);
+    }
+
+    /**
+     * 查询与向量最相似的词
+     *
+     * @param vector   查询向量
+     * @param topN     前topN个
+     * @param excluded 需要跳过的词id，可以为null
+     * @return 词id与相似度，按相似度降序排列
+     */
+    public Neighbors search(float[] vector, int topN, BitSet excluded) {
+        return scanner.scan(store.size(), topN, excluded, (from, to, dest) -> store.dots(from, to, vector, dest));
+    }
+
+    @Override
+    public Neighbors search(float[] vector, int topN, BitSet excluded, SearchStats stats) {
+        if (stats != null) {
+            stats.addDistanceComputations(store.size());
+        }
+        return search(vector, topN, excluded);
+    }
+
+    @Override
+    public Neighbors[] searchBatch(float[][] vectors, int topN) {
+        return searchBatch(vectors, topN, null);
+    }
+
+    /**
+     * 批量查询，按查询分块后每块查询只扫描一遍全部向量
+     *
+     * @param vectors  查询向量
+     * @param topN     每个查询的前topN个
+     * @param excluded 需要跳过的词id，可以为null
+     * @return 与 vectors 一一对应的结果
+     */
+    public Neighbors[] searchBatch(float[][] vectors, int topN, BitSet excluded) {
+        return scanner.scanBatch(store.size(), vectors.length, topN, excluded,
+                (fromRow, toRow, fromQuery, toQuery, dest) -> store.dots(fromRow, toRow, vectors, fromQuery, toQuery, dest));
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+}
@@ -0,0 +1,732 @@
+package org.fooldata.index;
+
+import org.fooldata.algorithm.TopK;
+import org.fooldata.metrics.SearchStats;
+import org.fooldata.storage.VectorStore;
+import org.fooldata.util.BinaryFileWriter;
+import org.fooldata.util.MappedFileCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HNSW（Hierarchical Navigable Small World）近似近邻索引<br>
+ * 每个节点随机分配一个层数，越高的层节点越少；查询时从最高层的入口点开始在每层贪心逼近目标，
+ * 最后在第0层做宽度为 efSearch 的最佳优先搜索。邻接表存放在扁平的 int 数组中：
+ * 第0层每个节点最多 2M 个邻居，更高层每层最多 M 个邻居。
+ * 构建时多线程并发插入，修改某个节点的邻接表时持有该节点对应的分段锁。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class HnswIndex implements NearestIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(HnswIndex.class);
+
+    private static final int LOCK_STRIPES = 1 << 12;
+    /**
+     * 最多保留的空闲查询状态数，并发更高时多出来的查询状态用完即丢弃
+     */
+    private static final int MAX_POOLED_CONTEXTS = Runtime.getRuntime().availableProcessors() * 2;
+
+    private final VectorStore store;
+    private final int size;
+    /**
+     * 第1层及以上每层的最大邻居数
+     */
+    private final int m;
+    /**
+     * 第0层的最大邻居数
+     */
+    private final int maxM0;
+    private final int efConstruction;
+    private volatile int efSearch;
+
+    private final int[] levels;
+    /**
+     * 第0层邻接表，节点 i 的邻居在 [i * maxM0, i * maxM0 + counts0[i])
+     */
+    private final int[] links0;
+    private final int[] counts0;
+    /**
+     * 第1层及以上的邻接表，每层占 m + 1 个位置，第一个位置存放邻居数
+     */
+    private final int[][] upperLinks;
+
+    private final Object[] locks;
+    private final Object entryLock = new Object();
+    private volatile int entryPoint = -1;
+    private volatile int maxLevel = -1;
+    /**
+     * 构建期间读取邻接表需要加锁，构建完成后只读
+     */
+    private volatile boolean building = true;
+
+    /**
+     * 空闲的查询状态，属于索引本身，索引被回收后一起回收；查询状态的大小与词表无关
+     */
+    private final ArrayBlockingQueue<SearchContext> contexts = new ArrayBlockingQueue<>(MAX_POOLED_CONTEXTS);
+
+    private HnswIndex(VectorStore store, int m, int efConstruction, int efSearch, int[] levels) {
+        if (m < 2) {
+            throw new IllegalArgumentException("M 不能小于2");
+        }
+        this.store = store;
+        this.size = store.size();
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = efSearch;
+        this.levels = levels;
+        this.links0 = new int[size * maxM0];
+        this.counts0 = new int[size];
+        this.upperLinks = new int[size][];
+        this.locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        for (int i = 0; i < size; i++) {
+            if (levels[i] > 0) {
+                upperLinks[i] = new int[levels[i] * (m + 1)];
+            }
+        }
+    }
+
+    private SearchContext acquire() {
+        SearchContext context = contexts.poll();
+        return context != null ? context : new SearchContext(Math.max(maxM0, efConstruction));
+    }
+
+    private void release(SearchContext context) {
+        contexts.offer(context);
+    }
+
+    /**
+     * 为每个节点随机分配层数，层数服从几何分布，越高的层节点越少
+     */
+    private static int[] randomLevels(int size, int m, long seed) {
+        double levelMultiplier = 1 / Math.log(Math.max(2, m));
+        Random random = new Random(seed);
+        int[] levels = new int[size];
+        for (int i = 0; i < size; i++) {
+            levels[i] = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        }
+        return levels;
+    }
+
+    /**
+     * 构建 HNSW 索引
+     *
+     * @param store          向量存储
+     * @param m              每个节点的邻居数，越大召回率越高、内存与构建时间越多，常用16
+     * @param efConstruction 构建时的搜索宽度，常用100~400
+     * @param efSearch       查询时的搜索宽度，不小于 topN，越大召回率越高、查询越慢
+     * @param threads        构建线程数
+     * @return 索引
+     */
+    public static HnswIndex build(VectorStore store, int m, int efConstruction, int efSearch, int threads) {
+        HnswIndex index = new HnswIndex(store, m, efConstruction, efSearch, randomLevels(store.size(), m, 42));
+        int size = store.size();
+        if (size == 0) {
+            index.building = false;
+            return index;
+        }
+        long start = System.currentTimeMillis();
+        index.insert(0);
+        AtomicInteger next = new AtomicInteger(1);
+        int workers = Math.max(1, Math.min(threads, size));
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> futures = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                futures.add(pool.submit(() -> {
+                    int id;
+                    while ((id = next.getAndIncrement()) < size) {
+                        index.insert(id);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("HNSW索引构建被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("HNSW索引构建出错", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        index.building = false;
+        logger.info("HNSW索引构建完毕，共{}个节点，最高层{}，耗时{}毫秒", size, index.maxLevel, System.currentTimeMillis() - start);
+        return index;
+    }
+
+    private void insert(int id) {
+        SearchContext context = acquire();
+        try {
+            insert(context, id);
+        } finally {
+            release(context);
+        }
+    }
+
+    private void insert(SearchContext context, int id) {
+        float[] vector = context.vector(store.dimension());
+        store.getRow(id, vector);
+        int level = levels[id];
+        int entry;
+        int top;
+        synchronized (entryLock) {
+            entry = entryPoint;
+            top = maxLevel;
+            if (entry < 0) {
+                entryPoint = id;
+                maxLevel = level;
+                return;
+            }
+        }
+        for (int layer = top; layer > level; layer--) {
+            entry = greedy(context, vector, entry, layer, null);
+        }
+        for (int layer = Math.min(level, top); layer >= 0; layer--) {
+            searchLayer(context, vector, entry, efConstruction, layer, null);
+            int[] candidates = context.candidateIds;
+            float[] candidateScores = context.candidateScores;
+            int count = context.results.drainDescending(candidates, candidateScores);
+            entry = candidates[0];
+            int selected = selectNeighbors(candidates, candidateScores, count, m);
+            setLinks(context, id, layer, candidates, selected);
+            for (int i = 0; i < selected; i++) {
+                addLink(context, candidates[i], id, layer);
+            }
+        }
+        if (level > top) {
+            synchronized (entryLock) {
+                if (level > maxLevel) {
+                    entryPoint = id;
+                    maxLevel = level;
+                }
+            }
+        }
+    }
+
+    /**
+     * 启发式选择邻居：按相似度从高到低，只保留与目标比与已选邻居都更相似的候选，使邻居分布在不同方向上
+     *
+     * @param candidates 按相似度降序排列的候选，选中的会被移到数组前部
+     * @param scores     候选与目标的相似度
+     * @param count      候选数
+     * @param limit      最多选择的邻居数
+     * @return 选中的个数
+     */
+    private int selectNeighbors(int[] candidates, float[] scores, int count, int limit) {
+        int selected = 0;
+        for (int i = 0; i < count && selected < limit; i++) {
+            int candidate = candidates[i];
+            boolean good = true;
+            for (int j = 0; j < selected; j++) {
+                if (store.dot(candidate, candidates[j]) > scores[i]) {
+                    good = false;
+                    break;
+                }
+            }
+            if (good) {
+                candidates[selected] = candidate;
+                scores[selected] = scores[i];
+                selected++;
+            }
+        }
+        return selected;
+    }
+
+    private Object lock(int id) {
+        return locks[id & (LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * 设置新节点在某层的邻居<br>
+     * 并发构建时，其他线程可能从上层下降到该节点，在这里写入之前就把它们的节点连到了该节点，这些链接要合并进来而不是覆盖
+     */
+    private void setLinks(SearchContext context, int id, int layer, int[] neighbors, int count) {
+        synchronized (lock(id)) {
+            int[] existing = new int[layer == 0 ? counts0[id] : upperLinks[id][(layer - 1) * (m + 1)]];
+            if (existing.length > 0) {
+                copyLinks(id, layer, existing);
+            }
+            if (layer == 0) {
+                System.arraycopy(neighbors, 0, links0, id * maxM0, count);
+                counts0[id] = count;
+            } else {
+                int[] links = upperLinks[id];
+                int base = (layer - 1) * (m + 1);
+                System.arraycopy(neighbors, 0, links, base + 1, count);
+                links[base] = count;
+            }
+            for (int neighbor : existing) {
+                addLink(context, id, neighbor, layer);
+            }
+        }
+    }
+
+    /**
+     * 把 newNeighbor 加入 id 的邻接表，超过容量时重新启发式选择
+     */
+    private void addLink(SearchContext context, int id, int newNeighbor, int layer) {
+        int capacity = layer == 0 ? maxM0 : m;
+        synchronized (lock(id)) {
+            int[] links;
+            int base;
+            int count;
+            if (layer == 0) {
+                links = links0;
+                base = id * maxM0;
+                count = counts0[id];
+            } else {
+                links = upperLinks[id];
+                base = (layer - 1) * (m + 1);
+                count = links[base];
+                base++;
+            }
+            for (int i = 0; i < count; i++) {
+                if (links[base + i] == newNeighbor) {
+                    return;
+                }
+            }
+            if (count < capacity) {
+                links[base + count] = newNeighbor;
+                count++;
+            } else {
+                int[] ids = context.shrinkIds;
+                float[] scores = context.shrinkScores;
+                for (int i = 0; i < count; i++) {
+                    ids[i] = links[base + i];
+                    scores[i] = store.dot(id, ids[i]);
+                }
+                ids[count] = newNeighbor;
+                scores[count] = store.dot(id, newNeighbor);
+                sortDescending(ids, scores, count + 1);
+                count = selectNeighbors(ids, scores, count + 1, capacity);
+                System.arraycopy(ids, 0, links, base, count);
+            }
+            if (layer == 0) {
+                counts0[id] = count;
+            } else {
+                links[base - 1] = count;
+            }
+        }
+    }
+
+    /**
+     * 插入排序，数组长度不超过 2M + 1
+     */
+    private static void sortDescending(int[] ids, float[] scores, int count) {
+        for (int i = 1; i < count; i++) {
+            int id = ids[i];
+            float score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                ids[j + 1] = ids[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            ids[j + 1] = id;
+            scores[j + 1] = score;
+        }
+    }
+
+    /**
+     * 把节点在某层的邻居复制到 dest
+     *
+     * @return 邻居数
+     */
+    private int copyLinks(int id, int layer, int[] dest, boolean locked) {
+        if (locked) {
+            synchronized (lock(id)) {
+                return copyLinks(id, layer, dest);
+            }
+        }
+        return copyLinks(id, layer, dest);
+    }
+
+    private int copyLinks(int id, int layer, int[] dest) {
+        if (layer == 0) {
+            int count = counts0[id];
+            System.arraycopy(links0, id * maxM0, dest, 0, count);
+            return count;
+        }
+        int[] links = upperLinks[id];
+        int base = (layer - 1) * (m + 1);
+        int count = links[base];
+        System.arraycopy(links, base + 1, dest, 0, count);
+        return count;
+    }
+
+    /**
+     * 在某一层上贪心移动到与目标最相似的节点
+     */
+    private int greedy(SearchContext context, float[] vector, int entry, int layer, SearchStats stats) {
+        boolean locked = building;
+        float best = store.dot(entry, vector);
+        if (stats != null) {
+            stats.addDistanceComputations(1);
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int count = copyLinks(entry, layer, context.links, locked);
+            if (stats != null) {
+                stats.addVisitedNodes(1);
+                stats.addDistanceComputations(count);
+            }
+            for (int i = 0; i < count; i++) {
+                int neighbor = context.links[i];
+                float score = store.dot(neighbor, vector);
+                if (score > best) {
+                    best = score;
+                    entry = neighbor;
+                    changed = true;
+                }
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * 在某一层上做宽度为 ef 的最佳优先搜索，结果留在 context.results 中
+     */
+    private void searchLayer(SearchContext context, float[] vector, int entry, int ef, int layer, SearchStats stats) {
+        boolean locked = building;
+        VisitedSet visited = context.visited;
+        visited.clear();
+        CandidateHeap candidates = context.candidates;
+        TopK results = context.results;
+        candidates.clear();
+        results.reset(ef);
+        float score = store.dot(entry, vector);
+        visited.add(entry);
+        candidates.push(entry, score);
+        results.offer(entry, score);
+        while (candidates.size() > 0) {
+            int current = candidates.topId();
+            if (results.isFull() && candidates.topScore() < results.minScore()) {
+                break;
+            }
+            candidates.pop();
+            int count = copyLinks(current, layer, context.links, locked);
+            int computed = 0;
+            int pruned = 0;
+            for (int i = 0; i < count; i++) {
+                int neighbor = context.links[i];
+                if (!visited.add(neighbor)) {
+                    continue;
+                }
+                float neighborScore = store.dot(neighbor, vector);
+                computed++;
+                if (results.offer(neighbor, neighborScore)) {
+                    candidates.push(neighbor, neighborScore);
+                } else {
+                    pruned++;
+                }
+            }
+            if (stats != null) {
+                stats.addVisitedNodes(1);
+                stats.addDistanceComputations(computed);
+                stats.addPrunedBranches(pruned);
+            }
+        }
+    }
+
+    @Override
+    public Neighbors search(float[] vector, int topN) {
+        return search(vector, topN, null);
+    }
+
+    @Override
+    public Neighbors search(float[] vector, int topN, SearchStats stats) {
+        int entry = entryPoint;
+        if (entry < 0 || topN <= 0) {
+            return Neighbors.EMPTY;
+        }
+        SearchContext context = acquire();
+        try {
+            for (int layer = maxLevel; layer > 0; layer--) {
+                entry = greedy(context, vector, entry, layer, stats);
+            }
+            if (stats != null) {
+                stats.addDistanceComputations(1);
+            }
+            searchLayer(context, vector, entry, Math.max(efSearch, topN), 0, stats);
+            return Neighbors.drain(context.results).limit(topN);
+        } finally {
+            release(context);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 把图结构写入快照文件，向量不写入
+     *
+     * @param out 输出
+     * @throws IOException 写入错误
+     */
+    public void write(BinaryFileWriter out) throws IOException {
+        out.putInt(size);
+        out.putInt(m);
+        out.putInt(efConstruction);
+        out.putInt(efSearch);
+        out.putInt(entryPoint);
+        out.putInt(maxLevel);
+        out.putInts(levels, 0, size);
+        out.putInts(counts0, 0, size);
+        out.putInts(links0, 0, links0.length);
+        for (int i = 0; i < size; i++) {
+            if (upperLinks[i] != null) {
+                out.putInts(upperLinks[i], 0, upperLinks[i].length);
+            }
+        }
+    }
+
+    /**
+     * 从快照文件读取图结构，不需要重新构建
+     *
+     * @param store 向量存储，必须与写入时的向量一致
+     * @param in    输入，位于 {@link #write} 写入的起始位置
+     * @return 索引
+     * @throws IOException 读取错误或与向量存储不匹配
+     */
+    public static HnswIndex read(VectorStore store, MappedFileCursor in) throws IOException {
+        int size = in.getInt();
+        if (size != store.size()) {
+            throw new IOException("HNSW索引节点数 " + size + " 与向量数 " + store.size() + " 不一致");
+        }
+        int m = in.getInt();
+        int efConstruction = in.getInt();
+        int efSearch = in.getInt();
+        int entryPoint = in.getInt();
+        int maxLevel = in.getInt();
+        int[] levels = new int[size];
+        in.getInts(levels, 0, size);
+        HnswIndex index = new HnswIndex(store, m, efConstruction, efSearch, levels);
+        in.getInts(index.counts0, 0, size);
+        in.getInts(index.links0, 0, index.links0.length);
+        for (int i = 0; i < size; i++) {
+            if (index.upperLinks[i] != null) {
+                in.getInts(index.upperLinks[i], 0, index.upperLinks[i].length);
+            }
+        }
+        index.entryPoint = entryPoint;
+        index.maxLevel = maxLevel;
+        index.building = false;
+        return index;
+    }
+
+    public int getM() {
+        return m;
+    }
+
+    public int getEfConstruction() {
+        return efConstruction;
+    }
+
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    /**
+     * 调整查询时的搜索宽度，构建后可以随时修改
+     *
+     * @param efSearch 搜索宽度
+     */
+    public void setEfSearch(int efSearch) {
+        this.efSearch = efSearch;
+    }
+
+    /**
+     * 可复用的查询状态，同一时刻只被一个线程使用
+     */
+    private static final class SearchContext {
+        final VisitedSet visited;
+        final CandidateHeap candidates = new CandidateHeap();
+        final TopK results = new TopK(1);
+        final int[] links;
+        final int[] shrinkIds;
+        final float[] shrinkScores;
+        int[] candidateIds;
+        float[] candidateScores;
+        float[] vector;
+
+        SearchContext(int width) {
+            this.visited = new VisitedSet(width * 8);
+            this.links = new int[width];
+            this.shrinkIds = new int[width + 1];
+            this.shrinkScores = new float[width + 1];
+            this.candidateIds = new int[width + 1];
+            this.candidateScores = new float[width + 1];
+        }
+
+        float[] vector(int dimension) {
+            if (vector == null || vector.length != dimension) {
+                vector = new float[dimension];
+            }
+            return vector;
+        }
+    }
+
+    /**
+     * 一次搜索中访问过的节点：开放寻址的 int 集合，容量随访问的节点数增长，与词表大小无关<br>
+     * 每个槽位记录写入时的轮次，清空时只需轮次加一
+     */
+    private static final class VisitedSet {
+        private int[] keys;
+        private int[] stamps;
+        private int stamp = 1;
+        private int size;
+
+        VisitedSet(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected) * 2 - 1) << 1;
+            keys = new int[capacity];
+            stamps = new int[capacity];
+        }
+
+        void clear() {
+            size = 0;
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                stamp = 1;
+            }
+        }
+
+        /**
+         * 加入集合
+         *
+         * @param id 节点
+         * @return 之前不在集合中时返回true
+         */
+        boolean add(int id) {
+            if (size * 2 >= keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int slot = slot(id, mask);
+            while (stamps[slot] == stamp) {
+                if (keys[slot] == id) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = id;
+            stamps[slot] = stamp;
+            size++;
+            return true;
+        }
+
+        private static int slot(int id, int mask) {
+            int h = id * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldStamps = stamps;
+            keys = new int[oldKeys.length * 2];
+            stamps = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldStamps[i] == stamp) {
+                    int slot = slot(oldKeys[i], mask);
+                    while (stamps[slot] == stamp) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    stamps[slot] = stamp;
+                }
+            }
+        }
+    }
+
+    /**
+     * 待扩展的候选：基于并列数组的最大堆，堆顶为最相似的候选，容量按需增长
+     */
+    private static final class CandidateHeap {
+        private int[] ids = new int[64];
+        private float[] scores = new float[64];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        int topId() {
+            return ids[0];
+        }
+
+        float topScore() {
+            return scores[0];
+        }
+
+        void push(int id, float score) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[parent] >= score) {
+                    break;
+                }
+                ids[i] = ids[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            ids[i] = id;
+            scores[i] = score;
+        }
+
+        void pop() {
+            size--;
+            if (size == 0) {
+                return;
+            }
+            int id = ids[size];
+            float score = scores[size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                int right = child + 1;
+                if (right < size && scores[right] > scores[child]) {
+                    child = right;
+                }
+                if (scores[child] <= score) {
+                    break;
+                }
+                ids[i] = ids[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            ids[i] = id;
+            scores[i] = score;
+        }
+    }
+}
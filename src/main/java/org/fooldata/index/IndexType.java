@@ -0,0 +1,35 @@
+package org.fooldata.index;
+
+/**
+ * 近邻索引类型<br>
+ * 模型快照文件按序号保存索引类型，新的类型只能追加在末尾
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public enum IndexType {
+    /**
+     * 逐个插入构建的KD树
+     */
+    KD_TREE,
+    /**
+     * 批量构建的平衡KD树，查询结果精确，维度较高时剪枝效果变差
+     */
+    BALANCED_KD_TREE,
+    /**
+     * HNSW 近似近邻图，适合高维大词表
+     */
+    HNSW,
+    /**
+     * 不建索引，多线程扫描全部向量，结果精确
+     */
+    EXACT,
+    /**
+     * 乘积量化，查表扫描全部编码，可选用原始向量精确重排
+     */
+    PQ,
+    /**
+     * int8 标量量化，整数点积扫描全部向量，可选用原始向量精确重排
+     */
+    INT8
+}
@@ -0,0 +1,83 @@
+package org.fooldata.index;
+
+import org.fooldata.metrics.SearchStats;
+
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+/**
+ * 近邻索引，所有索引都按余弦相似度（单位向量的点积）返回结果
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public interface NearestIndex {
+
+    /**
+     * 查询与向量最相似的词
+     *
+     * @param vector 查询向量
+     * @param topN   前topN个
+     * @return 词id与相似度，按相似度降序排列
+     */
+    Neighbors search(float[] vector, int topN);
+
+    /**
+     * 查询并统计在索引中的工作量，默认不统计
+     *
+     * @param vector 查询向量
+     * @param topN   前topN个
+     * @param stats  累加工作量，为null时不统计
+     * @return 词id与相似度，按相似度降序排列
+     */
+    default Neighbors search(float[] vector, int topN, SearchStats stats) {
+        return search(vector, topN);
+    }
+
+    /**
+     * 查询时跳过 excluded 中的词id，跳过的词不占用结果<br>
+     * 默认实现适用于图与树索引：查询后过滤，结果不足 topN 个时加倍查询个数重新查询；
+     * 扫描全部向量的索引应当覆盖此方法，扫描时直接跳过，只查询一次。
+     *
+     * @param vector   查询向量
+     * @param topN     前topN个
+     * @param excluded 需要跳过的词id，可以为null
+     * @param stats    累加工作量，为null时不统计
+     * @return 词id与相似度，按相似度降序排列
+     */
+    default Neighbors search(float[] vector, int topN, BitSet excluded, SearchStats stats) {
+        if (excluded == null || excluded.isEmpty()) {
+            return search(vector, topN, stats);
+        }
+        int k = Math.min(size(), topN);
+        while (true) {
+            Neighbors found = search(vector, k, stats);
+            Neighbors result = found.without(excluded, topN);
+            if (result.size() >= topN || found.size() < k || k >= size()) {
+                return result;
+            }
+            // 跳过的词占用了结果，扩大查询范围
+            k = (int) Math.min(size(), 2L * k);
+        }
+    }
+
+    /**
+     * 批量查询，默认在公共线程池上并行执行单个查询
+     *
+     * @param vectors 查询向量
+     * @param topN    每个查询的前topN个
+     * @return 与 vectors 一一对应的结果
+     */
+    default Neighbors[] searchBatch(float[][] vectors, int topN) {
+        Neighbors[] result = new Neighbors[vectors.length];
+        IntStream.range(0, vectors.length).parallel().forEach(i -> result[i] = search(vectors[i], topN));
+        return result;
+    }
+
+    /**
+     * 索引中的向量数
+     *
+     * @return 向量数
+     */
+    int size();
+}
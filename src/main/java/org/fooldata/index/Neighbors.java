@@ -0,0 +1,101 @@
+package org.fooldata.index;
+
+import org.fooldata.algorithm.TopK;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * 近邻查询结果：词id与相似度两个并列数组，按相似度降序排列
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class Neighbors {
+
+    public static final Neighbors EMPTY = new Neighbors(new int[0], new float[0], 0);
+
+    private final int[] ids;
+    private final float[] scores;
+    private final int size;
+
+    public Neighbors(int[] ids, float[] scores, int size) {
+        this.ids = ids;
+        this.scores = scores;
+        this.size = size;
+    }
+
+    /**
+     * 取出收集器中的全部候选，之后收集器为空
+     *
+     * @param topK 收集器
+     * @return 按分数降序排列的结果
+     */
+    public static Neighbors drain(TopK topK) {
+        int[] ids = new int[topK.size()];
+        float[] scores = new float[ids.length];
+        return new Neighbors(ids, scores, topK.drainDescending(ids, scores));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int id(int i) {
+        return ids[i];
+    }
+
+    public float score(int i) {
+        return scores[i];
+    }
+
+    public int[] ids() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    public float[] scores() {
+        return Arrays.copyOf(scores, size);
+    }
+
+    /**
+     * 前 limit 个结果，共用同一组数组
+     *
+     * @param limit 最多保留的个数
+     * @return 结果
+     */
+    public Neighbors limit(int limit) {
+        return limit >= size ? this : new Neighbors(ids, scores, Math.max(0, limit));
+    }
+
+    /**
+     * 去掉 excluded 中的词id，保留前 limit 个
+     *
+     * @param excluded 需要去掉的词id
+     * @param limit    最多保留的个数
+     * @return 结果
+     */
+    public Neighbors without(BitSet excluded, int limit) {
+        int[] keptIds = new int[Math.min(size, limit)];
+        float[] keptScores = new float[keptIds.length];
+        int count = 0;
+        for (int i = 0; i < size && count < keptIds.length; i++) {
+            if (!excluded.get(ids[i])) {
+                keptIds[count] = ids[i];
+                keptScores[count++] = scores[i];
+            }
+        }
+        return new Neighbors(keptIds, keptScores, count);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(ids[i]).append('=').append(scores[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,245 @@
+package org.fooldata.index;
+
+import org.fooldata.algorithm.TopK;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 全量扫描的并行框架<br>
+ * 行号切分为若干分区，在 ForkJoinPool 上并行扫描；每个分区按块调用 {@link BlockScorer} 批量打分，
+ * 再用各自的 {@link TopK} 保留前 topN 个，最后合并各分区的堆。
+ * 精确查询与各种量化后的扫描只需要提供不同的打分方式。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class ParallelScanner {
+
+    /**
+     * 每次批量打分的行数
+     */
+    static final int BLOCK_SIZE = 256;
+    /**
+     * 单个并行任务扫描的最少行数
+     */
+    static final int PARTITION_SIZE = 1 << 14;
+    /**
+     * 批量查询时一起打分的查询数，这些查询向量常驻缓存，每行只读取一次
+     */
+    static final int QUERY_TILE = 16;
+
+    /**
+     * 按块打分
+     */
+    public interface BlockScorer {
+        /**
+         * 为 [fromRow, toRow) 的每一行打分，分数越高越相似
+         *
+         * @param fromRow 起始行号（含）
+         * @param toRow   结束行号（不含）
+         * @param dest    结果，dest[i] 为第 fromRow + i 行的分数
+         */
+        void score(int fromRow, int toRow, float[] dest);
+    }
+
+    /**
+     * 批量查询时按块打分
+     */
+    public interface BatchScorer {
+        /**
+         * 为 [fromRow, toRow) 的每一行与 [fromQuery, toQuery) 的每个查询打分，分数越高越相似
+         *
+         * @param fromRow   起始行号（含）
+         * @param toRow     结束行号（不含）
+         * @param fromQuery 起始查询下标（含）
+         * @param toQuery   结束查询下标（不含）
+         * @param dest      结果，dest[(q - fromQuery) * (toRow - fromRow) + (row - fromRow)] 为第 row 行与第 q 个查询的分数
+         */
+        void score(int fromRow, int toRow, int fromQuery, int toQuery, float[] dest);
+    }
+
+    private final ForkJoinPool pool;
+
+    public ParallelScanner() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelScanner(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * 扫描 [0, size) 的全部行
+     *
+     * @param size     行数
+     * @param topN     前topN个
+     * @param excluded 需要跳过的行号，可以为null
+     * @param scorer   打分方式
+     * @return 行号与分数，按分数降序排列
+     */
+    public Neighbors scan(int size, int topN, BitSet excluded, BlockScorer scorer) {
+        if (topN <= 0 || size == 0) {
+            return Neighbors.EMPTY;
+        }
+        TopK heap = size <= PARTITION_SIZE
+                ? scan(0, size, topN, excluded, scorer)
+                : pool.invoke(new ScanTask(0, size, topN, excluded, scorer));
+        return Neighbors.drain(heap);
+    }
+
+    private static TopK scan(int from, int to, int topN, BitSet excluded, BlockScorer scorer) {
+        TopK heap = new TopK(topN);
+        float[] scores = new float[BLOCK_SIZE];
+        for (int start = from; start < to; start += BLOCK_SIZE) {
+            int end = Math.min(to, start + BLOCK_SIZE);
+            scorer.score(start, end, scores);
+            for (int row = start; row < end; row++) {
+                float score = scores[row - start];
+                // 堆满后先与堆顶比较，大部分行不需要进入堆
+                if (heap.accepts(score) && (excluded == null || !excluded.get(row))) {
+                    heap.offer(row, score);
+                }
+            }
+        }
+        return heap;
+    }
+
+    /**
+     * 批量扫描 [0, size) 的全部行<br>
+     * 查询按 {@link #QUERY_TILE} 个一组，每组只扫描一遍全部行；组数少于并行度时再按行切分，保证所有核都有任务。
+     *
+     * @param size     行数
+     * @param queries  查询数
+     * @param topN     每个查询的前topN个
+     * @param excluded 需要跳过的行号，可以为null
+     * @param scorer   打分方式
+     * @return 每个查询的行号与分数，按分数降序排列
+     */
+    public Neighbors[] scanBatch(int size, int queries, int topN, BitSet excluded, BatchScorer scorer) {
+        Neighbors[] result = new Neighbors[queries];
+        if (queries == 0) {
+            return result;
+        }
+        if (topN <= 0 || size == 0) {
+            Arrays.fill(result, Neighbors.EMPTY);
+            return result;
+        }
+        int tiles = (queries + QUERY_TILE - 1) / QUERY_TILE;
+        long rowsPerTask = ((long) size * tiles + pool.getParallelism() - 1) / pool.getParallelism();
+        int partition = (int) Math.max(PARTITION_SIZE, Math.min(size, rowsPerTask));
+        TopK[] heaps = pool.invoke(new BatchScanTask(0, size, 0, queries, partition, topN, excluded, scorer));
+        for (int q = 0; q < queries; q++) {
+            result[q] = Neighbors.drain(heaps[q]);
+        }
+        return result;
+    }
+
+    private static TopK[] scanBatch(int from, int to, int fromQuery, int toQuery, int topN,
+                                       BitSet excluded, BatchScorer scorer) {
+        int queries = toQuery - fromQuery;
+        TopK[] heaps = new TopK[queries];
+        for (int q = 0; q < queries; q++) {
+            heaps[q] = new TopK(topN);
+        }
+        float[] scores = new float[BLOCK_SIZE * queries];
+        for (int start = from; start < to; start += BLOCK_SIZE) {
+            int end = Math.min(to, start + BLOCK_SIZE);
+            int rows = end - start;
+            scorer.score(start, end, fromQuery, toQuery, scores);
+            for (int q = 0; q < queries; q++) {
+                TopK heap = heaps[q];
+                int base = q * rows - start;
+                for (int row = start; row < end; row++) {
+                    float score = scores[base + row];
+                    if (heap.accepts(score) && (excluded == null || !excluded.get(row))) {
+                        heap.offer(row, score);
+                    }
+                }
+            }
+        }
+        return heaps;
+    }
+
+    private static class BatchScanTask extends RecursiveTask<TopK[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from, to;
+        private final int fromQuery, toQuery;
+        private final int partition;
+        private final int topN;
+        private final BitSet excluded;
+        private final BatchScorer scorer;
+
+        BatchScanTask(int from, int to, int fromQuery, int toQuery, int partition, int topN,
+                      BitSet excluded, BatchScorer scorer) {
+            this.from = from;
+            this.to = to;
+            this.fromQuery = fromQuery;
+            this.toQuery = toQuery;
+            this.partition = partition;
+            this.topN = topN;
+            this.excluded = excluded;
+            this.scorer = scorer;
+        }
+
+        @Override
+        protected TopK[] compute() {
+            if (toQuery - fromQuery > QUERY_TILE) {
+                // 先按查询分组，各组结果直接拼接
+                int tiles = (toQuery - fromQuery + QUERY_TILE - 1) / QUERY_TILE;
+                int midQuery = fromQuery + tiles / 2 * QUERY_TILE;
+                BatchScanTask right = new BatchScanTask(from, to, midQuery, toQuery, partition, topN, excluded, scorer);
+                right.fork();
+                TopK[] left = new BatchScanTask(from, to, fromQuery, midQuery, partition, topN, excluded, scorer).compute();
+                TopK[] rightHeaps = right.join();
+                TopK[] heaps = Arrays.copyOf(left, toQuery - fromQuery);
+                System.arraycopy(rightHeaps, 0, heaps, left.length, rightHeaps.length);
+                return heaps;
+            }
+            if (to - from <= partition) {
+                return scanBatch(from, to, fromQuery, toQuery, topN, excluded, scorer);
+            }
+            int mid = (from + to) >>> 1;
+            BatchScanTask right = new BatchScanTask(mid, to, fromQuery, toQuery, partition, topN, excluded, scorer);
+            right.fork();
+            TopK[] left = new BatchScanTask(from, mid, fromQuery, toQuery, partition, topN, excluded, scorer).compute();
+            TopK[] rightHeaps = right.join();
+            for (int q = 0; q < left.length; q++) {
+                left[q].merge(rightHeaps[q]);
+            }
+            return left;
+        }
+    }
+
+    private static class ScanTask extends RecursiveTask<TopK> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from, to;
+        private final int topN;
+        private final BitSet excluded;
+        private final BlockScorer scorer;
+
+        ScanTask(int from, int to, int topN, BitSet excluded, BlockScorer scorer) {
+            this.from = from;
+            this.to = to;
+            this.topN = topN;
+            this.excluded = excluded;
+            this.scorer = scorer;
+        }
+
+        @Override
+        protected TopK compute() {
+            if (to - from <= PARTITION_SIZE) {
+                return scan(from, to, topN, excluded, scorer);
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask right = new ScanTask(mid, to, topN, excluded, scorer);
+            right.fork();
+            TopK left = new ScanTask(from, mid, topN, excluded, scorer).compute();
+            return left.merge(right.join());
+        }
+    }
+}
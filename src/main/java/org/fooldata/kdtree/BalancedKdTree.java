@@ -0,0 +1,351 @@
+package org.fooldata.kdtree;
+
+import org.fooldata.algorithm.TopK;
+import org.fooldata.index.NearestIndex;
+import org.fooldata.index.Neighbors;
+import org.fooldata.metrics.SearchStats;
+import org.fooldata.storage.VectorStore;
+import org.fooldata.util.BinaryFileWriter;
+import org.fooldata.util.MappedFileCursor;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 批量构建的平衡KD树<br>
+ * 不创建节点对象，整棵树只用三个数组表示：ids 是所有词id的一个排列，区间 [lo, hi) 对应一棵子树，
+ * 其根节点位于中点 mid = (lo + hi) / 2，左子树为 [lo, mid)，右子树为 [mid + 1, hi)；
+ * splitDims[mid] 与 splitValues[mid] 记录该节点的切分维度与切分值。
+ * 切分值取中位数，树高为 log2(n / LEAF_SIZE)，叶子节点内不再切分，查询时顺序扫描。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class BalancedKdTree implements NearestIndex {
+
+    /**
+     * 叶子节点最多容纳的向量数
+     */
+    static final int LEAF_SIZE = 16;
+    /**
+     * 子树小于该大小时不再拆分为并行任务
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 12;
+    /**
+     * 计算方差时最多采样的向量数
+     */
+    private static final int VARIANCE_SAMPLE_SIZE = 1 << 10;
+
+    private final VectorStore store;
+    private final int[] ids;
+    private final int[] splitDims;
+    private final float[] splitValues;
+    private final SplitRule splitRule;
+
+    private BalancedKdTree(VectorStore store, int[] ids, SplitRule splitRule) {
+        this(store, ids, new int[ids.length], new float[ids.length], splitRule);
+    }
+
+    private BalancedKdTree(VectorStore store, int[] ids, int[] splitDims, float[] splitValues, SplitRule splitRule) {
+        this.store = store;
+        this.ids = ids;
+        this.splitDims = splitDims;
+        this.splitValues = splitValues;
+        this.splitRule = splitRule;
+    }
+
+    /**
+     * 用存储中的全部向量构建平衡KD树
+     *
+     * @param store     向量存储
+     * @param splitRule 切分维度的选择规则
+     * @return KD树
+     */
+    public static BalancedKdTree build(VectorStore store, SplitRule splitRule) {
+        int[] ids = new int[store.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+        }
+        return build(store, ids, splitRule, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 用指定的词id构建平衡KD树
+     *
+     * @param store     向量存储
+     * @param ids       参与构建的词id，构建过程中会被重新排列
+     * @param splitRule 切分维度的选择规则
+     * @param pool      并行构建使用的线程池
+     * @return KD树
+     */
+    public static BalancedKdTree build(VectorStore store, int[] ids, SplitRule splitRule, ForkJoinPool pool) {
+        BalancedKdTree tree = new BalancedKdTree(store, ids, splitRule);
+        if (ids.length > 0) {
+            pool.invoke(tree.new BuildTask(0, ids.length, 0));
+        }
+        return tree;
+    }
+
+    /**
+     * 把树的结构写入快照文件，向量不写入
+     *
+     * @param out 输出
+     * @throws IOException 写入错误
+     */
+    public void write(BinaryFileWriter out) throws IOException {
+        out.putInt(splitRule.ordinal());
+        out.putInt(ids.length);
+        out.putInts(ids, 0, ids.length);
+        out.putInts(splitDims, 0, splitDims.length);
+        out.putFloats(splitValues, 0, splitValues.length);
+    }
+
+    /**
+     * 从快照文件读取树的结构，不需要重新构建
+     *
+     * @param store 向量存储，必须与写入时的向量一致
+     * @param in    输入，位于 {@link #write} 写入的起始位置
+     * @return KD树
+     * @throws IOException 读取错误或与向量存储不匹配
+     */
+    public static BalancedKdTree read(VectorStore store, MappedFileCursor in) throws IOException {
+        SplitRule splitRule = SplitRule.values()[in.getInt()];
+        int size = in.getInt();
+        if (size > store.size()) {
+            throw new IOException("KD树节点数 " + size + " 超过向量数 " + store.size());
+        }
+        int[] ids = new int[size];
+        int[] splitDims = new int[size];
+        float[] splitValues = new float[size];
+        in.getInts(ids, 0, size);
+        in.getInts(splitDims, 0, size);
+        in.getFloats(splitValues, 0, size);
+        return new BalancedKdTree(store, ids, splitDims, splitValues, splitRule);
+    }
+
+    /**
+     * 并行构建子树，两棵子树互不重叠，可以分别在不同线程上构建
+     */
+    private class BuildTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int lo, hi, depth;
+
+        BuildTask(int lo, int hi, int depth) {
+            this.lo = lo;
+            this.hi = hi;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= PARALLEL_THRESHOLD) {
+                buildRange(lo, hi, depth);
+                return;
+            }
+            int mid = split(lo, hi, depth);
+            invokeAll(new BuildTask(lo, mid, depth + 1), new BuildTask(mid + 1, hi, depth + 1));
+        }
+    }
+
+    private void buildRange(int lo, int hi, int depth) {
+        while (hi - lo > LEAF_SIZE) {
+            int mid = split(lo, hi, depth);
+            buildRange(lo, mid, depth + 1);
+            lo = mid + 1;
+            depth++;
+        }
+    }
+
+    /**
+     * 选择切分维度并把中位数放到中点，左边的元素在该维度上都不大于中位数，右边都不小于中位数
+     *
+     * @return 中点
+     */
+    private int split(int lo, int hi, int depth) {
+        int dim = splitRule == SplitRule.CYCLE ? depth % store.dimension() : maxVarianceDim(lo, hi);
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, dim);
+        splitDims[mid] = dim;
+        splitValues[mid] = store.get(ids[mid], dim);
+        return mid;
+    }
+
+    private int maxVarianceDim(int lo, int hi) {
+        int dimension = store.dimension();
+        int step = Math.max(1, (hi - lo) / VARIANCE_SAMPLE_SIZE);
+        double[] sum = new double[dimension];
+        double[] sumSquare = new double[dimension];
+        int count = 0;
+        for (int i = lo; i < hi; i += step) {
+            int id = ids[i];
+            for (int d = 0; d < dimension; d++) {
+                float value = store.get(id, d);
+                sum[d] += value;
+                sumSquare[d] += value * value;
+            }
+            count++;
+        }
+        int best = 0;
+        double bestVariance = -1;
+        for (int d = 0; d < dimension; d++) {
+            double variance = sumSquare[d] / count - (sum[d] / count) * (sum[d] / count);
+            if (variance > bestVariance) {
+                bestVariance = variance;
+                best = d;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 快速选择：把 [left, right] 中第 k 小的元素（按 dim 维的值）放到位置 k
+     */
+    private void select(int left, int right, int k, int dim) {
+        while (right > left) {
+            // 三数取中作为枢轴
+            int middle = (left + right) >>> 1;
+            if (value(middle, dim) < value(left, dim)) {
+                swap(middle, left);
+            }
+            if (value(right, dim) < value(left, dim)) {
+                swap(right, left);
+            }
+            if (value(right, dim) < value(middle, dim)) {
+                swap(right, middle);
+            }
+            float pivot = value(middle, dim);
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (value(i, dim) < pivot) {
+                    i++;
+                }
+                while (value(j, dim) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private float value(int index, int dim) {
+        return store.get(ids[index], dim);
+    }
+
+    private void swap(int i, int j) {
+        int tmp = ids[i];
+        ids[i] = ids[j];
+        ids[j] = tmp;
+    }
+
+    /**
+     * K近邻查找（精确）
+     *
+     * @param topN   前topN个
+     * @param vector 向量
+     * @return 分数为欧氏距离平方的相反数
+     */
+    public TopK getNearVectors(int topN, float[] vector) {
+        return getNearVectors(topN, vector, null);
+    }
+
+    /**
+     * K近邻查找（精确），统计访问的节点、距离计算、回溯与剪枝次数
+     *
+     * @param topN   前topN个
+     * @param vector 向量
+     * @param stats  累加工作量，为null时不统计
+     * @return 分数为欧氏距离平方的相反数
+     */
+    public TopK getNearVectors(int topN, float[] vector, SearchStats stats) {
+        TopK result = new TopK(topN);
+        if (ids.length > 0) {
+            search(0, ids.length, vector, result, stats);
+        }
+        return result;
+    }
+
+    private void search(int lo, int hi, float[] vector, TopK heap, SearchStats stats) {
+        if (hi - lo <= LEAF_SIZE) {
+            for (int i = lo; i < hi; i++) {
+                heap.offer(ids[i], -store.squaredDistance(ids[i], vector));
+            }
+            if (stats != null) {
+                stats.addVisitedNodes(1);
+                stats.addDistanceComputations(hi - lo);
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        float diff = vector[splitDims[mid]] - splitValues[mid];
+        // 先搜索目标点所在的一侧
+        if (diff < 0) {
+            search(lo, mid, vector, heap, stats);
+        } else {
+            search(mid + 1, hi, vector, heap, stats);
+        }
+        heap.offer(ids[mid], -store.squaredDistance(ids[mid], vector));
+        // 以目标点为球心、当前第topN近的距离为半径的超球体与切分超平面相交时，才需要搜索另一侧
+        boolean crosses = -diff * diff >= heap.threshold();
+        if (stats != null) {
+            stats.addVisitedNodes(1);
+            stats.addDistanceComputations(1);
+            if (crosses) {
+                stats.addBacktracks(1);
+            } else {
+                stats.addPrunedBranches(1);
+            }
+        }
+        if (crosses) {
+            if (diff < 0) {
+                search(mid + 1, hi, vector, heap, stats);
+            } else {
+                search(lo, mid, vector, heap, stats);
+            }
+        }
+    }
+
+    /**
+     * 欧氏距离最近即单位向量的余弦相似度最高，结果的相似度按点积重新计算
+     */
+    @Override
+    public Neighbors search(float[] vector, int topN) {
+        return search(vector, topN, null);
+    }
+
+    @Override
+    public Neighbors search(float[] vector, int topN, SearchStats stats) {
+        if (topN <= 0) {
+            return Neighbors.EMPTY;
+        }
+        Neighbors nearest = Neighbors.drain(getNearVectors(topN, vector, stats));
+        int[] result = nearest.ids();
+        float[] scores = new float[result.length];
+        for (int i = 0; i < result.length; i++) {
+            scores[i] = store.dot(result[i], vector);
+        }
+        return new Neighbors(result, scores, result.length);
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    public SplitRule getSplitRule() {
+        return splitRule;
+    }
+}
@@ -1,11 +1,11 @@
 package org.fooldata.kdtree;
 
-import org.fooldata.algorithm.MaxHeap;
+import org.fooldata.algorithm.TopK;
+import org.fooldata.metrics.SearchStats;
+import org.fooldata.storage.VectorStore;
 
-import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 
 /**
@@ -17,13 +17,9 @@ import java.util.Map;
 public class KdNode {
 
     /**
-     * 词
+     * 词id，即词向量在 {@link VectorStore} 中的行号
      */
-    private String word;
-    /**
-     * 当前词向量
-     */
-    private WordVector wordVector;
+    private int id;
 
     /**
      * 选择的维度
@@ -35,72 +31,93 @@ public class KdNode {
     private KdNode leftNode, rightNode, parentNode;
 
 
-    private KdNode(String word, WordVector wordVector, KdNode parentNode, int dim) {
-        this.word = word;
-        this.wordVector = wordVector;
+    private KdNode(int id, KdNode parentNode, int dim) {
+        this.id = id;
         this.leftNode = null;
         this.rightNode = null;
         this.parentNode = parentNode;
         this.dim = dim;
     }
 
-    static KdNode create(String word, WordVector wordVector, KdNode parentNode, int dim) {
-        return new KdNode(word, wordVector, parentNode, dim);
+    static KdNode create(int id, KdNode parentNode, int dim) {
+        return new KdNode(id, parentNode, dim);
     }
 
-    static int insert(WordVector wordVector, String word, KdNode parentNode, int dim, int count) {
-        if (word.equals("机器学习算法")) {
-            System.out.println(123);
-        }
+    static int insert(VectorStore store, int id, KdNode parentNode, int dim, int count) {
         KdNode nextNode;
         int nextDim = (dim + 1) % count;
-        if (wordVector.equals(parentNode.getWordVector())) {
-            parentNode.setWord(word);
+        if (sameVector(store, id, parentNode.getId())) {
+            parentNode.setId(id);
             return 0;
         }
-        if (wordVector.getElementArray()[dim] >= parentNode.getWordVector().getElementArray()[dim]) {
+        if (store.get(id, dim) >= store.get(parentNode.getId(), dim)) {
             nextNode = parentNode.getRightNode();
             if (nextNode == null) {
-                parentNode.setRightNode(KdNode.create(word, wordVector, parentNode, dim));
+                parentNode.setRightNode(KdNode.create(id, parentNode, dim));
                 return 1;
             }
         } else {
             nextNode = parentNode.leftNode;
             if (nextNode == null) {
-                parentNode.setLeftNode(KdNode.create(word, wordVector, parentNode, dim));
+                parentNode.setLeftNode(KdNode.create(id, parentNode, dim));
                 return 1;
             }
         }
-        return insert(wordVector, word, nextNode, nextDim, count);
+        return insert(store, id, nextNode, nextDim, count);
+    }
+
+    private static boolean sameVector(VectorStore store, int id, int other) {
+        for (int i = 0; i < store.dimension(); i++) {
+            if (store.get(id, i) != store.get(other, i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
 
     /**
-     * @param minHeap          结果保存对象,最小堆
-     * @param targetWordVector 待查找向量
+     * @param topK   结果保存对象，分数为距离的相反数
+     * @param store  向量存储
+     * @param target 待查找向量
+     * @param stats  累加工作量，为null时不统计
      */
-    static void getNearNodes(MaxHeap<Map.Entry<KdNode, Float>> minHeap, KdNode rootNode, WordVector targetWordVector) {
-        minHeap.add(new AbstractMap.SimpleEntry<>(rootNode, rootNode.getWordVector().squaredDistance(targetWordVector)));
-        KdNode leafNode = getLeafNode(rootNode, targetWordVector);
+    static void getNearNodes(TopK topK, VectorStore store, KdNode rootNode, float[] target, SearchStats stats) {
+        topK.offer(rootNode.getId(), -distance(store, rootNode, target));
+        KdNode leafNode = getLeafNode(store, rootNode, target, stats);
+        if (stats != null) {
+            stats.addDistanceComputations(1);
+        }
         while (leafNode.getParentNode() != null && leafNode != rootNode) {
             // 计算当前节点与target的距离
-            if (leafNode.getWord().equals("机器学习算法")) {
-                System.out.println(123);
-            }
-            float distance = leafNode.getWordVector().squaredDistance(targetWordVector);
-            minHeap.add(new AbstractMap.SimpleEntry<>(leafNode, distance));
+            topK.offer(leafNode.getId(), -distance(store, leafNode, target));
             KdNode brotherNode = getBrother(leafNode);
-            if (brotherNode != null && brotherNode.getWord().equals("机器学习算法")) {
-                System.out.println(123123);
-            }
+            int parentDim = leafNode.getParentNode().getDim();
             // 检查兄弟节点的超平面空间是否与当前目标点为球心，目标点与“当前最近点”间的距离为半径的超球体相交
-            if (brotherNode != null && minHeap.getTop().getValue() >= Math.abs(targetWordVector.getElementArray()[leafNode.getParentNode().getDim()] - leafNode.getParentNode().getWordVector().getElementArray()[leafNode.getParentNode().getDim()])) {
-                getNearNodes(minHeap, brotherNode, targetWordVector);
+            boolean crosses = brotherNode != null
+                    && -topK.minScore() >= Math.abs(target[parentDim] - store.get(leafNode.getParentNode().getId(), parentDim));
+            if (stats != null) {
+                stats.addDistanceComputations(1);
+                if (crosses) {
+                    stats.addBacktracks(1);
+                } else if (brotherNode != null) {
+                    stats.addPrunedBranches(1);
+                }
+            }
+            if (crosses) {
+                getNearNodes(topK, store, brotherNode, target, stats);
             }
             leafNode = leafNode.getParentNode();
         }
     }
 
+    /**
+     * 节点与目标向量的欧氏距离
+     */
+    private static float distance(VectorStore store, KdNode node, float[] target) {
+        return (float) Math.sqrt(store.squaredDistance(node.getId(), target));
+    }
+
 
     /**
      * 获取兄弟节点
@@ -134,16 +151,18 @@ public class KdNode {
     /**
      * 拿到叶子节点
      *
-     * @param rootNode         根节点
-     * @param targetWordVector 目标向量
+     * @param store    向量存储
+     * @param rootNode 根节点
+     * @param target   目标向量
+     * @param stats    累加访问的节点数，为null时不统计
      */
-    static KdNode getLeafNode(KdNode rootNode, WordVector targetWordVector) {
+    static KdNode getLeafNode(VectorStore store, KdNode rootNode, float[] target, SearchStats stats) {
         KdNode kdNode = rootNode;
         while (true) {
-            if (kdNode.getWord().equals("机器学习")) {
-                System.out.println("123123123123");
+            if (stats != null) {
+                stats.addVisitedNodes(1);
             }
-            if (targetWordVector.getElementArray()[kdNode.getDim()] >= kdNode.getWordVector().getElementArray()[kdNode.getDim()]) {
+            if (target[kdNode.getDim()] >= store.get(kdNode.getId(), kdNode.getDim())) {
                 if (kdNode.getRightNode() == null) {
                     return kdNode;
                 }
@@ -157,20 +176,12 @@ public class KdNode {
         }
     }
 
-    public String getWord() {
-        return word;
-    }
-
-    public void setWord(String word) {
-        this.word = word;
-    }
-
-    public WordVector getWordVector() {
-        return wordVector;
+    public int getId() {
+        return id;
     }
 
-    public void setWordVector(WordVector wordVector) {
-        this.wordVector = wordVector;
+    public void setId(int id) {
+        this.id = id;
     }
 
     public KdNode getLeftNode() {
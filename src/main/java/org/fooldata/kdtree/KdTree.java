@@ -3,18 +3,25 @@ package org.fooldata.kdtree;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.fooldata.algorithm.MaxHeap;
-
-import java.util.Map;
+import org.fooldata.algorithm.TopK;
+import org.fooldata.index.NearestIndex;
+import org.fooldata.index.Neighbors;
+import org.fooldata.metrics.SearchStats;
+import org.fooldata.storage.VectorStore;
 
 /**
  * @author 陈明超
  * @date 2018-11-24
  */
-public class KdTree {
+public class KdTree implements NearestIndex {
 
     private Logger logger = LoggerFactory.getLogger(KdTree.class);
 
+    /**
+     * 节点引用的向量存储
+     */
+    private final VectorStore store;
+
     /**
      * 根节点
      */
@@ -33,20 +40,16 @@ public class KdTree {
 
     /**
      * 插入一条向量
-     * TODO 有时间可以改为一个平衡KD树
+     * 逐个插入得到的树不平衡，批量构建请使用 {@link BalancedKdTree#build}
      *
-     * @param wordVector 向量
-     * @param word   词
+     * @param id 词id（向量在存储中的行号）
      */
-    public void insert(WordVector wordVector, String word) {
-        if (wordVector.getElementArray().length != kDimensions) {
-            return;
-        }
+    public void insert(int id) {
         if (rootNode == null) {
-            rootNode = KdNode.create(word, wordVector, null, 0);
+            rootNode = KdNode.create(id, null, 0);
             nodesCount++;
         } else {
-            nodesCount += KdNode.insert(wordVector, word, rootNode, 0, nodesCount);
+            nodesCount += KdNode.insert(store, id, rootNode, 0, kDimensions);
         }
     }
 
@@ -54,22 +57,59 @@ public class KdTree {
      * K近邻查找
      *
      * @param topN   前topN个
-     * @param wordVector 向量
-     * @return 排好序的KdNode
+     * @param vector 向量
+     * @return 分数为欧氏距离的相反数
+     */
+    public TopK getNearVectors(int topN, float[] vector) {
+        return getNearVectors(topN, vector, null);
+    }
+
+    /**
+     * K近邻查找，统计访问的节点、距离计算、回溯与剪枝次数
+     *
+     * @param topN   前topN个
+     * @param vector 向量
+     * @param stats  累加工作量，为null时不统计
+     * @return 分数为欧氏距离的相反数
      */
-    public MaxHeap<Map.Entry<KdNode, Float>> getNearVectors(int topN, WordVector wordVector) {
-        // 1. 构建一个最小堆
-        MaxHeap<Map.Entry<KdNode, Float>> result = new MaxHeap<>(topN, (o1, o2) -> o2.getValue().compareTo(o1.getValue()));
+    public TopK getNearVectors(int topN, float[] vector, SearchStats stats) {
+        TopK result = new TopK(topN);
         if (this.rootNode == null) {
             logger.error("KD树中无节点，无法查询！");
+            return result;
         }
-        KdNode.getNearNodes(result, this.rootNode, wordVector);
+        KdNode.getNearNodes(result, store, this.rootNode, vector, stats);
         return result;
     }
 
 
-    public KdTree(int kDimensions) {
-        this.kDimensions = kDimensions;
+    @Override
+    public Neighbors search(float[] vector, int topN) {
+        return search(vector, topN, null);
+    }
+
+    @Override
+    public Neighbors search(float[] vector, int topN, SearchStats stats) {
+        if (topN <= 0) {
+            return Neighbors.EMPTY;
+        }
+        Neighbors nearest = Neighbors.drain(getNearVectors(topN, vector, stats));
+        int[] ids = nearest.ids();
+        float[] scores = new float[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            scores[i] = store.dot(ids[i], vector);
+        }
+        return new Neighbors(ids, scores, ids.length);
+    }
+
+    @Override
+    public int size() {
+        return nodesCount;
+    }
+
+    public KdTree(VectorStore store) {
+        this.store = store;
+        this.kDimensions = store.dimension();
         rootNode = null;
     }
 
@@ -0,0 +1,18 @@
+package org.fooldata.kdtree;
+
+/**
+ * 平衡KD树选择切分维度的规则，切分点都取该维度上的中位数
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public enum SplitRule {
+    /**
+     * 按树的深度轮流选择维度
+     */
+    CYCLE,
+    /**
+     * 选择当前子集上方差最大的维度
+     */
+    MAX_VARIANCE
+}
@@ -0,0 +1,154 @@
+package org.fooldata.knn;
+
+import org.fooldata.index.Neighbors;
+import org.fooldata.storage.Vocabulary;
+import org.fooldata.util.Float16;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 离线计算好的 k 近邻表，通过 FileChannel.map 读取，查询时直接按偏移读出结果<br>
+ * 文件格式（小端序）：
+ * <pre>
+ * 文件头 32 字节：magic(int) version(int) rows(int) k(int) wordsOffset(long) indexOffset(long)
+ * 每个词一条记录：n 个 int32 近邻id，紧跟 n 个 float16 相似度，n 不超过 k
+ * 词表：每个词为 int32 字节数 + UTF-8 字节
+ * 偏移索引：rows + 1 个 long，第 i 条记录位于 [offset[i], offset[i + 1])
+ * </pre>
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class KnnTable {
+
+    static final int MAGIC = 0x4B4E4E54;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    /**
+     * 每个近邻占用的字节数：int32 id + float16 相似度
+     */
+    static final int ENTRY_SIZE = Integer.BYTES + Short.BYTES;
+
+    private final MappedRegion region;
+    private final int rows;
+    private final int k;
+    private final long indexOffset;
+    private final Vocabulary vocabulary;
+
+    private KnnTable(MappedRegion region) throws IOException {
+        this.region = region;
+        if (region.size() < HEADER_SIZE || region.getInt(0) != MAGIC) {
+            throw new IOException("不是近邻表文件");
+        }
+        int version = region.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("不支持的近邻表版本：" + version);
+        }
+        this.rows = region.getInt(8);
+        this.k = region.getInt(12);
+        long wordsOffset = region.getLong(16);
+        this.indexOffset = region.getLong(24);
+        if (indexOffset + (rows + 1L) * Long.BYTES != region.size()) {
+            throw new IOException("近邻表文件不完整");
+        }
+        this.vocabulary = readVocabulary(wordsOffset, indexOffset);
+    }
+
+    /**
+     * 映射近邻表文件
+     *
+     * @param path 文件路径
+     * @return 近邻表
+     * @throws IOException 读取错误或格式不正确
+     */
+    public static KnnTable open(Path path) throws IOException {
+        return new KnnTable(new MappedRegion(path));
+    }
+
+    static KnnTable open(Path path, int segmentSize) throws IOException {
+        return new KnnTable(new MappedRegion(path, segmentSize));
+    }
+
+    /**
+     * 词的字节直接读入词表的连续存储，不创建 String 对象
+     */
+    private Vocabulary readVocabulary(long position, long end) throws IOException {
+        long textBytes = end - position - (long) rows * Integer.BYTES;
+        if (textBytes < 0 || textBytes > Integer.MAX_VALUE - 8) {
+            throw new IOException("近邻表的词表大小不正确");
+        }
+        byte[] bytes = new byte[(int) textBytes];
+        int[] offsets = new int[rows + 1];
+        int offset = 0;
+        for (int i = 0; i < rows; i++) {
+            int length = region.getInt(position);
+            position += Integer.BYTES;
+            region.get(position, bytes, offset, length);
+            position += length;
+            offset += length;
+            offsets[i + 1] = offset;
+        }
+        return new Vocabulary(bytes, offsets);
+    }
+
+    /**
+     * 词表，词id与生成近邻表的模型一致
+     *
+     * @return 词表
+     */
+    public Vocabulary getVocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * 词数
+     *
+     * @return 词数
+     */
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * 每个词保存的近邻数上限
+     *
+     * @return k
+     */
+    public int k() {
+        return k;
+    }
+
+    /**
+     * 某个词实际保存的近邻数
+     *
+     * @param id 词id
+     * @return 近邻数
+     */
+    public int count(int id) {
+        long offset = indexOffset + (long) id * Long.BYTES;
+        return (int) ((region.getLong(offset + Long.BYTES) - region.getLong(offset)) / ENTRY_SIZE);
+    }
+
+    /**
+     * 读取某个词的前 topN 个近邻（不包括自身）
+     *
+     * @param id   词id
+     * @param topN 前topN个，超过 k 时只返回 k 个
+     * @return 词id与相似度，按相似度降序排列
+     */
+    public Neighbors neighbors(int id, int topN) {
+        long offset = indexOffset + (long) id * Long.BYTES;
+        long start = region.getLong(offset);
+        int count = (int) ((region.getLong(offset + Long.BYTES) - start) / ENTRY_SIZE);
+        int size = Math.min(Math.max(0, topN), count);
+        int[] ids = new int[size];
+        float[] scores = new float[size];
+        long scoreStart = start + (long) count * Integer.BYTES;
+        for (int i = 0; i < size; i++) {
+            ids[i] = region.getInt(start + (long) i * Integer.BYTES);
+            scores[i] = Float16.toFloat(region.getShort(scoreStart + (long) i * Short.BYTES));
+        }
+        return new Neighbors(ids, scores, size);
+    }
+}
@@ -0,0 +1,202 @@
+package org.fooldata.knn;
+
+import org.fooldata.index.ExactSearcher;
+import org.fooldata.index.NearestIndex;
+import org.fooldata.index.Neighbors;
+import org.fooldata.storage.VectorStore;
+import org.fooldata.storage.Vocabulary;
+import org.fooldata.util.AtomicFiles;
+import org.fooldata.util.Float16;
+import org.fooldata.util.VectorIoUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * 离线计算全部词的 k 近邻并写成 {@link KnnTable} 文件<br>
+ * 词按批调用 {@link NearestIndex#searchBatch} 并行查询，查询完一批就顺序写出一批，内存中只保留偏移索引。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class KnnTableBuilder {
+
+    private static final Logger logger = LoggerFactory.getLogger(KnnTableBuilder.class);
+
+    /**
+     * 每批查询的词数
+     */
+    static final int BATCH_SIZE = 4096;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private KnnTableBuilder() {
+    }
+
+    /**
+     * 计算 k 近邻表并写入文件
+     *
+     * @param vocabulary 词表
+     * @param store      向量存储
+     * @param index      近邻索引，精确的近邻表使用 {@link ExactSearcher}
+     * @param excluded   不参与的词id（如已删除的词），这些词没有近邻也不会出现在结果中，可以为null
+     * @param k          每个词保存的近邻数
+     * @param path       输出文件
+     * @throws IOException 写入错误
+     */
+    public static void build(Vocabulary vocabulary, VectorStore store, NearestIndex index, BitSet excluded,
+                             int k, Path path) throws IOException {
+        if (k <= 0 || (long) k * KnnTable.ENTRY_SIZE > MappedRegion.OVERLAP) {
+            throw new IllegalArgumentException("k 超出范围：" + k);
+        }
+        int rows = vocabulary.size();
+        long[] offsets = new long[rows + 1];
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        // 先写同目录的临时文件，刷盘后原子改名，正在映射旧表的只读服务不会因为文件被截断而出错
+        Path temp = AtomicFiles.tempFile(path);
+        boolean published = false;
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                channel.position(KnnTable.HEADER_SIZE);
+                long position = KnnTable.HEADER_SIZE;
+                int[] ids = new int[k];
+                float[] scores = new float[k];
+                int dimension = store.dimension();
+                int excludedCount = excluded == null ? 0 : excluded.cardinality();
+                for (int start = 0; start < rows; start += BATCH_SIZE) {
+                    int end = Math.min(rows, start + BATCH_SIZE);
+                    float[][] vectors = new float[end - start][dimension];
+                    for (int row = start; row < end; row++) {
+                        store.getRow(row, vectors[row - start]);
+                    }
+                    Neighbors[] found = index.searchBatch(vectors, k + 1);
+                    for (int row = start; row < end; row++) {
+                        offsets[row] = position;
+                        if (excluded != null && excluded.get(row)) {
+                            continue;
+                        }
+                        Neighbors neighbors = found[row - start];
+                        int count = collect(neighbors, row, excluded, ids, scores);
+                        if (count < k && neighbors.size() == k + 1 && excludedCount > 0) {
+                            // 不参与的词占用了结果，单独扩大范围补查
+                            neighbors = index.search(vectors[row - start], Math.min(index.size(), k + 1 + excludedCount));
+                            count = collect(neighbors, row, excluded, ids, scores);
+                        }
+                        ensure(channel, buffer, count * KnnTable.ENTRY_SIZE);
+                        for (int i = 0; i < count; i++) {
+                            buffer.putInt(ids[i]);
+                        }
+                        for (int i = 0; i < count; i++) {
+                            buffer.putShort(Float16.fromFloat(scores[i]));
+                        }
+                        position += count * KnnTable.ENTRY_SIZE;
+                    }
+                    logger.info("已计算 {}/{} 个词的近邻", end, rows);
+                }
+                offsets[rows] = position;
+
+                long wordsOffset = position;
+                for (int i = 0; i < rows; i++) {
+                    byte[] bytes = vocabulary.word(i).getBytes(StandardCharsets.UTF_8);
+                    if (bytes.length > MappedRegion.OVERLAP) {
+                        throw new IllegalArgumentException("词过长：" + i);
+                    }
+                    ensure(channel, buffer, Integer.BYTES);
+                    buffer.putInt(bytes.length);
+                    for (int offset = 0; offset < bytes.length; ) {
+                        ensure(channel, buffer, 1);
+                        int length = Math.min(buffer.remaining(), bytes.length - offset);
+                        buffer.put(bytes, offset, length);
+                        offset += length;
+                    }
+                    position += Integer.BYTES + bytes.length;
+                }
+
+                long indexOffset = position;
+                for (long offset : offsets) {
+                    ensure(channel, buffer, Long.BYTES);
+                    buffer.putLong(offset);
+                }
+                flush(channel, buffer);
+
+                buffer.putInt(KnnTable.MAGIC);
+                buffer.putInt(KnnTable.VERSION);
+                buffer.putInt(rows);
+                buffer.putInt(k);
+                buffer.putLong(wordsOffset);
+                buffer.putLong(indexOffset);
+                channel.position(0);
+                flush(channel, buffer);
+                channel.force(true);
+            }
+            AtomicFiles.publish(temp, path);
+            published = true;
+        } finally {
+            if (!published) {
+                AtomicFiles.discard(temp);
+            }
+        }
+    }
+
+    /**
+     * 去掉自身与不参与的词，最多保留 ids.length 个
+     *
+     * @return 保留的个数
+     */
+    private static int collect(Neighbors neighbors, int row, BitSet excluded, int[] ids, float[] scores) {
+        int count = 0;
+        for (int i = 0; i < neighbors.size() && count < ids.length; i++) {
+            int id = neighbors.id(i);
+            if (id != row && (excluded == null || !excluded.get(id))) {
+                ids[count] = id;
+                scores[count++] = neighbors.score(i);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 保证缓冲区至少还能写入 n 个字节
+     */
+    private static void ensure(FileChannel channel, ByteBuffer buffer, int n) throws IOException {
+        if (buffer.remaining() < n) {
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        ((Buffer) buffer).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        ((Buffer) buffer).clear();
+    }
+
+    /**
+     * 命令行入口：java KnnTableBuilder 词向量文件 输出文件 [k]
+     *
+     * @param args 参数
+     * @throws IOException 读写错误
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("用法：KnnTableBuilder 词向量文件 输出文件 [k，默认50]");
+            return;
+        }
+        VectorIoUtil reader = new VectorIoUtil(args[0]);
+        reader.readVectorFile();
+        VectorStore store = reader.getStore();
+        int k = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        build(new Vocabulary(reader.getVocab()), store, new ExactSearcher(store), null, k, Paths.get(args[1]));
+        logger.info("近邻表已写入：{}", args[1]);
+    }
+}
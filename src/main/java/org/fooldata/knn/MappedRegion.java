@@ -0,0 +1,86 @@
+package org.fooldata.knn;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 只读映射整个文件，按绝对位置随机读取<br>
+ * 单次映射不能超过2G，文件按段映射，相邻的段重叠 {@link #OVERLAP} 个字节，
+ * 不超过重叠长度的记录总能在一个段内完整读出。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+final class MappedRegion {
+
+    static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+    /**
+     * 相邻段的重叠字节数，也是单条记录的最大长度
+     */
+    static final int OVERLAP = 1 << 20;
+
+    private final MappedByteBuffer[] segments;
+    private final int segmentShift;
+    private final long size;
+
+    MappedRegion(Path path) throws IOException {
+        this(path, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param segmentSize 段大小，必须是2的幂
+     */
+    MappedRegion(Path path, int segmentSize) throws IOException {
+        if (Integer.bitCount(segmentSize) != 1) {
+            throw new IllegalArgumentException("段大小必须是2的幂：" + segmentSize);
+        }
+        this.segmentShift = Integer.numberOfTrailingZeros(segmentSize);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            this.size = channel.size();
+            int count = (int) ((size + segmentSize - 1) >>> segmentShift);
+            this.segments = new MappedByteBuffer[Math.max(1, count)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i << segmentShift;
+                long length = Math.min(size - start, (long) segmentSize + OVERLAP);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(0, length));
+                segments[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    private MappedByteBuffer segment(long position) {
+        return segments[(int) (position >>> segmentShift)];
+    }
+
+    private int offset(long position) {
+        return (int) (position & ((1L << segmentShift) - 1));
+    }
+
+    int getInt(long position) {
+        return segment(position).getInt(offset(position));
+    }
+
+    short getShort(long position) {
+        return segment(position).getShort(offset(position));
+    }
+
+    long getLong(long position) {
+        return segment(position).getLong(offset(position));
+    }
+
+    void get(long position, byte[] dest, int offset, int length) {
+        ByteBuffer buffer = segment(position).duplicate();
+        ((Buffer) buffer).position(offset(position));
+        buffer.get(dest, offset, length);
+    }
+}
@@ -0,0 +1,30 @@
+package org.fooldata.metrics;
+
+/**
+ * 加载模型的各个阶段
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public enum LoadPhase {
+    /**
+     * 解析文本或二进制词向量文件。归一化在解析每一行时顺带完成，不单独计时
+     */
+    PARSE,
+    /**
+     * 校验模型快照文件的校验和
+     */
+    VERIFY,
+    /**
+     * 映射快照文件中的词表与向量矩阵
+     */
+    MAP,
+    /**
+     * 从快照文件读取索引结构
+     */
+    INDEX_READ,
+    /**
+     * 构建近邻索引，包括加载、重新加载与合并时的构建
+     */
+    INDEX_BUILD
+}
@@ -0,0 +1,58 @@
+package org.fooldata.metrics;
+
+/**
+ * 模型的监控指标接口，通过 {@link org.fooldata.model.ModelOptions#setMetrics} 接入，可以转发到任意监控系统<br>
+ * 默认的 {@link #NOOP} 不记录任何内容，模型在 {@link #isEnabled()} 为false时也不计时、不统计查询工作量。
+ * 实现会被多个查询线程同时调用，必须是线程安全的，并且不应阻塞。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public interface ModelMetrics {
+
+    /**
+     * 不记录任何指标
+     */
+    ModelMetrics NOOP = new ModelMetrics() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    };
+
+    /**
+     * 是否记录指标，为false时模型跳过计时与统计
+     *
+     * @return 是否记录
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * 记录一次操作的耗时
+     *
+     * @param operation 操作
+     * @param nanos     耗时（纳秒）
+     */
+    default void recordLatency(Operation operation, long nanos) {
+    }
+
+    /**
+     * 记录一次查询在索引中的工作量，只有走索引的查询才会记录，命中缓存或近邻表的查询不记录
+     *
+     * @param operation 操作
+     * @param stats     工作量
+     */
+    default void recordSearch(Operation operation, SearchStats stats) {
+    }
+
+    /**
+     * 记录加载的一个阶段的耗时
+     *
+     * @param phase 阶段
+     * @param nanos 耗时（纳秒）
+     */
+    default void recordLoadPhase(LoadPhase phase, long nanos) {
+    }
+}
@@ -0,0 +1,38 @@
+package org.fooldata.metrics;
+
+/**
+ * 记录耗时的模型操作
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public enum Operation {
+    /**
+     * 按词或按向量查询近邻（nearest）
+     */
+    NEAREST,
+    /**
+     * 扫描全部向量的精确查询（nearest2）
+     */
+    NEAREST_EXACT,
+    /**
+     * 批量查询近邻（nearestBatch），记录整批的耗时
+     */
+    NEAREST_BATCH,
+    /**
+     * 两个词的相似度（similarity）
+     */
+    SIMILARITY,
+    /**
+     * 类比查询（analogy、analogyBatch）
+     */
+    ANALOGY,
+    /**
+     * 加载或重新加载模型文件、模型快照
+     */
+    LOAD,
+    /**
+     * 合并增量段与墓碑
+     */
+    COMPACT
+}
@@ -0,0 +1,66 @@
+package org.fooldata.metrics;
+
+/**
+ * 一次近邻查询在索引中的工作量，用于观察索引是否退化（例如KD树在高维下剪枝失效、几乎访问全部节点）<br>
+ * 只在单个查询线程中累加，不是线程安全的；没有开启统计时索引收到的是null，不计数。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class SearchStats {
+
+    /**
+     * 访问的节点数：KD树为经过的树节点（叶子按一个计），HNSW 为展开邻居的图节点
+     */
+    private long visitedNodes;
+    /**
+     * 计算距离或点积的次数
+     */
+    private long distanceComputations;
+    /**
+     * KD树回溯进入另一侧子树的次数
+     */
+    private long backtracks;
+    /**
+     * 剪掉的分支数：KD树中不必搜索的另一侧子树，HNSW 中分数进不了结果、不再展开的邻居
+     */
+    private long prunedBranches;
+
+    public void addVisitedNodes(long count) {
+        visitedNodes += count;
+    }
+
+    public void addDistanceComputations(long count) {
+        distanceComputations += count;
+    }
+
+    public void addBacktracks(long count) {
+        backtracks += count;
+    }
+
+    public void addPrunedBranches(long count) {
+        prunedBranches += count;
+    }
+
+    public long getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    public long getDistanceComputations() {
+        return distanceComputations;
+    }
+
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    public long getPrunedBranches() {
+        return prunedBranches;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchStats{visitedNodes=" + visitedNodes + ", distanceComputations=" + distanceComputations
+                + ", backtracks=" + backtracks + ", prunedBranches=" + prunedBranches + '}';
+    }
+}
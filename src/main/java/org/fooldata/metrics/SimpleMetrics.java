@@ -0,0 +1,102 @@
+package org.fooldata.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 在内存中汇总指标的实现：每种操作一个耗时直方图，查询工作量累计求和，加载阶段保留最近一次的耗时<br>
+ * 可以直接用于定时上报，也可以作为接入其他监控系统的参考。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class SimpleMetrics implements ModelMetrics {
+
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, Counters> searches = new EnumMap<>(Operation.class);
+    private final Map<LoadPhase, AtomicLong> loadPhases = new EnumMap<>(LoadPhase.class);
+
+    public SimpleMetrics() {
+        // 预先创建全部条目，之后只读 Map，不需要同步
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+            searches.put(operation, new Counters());
+        }
+        for (LoadPhase phase : LoadPhase.values()) {
+            loadPhases.put(phase, new AtomicLong(-1));
+        }
+    }
+
+    @Override
+    public void recordLatency(Operation operation, long nanos) {
+        latencies.get(operation).record(nanos);
+    }
+
+    @Override
+    public void recordSearch(Operation operation, SearchStats stats) {
+        Counters counters = searches.get(operation);
+        counters.searches.increment();
+        counters.visitedNodes.add(stats.getVisitedNodes());
+        counters.distanceComputations.add(stats.getDistanceComputations());
+        counters.backtracks.add(stats.getBacktracks());
+        counters.prunedBranches.add(stats.getPrunedBranches());
+    }
+
+    @Override
+    public void recordLoadPhase(LoadPhase phase, long nanos) {
+        loadPhases.get(phase).set(nanos);
+    }
+
+    /**
+     * 操作的耗时直方图
+     *
+     * @param operation 操作
+     * @return 直方图
+     */
+    public LatencyHistogram latency(Operation operation) {
+        return latencies.get(operation);
+    }
+
+    /**
+     * 记录过工作量的查询次数
+     */
+    public long searches(Operation operation) {
+        return searches.get(operation).searches.sum();
+    }
+
+    public long visitedNodes(Operation operation) {
+        return searches.get(operation).visitedNodes.sum();
+    }
+
+    public long distanceComputations(Operation operation) {
+        return searches.get(operation).distanceComputations.sum();
+    }
+
+    public long backtracks(Operation operation) {
+        return searches.get(operation).backtracks.sum();
+    }
+
+    public long prunedBranches(Operation operation) {
+        return searches.get(operation).prunedBranches.sum();
+    }
+
+    /**
+     * 最近一次加载中该阶段的耗时
+     *
+     * @param phase 阶段
+     * @return 耗时（纳秒），没有经过该阶段时为-1
+     */
+    public long loadPhase(LoadPhase phase) {
+        return loadPhases.get(phase).get();
+    }
+
+    private static final class Counters {
+        final LongAdder searches = new LongAdder();
+        final LongAdder visitedNodes = new LongAdder();
+        final LongAdder distanceComputations = new LongAdder();
+        final LongAdder backtracks = new LongAdder();
+        final LongAdder prunedBranches = new LongAdder();
+    }
+}
@@ -0,0 +1,237 @@
+package org.fooldata.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 增量段：建索引之后新增或修改的词向量，不可变<br>
+ * 新词的id从主词表大小开始递增；修改已有词时原id不变，新向量放在增量段，主索引中的旧向量作为墓碑跳过。
+ * 增量段较小，查询时精确扫描后与主索引的结果合并，积累到一定规模后由合并（compaction）重建索引。<br>
+ * 同一条修改链上的各个版本共用一份只追加的存储：新词、新行追加在已发布的范围之后，每个版本只读取自己的词数与行数以内的部分，
+ * 每次修改的代价与增量段大小无关。修改已在增量段中的词时追加新行而不覆盖旧行，旧版本仍读到旧向量；
+ * 词到id、id到行号的映射保存每次写入的历史，按版本的范围取最后一次写入。
+ * 修改只能由一个线程串行进行；在旧版本上修改（产生分叉）时先复制出独立的存储。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+final class Delta {
+
+    /**
+     * 每块的行数
+     */
+    static final int CHUNK_ROWS = 256;
+
+    /**
+     * 主词表大小，新词id的起点
+     */
+    final int base;
+    private final int dimension;
+    private final Storage storage;
+    /**
+     * 新词，id 为 base + i，只读取前 wordCount 个
+     */
+    private final String[] words;
+    private final int wordCount;
+    /**
+     * 每行对应的词id，只读取前 rowCount 个
+     */
+    private final int[] rowIds;
+    private final float[][] chunks;
+    private final int rowCount;
+
+    private Delta(int base, int dimension, Storage storage, int wordCount, int rowCount) {
+        this.base = base;
+        this.dimension = dimension;
+        this.storage = storage;
+        this.words = storage.words;
+        this.wordCount = wordCount;
+        this.rowIds = storage.rowIds;
+        this.chunks = storage.chunks;
+        this.rowCount = rowCount;
+    }
+
+    static Delta empty(int base, int dimension) {
+        return new Delta(base, dimension, new Storage(), 0, 0);
+    }
+
+    boolean isEmpty() {
+        return rowCount == 0;
+    }
+
+    /**
+     * 增量段的行数，包括被同一个词的后续修改取代的行
+     */
+    int rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * 词id的上界（主词表与新词）
+     */
+    int idBound() {
+        return base + wordCount;
+    }
+
+    /**
+     * 新词的id
+     *
+     * @return id，不是新词时返回-1
+     */
+    int id(String word) {
+        return Entry.latest(storage.ids.get(word), idBound());
+    }
+
+    String word(int id) {
+        return words[id - base];
+    }
+
+    /**
+     * 词id在增量段中的行号
+     *
+     * @return 行号，向量不在增量段时返回-1
+     */
+    int row(int id) {
+        return Entry.latest(storage.rows.get(id), rowCount);
+    }
+
+    int rowId(int row) {
+        return rowIds[row];
+    }
+
+    /**
+     * 该行是否是其词id在本版本中的最新向量，扫描时跳过被取代的行
+     */
+    boolean isLive(int row) {
+        return row(rowIds[row]) == row;
+    }
+
+    void getRow(int row, float[] dest) {
+        System.arraycopy(chunks[row / CHUNK_ROWS], (row % CHUNK_ROWS) * dimension, dest, 0, dimension);
+    }
+
+    float dot(int row, float[] vector) {
+        float[] chunk = chunks[row / CHUNK_ROWS];
+        int offset = (row % CHUNK_ROWS) * dimension;
+        float sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += chunk[offset + i] * vector[i];
+        }
+        return sum;
+    }
+
+    /**
+     * 新增一个词
+     *
+     * @param word   词
+     * @param vector 归一化后的向量
+     * @return 新的增量段，新词的id为原来的 idBound()
+     */
+    Delta withWord(String word, float[] vector) {
+        Storage target = writable();
+        int id = idBound();
+        target.appendWord(wordCount, word, id);
+        target.wordCount = wordCount + 1;
+        return new Delta(base, dimension, target, wordCount + 1, rowCount).withVector(id, vector);
+    }
+
+    /**
+     * 设置某个词id的向量，追加一行
+     *
+     * @param id     词id
+     * @param vector 归一化后的向量
+     * @return 新的增量段
+     */
+    Delta withVector(int id, float[] vector) {
+        Storage target = writable();
+        target.appendRow(rowCount, id, vector, dimension);
+        target.rowCount = rowCount + 1;
+        return new Delta(base, dimension, target, wordCount, rowCount + 1);
+    }
+
+    /**
+     * 可追加的存储：本版本是存储上最新的版本时直接追加，否则复制出本版本可见的部分
+     */
+    private Storage writable() {
+        if (storage.wordCount == wordCount && storage.rowCount == rowCount) {
+            return storage;
+        }
+        Storage copy = new Storage();
+        for (int i = 0; i < wordCount; i++) {
+            copy.appendWord(i, words[i], base + i);
+        }
+        float[] row = new float[dimension];
+        for (int r = 0; r < rowCount; r++) {
+            getRow(r, row);
+            copy.appendRow(r, rowIds[r], row, dimension);
+        }
+        copy.wordCount = wordCount;
+        copy.rowCount = rowCount;
+        return copy;
+    }
+
+    /**
+     * 一条修改链共用的只追加存储，只由修改线程写入；数组扩容时换成新数组，已发布的版本继续持有旧数组
+     */
+    private static final class Storage {
+        final ConcurrentHashMap<String, Entry> ids = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Integer, Entry> rows = new ConcurrentHashMap<>();
+        String[] words = new String[16];
+        int[] rowIds = new int[16];
+        float[][] chunks = new float[0][];
+        /**
+         * 最新版本的词数与行数，用于判断修改是否发生在最新版本上
+         */
+        int wordCount;
+        int rowCount;
+
+        void appendWord(int index, String word, int id) {
+            if (index == words.length) {
+                words = Arrays.copyOf(words, index * 2);
+            }
+            words[index] = word;
+            ids.put(word, new Entry(id, ids.get(word)));
+        }
+
+        void appendRow(int row, int id, float[] vector, int dimension) {
+            if (row == rowIds.length) {
+                rowIds = Arrays.copyOf(rowIds, row * 2);
+            }
+            rowIds[row] = id;
+            int chunkIndex = row / CHUNK_ROWS;
+            if (chunkIndex == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunkIndex + 1);
+                chunks[chunkIndex] = new float[CHUNK_ROWS * dimension];
+            }
+            System.arraycopy(vector, 0, chunks[chunkIndex], (row % CHUNK_ROWS) * dimension, dimension);
+            rows.put(id, new Entry(row, rows.get(id)));
+        }
+    }
+
+    /**
+     * 一次写入的值，链接到同一个键之前的写入
+     */
+    private static final class Entry {
+        final int value;
+        final Entry previous;
+
+        Entry(int value, Entry previous) {
+            this.value = value;
+            this.previous = previous;
+        }
+
+        /**
+         * 小于 bound 的最后一次写入
+         *
+         * @return 值，没有时返回-1
+         */
+        static int latest(Entry entry, int bound) {
+            for (Entry e = entry; e != null; e = e.previous) {
+                if (e.value < bound) {
+                    return e.value;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package org.fooldata.model;
+
+import org.fooldata.index.IndexType;
+import org.fooldata.kdtree.SplitRule;
+import org.fooldata.metrics.ModelMetrics;
+import org.fooldata.quantization.Int8Scale;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * 模型加载选项
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class ModelOptions {
+
+    /**
+     * 向量是否放在堆外内存，大模型可以减少堆占用和GC停顿
+     */
+    private boolean offHeap = false;
+
+    /**
+     * 近邻索引类型
+     */
+    private IndexType indexType = IndexType.BALANCED_KD_TREE;
+
+    /**
+     * KD树选择切分维度的规则
+     */
+    private SplitRule splitRule = SplitRule.MAX_VARIANCE;
+
+    /**
+     * HNSW 每个节点的邻居数
+     */
+    private int hnswM = 16;
+
+    /**
+     * HNSW 构建时的搜索宽度
+     */
+    private int hnswEfConstruction = 200;
+
+    /**
+     * HNSW 查询时的搜索宽度
+     */
+    private int hnswEfSearch = 100;
+
+    /**
+     * 乘积量化的子空间个数（每个向量编码后的字节数），0表示按每4维一个子空间自动选择
+     */
+    private int pqSubspaces = 0;
+
+    /**
+     * int8 标量量化的缩放方式
+     */
+    private Int8Scale int8Scale = Int8Scale.PER_ROW;
+
+    /**
+     * 量化索引（PQ、INT8）精确重排的候选数是 topN 的几倍，0表示不重排
+     */
+    private int rerankFactor = 4;
+
+    /**
+     * 使用量化索引时是否保留原始向量。默认保留，用于精确重排与 vector()、similarity()，此时量化编码是额外的内存，总内存不会减少；
+     * 要用 PQ、INT8 节省内存必须设为 false，之后全部使用量化后的向量，不再精确重排
+     */
+    private boolean keepFloatVectors = true;
+
+    /**
+     * 近邻结果缓存最多保存的近邻总数，0表示不缓存。查询集中在少量高频词时可以开启
+     */
+    private long cacheSize = 0;
+
+    /**
+     * 监控指标，默认不记录
+     */
+    private ModelMetrics metrics = ModelMetrics.NOOP;
+
+    /**
+     * 增量段（新增或修改后尚未进入索引的词）达到多少行时合并
+     */
+    private int compactionDeltaSize = 10000;
+
+    /**
+     * 墓碑（已删除或已修改的词）占主索引的比例超过多少时合并
+     */
+    private double compactionTombstoneRatio = 0.2;
+
+    /**
+     * 超过合并阈值时是否在后台自动合并，关闭后只能调用 compact() 手动合并
+     */
+    private boolean autoCompaction = true;
+
+    /**
+     * 加载模型快照时是否校验CRC32，校验需要读一遍整个文件
+     */
+    private boolean verifySnapshotChecksum = true;
+
+    /**
+     * 构建索引使用的线程数
+     */
+    private int indexThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 懒加载：加载词向量文件时只建立词到文件位置的索引，向量在第一次访问时解码。
+     * 不构建近似索引，近邻查询精确扫描并逐行解码，适合主要按词取向量、算相似度的服务。
+     * 懒加载的模型不会自动合并，修改一直保留在增量段中；手动调用 compact() 会把全部向量解码进内存并构建 indexType 指定的索引
+     */
+    private boolean lazyLoading = false;
+
+    /**
+     * 懒加载时热点行缓存最多容纳的行数
+     */
+    private long lazyCacheRows = 100000;
+
+    /**
+     * 懒加载时预加载（常驻内存）的前多少个词，词向量文件通常按词频降序排列
+     */
+    private int preloadRows = 0;
+
+    /**
+     * 懒加载时预加载（常驻内存）的词
+     */
+    private Collection<String> preloadWords = Collections.emptyList();
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    public void setOffHeap(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    public IndexType getIndexType() {
+        return indexType;
+    }
+
+    public void setIndexType(IndexType indexType) {
+        this.indexType = indexType;
+    }
+
+    public int getHnswM() {
+        return hnswM;
+    }
+
+    public void setHnswM(int hnswM) {
+        this.hnswM = hnswM;
+    }
+
+    public int getHnswEfConstruction() {
+        return hnswEfConstruction;
+    }
+
+    public void setHnswEfConstruction(int hnswEfConstruction) {
+        this.hnswEfConstruction = hnswEfConstruction;
+    }
+
+    public int getHnswEfSearch() {
+        return hnswEfSearch;
+    }
+
+    public void setHnswEfSearch(int hnswEfSearch) {
+        this.hnswEfSearch = hnswEfSearch;
+    }
+
+    public int getPqSubspaces() {
+        return pqSubspaces;
+    }
+
+    public void setPqSubspaces(int pqSubspaces) {
+        this.pqSubspaces = pqSubspaces;
+    }
+
+    public Int8Scale getInt8Scale() {
+        return int8Scale;
+    }
+
+    public void setInt8Scale(Int8Scale int8Scale) {
+        this.int8Scale = int8Scale;
+    }
+
+    public int getRerankFactor() {
+        return rerankFactor;
+    }
+
+    public void setRerankFactor(int rerankFactor) {
+        this.rerankFactor = rerankFactor;
+    }
+
+    public boolean isKeepFloatVectors() {
+        return keepFloatVectors;
+    }
+
+    /**
+     * 使用 PQ、INT8 索引节省内存时必须设为 false，默认的 true 会同时保留原始向量与量化编码
+     *
+     * @param keepFloatVectors 是否保留原始向量
+     */
+    public void setKeepFloatVectors(boolean keepFloatVectors) {
+        this.keepFloatVectors = keepFloatVectors;
+    }
+
+    public long getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(long cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public int getCompactionDeltaSize() {
+        return compactionDeltaSize;
+    }
+
+    public void setCompactionDeltaSize(int compactionDeltaSize) {
+        this.compactionDeltaSize = compactionDeltaSize;
+    }
+
+    public double getCompactionTombstoneRatio() {
+        return compactionTombstoneRatio;
+    }
+
+    public void setCompactionTombstoneRatio(double compactionTombstoneRatio) {
+        this.compactionTombstoneRatio = compactionTombstoneRatio;
+    }
+
+    public boolean isAutoCompaction() {
+        return autoCompaction;
+    }
+
+    public void setAutoCompaction(boolean autoCompaction) {
+        this.autoCompaction = autoCompaction;
+    }
+
+    public boolean isVerifySnapshotChecksum() {
+        return verifySnapshotChecksum;
+    }
+
+    public void setVerifySnapshotChecksum(boolean verifySnapshotChecksum) {
+        this.verifySnapshotChecksum = verifySnapshotChecksum;
+    }
+
+    public int getIndexThreads() {
+        return indexThreads;
+    }
+
+    public void setIndexThreads(int indexThreads) {
+        this.indexThreads = indexThreads;
+    }
+
+    public SplitRule getSplitRule() {
+        return splitRule;
+    }
+
+    public void setSplitRule(SplitRule splitRule) {
+        this.splitRule = splitRule;
+    }
+
+    public boolean isLazyLoading() {
+        return lazyLoading;
+    }
+
+    public void setLazyLoading(boolean lazyLoading) {
+        this.lazyLoading = lazyLoading;
+    }
+
+    public long getLazyCacheRows() {
+        return lazyCacheRows;
+    }
+
+    public void setLazyCacheRows(long lazyCacheRows) {
+        this.lazyCacheRows = lazyCacheRows;
+    }
+
+    public int getPreloadRows() {
+        return preloadRows;
+    }
+
+    public void setPreloadRows(int preloadRows) {
+        this.preloadRows = preloadRows;
+    }
+
+    public Collection<String> getPreloadWords() {
+        return preloadWords;
+    }
+
+    public void setPreloadWords(Collection<String> preloadWords) {
+        this.preloadWords = preloadWords;
+    }
+
+    public ModelMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(ModelMetrics metrics) {
+        this.metrics = metrics;
+    }
+}
@@ -0,0 +1,629 @@
+package org.fooldata.model;
+
+import org.fooldata.algorithm.TopK;
+import org.fooldata.index.AnalogyMethod;
+import org.fooldata.index.AnalogySearcher;
+import org.fooldata.index.ExactSearcher;
+import org.fooldata.index.HnswIndex;
+import org.fooldata.index.NearestIndex;
+import org.fooldata.index.Neighbors;
+import org.fooldata.kdtree.BalancedKdTree;
+import org.fooldata.kdtree.KdTree;
+import org.fooldata.knn.KnnTable;
+import org.fooldata.metrics.LoadPhase;
+import org.fooldata.metrics.ModelMetrics;
+import org.fooldata.metrics.SearchStats;
+import org.fooldata.quantization.Int8Index;
+import org.fooldata.quantization.Int8VectorStore;
+import org.fooldata.quantization.PqIndex;
+import org.fooldata.quantization.PqVectorStore;
+import org.fooldata.quantization.ProductQuantizer;
+import org.fooldata.storage.HeapVectorStore;
+import org.fooldata.storage.LazyVectorStore;
+import org.fooldata.storage.OffHeapVectorStore;
+import org.fooldata.storage.VectorStore;
+import org.fooldata.storage.Vocabulary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 模型某一时刻的不可变快照<br>
+ * 查询开始时取一次快照，之后只读快照中的字段，不受并发的删除与重新加载影响；
+ * 修改模型时复制出新快照再整体替换，旧快照在引用它的查询结束后由GC回收。
+ * 建索引之后新增、修改的向量放在 {@link Delta} 中，查询结果是主索引（跳过墓碑）与增量段扫描结果的合并。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+final class ModelSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelSnapshot.class);
+
+    /**
+     * 主词表，词id即向量在 store 中的行号
+     */
+    final Vocabulary vocabulary;
+    /**
+     * 主词表的词向量，连续存放；只加载近邻表时为null
+     */
+    final VectorStore store;
+    /**
+     * 已删除的词id，发布后不再修改
+     */
+    final BitSet removed;
+    /**
+     * 主索引中需要跳过的词id（墓碑）：已删除的词，以及向量已修改、新向量在增量段中的词
+     */
+    final BitSet hidden;
+    /**
+     * 增量段
+     */
+    final Delta delta;
+    /**
+     * 未删除的词数
+     */
+    final int size;
+    /**
+     * 近邻索引
+     */
+    final NearestIndex index;
+    /**
+     * 精确查询
+     */
+    final ExactSearcher exactSearcher;
+    /**
+     * 近邻结果缓存，为null时不缓存
+     */
+    final NearestCache cache;
+    /**
+     * 离线计算的近邻表，k 不超过表中的 k 时直接读表，为null时不使用
+     */
+    final KnnTable knnTable;
+    /**
+     * 快照版本，每次修改都会增大
+     */
+    final long version;
+
+    private ModelSnapshot(Vocabulary vocabulary, VectorStore store, BitSet removed, BitSet hidden, Delta delta,
+                          int size, NearestIndex index, ExactSearcher exactSearcher, NearestCache cache,
+                          KnnTable knnTable, long version) {
+        this.vocabulary = vocabulary;
+        this.store = store;
+        this.removed = removed;
+        this.hidden = hidden;
+        this.delta = delta;
+        this.size = size;
+        this.index = index;
+        this.exactSearcher = exactSearcher;
+        this.cache = cache;
+        this.knnTable = knnTable;
+        this.version = version;
+    }
+
+    /**
+     * 构建索引并创建快照
+     *
+     * @param vocabulary 词表
+     * @param store      向量存储
+     * @param options    选项
+     * @param version    版本
+     * @return 快照
+     */
+    static ModelSnapshot build(Vocabulary vocabulary, VectorStore store, ModelOptions options, long version) {
+        return build(vocabulary, store, null, options, version);
+    }
+
+    /**
+     * 使用已有的索引创建快照
+     *
+     * @param vocabulary 词表
+     * @param store      向量存储
+     * @param index      近邻索引，为null时按选项构建
+     * @param options    选项
+     * @param version    版本
+     * @return 快照
+     */
+    static ModelSnapshot build(Vocabulary vocabulary, VectorStore store, NearestIndex index, ModelOptions options,
+                               long version) {
+        if (index == null) {
+            long start = System.nanoTime();
+            index = buildIndex(store, options);
+            ModelMetrics metrics = options.getMetrics();
+            if (metrics.isEnabled()) {
+                metrics.recordLoadPhase(LoadPhase.INDEX_BUILD, System.nanoTime() - start);
+            }
+        }
+        if (!options.isKeepFloatVectors()) {
+            // 丢弃原始向量，之后全部使用量化后的向量
+            if (index instanceof PqIndex) {
+                store = ((PqIndex) index).getCodes();
+            } else if (index instanceof Int8Index) {
+                store = ((Int8Index) index).getCodes();
+            }
+        } else if (index instanceof PqIndex || index instanceof Int8Index) {
+            logger.info("量化索引保留了原始向量，内存占用不会减少；需要节省内存时设置 keepFloatVectors 为 false");
+        }
+        ExactSearcher exactSearcher = index instanceof ExactSearcher ? (ExactSearcher) index : new ExactSearcher(store);
+        NearestCache cache = options.getCacheSize() > 0 ? new NearestCache(options.getCacheSize()) : null;
+        return new ModelSnapshot(vocabulary, store, new BitSet(vocabulary.size()), new BitSet(vocabulary.size()),
+                Delta.empty(vocabulary.size(), store.dimension()), vocabulary.size(), index, exactSearcher, cache,
+                null, version);
+    }
+
+    /**
+     * 只有近邻表、没有词向量的快照
+     *
+     * @param knnTable 近邻表
+     * @return 快照
+     */
+    static ModelSnapshot of(KnnTable knnTable) {
+        Vocabulary vocabulary = knnTable.getVocabulary();
+        return new ModelSnapshot(vocabulary, null, new BitSet(vocabulary.size()), new BitSet(vocabulary.size()),
+                Delta.empty(vocabulary.size(), 0), vocabulary.size(), null, null, null, knnTable, 0);
+    }
+
+    /**
+     * 按选项构建近邻索引
+     *
+     * @param store   向量存储
+     * @param options 选项
+     * @return 索引
+     */
+    static NearestIndex buildIndex(VectorStore store, ModelOptions options) {
+        switch (options.getIndexType()) {
+            case KD_TREE:
+                KdTree kdTree = new KdTree(store);
+                for (int id = 0; id < store.size(); id++) {
+                    kdTree.insert(id);
+                }
+                return kdTree;
+            case HNSW:
+                return HnswIndex.build(store, options.getHnswM(), options.getHnswEfConstruction(),
+                        options.getHnswEfSearch(), options.getIndexThreads());
+            case EXACT:
+                return new ExactSearcher(store);
+            case PQ:
+                int subspaces = options.getPqSubspaces() > 0 ? options.getPqSubspaces() : Math.max(1, store.dimension() / 4);
+                PqVectorStore codes = ProductQuantizer.train(store, subspaces, 42).encode(store);
+                return new PqIndex(codes, options.isKeepFloatVectors() ? store : null, options.getRerankFactor());
+            case INT8:
+                Int8VectorStore int8Codes = Int8VectorStore.quantize(store, options.getInt8Scale());
+                return new Int8Index(int8Codes, options.isKeepFloatVectors() ? store : null, options.getRerankFactor());
+            case BALANCED_KD_TREE:
+            default:
+                return BalancedKdTree.build(store, options.getSplitRule());
+        }
+    }
+
+    /**
+     * 删除一个词后的新快照，复制已删除集合，其余部分共用
+     *
+     * @param id      词id
+     * @param version 新快照的版本
+     * @return 新快照
+     */
+    ModelSnapshot withRemoved(int id, long version) {
+        BitSet newRemoved = (BitSet) removed.clone();
+        newRemoved.set(id);
+        BitSet newHidden = (BitSet) hidden.clone();
+        newHidden.set(id);
+        return new ModelSnapshot(vocabulary, store, newRemoved, newHidden, delta, size - 1, index, exactSearcher,
+                cache, knnTable, version);
+    }
+
+    /**
+     * 新增或修改一个词后的新快照<br>
+     * 新词追加到增量段；已有的词把新向量写入增量段，主索引中的旧向量记为墓碑。
+     * 新增或修改后任何缓存的结果都可能变化，新快照换用新的空缓存。
+     *
+     * @param word    词
+     * @param vector  归一化后的向量
+     * @param version 新快照的版本
+     * @return 新快照
+     */
+    ModelSnapshot withVector(String word, float[] vector, long version) {
+        int id = id(word);
+        NearestCache newCache = cache == null ? null : cache.emptyCopy();
+        if (id < 0) {
+            return new ModelSnapshot(vocabulary, store, removed, hidden, delta.withWord(word, vector), size + 1,
+                    index, exactSearcher, newCache, knnTable, version);
+        }
+        BitSet newHidden = hidden;
+        if (id < delta.base && !hidden.get(id)) {
+            newHidden = (BitSet) hidden.clone();
+            newHidden.set(id);
+        }
+        return new ModelSnapshot(vocabulary, store, removed, newHidden, delta.withVector(id, vector), size,
+                index, exactSearcher, newCache, knnTable, version);
+    }
+
+    /**
+     * 是否需要合并：增量段过大，或者墓碑占主索引的比例过高<br>
+     * 懒加载的快照从不自动合并：合并会把全部向量解码进内存并构建配置的索引，懒加载就失去了意义
+     *
+     * @param options 选项
+     * @return 是否需要合并
+     */
+    boolean needsCompaction(ModelOptions options) {
+        if (store == null || store instanceof LazyVectorStore) {
+            return false;
+        }
+        return delta.rowCount() >= options.getCompactionDeltaSize()
+                || hidden.cardinality() > (long) delta.base * options.getCompactionTombstoneRatio();
+    }
+
+    /**
+     * 合并：把未删除的词（含增量段）重新排列成连续的词表与向量并重建索引，已删除的词被真正移除，词id会改变
+     *
+     * @param options 选项
+     * @param version 新快照的版本
+     * @return 新快照
+     */
+    ModelSnapshot compact(ModelOptions options, long version) {
+        String[] words = new String[size];
+        VectorStore compacted = flatten(words, options);
+        return build(new Vocabulary(words), compacted, options, version);
+    }
+
+    /**
+     * 把未删除的词（含增量段）重新排列成连续的词表与向量，不构建索引
+     *
+     * @param words   输出，长度为词数
+     * @param options 选项，决定向量放在堆内还是堆外
+     * @return 向量，行号与 words 的下标一致
+     */
+    VectorStore flatten(String[] words, ModelOptions options) {
+        int dimension = store.dimension();
+        VectorStore compacted = options.isOffHeap()
+                ? new OffHeapVectorStore(size, dimension) : new HeapVectorStore(size, dimension);
+        float[] vector = new float[dimension];
+        int row = 0;
+        for (int id = 0; id < delta.idBound() && row < size; id++) {
+            if (removed.get(id)) {
+                continue;
+            }
+            words[row] = word(id);
+            getRow(id, vector);
+            compacted.setRow(row++, vector);
+        }
+        return compacted;
+    }
+
+    /**
+     * 只改变版本的新快照
+     *
+     * @param version 新快照的版本
+     * @return 新快照
+     */
+    ModelSnapshot withVersion(long version) {
+        return new ModelSnapshot(vocabulary, store, removed, hidden, delta, size, index, exactSearcher, cache,
+                knnTable, version);
+    }
+
+    /**
+     * 附加近邻表后的新快照
+     *
+     * @param table   近邻表
+     * @param version 新快照的版本
+     * @return 新快照
+     */
+    ModelSnapshot withKnnTable(KnnTable table, long version) {
+        return new ModelSnapshot(vocabulary, store, removed, hidden, delta, size, index, exactSearcher, cache,
+                table, version);
+    }
+
+    void requireVectors() {
+        if (store == null) {
+            throw new UnsupportedOperationException("模型只加载了近邻表，没有词向量");
+        }
+    }
+
+    /**
+     * 查询词id
+     *
+     * @param key 键
+     * @return 词id，不存在或已删除时返回-1
+     */
+    int id(String key) {
+        // 删除后重新加入的词在增量段中有新的id，先查增量段
+        int id = delta.id(key);
+        if (id < 0 || removed.get(id)) {
+            id = vocabulary.id(key);
+        }
+        if (id < 0 || removed.get(id)) {
+            return -1;
+        }
+        return id;
+    }
+
+    /**
+     * 以 prefix 开头的未删除的词（含新增的词），按字典序排列
+     *
+     * @param prefix 前缀
+     * @param limit  最多返回的个数
+     * @return 词
+     */
+    List<String> prefix(String prefix, int limit) {
+        List<String> result = new ArrayList<>();
+        if (limit <= 0) {
+            return result;
+        }
+        vocabulary.forEachPrefix(prefix, id -> {
+            if (!removed.get(id)) {
+                result.add(vocabulary.word(id));
+            }
+            return result.size() < limit;
+        });
+        boolean added = false;
+        for (int id = delta.base; id < delta.idBound(); id++) {
+            String word = delta.word(id);
+            if (!removed.get(id) && word.startsWith(prefix)) {
+                result.add(word);
+                added = true;
+            }
+        }
+        if (added) {
+            result.sort(null);
+        }
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    /**
+     * 批量查询词id
+     *
+     * @param keys 键
+     * @return 与 keys 一一对应的词id，不存在或已删除时为-1
+     */
+    int[] ids(List<String> keys) {
+        if (!delta.isEmpty()) {
+            int[] ids = new int[keys.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = id(keys.get(i));
+            }
+            return ids;
+        }
+        int[] ids = vocabulary.ids(keys);
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] >= 0 && removed.get(ids[i])) {
+                ids[i] = -1;
+            }
+        }
+        return ids;
+    }
+
+    String word(int id) {
+        return id < delta.base ? vocabulary.word(id) : delta.word(id);
+    }
+
+    void getRow(int id, float[] dest) {
+        int row = delta.row(id);
+        if (row >= 0) {
+            delta.getRow(row, dest);
+        } else {
+            store.getRow(id, dest);
+        }
+    }
+
+    /**
+     * 复制一行向量
+     */
+    float[] row(int id) {
+        float[] vector = new float[store.dimension()];
+        getRow(id, vector);
+        return vector;
+    }
+
+    /**
+     * 两个词的点积
+     */
+    float dot(int id, int other) {
+        int row = delta.row(id);
+        if (row >= 0) {
+            return delta.dot(row, row(other));
+        }
+        if (delta.row(other) >= 0) {
+            return store.dot(id, row(other));
+        }
+        return store.dot(id, other);
+    }
+
+    /**
+     * 查询与某个词最相似的元素（不包括自身），依次尝试近邻表、缓存与索引
+     *
+     * @param id    词id
+     * @param size  topN个
+     * @param stats 累加索引中的工作量，为null时不统计
+     * @return 词id与相似度，按相似度降序排列
+     */
+    Neighbors nearest(int id, int size, SearchStats stats) {
+        if (useTable(size)) {
+            return tableNeighbors(id, size);
+        }
+        Neighbors neighbors = cache == null ? null : cache.get(id, size, removed);
+        if (neighbors == null) {
+            neighbors = search(id, row(id), size, stats);
+            if (cache != null) {
+                cache.put(id, size, neighbors);
+            }
+        }
+        return neighbors;
+    }
+
+    /**
+     * 查询与向量最相似的元素，跳过已删除的词
+     *
+     * @param excludeId 结果将排除该词id，-1表示不排除
+     * @param vector    向量
+     * @param size      topN个
+     * @return 词id与相似度，按相似度降序排列
+     */
+    Neighbors search(int excludeId, float[] vector, int size) {
+        return search(excludeId, vector, size, null);
+    }
+
+    /**
+     * 查询与向量最相似的元素，跳过已删除的词，并统计索引中的工作量
+     *
+     * @param excludeId 结果将排除该词id，-1表示不排除
+     * @param vector    向量
+     * @param size      topN个
+     * @param stats     累加索引中的工作量，为null时不统计
+     * @return 词id与相似度，按相似度降序排列
+     */
+    Neighbors search(int excludeId, float[] vector, int size, SearchStats stats) {
+        if (size <= 0) {
+            return Neighbors.EMPTY;
+        }
+        // 墓碑交给索引跳过：扫描类索引扫描时直接跳过，图与树索引不足时扩大查询范围
+        int k = Math.min(index.size(), excludeId < 0 ? size : size + 1);
+        Neighbors result = filter(index.search(vector, k, hidden, stats), excludeId, size);
+        if (stats != null) {
+            stats.addDistanceComputations(delta.rowCount());
+        }
+        return mergeDelta(result, excludeId, vector, size);
+    }
+
+    /**
+     * 补全主索引的一个原始结果：去掉墓碑，墓碑过多导致不足时重新查询，再合并增量段
+     *
+     * @param found     主索引查询 requested 个的结果
+     * @param requested 查询主索引时的个数
+     */
+    Neighbors complete(Neighbors found, int requested, int excludeId, float[] vector, int size) {
+        Neighbors result = filter(found, excludeId, size);
+        if (result.size() < size && found.size() == requested) {
+            return search(excludeId, vector, size);
+        }
+        return mergeDelta(result, excludeId, vector, size);
+    }
+
+    /**
+     * 把增量段中的向量与主索引的结果合并
+     *
+     * @param main      主索引的结果，已去掉墓碑
+     * @param excludeId 结果将排除该词id，-1表示不排除
+     * @param vector    查询向量
+     * @param size      topN个
+     * @return 合并后的前 size 个
+     */
+    Neighbors mergeDelta(Neighbors main, int excludeId, float[] vector, int size) {
+        if (delta.isEmpty() || size <= 0) {
+            return main;
+        }
+        TopK topK = new TopK(size);
+        for (int i = 0; i < main.size(); i++) {
+            topK.offer(main.id(i), main.score(i));
+        }
+        for (int row = 0; row < delta.rowCount(); row++) {
+            int id = delta.rowId(row);
+            if (id != excludeId && !removed.get(id) && delta.isLive(row)) {
+                topK.offer(id, delta.dot(row, vector));
+            }
+        }
+        return Neighbors.drain(topK);
+    }
+
+    /**
+     * 类比查询 a − b + c，扫描主存储（跳过墓碑）与增量段，结果不包括 a、b、c
+     *
+     * @param ids    a、b、c 的词id
+     * @param size   topN个
+     * @param method 打分方式
+     * @return 词id与类比分数，按分数降序排列
+     */
+    Neighbors analogy(int[] ids, int size, AnalogyMethod method) {
+        float[] a = row(ids[0]);
+        float[] b = row(ids[1]);
+        float[] c = row(ids[2]);
+        Neighbors main = new AnalogySearcher(store).search(a, b, c, ids, size, method, hidden);
+        return mergeDeltaAnalogy(main, ids, a, b, c, size, method);
+    }
+
+    /**
+     * 批量类比查询
+     *
+     * @param ids    每个查询的 a、b、c 的词id
+     * @param size   topN个
+     * @param method 打分方式
+     * @return 与 ids 一一对应的结果
+     */
+    Neighbors[] analogyBatch(int[][] ids, int size, AnalogyMethod method) {
+        float[][] vectors = new float[ids.length * 3][];
+        for (int q = 0; q < ids.length; q++) {
+            for (int j = 0; j < 3; j++) {
+                vectors[3 * q + j] = row(ids[q][j]);
+            }
+        }
+        Neighbors[] result = new AnalogySearcher(store).searchBatch(vectors, ids, size, method, hidden);
+        for (int q = 0; q < ids.length; q++) {
+            result[q] = mergeDeltaAnalogy(result[q], ids[q], vectors[3 * q], vectors[3 * q + 1],
+                    vectors[3 * q + 2], size, method);
+        }
+        return result;
+    }
+
+    private Neighbors mergeDeltaAnalogy(Neighbors main, int[] ids, float[] a, float[] b, float[] c, int size,
+                                        AnalogyMethod method) {
+        if (delta.isEmpty() || size <= 0) {
+            return main;
+        }
+        TopK topK = new TopK(size);
+        for (int i = 0; i < main.size(); i++) {
+            topK.offer(main.id(i), main.score(i));
+        }
+        for (int row = 0; row < delta.rowCount(); row++) {
+            int id = delta.rowId(row);
+            if (removed.get(id) || id == ids[0] || id == ids[1] || id == ids[2] || !delta.isLive(row)) {
+                continue;
+            }
+            topK.offer(id, AnalogySearcher.score(method, delta.dot(row, a), delta.dot(row, b), delta.dot(row, c)));
+        }
+        return Neighbors.drain(topK);
+    }
+
+    /**
+     * 去掉 excludeId 与主索引中的墓碑，保留前 size 个
+     */
+    Neighbors filter(Neighbors found, int excludeId, int size) {
+        int[] ids = new int[Math.min(found.size(), size)];
+        float[] scores = new float[ids.length];
+        int count = 0;
+        for (int i = 0; i < found.size() && count < ids.length; i++) {
+            int id = found.id(i);
+            if (id != excludeId && !hidden.get(id)) {
+                ids[count] = id;
+                scores[count++] = found.score(i);
+            }
+        }
+        return new Neighbors(ids, scores, count);
+    }
+
+    /**
+     * 是否直接读近邻表：表中的 k 足够且没有新增或修改过的词，或者没有词向量只能读表
+     */
+    boolean useTable(int size) {
+        return knnTable != null && (store == null || (size <= knnTable.k() && delta.isEmpty()));
+    }
+
+    /**
+     * 从近邻表读取结果，有已删除的词时读出全部再过滤
+     */
+    Neighbors tableNeighbors(int id, int size) {
+        Neighbors neighbors = knnTable.neighbors(id, removed.isEmpty() ? size : knnTable.k());
+        return filter(neighbors, id, size);
+    }
+
+    Map<String, Float> toMap(Neighbors neighbors) {
+        Map<String, Float> result = new LinkedHashMap<>(neighbors.size());
+        for (int i = 0; i < neighbors.size(); i++) {
+            result.put(word(neighbors.id(i)), neighbors.score(i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,158 @@
+package org.fooldata.model;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.fooldata.index.Neighbors;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 近邻查询结果缓存<br>
+ * 按词id缓存该词查询过的最大 k 的结果，较小的 k 直接截取前 k 个，因此 (word, k) 只占一个条目。
+ * 按缓存的近邻总数限制容量，超出后淘汰最近最少使用的条目。
+ * 删除词时不扫描缓存，结果中包含已删除词的条目在读取时按已删除集合识别并移除，删除的代价与缓存大小无关。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class NearestCache {
+
+    private final long maxNeighbors;
+    private final Cache<Integer, Entry> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxNeighbors 最多缓存的近邻总数
+     */
+    public NearestCache(long maxNeighbors) {
+        this.maxNeighbors = maxNeighbors;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxNeighbors)
+                .weigher((Integer id, Entry entry) -> entry.neighbors.size() + 1)
+                .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 查询缓存<br>
+     * 读取时按当前的已删除集合校验前 k 个结果，包含已删除的词时移除该条目；
+     * 这也覆盖了并发删除时正在进行的查询在删除之后才写入的结果
+     *
+     * @param id      词id
+     * @param k       topN个
+     * @param removed 当前已删除的词id
+     * @return 缓存的结果，没有缓存、缓存的 k 更小或结果包含已删除的词时返回null
+     */
+    Neighbors get(int id, int k, BitSet removed) {
+        Entry entry = cache.getIfPresent(id);
+        if (entry != null && entry.k >= k) {
+            if (!entry.containsAny(removed, k)) {
+                hits.increment();
+                return entry.neighbors.limit(k);
+            }
+            cache.asMap().remove(id, entry);
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * 写入缓存，已缓存的 k 更大时保留原结果
+     *
+     * @param id        词id
+     * @param k         topN个
+     * @param neighbors 结果
+     */
+    void put(int id, int k, Neighbors neighbors) {
+        cache.asMap().merge(id, new Entry(k, neighbors), (old, entry) -> old.k >= entry.k ? old : entry);
+    }
+
+    /**
+     * 词被删除后，使该词自身的条目失效；结果中包含该词的其他条目在读取时校验移除
+     *
+     * @param id 词id
+     */
+    void invalidate(int id) {
+        cache.invalidate(id);
+    }
+
+    /**
+     * 容量相同的空缓存，新增或修改词后任何结果都可能变化，直接换用新缓存
+     *
+     * @return 新缓存
+     */
+    NearestCache emptyCopy() {
+        return new NearestCache(maxNeighbors);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * 命中率，k 超过已缓存的 k 时记为未命中
+     *
+     * @return 命中率，没有查询时为1
+     */
+    public double hitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 1.0 : (double) hitCount / total;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * 缓存的条目数
+     *
+     * @return 条目数
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * 底层缓存的统计，包括淘汰次数
+     *
+     * @return 统计
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private static final class Entry {
+        final int k;
+        final Neighbors neighbors;
+
+        Entry(int k, Neighbors neighbors) {
+            this.k = k;
+            this.neighbors = neighbors;
+        }
+
+        boolean containsAny(BitSet removed, int k) {
+            if (removed.isEmpty()) {
+                return false;
+            }
+            int size = Math.min(k, neighbors.size());
+            for (int i = 0; i < size; i++) {
+                if (removed.get(neighbors.id(i))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package org.fooldata.model;
+
+import org.fooldata.index.ExactSearcher;
+import org.fooldata.index.HnswIndex;
+import org.fooldata.index.IndexType;
+import org.fooldata.index.NearestIndex;
+import org.fooldata.kdtree.BalancedKdTree;
+import org.fooldata.kdtree.KdTree;
+import org.fooldata.metrics.LoadPhase;
+import org.fooldata.metrics.ModelMetrics;
+import org.fooldata.quantization.Int8Index;
+import org.fooldata.quantization.PqIndex;
+import org.fooldata.storage.MappedVectorStore;
+import org.fooldata.storage.VectorStore;
+import org.fooldata.storage.Vocabulary;
+import org.fooldata.util.BinaryFileWriter;
+import org.fooldata.util.MappedFileCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * 模型快照文件：保存构建完成的词表、归一化后的向量矩阵与索引结构，启动时映射文件即可使用，不再解析文本、不再构建索引<br>
+ * 文件格式（小端序）：
+ * <pre>
+ * 文件头 64 字节：magic, version, 词数, 维度, 索引类型, 标志位（int32），
+ *                词表位置, 矩阵位置, 索引位置, 文件大小, 校验和（int64）
+ * 词表：每个词为 int32 字节数 + UTF-8 字节
+ * 矩阵：64 字节对齐，词数 × 维度个 float32，加载时只读映射，不复制
+ * 索引：64 字节对齐，由索引类自己的 write 方法写入；标志位为0时没有保存索引，加载时用映射的矩阵重新构建
+ * </pre>
+ * 校验和是文件头之后全部内容再接上文件头前 56 字节（校验和字段之前）的 CRC32；版本1的校验和不包含文件头。<br>
+ * 先写同目录的临时文件，文件头最后写入，刷盘后原子改名覆盖旧文件：中断时旧文件不变，映射旧文件的读取方也不受影响。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+final class SnapshotFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotFile.class);
+
+    static final int MAGIC = 0x57325653;
+    static final int VERSION = 2;
+    /**
+     * 校验和不包含文件头的旧版本，仍然可以读取
+     */
+    private static final int VERSION_BODY_CHECKSUM = 1;
+    static final int HEADER_SIZE = 64;
+    /**
+     * 文件头中参与校验和的字节数，即校验和字段之前的部分
+     */
+    private static final int HEADER_CHECKSUM_SIZE = HEADER_SIZE - Long.BYTES;
+    private static final int ALIGNMENT = 64;
+    /**
+     * 标志位：保存了索引结构
+     */
+    private static final int FLAG_INDEX = 1;
+    /**
+     * 计算校验和时每次映射的字节数
+     */
+    private static final int CHECKSUM_WINDOW = 1 << 30;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * 写入快照，快照中不能有增量段与已删除的词
+     *
+     * @param snapshot 快照
+     * @param path     输出文件
+     * @throws IOException 写入错误
+     */
+    static void write(ModelSnapshot snapshot, Path path) throws IOException {
+        if (!snapshot.delta.isEmpty() || !snapshot.removed.isEmpty()) {
+            throw new IllegalArgumentException("快照中有未合并的修改");
+        }
+        Vocabulary vocabulary = snapshot.vocabulary;
+        VectorStore store = snapshot.store;
+        int size = vocabulary.size();
+        int dimension = store.dimension();
+        NearestIndex index = snapshot.index;
+        try (BinaryFileWriter out = new BinaryFileWriter(path, HEADER_SIZE)) {
+            long wordsOffset = out.position();
+            for (int i = 0; i < size; i++) {
+                byte[] bytes = vocabulary.word(i).getBytes(StandardCharsets.UTF_8);
+                out.putInt(bytes.length);
+                out.putBytes(bytes, 0, bytes.length);
+            }
+            out.align(ALIGNMENT);
+            long matrixOffset = out.position();
+            float[] row = new float[dimension];
+            for (int i = 0; i < size; i++) {
+                store.getRow(i, row);
+                out.putFloats(row, 0, dimension);
+            }
+            out.align(ALIGNMENT);
+            long indexOffset = out.position();
+            int flags = 0;
+            if (index instanceof BalancedKdTree) {
+                ((BalancedKdTree) index).write(out);
+                flags |= FLAG_INDEX;
+            } else if (index instanceof HnswIndex) {
+                ((HnswIndex) index).write(out);
+                flags |= FLAG_INDEX;
+            }
+            long fileSize = out.position();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(dimension)
+                    .putInt(indexType(index).ordinal()).putInt(flags)
+                    .putLong(wordsOffset).putLong(matrixOffset).putLong(indexOffset)
+                    .putLong(fileSize);
+            ((Buffer) header).flip();
+            long checksum = out.checksum(header);
+            ((Buffer) header).limit(HEADER_SIZE);
+            header.putLong(HEADER_CHECKSUM_SIZE, checksum);
+            out.writeAt(header, 0);
+            out.commit();
+        }
+        logger.info("模型快照已写入：{}，词数：{}，索引：{}", path, size, indexType(index));
+    }
+
+    /**
+     * 读取快照中保存的索引类型
+     *
+     * @param path 快照文件
+     * @return 索引类型
+     * @throws IOException 读取错误或不是快照文件
+     */
+    static IndexType indexType(Path path) throws IOException {
+        try (MappedFileCursor in = new MappedFileCursor(path, HEADER_SIZE)) {
+            return Header.read(in).indexType;
+        }
+    }
+
+    /**
+     * 加载快照<br>
+     * 矩阵只读映射；选项中的索引类型与保存的一致时直接读取索引结构，否则用映射的矩阵按选项构建索引
+     *
+     * @param path    快照文件
+     * @param options 选项
+     * @param version 快照版本
+     * @return 快照
+     * @throws IOException 读取错误、格式或版本不支持、校验和不一致
+     */
+    static ModelSnapshot read(Path path, ModelOptions options, long version) throws IOException {
+        long start = System.currentTimeMillis();
+        ModelMetrics metrics = options.getMetrics();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             MappedFileCursor in = new MappedFileCursor(path)) {
+            Header header = Header.read(in);
+            if (header.fileSize != in.size()) {
+                throw new IOException("快照文件不完整：" + path);
+            }
+            long phaseStart = System.nanoTime();
+            if (options.isVerifySnapshotChecksum()) {
+                if (checksum(channel, header) != header.checksum) {
+                    throw new IOException("快照文件校验和不一致：" + path);
+                }
+                phaseStart = recordPhase(metrics, LoadPhase.VERIFY, phaseStart);
+            }
+
+            Vocabulary vocabulary = readVocabulary(in, header);
+
+            VectorStore store = MappedVectorStore.map(channel, header.matrixOffset, header.size, header.dimension);
+            phaseStart = recordPhase(metrics, LoadPhase.MAP, phaseStart);
+            NearestIndex index = null;
+            if ((header.flags & FLAG_INDEX) != 0 && header.indexType == options.getIndexType()) {
+                in.seek(header.indexOffset);
+                index = header.indexType == IndexType.HNSW
+                        ? HnswIndex.read(store, in) : BalancedKdTree.read(store, in);
+                recordPhase(metrics, LoadPhase.INDEX_READ, phaseStart);
+            } else {
+                logger.info("快照中的索引为{}，按选项重新构建：{}", header.indexType, options.getIndexType());
+            }
+            ModelSnapshot snapshot = ModelSnapshot.build(vocabulary, store, index, options, version);
+            logger.info("模型快照加载完毕：{}，词数：{}，耗时{}毫秒", path, header.size, System.currentTimeMillis() - start);
+            return snapshot;
+        }
+    }
+
+    /**
+     * 记录一个阶段的耗时
+     *
+     * @return 下一阶段的开始时间
+     */
+    private static long recordPhase(ModelMetrics metrics, LoadPhase phase, long start) {
+        long now = System.nanoTime();
+        if (metrics.isEnabled()) {
+            metrics.recordLoadPhase(phase, now - start);
+        }
+        return now;
+    }
+
+    /**
+     * 词表的字节直接读入词表的连续存储，不创建 String 对象
+     */
+    private static Vocabulary readVocabulary(MappedFileCursor in, Header header) throws IOException {
+        long textBytes = header.matrixOffset - header.wordsOffset - (long) header.size * Integer.BYTES;
+        if (textBytes < 0 || textBytes > Integer.MAX_VALUE - 8) {
+            throw new IOException("快照文件的词表大小不正确");
+        }
+        in.seek(header.wordsOffset);
+        byte[] bytes = new byte[(int) textBytes];
+        int[] offsets = new int[header.size + 1];
+        int position = 0;
+        for (int i = 0; i < header.size; i++) {
+            int length = in.getInt();
+            if (length < 0 || position + length > bytes.length) {
+                throw new IOException("快照文件的词表不完整");
+            }
+            in.getBytes(bytes, position, length);
+            position += length;
+            offsets[i + 1] = position;
+        }
+        return new Vocabulary(bytes, offsets);
+    }
+
+    private static long checksum(FileChannel channel, Header header) throws IOException {
+        CRC32 crc = new CRC32();
+        long to = header.fileSize;
+        for (long position = HEADER_SIZE; position < to; position += CHECKSUM_WINDOW) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(CHECKSUM_WINDOW, to - position)));
+        }
+        if (header.version != VERSION_BODY_CHECKSUM) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_CHECKSUM_SIZE));
+        }
+        return crc.getValue();
+    }
+
+    private static IndexType indexType(NearestIndex index) {
+        if (index instanceof HnswIndex) {
+            return IndexType.HNSW;
+        } else if (index instanceof KdTree) {
+            return IndexType.KD_TREE;
+        } else if (index instanceof PqIndex) {
+            return IndexType.PQ;
+        } else if (index instanceof Int8Index) {
+            return IndexType.INT8;
+        } else if (index instanceof ExactSearcher) {
+            return IndexType.EXACT;
+        }
+        return IndexType.BALANCED_KD_TREE;
+    }
+
+    /**
+     * 文件头
+     */
+    private static final class Header {
+        int version;
+        int size;
+        int dimension;
+        IndexType indexType;
+        int flags;
+        long wordsOffset;
+        long matrixOffset;
+        long indexOffset;
+        long fileSize;
+        long checksum;
+
+        static Header read(MappedFileCursor in) throws IOException {
+            if (in.size() < HEADER_SIZE || in.getInt() != MAGIC) {
+                throw new IOException("不是模型快照文件");
+            }
+            int version = in.getInt();
+            if (version != VERSION && version != VERSION_BODY_CHECKSUM) {
+                throw new IOException("不支持的快照版本：" + version);
+            }
+            Header header = new Header();
+            header.version = version;
+            header.size = in.getInt();
+            header.dimension = in.getInt();
+            int type = in.getInt();
+            if (type < 0 || type >= IndexType.values().length) {
+                throw new IOException("未知的索引类型：" + type);
+            }
+            header.indexType = IndexType.values()[type];
+            header.flags = in.getInt();
+            header.wordsOffset = in.getLong();
+            header.matrixOffset = in.getLong();
+            header.indexOffset = in.getLong();
+            header.fileSize = in.getLong();
+            header.checksum = in.getLong();
+            return header;
+        }
+    }
+}
@@ -1,26 +1,72 @@
 package org.fooldata.model;
 
-import org.fooldata.kdtree.KdNode;
-import org.fooldata.kdtree.KdTree;
+import org.fooldata.index.AnalogyMethod;
+import org.fooldata.index.ExactSearcher;
+import org.fooldata.index.Neighbors;
 import org.fooldata.kdtree.WordVector;
+import org.fooldata.knn.KnnTable;
+import org.fooldata.knn.KnnTableBuilder;
+import org.fooldata.metrics.LoadPhase;
+import org.fooldata.metrics.ModelMetrics;
+import org.fooldata.metrics.Operation;
+import org.fooldata.metrics.SearchStats;
+import org.fooldata.storage.LazyVectorStore;
+import org.fooldata.storage.VectorStore;
+import org.fooldata.storage.Vocabulary;
+import org.fooldata.util.VectorFileIndex;
+import org.fooldata.util.VectorFileWriter;
 import org.fooldata.util.VectorIoUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.fooldata.algorithm.MaxHeap;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
 
 /**
- * 简化版本的词向量
+ * 简化版本的词向量<br>
+ * 线程安全：所有状态保存在不可变的 {@link ModelSnapshot} 中，每次查询只读取一次当前快照；
+ * 删除与重新加载复制出新快照后原子替换，正在进行的查询继续使用旧快照，结束后旧快照由GC回收。<br>
+ * 增量修改：{@link #add}、{@link #update}、{@link #remove} 不重建索引，新向量放在增量段、旧向量记为墓碑，
+ * 超过阈值后在后台合并重建索引，合并期间的修改会在替换前重放到新快照上。
  *
  * @author 陈明超
  * @date 2018/11/23
  */
 public class Word2VecModel {
 
-    private Map<String, WordVector> storage;
-    private KdTree kdTree;
+    /**
+     * 当前快照
+     */
+    private volatile ModelSnapshot snapshot;
+    /**
+     * 加载选项，重新加载时沿用
+     */
+    private final ModelOptions options;
+    /**
+     * 修改模型时持有，保证并发修改不会互相覆盖
+     */
+    private final Object writeLock = new Object();
+    private final AtomicLong versions = new AtomicLong();
+    /**
+     * 后台重新加载与合并使用的线程，首次使用时创建
+     */
+    private ExecutorService reloadExecutor;
+    /**
+     * 正在合并时记录期间的修改，合并完成后重放；不在合并时为null，重新加载会把它置为null以丢弃进行中的合并
+     */
+    private List<UnaryOperator<ModelSnapshot>> pendingMutations;
+    /**
+     * 已提交后台合并但尚未开始，避免超过阈值后的每次修改都提交一次
+     */
+    private boolean compactionQueued;
 
     private Logger logger = LoggerFactory.getLogger(Word2VecModel.class);
 
@@ -31,17 +77,100 @@ public class Word2VecModel {
      * @throws IOException 加载错误
      */
     public Word2VecModel(String modelFileName) throws IOException {
-        loadVectorMap(modelFileName);
+        this(modelFileName, new ModelOptions());
+    }
+
+    /**
+     * 加载模型<br>
+     *
+     * @param modelFileName 模型路径
+     * @param options       加载选项
+     * @throws IOException 加载错误
+     */
+    public Word2VecModel(String modelFileName, ModelOptions options) throws IOException {
+        this.options = options;
+        this.snapshot = loadVectorMap(modelFileName);
+    }
+
+    private Word2VecModel(ModelOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * 打开 {@link #saveSnapshot} 写出的模型快照，使用保存时的索引类型
+     *
+     * @param path 快照文件
+     * @return 模型
+     * @throws IOException 读取错误、版本不支持或校验和不一致
+     */
+    public static Word2VecModel openSnapshot(Path path) throws IOException {
+        ModelOptions options = new ModelOptions();
+        options.setIndexType(SnapshotFile.indexType(path));
+        return openSnapshot(path, options);
+    }
+
+    /**
+     * 打开 {@link #saveSnapshot} 写出的模型快照<br>
+     * 向量矩阵只读映射，不解析也不复制；选项中的索引类型与保存时一致且保存了索引结构时直接读取，否则用映射的向量重新构建
+     *
+     * @param path    快照文件
+     * @param options 选项
+     * @return 模型
+     * @throws IOException 读取错误、版本不支持或校验和不一致
+     */
+    public static Word2VecModel openSnapshot(Path path, ModelOptions options) throws IOException {
+        Word2VecModel model = new Word2VecModel(options);
+        model.snapshot = model.readSnapshot(path);
+        return model;
+    }
+
+    /**
+     * 使用已有的词表与归一化后的向量构建模型
+     *
+     * @param vocabulary 词表
+     * @param store      向量存储，行号与词id一致
+     */
+    public Word2VecModel(Vocabulary vocabulary, VectorStore store) {
+        this(vocabulary, store, new ModelOptions());
+    }
+
+    /**
+     * 使用已有的词表与归一化后的向量构建模型
+     *
+     * @param vocabulary 词表
+     * @param store      向量存储，行号与词id一致
+     * @param options    选项
+     */
+    public Word2VecModel(Vocabulary vocabulary, VectorStore store, ModelOptions options) {
+        this.options = options;
+        this.snapshot = ModelSnapshot.build(vocabulary, store, options, versions.incrementAndGet());
+    }
+
+    /**
+     * 只用离线近邻表构建只读模型，启动时不需要加载词向量<br>
+     * 只支持按词查询近邻（最多返回表中的 k 个）、删除与词表相关的方法，需要词向量的方法会抛出 UnsupportedOperationException
+     *
+     * @param knnTable 近邻表
+     */
+    public Word2VecModel(KnnTable knnTable) {
+        this.options = new ModelOptions();
+        this.snapshot = ModelSnapshot.of(knnTable);
     }
 
     /**
      * 获取一个键的向量（键不会被预处理）
      *
      * @param key 键
-     * @return 向量
+     * @return 向量，返回的是副本
      */
     public WordVector vector(String key) {
-        return storage.get(key);
+        ModelSnapshot s = snapshot;
+        int id = s.id(key);
+        if (id < 0) {
+            return null;
+        }
+        s.requireVectors();
+        return new WordVector(s.row(id));
     }
 
     /**
@@ -52,15 +181,24 @@ public class Word2VecModel {
      * @return 余弦相似度
      */
     public float similarity(String what, String with) {
-        WordVector wordVectorWhat = storage.get(what);
-        if (wordVectorWhat == null) {
+        ModelMetrics metrics = options.getMetrics();
+        long start = metrics.isEnabled() ? System.nanoTime() : 0L;
+        float similarity = similarity(snapshot, what, with);
+        recordLatency(metrics, Operation.SIMILARITY, start);
+        return similarity;
+    }
+
+    private static float similarity(ModelSnapshot s, String what, String with) {
+        int idWhat = s.id(what);
+        if (idWhat < 0) {
             return -1f;
         }
-        WordVector wordVectorWith = storage.get(with);
-        if (wordVectorWith == null) {
+        int idWith = s.id(with);
+        if (idWith < 0) {
             return -1f;
         }
-        return wordVectorWhat.cosineForUnitVector(wordVectorWith);
+        s.requireVectors();
+        return s.dot(idWhat, idWith);
     }
 
     /**
@@ -71,11 +209,23 @@ public class Word2VecModel {
      * @return 键值对列表, 键是相似词语, 值是相似度, 按相似度降序排列
      */
     public Map<String, Float> nearest(String key, int size) {
-        WordVector wordVector = storage.get(key);
-        if (wordVector == null) {
+        ModelMetrics metrics = options.getMetrics();
+        if (!metrics.isEnabled()) {
+            return nearest(snapshot, key, size, null);
+        }
+        long start = System.nanoTime();
+        SearchStats stats = new SearchStats();
+        Map<String, Float> result = nearest(snapshot, key, size, stats);
+        recordSearch(metrics, Operation.NEAREST, start, stats);
+        return result;
+    }
+
+    private static Map<String, Float> nearest(ModelSnapshot s, String key, int size, SearchStats stats) {
+        int id = s.id(key);
+        if (id < 0) {
             return Collections.emptyMap();
         }
-        return nearest(key, wordVector, size);
+        return s.toMap(s.nearest(id, size, stats));
     }
 
     /**
@@ -86,11 +236,16 @@ public class Word2VecModel {
      * @return 键值对列表, 键是相似词语, 值是相似度, 按相似度降序排列
      */
     public Map<String, Float> nearest(WordVector wordVector, int size) {
-        Map<String, Float> result = new LinkedHashMap<>(size);
-        MaxHeap<Map.Entry<KdNode, Float>> maxHeap = kdTree.getNearVectors(size, wordVector);
-        for (Map.Entry<KdNode, Float> entry : maxHeap.toList()) {
-            result.put(entry.getKey().getWord(), wordVector.cosineForUnitVector(entry.getKey().getWordVector()));
+        ModelMetrics metrics = options.getMetrics();
+        ModelSnapshot s = snapshot;
+        s.requireVectors();
+        if (!metrics.isEnabled()) {
+            return s.toMap(s.search(-1, wordVector.getElementArray(), size));
         }
+        long start = System.nanoTime();
+        SearchStats stats = new SearchStats();
+        Map<String, Float> result = s.toMap(s.search(-1, wordVector.getElementArray(), size, stats));
+        recordSearch(metrics, Operation.NEAREST, start, stats);
         return result;
     }
 
@@ -114,13 +269,274 @@ public class Word2VecModel {
         return nearest(key, 10);
     }
 
+    /**
+     * 批量查询与每个key最相似的元素（不包括key自身）<br>
+     * 精确索引下每组查询只扫描一遍全部向量，比逐个调用 nearest 吞吐高得多；结果是词id与相似度，用 {@link #word(int)} 取词
+     *
+     * @param keys 键
+     * @param size topN个
+     * @return 与 keys 一一对应的结果，不存在的key对应空结果
+     */
+    public Neighbors[] nearestBatch(List<String> keys, int size) {
+        ModelMetrics metrics = options.getMetrics();
+        long start = metrics.isEnabled() ? System.nanoTime() : 0L;
+        Neighbors[] result = nearestBatch(snapshot, keys, size);
+        recordLatency(metrics, Operation.NEAREST_BATCH, start);
+        return result;
+    }
+
+    private static Neighbors[] nearestBatch(ModelSnapshot s, List<String> keys, int size) {
+        int[] ids = s.ids(keys);
+        if (s.useTable(size)) {
+            Neighbors[] result = new Neighbors[ids.length];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = ids[i] < 0 ? Neighbors.EMPTY : s.tableNeighbors(ids[i], size);
+            }
+            return result;
+        }
+        int count = 0;
+        for (int id : ids) {
+            if (id >= 0) {
+                count++;
+            }
+        }
+        float[][] vectors = new float[count][];
+        count = 0;
+        for (int id : ids) {
+            if (id >= 0) {
+                vectors[count++] = s.row(id);
+            }
+        }
+        Neighbors[] found = s.index.searchBatch(vectors, size + 1);
+        Neighbors[] result = new Neighbors[ids.length];
+        count = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] < 0) {
+                result[i] = Neighbors.EMPTY;
+                continue;
+            }
+            result[i] = s.complete(found[count], size + 1, ids[i], vectors[count], size);
+            count++;
+        }
+        return result;
+    }
+
+    /**
+     * 批量查询与每个向量最相似的元素
+     *
+     * @param vectors 查询向量
+     * @param size    topN个
+     * @return 与 vectors 一一对应的结果，是词id与相似度，用 {@link #word(int)} 取词
+     */
+    public Neighbors[] nearestBatch(float[][] vectors, int size) {
+        ModelMetrics metrics = options.getMetrics();
+        long start = metrics.isEnabled() ? System.nanoTime() : 0L;
+        ModelSnapshot s = snapshot;
+        s.requireVectors();
+        Neighbors[] result = s.index.searchBatch(vectors, size);
+        for (int i = 0; i < result.length; i++) {
+            result[i] = s.complete(result[i], size, -1, vectors[i], size);
+        }
+        recordLatency(metrics, Operation.NEAREST_BATCH, start);
+        return result;
+    }
+
+    /**
+     * 类比查询 a − b + c（例如 国王 − 男人 + 女人），使用 3CosAdd 打分
+     *
+     * @param a    词 a
+     * @param b    词 b
+     * @param c    词 c
+     * @param size topN个
+     * @return 键值对列表, 键是词语, 值是类比分数, 按分数降序排列，不包括 a、b、c；有词不存在时为空
+     */
+    public Map<String, Float> analogy(String a, String b, String c, int size) {
+        return analogy(a, b, c, size, AnalogyMethod.COS_ADD);
+    }
+
+    /**
+     * 类比查询 a − b + c，扫描全部向量直接打分，查询的三个词在扫描中排除
+     *
+     * @param a      词 a
+     * @param b      词 b
+     * @param c      词 c
+     * @param size   topN个
+     * @param method 打分方式
+     * @return 键值对列表, 键是词语, 值是类比分数, 按分数降序排列，不包括 a、b、c；有词不存在时为空
+     */
+    public Map<String, Float> analogy(String a, String b, String c, int size, AnalogyMethod method) {
+        ModelMetrics metrics = options.getMetrics();
+        long start = metrics.isEnabled() ? System.nanoTime() : 0L;
+        Map<String, Float> result = analogy(snapshot, a, b, c, size, method);
+        recordLatency(metrics, Operation.ANALOGY, start);
+        return result;
+    }
+
+    private static Map<String, Float> analogy(ModelSnapshot s, String a, String b, String c, int size,
+                                              AnalogyMethod method) {
+        s.requireVectors();
+        int[] ids = {s.id(a), s.id(b), s.id(c)};
+        if (ids[0] < 0 || ids[1] < 0 || ids[2] < 0) {
+            return Collections.emptyMap();
+        }
+        return s.toMap(s.analogy(ids, size, method));
+    }
+
+    /**
+     * 批量类比查询，按查询分块后每块只扫描一遍全部向量，用于评测整个类比测试集
+     *
+     * @param queries 每个查询为 {a, b, c}
+     * @param size    topN个
+     * @param method  打分方式
+     * @return 与 queries 一一对应的结果，是词id与类比分数，用 {@link #word(int)} 取词；有词不存在的查询对应空结果
+     */
+    public Neighbors[] analogyBatch(List<String[]> queries, int size, AnalogyMethod method) {
+        ModelMetrics metrics = options.getMetrics();
+        long start = metrics.isEnabled() ? System.nanoTime() : 0L;
+        Neighbors[] result = analogyBatch(snapshot, queries, size, method);
+        recordLatency(metrics, Operation.ANALOGY, start);
+        return result;
+    }
+
+    private static Neighbors[] analogyBatch(ModelSnapshot s, List<String[]> queries, int size, AnalogyMethod method) {
+        s.requireVectors();
+        int[][] all = new int[queries.size()][];
+        int count = 0;
+        for (int q = 0; q < all.length; q++) {
+            String[] query = queries.get(q);
+            int[] ids = {s.id(query[0]), s.id(query[1]), s.id(query[2])};
+            if (ids[0] >= 0 && ids[1] >= 0 && ids[2] >= 0) {
+                all[q] = ids;
+                count++;
+            }
+        }
+        int[][] valid = new int[count][];
+        count = 0;
+        for (int[] ids : all) {
+            if (ids != null) {
+                valid[count++] = ids;
+            }
+        }
+        Neighbors[] found = s.analogyBatch(valid, size, method);
+        Neighbors[] result = new Neighbors[all.length];
+        count = 0;
+        for (int q = 0; q < all.length; q++) {
+            result[q] = all[q] == null ? Neighbors.EMPTY : found[count++];
+        }
+        return result;
+    }
+
+    /**
+     * 使用离线近邻表回答 k 不超过表中 k 的按词查询
+     *
+     * @param knnTable 近邻表，必须由词表相同的模型生成
+     */
+    public void setKnnTable(KnnTable knnTable) {
+        synchronized (writeLock) {
+            ModelSnapshot s = snapshot;
+            Vocabulary vocabulary = s.vocabulary;
+            Vocabulary tableVocabulary = knnTable.getVocabulary();
+            if (tableVocabulary.size() != vocabulary.size()) {
+                throw new IllegalArgumentException("近邻表与模型的词表大小不一致");
+            }
+            for (int i = 0; i < vocabulary.size(); i++) {
+                if (!vocabulary.word(i).equals(tableVocabulary.word(i))) {
+                    throw new IllegalArgumentException("近邻表与模型的词表不一致：" + i);
+                }
+            }
+            snapshot = s.withKnnTable(knnTable, versions.incrementAndGet());
+        }
+    }
+
+    /**
+     * 精确计算全部词的 k 近邻并写成近邻表文件，已删除的词不会出现在表中<br>
+     * 有新增或修改过的词时，表中的词表是合并后的词表，只能附加到合并后的模型上
+     *
+     * @param path 输出文件
+     * @param k    每个词保存的近邻数
+     * @throws IOException 写入错误
+     */
+    public void writeKnnTable(Path path, int k) throws IOException {
+        ModelSnapshot s = snapshot;
+        s.requireVectors();
+        if (!s.delta.isEmpty()) {
+            // 近邻表按连续的词表写出，先在本地合并一份，不替换当前快照
+            s = s.compact(options, s.version);
+        }
+        KnnTableBuilder.build(s.vocabulary, s.store, s.exactSearcher, s.removed, k, path);
+    }
+
+    /**
+     * 把词表、归一化后的向量与索引结构写成快照文件，之后用 {@link #openSnapshot} 快速启动<br>
+     * 平衡KD树与HNSW保存索引结构，其他索引加载时用映射的向量重新构建；有未合并的修改时先在本地合并一份再写出
+     *
+     * @param path 输出文件
+     * @throws IOException 写入错误
+     */
+    public void saveSnapshot(Path path) throws IOException {
+        ModelSnapshot s = snapshot;
+        s.requireVectors();
+        if (!s.delta.isEmpty() || !s.removed.isEmpty()) {
+            s = s.compact(options, s.version);
+        }
+        SnapshotFile.write(s, path);
+    }
+
+    /**
+     * 把归一化后的向量写成 word2vec 文本或二进制格式的词向量文件，格式与压缩方式由 writer 决定<br>
+     * 已删除的词不写出，增量段中的词排在最后；只写向量，不保存索引结构
+     *
+     * @param path   输出文件
+     * @param writer 写入选项
+     * @throws IOException 写入错误
+     */
+    public void saveVectors(Path path, VectorFileWriter writer) throws IOException {
+        ModelSnapshot s = snapshot;
+        s.requireVectors();
+        if (s.delta.isEmpty() && s.removed.isEmpty()) {
+            writer.write(s.vocabulary, s.store, path);
+            return;
+        }
+        String[] words = new String[s.size];
+        VectorStore store = s.flatten(words, options);
+        writer.write(new Vocabulary(words), store, path);
+    }
+
+    /**
+     * 词id对应的词
+     *
+     * @param id 词id
+     * @return 词
+     */
+    public String word(int id) {
+        return snapshot.word(id);
+    }
+
+    /**
+     * 近邻结果缓存，可以查看命中率；重新加载后是新的缓存
+     *
+     * @return 缓存，未开启时为null
+     */
+    public NearestCache getCache() {
+        return snapshot.cache;
+    }
+
+    /**
+     * 当前快照的版本，每次修改、合并、附加近邻表或重新加载后增大
+     *
+     * @return 版本
+     */
+    public long version() {
+        return snapshot.version;
+    }
+
     /**
      * 模型中的词向量总数（词表大小）
      *
      * @return 大小
      */
     public int size() {
-        return storage.size();
+        return snapshot.size;
     }
 
     /**
@@ -129,68 +545,362 @@ public class Word2VecModel {
      * @return 维度
      */
     public int dimension() {
-        if (storage == null || storage.isEmpty()) {
+        ModelSnapshot s = snapshot;
+        if (s.store == null || s.size == 0) {
             return 0;
         }
-        return storage.values().iterator().next().size();
+        return s.store.dimension();
     }
 
     /**
      * 加载文本格式的词向量
      *
      * @param modelFilePath 路径
-     * @return 词向量的map
+     * @return 快照
      * @throws IOException 加载出错
      */
-    private void loadVectorMap(String modelFilePath) throws IOException {
+    private ModelSnapshot loadVectorMap(String modelFilePath) throws IOException {
+        if (options.isLazyLoading()) {
+            return loadLazy(modelFilePath);
+        }
+        ModelMetrics metrics = options.getMetrics();
+        long start = System.nanoTime();
         VectorIoUtil reader = new VectorIoUtil(modelFilePath);
+        reader.setOffHeap(options.isOffHeap());
         reader.readVectorFile();
-        this.storage = new TreeMap<>();
-        for (int i = 0; i < reader.getVocab().length; i++) {
-            storage.put(reader.getVocab()[i], new WordVector(reader.getMatrix()[i]));
+        if (metrics.isEnabled()) {
+            metrics.recordLoadPhase(LoadPhase.PARSE, System.nanoTime() - start);
+        }
+        logger.info("词向量加载完毕，开始构建索引：{}", options.getIndexType());
+        ModelSnapshot loaded = ModelSnapshot.build(new Vocabulary(reader.getVocab()), reader.getStore(), options,
+                versions.incrementAndGet());
+        logger.info("构建索引完毕");
+        recordLatency(metrics, Operation.LOAD, start);
+        return loaded;
+    }
+
+    /**
+     * 懒加载：只索引文件中每个词的位置，预加载选项指定的词，其余向量在第一次访问时解码；使用精确扫描，不构建近似索引
+     */
+    private ModelSnapshot loadLazy(String modelFilePath) throws IOException {
+        ModelMetrics metrics = options.getMetrics();
+        long start = System.nanoTime();
+        VectorFileIndex file = VectorFileIndex.build(Paths.get(modelFilePath));
+        Vocabulary vocabulary = file.getVocabulary();
+        LazyVectorStore store = file.store(options.getLazyCacheRows());
+        int cutoff = Math.min(options.getPreloadRows(), vocabulary.size());
+        int[] preload = new int[cutoff + options.getPreloadWords().size()];
+        int count = 0;
+        while (count < cutoff) {
+            preload[count] = count;
+            count++;
+        }
+        for (String word : options.getPreloadWords()) {
+            int id = vocabulary.id(word);
+            if (id >= 0) {
+                preload[count++] = id;
+            }
+        }
+        if (count > 0) {
+            store = store.preload(Arrays.copyOf(preload, count));
         }
-        logger.info("词向量加载完毕，开始构建KD树");
-        kdTree = new KdTree(reader.getArraySize());
-        for (Map.Entry<String, WordVector> entry : this.storage.entrySet()) {
-            kdTree.insert(entry.getValue(), entry.getKey());
+        if (metrics.isEnabled()) {
+            metrics.recordLoadPhase(LoadPhase.PARSE, System.nanoTime() - start);
         }
-        logger.info("构建KD树完毕");
+        ModelSnapshot loaded = ModelSnapshot.build(vocabulary, store, new ExactSearcher(store), options,
+                versions.incrementAndGet());
+        logger.info("词向量懒加载完毕，词数：{}，预加载：{}", vocabulary.size(), store.pinnedRows());
+        recordLatency(metrics, Operation.LOAD, start);
+        return loaded;
     }
 
     /**
-     * 查询与key最相似的元素
+     * 读取模型快照文件
      *
-     * @param key        键 结果将排除该键
-     * @param wordVector 向量
-     * @param size       topN个
-     * @return 键值对列表, 键是相似词语, 值是相似度, 按相似度降序排列
+     * @param path 快照文件
+     * @return 快照
+     * @throws IOException 读取错误
      */
-    private Map<String, Float> nearest(String key, WordVector wordVector, int size) {
-        Map<String, Float> result = new LinkedHashMap<>(size);
+    private ModelSnapshot readSnapshot(Path path) throws IOException {
+        ModelMetrics metrics = options.getMetrics();
+        long start = metrics.isEnabled() ? System.nanoTime() : 0L;
+        ModelSnapshot loaded = SnapshotFile.read(path, options, versions.incrementAndGet());
+        recordLatency(metrics, Operation.LOAD, start);
+        return loaded;
+    }
 
-        MaxHeap<Map.Entry<KdNode, Float>> maxHeap = kdTree.getNearVectors(size + 1, wordVector);
-        for (Map.Entry<KdNode, Float> entry : maxHeap.toList()) {
-            if (entry.getKey().getWord().equals(key)) {
-                continue;
+    /**
+     * 记录耗时，start 是开启指标时 System.nanoTime() 的值
+     */
+    private static void recordLatency(ModelMetrics metrics, Operation operation, long start) {
+        if (metrics.isEnabled()) {
+            metrics.recordLatency(operation, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 记录耗时与索引中的工作量，没有经过索引（命中缓存、近邻表或词不存在）时只记录耗时
+     */
+    private static void recordSearch(ModelMetrics metrics, Operation operation, long start, SearchStats stats) {
+        metrics.recordLatency(operation, System.nanoTime() - start);
+        if (stats.getDistanceComputations() > 0) {
+            metrics.recordSearch(operation, stats);
+        }
+    }
+
+    /**
+     * 重新加载模型文件，在当前线程加载并构建索引，完成后原子替换<br>
+     * 加载期间查询不受影响，使用的是旧快照；替换后增量修改、删除记录与附加的近邻表不会保留，进行中的合并被丢弃。
+     * 加载期间新旧两份向量同时存在，内存需要按两份预留。
+     *
+     * @param modelFileName 模型路径
+     * @throws IOException 加载错误，此时继续使用旧快照
+     */
+    public void reload(String modelFileName) throws IOException {
+        swap(loadVectorMap(modelFileName));
+    }
+
+    /**
+     * 重新加载模型快照文件，完成后原子替换
+     *
+     * @param path 快照文件
+     * @throws IOException 读取错误，此时继续使用旧快照
+     */
+    public void reloadSnapshot(Path path) throws IOException {
+        swap(readSnapshot(path));
+    }
+
+    /**
+     * 用新的词表与向量替换模型，在当前线程构建索引，完成后原子替换
+     *
+     * @param vocabulary 词表
+     * @param store      向量存储，行号与词id一致
+     */
+    public void reload(Vocabulary vocabulary, VectorStore store) {
+        swap(ModelSnapshot.build(vocabulary, store, options, versions.incrementAndGet()));
+    }
+
+    /**
+     * 在后台线程重新加载模型文件，多次调用按顺序执行
+     *
+     * @param modelFileName 模型路径
+     * @return 加载完成并替换后结束；加载失败时异常结束，模型继续使用旧快照
+     */
+    public CompletableFuture<Void> reloadAsync(String modelFileName) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                reload(modelFileName);
+            } catch (IOException e) {
+                logger.error("重新加载模型失败：{}", modelFileName, e);
+                throw new UncheckedIOException(e);
             }
-            result.put(entry.getKey().getWord(), similarity(key, entry.getKey().getWord()));
+        }, reloadExecutor());
+    }
+
+    private synchronized ExecutorService reloadExecutor() {
+        if (reloadExecutor == null) {
+            reloadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "word2vec-reload");
+                thread.setDaemon(true);
+                return thread;
+            });
         }
-        return result;
+        return reloadExecutor;
+    }
+
+    private void swap(ModelSnapshot loaded) {
+        ModelSnapshot old;
+        synchronized (writeLock) {
+            old = snapshot;
+            snapshot = loaded;
+            pendingMutations = null;
+        }
+        // 旧快照还可能被正在进行的查询引用，只提前释放它的缓存
+        if (old.cache != null) {
+            old.cache.invalidateAll();
+        }
+        logger.info("模型已替换，版本：{}", loaded.version);
     }
 
+    /**
+     * 新增一个词，立即可以查询，不重建索引
+     *
+     * @param key    词
+     * @param vector 向量，会被复制并归一化
+     * @return 是否新增，词已存在时不修改并返回false
+     */
+    public boolean add(String key, float[] vector) {
+        float[] normalized = normalize(vector);
+        synchronized (writeLock) {
+            if (snapshot.id(key) >= 0) {
+                return false;
+            }
+            mutate(s -> s.withVector(key, normalized, versions.incrementAndGet()));
+            return true;
+        }
+    }
+
+    /**
+     * 新增或修改一个词的向量，立即生效，不重建索引
+     *
+     * @param key    词
+     * @param vector 向量，会被复制并归一化
+     * @return 修改前的向量，新增时返回null
+     */
+    public WordVector update(String key, float[] vector) {
+        float[] normalized = normalize(vector);
+        synchronized (writeLock) {
+            ModelSnapshot s = snapshot;
+            int id = s.id(key);
+            WordVector old = id < 0 ? null : new WordVector(s.row(id));
+            mutate(current -> current.withVector(key, normalized, versions.incrementAndGet()));
+            return old;
+        }
+    }
 
     /**
      * 删除元素
      *
      * @param key 关键词
-     * @return 删除的元素
+     * @return 删除的元素，不存在或模型没有词向量时返回null
      */
     public WordVector remove(String key) {
-        return storage.remove(key);
+        synchronized (writeLock) {
+            ModelSnapshot s = snapshot;
+            int id = s.id(key);
+            if (id < 0) {
+                return null;
+            }
+            WordVector wordVector = s.store == null ? null : new WordVector(s.row(id));
+            mutate(current -> {
+                int currentId = current.id(key);
+                if (currentId < 0) {
+                    return current;
+                }
+                if (current.cache != null) {
+                    current.cache.invalidate(currentId);
+                }
+                return current.withRemoved(currentId, versions.incrementAndGet());
+            });
+            return wordVector;
+        }
+    }
+
+    /**
+     * 复制并归一化新向量
+     */
+    private float[] normalize(float[] vector) {
+        ModelSnapshot s = snapshot;
+        s.requireVectors();
+        if (vector.length != s.store.dimension()) {
+            throw new IllegalArgumentException("向量维度不一致：" + vector.length + "，模型维度：" + s.store.dimension());
+        }
+        double sum = 0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        if (sum == 0) {
+            throw new IllegalArgumentException("向量不能全为0");
+        }
+        float norm = (float) Math.sqrt(sum);
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] / norm;
+        }
+        return normalized;
+    }
+
+    /**
+     * 在当前快照上执行修改并替换，必须持有 writeLock；正在合并时记录下来，合并完成后重放
+     */
+    private void mutate(UnaryOperator<ModelSnapshot> mutation) {
+        ModelSnapshot s = mutation.apply(snapshot);
+        snapshot = s;
+        if (pendingMutations != null) {
+            pendingMutations.add(mutation);
+        } else if (!compactionQueued && options.isAutoCompaction() && s.needsCompaction(options)) {
+            logger.info("增量段 {} 行，墓碑 {} 个，开始后台合并", s.delta.rowCount(), s.hidden.cardinality());
+            compactionQueued = true;
+            compactAsync();
+        }
+    }
+
+    /**
+     * 合并：把增量段与墓碑并入主索引，在当前线程重建索引，完成后原子替换<br>
+     * 合并期间查询与修改不受影响，期间的修改会重放到合并结果上。
+     * 合并后词id会改变，已删除的词被真正释放；附加的近邻表的词id失效，会被移除。
+     * 懒加载的模型合并后不再是懒加载的：全部向量解码进内存，并构建 indexType 指定的索引。
+     */
+    public void compact() {
+        ModelMetrics metrics = options.getMetrics();
+        long start = metrics.isEnabled() ? System.nanoTime() : 0L;
+        ModelSnapshot base;
+        List<UnaryOperator<ModelSnapshot>> mutations = new ArrayList<>();
+        synchronized (writeLock) {
+            compactionQueued = false;
+            base = snapshot;
+            base.requireVectors();
+            if (pendingMutations != null) {
+                logger.info("已有合并正在进行，跳过");
+                return;
+            }
+            pendingMutations = mutations;
+        }
+        ModelSnapshot compacted;
+        ModelSnapshot old;
+        try {
+            compacted = base.compact(options, 0);
+            synchronized (writeLock) {
+                if (pendingMutations != mutations) {
+                    // 合并期间模型被重新加载，合并结果已过时
+                    logger.info("合并期间模型已重新加载，丢弃合并结果");
+                    return;
+                }
+                pendingMutations = null;
+                for (UnaryOperator<ModelSnapshot> mutation : mutations) {
+                    compacted = mutation.apply(compacted);
+                }
+                old = snapshot;
+                compacted = compacted.withVersion(versions.incrementAndGet());
+                snapshot = compacted;
+            }
+        } finally {
+            // 包括 OutOfMemoryError 等 Error，否则之后的合并都会被跳过、修改记录无限增长
+            synchronized (writeLock) {
+                if (pendingMutations == mutations) {
+                    pendingMutations = null;
+                }
+            }
+        }
+        if (old.cache != null) {
+            old.cache.invalidateAll();
+        }
+        recordLatency(metrics, Operation.COMPACT, start);
+        logger.info("合并完毕，词数：{}，重放修改：{}，版本：{}", compacted.size, mutations.size(), compacted.version);
+    }
+
+    /**
+     * 在后台线程合并，与重新加载共用同一个线程，按提交顺序执行
+     *
+     * @return 合并完成并替换后结束
+     */
+    public CompletableFuture<Void> compactAsync() {
+        return CompletableFuture.runAsync(this::compact, reloadExecutor());
     }
 
     public boolean hasWord(String key) {
-        return storage.get(key) != null;
+        return snapshot.id(key) >= 0;
+    }
+
+    /**
+     * 以 prefix 开头的词，可用于输入联想
+     *
+     * @param prefix 前缀
+     * @param limit  最多返回的个数
+     * @return 词，按字典序排列
+     */
+    public List<String> wordsWithPrefix(String prefix, int limit) {
+        return snapshot.prefix(prefix, limit);
     }
 
     /**
@@ -219,15 +929,39 @@ public class Word2VecModel {
         return wordVector.divideToSelf(totalSize);
     }
 
+    /**
+     * 精确查询与key最相似的20个元素（包括key自身）
+     *
+     * @param key 键
+     * @return 键值对列表, 键是相似词语, 值是相似度, 按相似度降序排列
+     */
     public Map<String, Float> nearest2(String key) {
-        WordVector wordVector = storage.get(key);
-        if (wordVector == null) {
+        return nearest2(key, 20);
+    }
+
+    /**
+     * 扫描全部词向量，精确查询与key最相似的元素（包括key自身）
+     *
+     * @param key  键
+     * @param size topN个
+     * @return 键值对列表, 键是相似词语, 值是相似度, 按相似度降序排列
+     */
+    public Map<String, Float> nearest2(String key, int size) {
+        ModelMetrics metrics = options.getMetrics();
+        long start = metrics.isEnabled() ? System.nanoTime() : 0L;
+        ModelSnapshot s = snapshot;
+        int keyId = s.id(key);
+        if (keyId < 0) {
             return Collections.emptyMap();
         }
-        Map<String, Float> result = new LinkedHashMap<>(20);
-        MaxHeap<Map.Entry<String, Float>> maxHeap = new MaxHeap<>(20, Comparator.comparing(Map.Entry::getValue));
-        storage.forEach((a, b) -> maxHeap.add(new AbstractMap.SimpleEntry<>(a, b.cosineForUnitVector(wordVector))));
-        maxHeap.toList().forEach(a -> result.put(a.getKey(), a.getValue()));
+        s.requireVectors();
+        float[] vector = s.row(keyId);
+        Map<String, Float> result = s.toMap(s.mergeDelta(s.exactSearcher.search(vector, size, s.hidden), -1, vector, size));
+        if (metrics.isEnabled()) {
+            SearchStats stats = new SearchStats();
+            stats.addDistanceComputations(s.exactSearcher.size() + s.delta.rowCount());
+            recordSearch(metrics, Operation.NEAREST_EXACT, start, stats);
+        }
         return result;
     }
 
@@ -0,0 +1,77 @@
+package org.fooldata.quantization;
+
+import org.fooldata.index.NearestIndex;
+import org.fooldata.index.Neighbors;
+import org.fooldata.index.ParallelScanner;
+import org.fooldata.metrics.SearchStats;
+import org.fooldata.storage.VectorStore;
+
+import java.util.BitSet;
+
+/**
+ * 基于 int8 标量量化的近邻查询<br>
+ * 用整数点积扫描全部量化向量得到 topN * rerankFactor 个候选，保留了原始向量时再用原始向量精确重排。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class Int8Index implements NearestIndex {
+
+    private final Int8VectorStore codes;
+    /**
+     * 原始向量，为null时不做精确重排
+     */
+    private final VectorStore rerankStore;
+    private final int rerankFactor;
+    private final ParallelScanner scanner = new ParallelScanner();
+
+    /**
+     * @param codes        量化后的向量
+     * @param rerankStore  用于精确重排的原始向量，可以为null
+     * @param rerankFactor 重排的候选数是 topN 的几倍，小于1时不重排
+     */
+    public Int8Index(Int8VectorStore codes, VectorStore rerankStore, int rerankFactor) {
+        this.codes = codes;
+        this.rerankStore = rerankStore;
+        this.rerankFactor = rerankFactor;
+    }
+
+    @Override
+    public Neighbors search(float[] vector, int topN) {
+        return search(vector, topN, null, null);
+    }
+
+    @Override
+    public Neighbors search(float[] vector, int topN, SearchStats stats) {
+        return search(vector, topN, null, stats);
+    }
+
+    /**
+     * 扫描量化向量时直接跳过 excluded，候选与重排结果中都不会出现<br>
+     * 距离计算数为扫描的全部编码数加上精确重排的候选数
+     */
+    @Override
+    public Neighbors search(float[] vector, int topN, BitSet excluded, SearchStats stats) {
+        byte[] query = new byte[codes.dimension()];
+        float queryScale = codes.quantizeQuery(vector, query);
+        boolean rerank = rerankStore != null && rerankFactor >= 1;
+        Neighbors neighbors = scanner.scan(codes.size(), rerank ? topN * rerankFactor : topN, excluded,
+                (from, to, dest) -> codes.intDots(from, to, query, queryScale, dest));
+        if (stats != null) {
+            stats.addDistanceComputations(codes.size() + (rerank ? neighbors.size() : 0));
+        }
+        if (!rerank) {
+            return neighbors;
+        }
+        return Reranker.rerank(rerankStore, neighbors, vector, topN);
+    }
+
+    @Override
+    public int size() {
+        return codes.size();
+    }
+
+    public Int8VectorStore getCodes() {
+        return codes;
+    }
+}
@@ -0,0 +1,18 @@
+package org.fooldata.quantization;
+
+/**
+ * int8 标量量化的缩放方式
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public enum Int8Scale {
+    /**
+     * 每行一个缩放系数，取该行绝对值的最大值
+     */
+    PER_ROW,
+    /**
+     * 每个维度一个缩放系数，取所有行在该维度上绝对值的最大值
+     */
+    PER_DIMENSION
+}
@@ -0,0 +1,219 @@
+package org.fooldata.quantization;
+
+import org.fooldata.storage.VectorStore;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * int8 标量量化的向量存储，每个元素用一个有符号字节表示，内存是 float 的四分之一<br>
+ * 元素的近似值为 code * scale，scale 按行或按维度取值。
+ * 查询时把查询向量（按维度缩放时先乘上各维度的缩放系数）也量化为 int8，
+ * 于是每行的分数就是一次整数点积再乘上缩放系数。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class Int8VectorStore implements VectorStore {
+
+    private static final float MAX_CODE = 127f;
+
+    private final byte[] codes;
+    private final int size;
+    private final int dimension;
+    private final Int8Scale scaleMode;
+    /**
+     * 按行缩放时长度为行数，按维度缩放时长度为维度
+     */
+    private final float[] scales;
+
+    private Int8VectorStore(byte[] codes, int size, int dimension, Int8Scale scaleMode, float[] scales) {
+        this.codes = codes;
+        this.size = size;
+        this.dimension = dimension;
+        this.scaleMode = scaleMode;
+        this.scales = scales;
+    }
+
+    /**
+     * 并行量化存储中的全部向量
+     *
+     * @param store     向量存储
+     * @param scaleMode 缩放方式
+     * @return 量化后的存储
+     */
+    public static Int8VectorStore quantize(VectorStore store, Int8Scale scaleMode) {
+        int size = store.size();
+        int dimension = store.dimension();
+        byte[] codes = new byte[Math.multiplyExact(size, dimension)];
+        float[] scales;
+        if (scaleMode == Int8Scale.PER_ROW) {
+            scales = new float[size];
+        } else {
+            scales = new float[dimension];
+            for (int row = 0; row < size; row++) {
+                for (int j = 0; j < dimension; j++) {
+                    scales[j] = Math.max(scales[j], Math.abs(store.get(row, j)));
+                }
+            }
+            for (int j = 0; j < dimension; j++) {
+                scales[j] = scales[j] == 0 ? 1f : scales[j] / MAX_CODE;
+            }
+        }
+        Int8VectorStore result = new Int8VectorStore(codes, size, dimension, scaleMode, scales);
+        ThreadLocal<float[]> rows = ThreadLocal.withInitial(() -> new float[dimension]);
+        IntStream.range(0, size).parallel().forEach(row -> {
+            float[] values = rows.get();
+            store.getRow(row, values);
+            result.setRow(row, values);
+        });
+        return result;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    private float scale(int row, int column) {
+        return scaleMode == Int8Scale.PER_ROW ? scales[row] : scales[column];
+    }
+
+    @Override
+    public float get(int row, int column) {
+        return codes[row * dimension + column] * scale(row, column);
+    }
+
+    @Override
+    public void getRow(int row, float[] dest) {
+        int offset = row * dimension;
+        for (int j = 0; j < dimension; j++) {
+            dest[j] = codes[offset + j] * scale(row, j);
+        }
+    }
+
+    @Override
+    public void setRow(int row, float[] values) {
+        int offset = row * dimension;
+        if (scaleMode == Int8Scale.PER_ROW) {
+            float max = 0;
+            for (int j = 0; j < dimension; j++) {
+                max = Math.max(max, Math.abs(values[j]));
+            }
+            float scale = max == 0 ? 1f : max / MAX_CODE;
+            scales[row] = scale;
+            for (int j = 0; j < dimension; j++) {
+                codes[offset + j] = (byte) Math.round(values[j] / scale);
+            }
+        } else {
+            for (int j = 0; j < dimension; j++) {
+                float code = Math.round(values[j] / scales[j]);
+                codes[offset + j] = (byte) Math.max(-MAX_CODE, Math.min(MAX_CODE, code));
+            }
+        }
+    }
+
+    @Override
+    public float dot(int row, float[] vector) {
+        int offset = row * dimension;
+        float result = 0;
+        if (scaleMode == Int8Scale.PER_ROW) {
+            for (int j = 0; j < dimension; j++) {
+                result += codes[offset + j] * vector[j];
+            }
+            return result * scales[row];
+        }
+        for (int j = 0; j < dimension; j++) {
+            result += codes[offset + j] * scales[j] * vector[j];
+        }
+        return result;
+    }
+
+    @Override
+    public float dot(int row, int other) {
+        int offset = row * dimension;
+        int otherOffset = other * dimension;
+        if (scaleMode == Int8Scale.PER_ROW) {
+            return intDot(codes, offset, codes, otherOffset, dimension) * scales[row] * scales[other];
+        }
+        float result = 0;
+        for (int j = 0; j < dimension; j++) {
+            result += codes[offset + j] * codes[otherOffset + j] * scales[j] * scales[j];
+        }
+        return result;
+    }
+
+    @Override
+    public float squaredDistance(int row, float[] vector) {
+        int offset = row * dimension;
+        float result = 0;
+        for (int j = 0; j < dimension; j++) {
+            float diff = codes[offset + j] * scale(row, j) - vector[j];
+            result += diff * diff;
+        }
+        return result;
+    }
+
+    private static int intDot(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        int result = 0;
+        for (int j = 0; j < length; j++) {
+            result += a[aOffset + j] * b[bOffset + j];
+        }
+        return result;
+    }
+
+    /**
+     * 把查询向量量化为 int8，按维度缩放时先把各维度的缩放系数乘到查询向量上
+     *
+     * @param vector 查询向量
+     * @param dest   量化结果
+     * @return 查询向量的缩放系数
+     */
+    public float quantizeQuery(float[] vector, byte[] dest) {
+        float max = 0;
+        for (int j = 0; j < dimension; j++) {
+            max = Math.max(max, Math.abs(queryValue(vector, j)));
+        }
+        float scale = max == 0 ? 1f : max / MAX_CODE;
+        for (int j = 0; j < dimension; j++) {
+            dest[j] = (byte) Math.round(queryValue(vector, j) / scale);
+        }
+        return scale;
+    }
+
+    private float queryValue(float[] vector, int column) {
+        return scaleMode == Int8Scale.PER_ROW ? vector[column] : vector[column] * scales[column];
+    }
+
+    /**
+     * 用整数点积计算 [fromRow, toRow) 每行与量化后查询向量的近似点积
+     *
+     * @param query      量化后的查询向量
+     * @param queryScale 查询向量的缩放系数
+     */
+    public void intDots(int fromRow, int toRow, byte[] query, float queryScale, float[] dest) {
+        for (int row = fromRow; row < toRow; row++) {
+            int dot = intDot(codes, row * dimension, query, 0, dimension);
+            float scale = scaleMode == Int8Scale.PER_ROW ? scales[row] * queryScale : queryScale;
+            dest[row - fromRow] = dot * scale;
+        }
+    }
+
+    @Override
+    public VectorStore truncate(int rows) {
+        if (rows >= size) {
+            return this;
+        }
+        float[] truncatedScales = scaleMode == Int8Scale.PER_ROW ? Arrays.copyOf(scales, rows) : scales;
+        return new Int8VectorStore(Arrays.copyOf(codes, rows * dimension), rows, dimension, scaleMode, truncatedScales);
+    }
+
+    public Int8Scale getScaleMode() {
+        return scaleMode;
+    }
+}
@@ -0,0 +1,144 @@
+package org.fooldata.quantization;
+
+import org.fooldata.storage.VectorStore;
+
+import java.util.Arrays;
+
+/**
+ * 乘积量化后的向量存储，每行只保存各子空间的中心编号，读取时按码本解码
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class PqVectorStore implements VectorStore {
+
+    private final ProductQuantizer quantizer;
+    private final byte[] codes;
+    private final int size;
+    private final int subspaces;
+
+    public PqVectorStore(ProductQuantizer quantizer, byte[] codes, int size) {
+        this.quantizer = quantizer;
+        this.codes = codes;
+        this.size = size;
+        this.subspaces = quantizer.subspaces();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int dimension() {
+        return quantizer.dimension();
+    }
+
+    @Override
+    public float get(int row, int column) {
+        return quantizer.decode(codes, row * subspaces, column);
+    }
+
+    @Override
+    public void getRow(int row, float[] dest) {
+        quantizer.decode(codes, row * subspaces, dest);
+    }
+
+    @Override
+    public void setRow(int row, float[] values) {
+        quantizer.encode(values, codes, row * subspaces);
+    }
+
+    @Override
+    public float dot(int row, float[] vector) {
+        int[] offsets = quantizer.offsets();
+        float[][] centroids = quantizer.centroids();
+        int base = row * subspaces;
+        float result = 0;
+        for (int s = 0; s < subspaces; s++) {
+            int offset = offsets[s];
+            int length = offsets[s + 1] - offset;
+            float[] subspace = centroids[s];
+            int centroid = (codes[base + s] & 0xFF) * length;
+            for (int j = 0; j < length; j++) {
+                result += subspace[centroid + j] * vector[offset + j];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public float dot(int row, int other) {
+        int[] offsets = quantizer.offsets();
+        float[][] centroids = quantizer.centroids();
+        int base = row * subspaces;
+        int otherBase = other * subspaces;
+        float result = 0;
+        for (int s = 0; s < subspaces; s++) {
+            int length = offsets[s + 1] - offsets[s];
+            float[] subspace = centroids[s];
+            int centroid = (codes[base + s] & 0xFF) * length;
+            int otherCentroid = (codes[otherBase + s] & 0xFF) * length;
+            for (int j = 0; j < length; j++) {
+                result += subspace[centroid + j] * subspace[otherCentroid + j];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public float squaredDistance(int row, float[] vector) {
+        int[] offsets = quantizer.offsets();
+        float[][] centroids = quantizer.centroids();
+        int base = row * subspaces;
+        float result = 0;
+        for (int s = 0; s < subspaces; s++) {
+            int offset = offsets[s];
+            int length = offsets[s + 1] - offset;
+            float[] subspace = centroids[s];
+            int centroid = (codes[base + s] & 0xFF) * length;
+            for (int j = 0; j < length; j++) {
+                float diff = subspace[centroid + j] - vector[offset + j];
+                result += diff * diff;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 查表计算 [fromRow, toRow) 每行与查询向量的近似点积
+     *
+     * @param table 查询向量的点积表，见 {@link ProductQuantizer#dotTable}
+     */
+    public void dotsByTable(int fromRow, int toRow, float[] table, float[] dest) {
+        for (int row = fromRow; row < toRow; row++) {
+            int base = row * subspaces;
+            float result = 0;
+            for (int s = 0; s < subspaces; s++) {
+                result += table[s * ProductQuantizer.MAX_CENTROIDS + (codes[base + s] & 0xFF)];
+            }
+            dest[row - fromRow] = result;
+        }
+    }
+
+    @Override
+    public VectorStore truncate(int rows) {
+        if (rows >= size) {
+            return this;
+        }
+        return new PqVectorStore(quantizer, Arrays.copyOf(codes, rows * subspaces), rows);
+    }
+
+    public ProductQuantizer getQuantizer() {
+        return quantizer;
+    }
+
+    /**
+     * 编码占用的字节数
+     *
+     * @return 字节数
+     */
+    public long codeBytes() {
+        return (long) size * subspaces;
+    }
+}
@@ -0,0 +1,279 @@
+package org.fooldata.quantization;
+
+import org.fooldata.storage.VectorStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * 乘积量化（Product Quantization）<br>
+ * 把向量的维度切分为若干个子空间，每个子空间用 k-means 训练最多256个中心，
+ * 一个向量编码为每个子空间上最近中心的编号，每个子空间只占一个字节。
+ * 查询时先算出查询向量与每个子空间各中心的点积表，某一行的近似点积就是查表再求和（非对称距离）。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class ProductQuantizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductQuantizer.class);
+
+    /**
+     * 每个子空间的最大中心数，编号用一个字节存放
+     */
+    public static final int MAX_CENTROIDS = 256;
+    /**
+     * 训练时最多采样的向量数
+     */
+    private static final int TRAINING_SIZE = 1 << 15;
+    /**
+     * k-means 迭代次数
+     */
+    private static final int ITERATIONS = 15;
+
+    private final int dimension;
+    /**
+     * 子空间 s 的维度范围为 [offsets[s], offsets[s + 1])
+     */
+    private final int[] offsets;
+    /**
+     * 每个子空间的中心数
+     */
+    private final int centroidCount;
+    /**
+     * centroids[s] 存放子空间 s 的全部中心，第 c 个中心位于 [c * len, (c + 1) * len)
+     */
+    private final float[][] centroids;
+
+    ProductQuantizer(int dimension, int[] offsets, int centroidCount, float[][] centroids) {
+        this.dimension = dimension;
+        this.offsets = offsets;
+        this.centroidCount = centroidCount;
+        this.centroids = centroids;
+    }
+
+    /**
+     * 在存储中的向量上训练码本
+     *
+     * @param store     向量存储
+     * @param subspaces 子空间个数，即每个向量编码后的字节数
+     * @param seed      随机种子
+     * @return 量化器
+     */
+    public static ProductQuantizer train(VectorStore store, int subspaces, long seed) {
+        int dimension = store.dimension();
+        if (subspaces <= 0 || subspaces > dimension) {
+            throw new IllegalArgumentException("子空间个数必须在1到维度之间：" + subspaces);
+        }
+        if (store.size() == 0) {
+            throw new IllegalArgumentException("没有可以训练的向量");
+        }
+        long start = System.currentTimeMillis();
+        int[] offsets = new int[subspaces + 1];
+        for (int s = 0; s <= subspaces; s++) {
+            offsets[s] = (int) ((long) dimension * s / subspaces);
+        }
+        // 采样训练集
+        Random random = new Random(seed);
+        int sampleSize = Math.min(TRAINING_SIZE, store.size());
+        int[] sample = new int[sampleSize];
+        if (sampleSize == store.size()) {
+            for (int i = 0; i < sampleSize; i++) {
+                sample[i] = i;
+            }
+        } else {
+            for (int i = 0; i < sampleSize; i++) {
+                sample[i] = random.nextInt(store.size());
+            }
+        }
+        float[][] data = new float[sampleSize][dimension];
+        for (int i = 0; i < sampleSize; i++) {
+            store.getRow(sample[i], data[i]);
+        }
+        int centroidCount = Math.min(MAX_CENTROIDS, sampleSize);
+        float[][] centroids = new float[subspaces][];
+        IntStream.range(0, subspaces).parallel().forEach(s ->
+                centroids[s] = kMeans(data, offsets[s], offsets[s + 1] - offsets[s], centroidCount, seed + s));
+        logger.info("乘积量化码本训练完毕，{}个子空间，每个{}个中心，耗时{}毫秒",
+                subspaces, centroidCount, System.currentTimeMillis() - start);
+        return new ProductQuantizer(dimension, offsets, centroidCount, centroids);
+    }
+
+    private static float[] kMeans(float[][] data, int offset, int length, int k, long seed) {
+        Random random = new Random(seed);
+        float[] centroids = new float[k * length];
+        // 随机选取不重复的样本作为初始中心
+        int[] order = new int[data.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        for (int c = 0; c < k; c++) {
+            int j = c + random.nextInt(order.length - c);
+            int tmp = order[c];
+            order[c] = order[j];
+            order[j] = tmp;
+            System.arraycopy(data[order[c]], offset, centroids, c * length, length);
+        }
+        int[] assignment = new int[data.length];
+        float[] sums = new float[k * length];
+        int[] counts = new int[k];
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            for (int i = 0; i < data.length; i++) {
+                assignment[i] = nearest(centroids, k, length, data[i], offset);
+            }
+            Arrays.fill(sums, 0);
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < data.length; i++) {
+                int c = assignment[i];
+                counts[c]++;
+                for (int j = 0; j < length; j++) {
+                    sums[c * length + j] += data[i][offset + j];
+                }
+            }
+            for (int c = 0; c < k; c++) {
+                if (counts[c] == 0) {
+                    // 空簇重新随机选一个样本
+                    System.arraycopy(data[random.nextInt(data.length)], offset, centroids, c * length, length);
+                    continue;
+                }
+                for (int j = 0; j < length; j++) {
+                    centroids[c * length + j] = sums[c * length + j] / counts[c];
+                }
+            }
+        }
+        return centroids;
+    }
+
+    /**
+     * 欧氏距离最近的中心
+     */
+    private static int nearest(float[] centroids, int k, int length, float[] vector, int offset) {
+        int best = 0;
+        float bestDistance = Float.MAX_VALUE;
+        for (int c = 0; c < k; c++) {
+            int base = c * length;
+            float distance = 0;
+            for (int j = 0; j < length; j++) {
+                float diff = centroids[base + j] - vector[offset + j];
+                distance += diff * diff;
+            }
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 编码一个向量
+     *
+     * @param vector 向量
+     * @param codes  编码结果
+     * @param offset 编码写入的起始位置
+     */
+    public void encode(float[] vector, byte[] codes, int offset) {
+        for (int s = 0; s < centroids.length; s++) {
+            codes[offset + s] = (byte) nearest(centroids[s], centroidCount, offsets[s + 1] - offsets[s], vector, offsets[s]);
+        }
+    }
+
+    /**
+     * 并行编码存储中的全部向量
+     *
+     * @param store 向量存储
+     * @return 编码后的存储
+     */
+    public PqVectorStore encode(VectorStore store) {
+        long start = System.currentTimeMillis();
+        int subspaces = subspaces();
+        byte[] codes = new byte[Math.multiplyExact(store.size(), subspaces)];
+        ThreadLocal<float[]> rows = ThreadLocal.withInitial(() -> new float[dimension]);
+        IntStream.range(0, store.size()).parallel().forEach(i -> {
+            float[] row = rows.get();
+            store.getRow(i, row);
+            encode(row, codes, i * subspaces);
+        });
+        logger.info("乘积量化编码完毕，共{}个向量，每个{}字节，耗时{}毫秒", store.size(), subspaces, System.currentTimeMillis() - start);
+        return new PqVectorStore(this, codes, store.size());
+    }
+
+    /**
+     * 计算查询向量与每个子空间各中心的点积表
+     *
+     * @param vector 查询向量
+     * @param table  结果，子空间 s 的第 c 个中心位于 s * MAX_CENTROIDS + c
+     */
+    public void dotTable(float[] vector, float[] table) {
+        for (int s = 0; s < centroids.length; s++) {
+            int offset = offsets[s];
+            int length = offsets[s + 1] - offset;
+            float[] subspace = centroids[s];
+            for (int c = 0; c < centroidCount; c++) {
+                int base = c * length;
+                float dot = 0;
+                for (int j = 0; j < length; j++) {
+                    dot += subspace[base + j] * vector[offset + j];
+                }
+                table[s * MAX_CENTROIDS + c] = dot;
+            }
+        }
+    }
+
+    /**
+     * 解码
+     *
+     * @param codes  编码
+     * @param offset 编码的起始位置
+     * @param dest   解码结果
+     */
+    public void decode(byte[] codes, int offset, float[] dest) {
+        for (int s = 0; s < centroids.length; s++) {
+            int length = offsets[s + 1] - offsets[s];
+            System.arraycopy(centroids[s], (codes[offset + s] & 0xFF) * length, dest, offsets[s], length);
+        }
+    }
+
+    /**
+     * 解码某一维
+     */
+    float decode(byte[] codes, int offset, int column) {
+        int s = subspaceOf(column);
+        int length = offsets[s + 1] - offsets[s];
+        return centroids[s][(codes[offset + s] & 0xFF) * length + column - offsets[s]];
+    }
+
+    private int subspaceOf(int column) {
+        int s = (int) ((long) column * centroids.length / dimension);
+        while (column >= offsets[s + 1]) {
+            s++;
+        }
+        while (column < offsets[s]) {
+            s--;
+        }
+        return s;
+    }
+
+    public int subspaces() {
+        return centroids.length;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    int[] offsets() {
+        return offsets;
+    }
+
+    float[][] centroids() {
+        return centroids;
+    }
+
+    int centroidCount() {
+        return centroidCount;
+    }
+}
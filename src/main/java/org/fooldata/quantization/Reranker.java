@@ -0,0 +1,33 @@
+package org.fooldata.quantization;
+
+import org.fooldata.algorithm.TopK;
+import org.fooldata.index.Neighbors;
+import org.fooldata.storage.VectorStore;
+
+/**
+ * 用原始向量对量化查询的候选精确重排
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+final class Reranker {
+
+    private Reranker() {
+    }
+
+    /**
+     * @param store      原始向量
+     * @param candidates 候选
+     * @param vector     查询向量
+     * @param topN       保留前topN个
+     * @return 按精确相似度降序排列的前topN个
+     */
+    static Neighbors rerank(VectorStore store, Neighbors candidates, float[] vector, int topN) {
+        TopK topK = new TopK(Math.max(1, topN));
+        for (int i = 0; i < candidates.size(); i++) {
+            int id = candidates.id(i);
+            topK.offer(id, store.dot(id, vector));
+        }
+        return Neighbors.drain(topK);
+    }
+}
@@ -0,0 +1,65 @@
+package org.fooldata.shard;
+
+import org.fooldata.kdtree.WordVector;
+import org.fooldata.model.Word2VecModel;
+
+import java.util.Map;
+
+/**
+ * 本进程内的分片，直接查询一个 {@link Word2VecModel}，查询使用模型自身的索引
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class LocalShard implements Shard {
+
+    private final Word2VecModel model;
+    private final int index;
+    private final int count;
+
+    /**
+     * @param model 分片的模型，只包含 {@link Partitioner#shardOf(String, int)} 分到本分片的词
+     * @param index 分片号
+     * @param count 切分时的分片数
+     */
+    public LocalShard(Word2VecModel model, int index, int count) {
+        this.model = model;
+        this.index = index;
+        this.count = count;
+    }
+
+    public Word2VecModel getModel() {
+        return model;
+    }
+
+    @Override
+    public ShardInfo info() {
+        return new ShardInfo(index, count, model.size(), model.dimension());
+    }
+
+    @Override
+    public float[] vector(String word) {
+        WordVector vector = model.vector(word);
+        return vector == null ? null : vector.getElementArray();
+    }
+
+    @Override
+    public ShardNeighbors nearest(float[] vector, int size, String exclude) {
+        // 多取一个，排除的词不在前 size 个中时丢弃最后一个
+        Map<String, Float> found = model.nearest(new WordVector(vector), exclude == null ? size : size + 1);
+        String[] words = new String[Math.min(size, found.size())];
+        float[] scores = new float[words.length];
+        int count = 0;
+        for (Map.Entry<String, Float> entry : found.entrySet()) {
+            if (count == words.length) {
+                break;
+            }
+            if (entry.getKey().equals(exclude)) {
+                continue;
+            }
+            words[count] = entry.getKey();
+            scores[count++] = entry.getValue();
+        }
+        return new ShardNeighbors(words, scores, count);
+    }
+}
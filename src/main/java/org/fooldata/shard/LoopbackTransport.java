@@ -0,0 +1,26 @@
+package org.fooldata.shard;
+
+/**
+ * 同一进程内直接调用 {@link ShardServer#handle(byte[])} 的通道，不经过网络，
+ * 但请求与响应照常编码，用于测试与单机调试
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class LoopbackTransport implements ShardTransport {
+
+    private final ShardServer server;
+
+    public LoopbackTransport(ShardServer server) {
+        this.server = server;
+    }
+
+    @Override
+    public byte[] call(byte[] request) {
+        return server.handle(request);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,180 @@
+package org.fooldata.shard;
+
+import org.fooldata.model.ModelOptions;
+import org.fooldata.model.Word2VecModel;
+import org.fooldata.storage.HeapVectorStore;
+import org.fooldata.storage.LazyVectorStore;
+import org.fooldata.storage.OffHeapVectorStore;
+import org.fooldata.storage.VectorStore;
+import org.fooldata.storage.Vocabulary;
+import org.fooldata.util.VectorFileFormat;
+import org.fooldata.util.VectorFileIndex;
+import org.fooldata.util.VectorFileWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 按词的哈希值把词表划分为若干分片<br>
+ * 使用 {@link String#hashCode()}，其取值由语言规范确定，不同进程、不同JVM中的划分结果一致；
+ * 协调者只根据词与分片数定位词所在的分片，切分与查询时的分片数与顺序必须相同。
+ * 放不进单个进程的模型用 {@link #split(Path, Path, int, VectorFileWriter)} 把词向量文件切分为各分片的文件，
+ * 再由各进程的 {@link ShardServer} 分别加载。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public final class Partitioner {
+
+    private static final Logger logger = LoggerFactory.getLogger(Partitioner.class);
+
+    private Partitioner() {
+    }
+
+    /**
+     * 词所在的分片
+     *
+     * @param word   词
+     * @param shards 分片数
+     * @return 分片下标，在 [0, shards) 之间
+     */
+    public static int shardOf(String word, int shards) {
+        // 打散 hashCode 的低位，相同前缀、相同长度的词也能均匀分布
+        int h = word.hashCode() * 0x9E3779B9;
+        return Math.floorMod(h ^ (h >>> 16), shards);
+    }
+
+    /**
+     * 把词表与向量切分为若干个模型，各分片内保持原来的词序（通常是词频降序）<br>
+     * 原向量与各分片的副本同时存在，只适合本进程放得下的模型；按 {@link ModelOptions#isOffHeap()} 决定副本是否在堆外
+     *
+     * @param vocabulary 词表
+     * @param store      归一化后的向量，行号与词id一致
+     * @param shards     分片数
+     * @param options    各分片模型的选项
+     * @return 各分片的模型，下标即分片号
+     */
+    public static Word2VecModel[] split(Vocabulary vocabulary, VectorStore store, int shards, ModelOptions options) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("分片数应大于0：" + shards);
+        }
+        int size = vocabulary.size();
+        int[] owners = new int[size];
+        int[] counts = new int[shards];
+        for (int id = 0; id < size; id++) {
+            owners[id] = shardOf(vocabulary.word(id), shards);
+            counts[owners[id]]++;
+        }
+        int dimension = store.dimension();
+        String[][] words = new String[shards][];
+        VectorStore[] stores = new VectorStore[shards];
+        for (int s = 0; s < shards; s++) {
+            words[s] = new String[counts[s]];
+            stores[s] = options.isOffHeap()
+                    ? new OffHeapVectorStore(counts[s], dimension)
+                    : new HeapVectorStore(counts[s], dimension);
+        }
+        int[] next = new int[shards];
+        float[] row = new float[dimension];
+        for (int id = 0; id < size; id++) {
+            int s = owners[id];
+            store.getRow(id, row);
+            words[s][next[s]] = vocabulary.word(id);
+            stores[s].setRow(next[s]++, row);
+        }
+        Word2VecModel[] models = new Word2VecModel[shards];
+        for (int s = 0; s < shards; s++) {
+            models[s] = new Word2VecModel(new Vocabulary(words[s]), stores[s], options);
+        }
+        return models;
+    }
+
+    /**
+     * 把词向量文件切分为各分片的文件，向量不读入堆内存<br>
+     * 先扫描文件建立词到偏移的索引（映射到内存），再按分片逐个写出，每一行只解码一次；
+     * 写出的向量是归一化后的，分片内保持原来的词序。gzip 压缩的文件先解压到临时文件。
+     *
+     * @param input     词向量文件，文本或二进制格式
+     * @param directory 输出目录，文件名见 {@link #fileName(int, int, VectorFileWriter)}
+     * @param shards    分片数
+     * @param writer    各分片文件的格式
+     * @return 各分片的文件，下标即分片号
+     * @throws IOException 读写错误
+     */
+    public static Path[] split(Path input, Path directory, int shards, VectorFileWriter writer) throws IOException {
+        if (shards < 1) {
+            throw new IllegalArgumentException("分片数应大于0：" + shards);
+        }
+        long start = System.currentTimeMillis();
+        Path plain = null;
+        try {
+            try (InputStream in = Files.newInputStream(input)) {
+                if (in.read() == 0x1F && in.read() == 0x8B) {
+                    plain = Files.createTempFile("word2vec", ".vectors");
+                }
+            }
+            if (plain != null) {
+                try (InputStream in = new GZIPInputStream(Files.newInputStream(input), 1 << 16)) {
+                    Files.copy(in, plain, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            VectorFileIndex index = VectorFileIndex.build(plain == null ? input : plain);
+            Vocabulary vocabulary = index.getVocabulary();
+            int size = index.size();
+            int[] owners = new int[size];
+            int[] counts = new int[shards];
+            for (int id = 0; id < size; id++) {
+                owners[id] = shardOf(vocabulary.word(id), shards);
+                counts[owners[id]]++;
+            }
+            int[][] rows = new int[shards][];
+            for (int s = 0; s < shards; s++) {
+                rows[s] = new int[counts[s]];
+            }
+            int[] next = new int[shards];
+            for (int id = 0; id < size; id++) {
+                rows[owners[id]][next[owners[id]]++] = id;
+            }
+            Files.createDirectories(directory);
+            Path[] paths = new Path[shards];
+            for (int s = 0; s < shards; s++) {
+                int[] shardRows = rows[s];
+                String[] words = new String[shardRows.length];
+                for (int i = 0; i < words.length; i++) {
+                    words[i] = vocabulary.word(shardRows[i]);
+                }
+                // 不缓存的只读视图，写出时逐行从映射的文件解码
+                LazyVectorStore store = new LazyVectorStore(shardRows.length, index.dimension(),
+                        (row, dest) -> index.read(shardRows[row], dest), 0);
+                paths[s] = directory.resolve(fileName(s, shards, writer));
+                writer.write(new Vocabulary(words), store, paths[s]);
+            }
+            logger.info("词向量文件已切分为{}个分片：{}，词数：{}，耗时{}毫秒", shards, directory, size,
+                    System.currentTimeMillis() - start);
+            return paths;
+        } finally {
+            if (plain != null) {
+                Files.deleteIfExists(plain);
+            }
+        }
+    }
+
+    /**
+     * 分片文件名，如 shard-0-of-4.bin、shard-1-of-4.txt.gz
+     *
+     * @param shard  分片号
+     * @param shards 分片数
+     * @param writer 文件格式
+     * @return 文件名
+     */
+    public static String fileName(int shard, int shards, VectorFileWriter writer) {
+        return "shard-" + shard + "-of-" + shards + (writer.getFormat() == VectorFileFormat.TEXT ? ".txt" : ".bin")
+                + (writer.isGzip() ? ".gz" : "");
+    }
+}
@@ -0,0 +1,62 @@
+package org.fooldata.shard;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * 通过 {@link ShardTransport} 访问的分片，请求由对端的 {@link ShardServer} 处理
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class RemoteShard implements Shard, Closeable {
+
+    private final ShardTransport transport;
+
+    public RemoteShard(ShardTransport transport) {
+        this.transport = transport;
+    }
+
+    @Override
+    public ShardInfo info() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ShardProtocol.output(bytes, ShardProtocol.INFO);
+        DataInputStream in = call(bytes);
+        return new ShardInfo(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+    }
+
+    @Override
+    public float[] vector(String word) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ShardProtocol.output(bytes, ShardProtocol.VECTOR).writeUTF(word);
+        DataInputStream in = call(bytes);
+        return in.readBoolean() ? ShardProtocol.readVector(in) : null;
+    }
+
+    @Override
+    public ShardNeighbors nearest(float[] vector, int size, String exclude) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = ShardProtocol.output(bytes, ShardProtocol.NEAREST);
+        out.writeInt(size);
+        out.writeBoolean(exclude != null);
+        out.writeUTF(exclude == null ? "" : exclude);
+        ShardProtocol.writeVector(out, vector);
+        return ShardProtocol.readNeighbors(call(bytes));
+    }
+
+    private DataInputStream call(ByteArrayOutputStream request) throws IOException {
+        DataInputStream in = ShardProtocol.input(transport.call(request.toByteArray()));
+        if (in.readByte() != ShardProtocol.OK) {
+            throw new IOException("分片返回错误：" + in.readUTF());
+        }
+        return in;
+    }
+
+    @Override
+    public void close() throws IOException {
+        transport.close();
+    }
+}
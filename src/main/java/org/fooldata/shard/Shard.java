@@ -0,0 +1,41 @@
+package org.fooldata.shard;
+
+import java.io.IOException;
+
+/**
+ * 分片：词表的一部分及其向量与索引，可以在本进程内，也可以通过 {@link ShardTransport} 位于其他进程<br>
+ * 向量都是归一化后的，点积即余弦相似度。实现需要支持多线程同时调用。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public interface Shard {
+
+    /**
+     * 分片号、分片数、词数与维度
+     *
+     * @return 分片信息
+     * @throws IOException 通信错误
+     */
+    ShardInfo info() throws IOException;
+
+    /**
+     * 词的向量
+     *
+     * @param word 词
+     * @return 向量副本，词不在分片内时返回null
+     * @throws IOException 通信错误
+     */
+    float[] vector(String word) throws IOException;
+
+    /**
+     * 分片内与向量最相似的词
+     *
+     * @param vector  归一化后的查询向量
+     * @param size    topN个
+     * @param exclude 需要排除的词，可以为null
+     * @return 按相似度降序排列的结果
+     * @throws IOException 通信错误
+     */
+    ShardNeighbors nearest(float[] vector, int size, String exclude) throws IOException;
+}
@@ -0,0 +1,49 @@
+package org.fooldata.shard;
+
+/**
+ * 分片的基本信息，协调者据此确认分片的顺序与切分方式与自己一致
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class ShardInfo {
+
+    private final int index;
+    private final int count;
+    private final int size;
+    private final int dimension;
+
+    /**
+     * @param index     分片号
+     * @param count     切分时的分片数
+     * @param size      分片内的词数
+     * @param dimension 向量维度
+     */
+    public ShardInfo(int index, int count, int size, int dimension) {
+        this.index = index;
+        this.count = count;
+        this.size = size;
+        this.dimension = dimension;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    @Override
+    public String toString() {
+        return "分片" + index + "/" + count + "，词数：" + size + "，维度：" + dimension;
+    }
+}
@@ -0,0 +1,99 @@
+package org.fooldata.shard;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分片的近邻查询结果：词与相似度两个并列数组，按相似度降序排列<br>
+ * 与 {@link org.fooldata.index.Neighbors} 不同，这里保存的是词而不是词id，各分片的词id互不相通。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class ShardNeighbors {
+
+    public static final ShardNeighbors EMPTY = new ShardNeighbors(new String[0], new float[0], 0);
+
+    private final String[] words;
+    private final float[] scores;
+    private final int size;
+
+    public ShardNeighbors(String[] words, float[] scores, int size) {
+        this.words = words;
+        this.scores = scores;
+        this.size = size;
+    }
+
+    /**
+     * 合并各分片的结果，保留相似度最高的 size 个
+     *
+     * @param parts 各分片按相似度降序排列的结果
+     * @param size  topN个
+     * @return 合并后的结果
+     */
+    public static ShardNeighbors merge(List<ShardNeighbors> parts, int size) {
+        int total = 0;
+        for (ShardNeighbors part : parts) {
+            total += part.size;
+        }
+        int count = Math.min(size, total);
+        String[] words = new String[count];
+        float[] scores = new float[count];
+        // 各分片结果已有序，每次从各分片的当前位置中取最大的一个
+        int[] positions = new int[parts.size()];
+        for (int i = 0; i < count; i++) {
+            int best = -1;
+            for (int p = 0; p < positions.length; p++) {
+                ShardNeighbors part = parts.get(p);
+                if (positions[p] < part.size
+                        && (best < 0 || part.scores[positions[p]] > parts.get(best).scores[positions[best]])) {
+                    best = p;
+                }
+            }
+            ShardNeighbors part = parts.get(best);
+            words[i] = part.words[positions[best]];
+            scores[i] = part.scores[positions[best]++];
+        }
+        return new ShardNeighbors(words, scores, count);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String word(int i) {
+        return words[i];
+    }
+
+    public float score(int i) {
+        return scores[i];
+    }
+
+    public String[] words() {
+        return Arrays.copyOf(words, size);
+    }
+
+    public float[] scores() {
+        return Arrays.copyOf(scores, size);
+    }
+
+    /**
+     * 转为按相似度降序排列的键值对
+     *
+     * @return 键是词语, 值是相似度
+     */
+    public Map<String, Float> toMap() {
+        Map<String, Float> map = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put(words[i], scores[i]);
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+}
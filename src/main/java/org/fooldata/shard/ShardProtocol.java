@@ -0,0 +1,137 @@
+package org.fooldata.shard;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * 分片请求与响应的编码<br>
+ * 请求：1字节操作码 + 参数；响应：1字节状态 + 结果，出错时结果是错误信息。
+ * 整数与浮点数为大端序，字符串为 {@link DataOutputStream#writeUTF(String)} 格式。<br>
+ * 从连接读到的长度与个数都先检查范围再分配数组，不合法时抛出 IOException，不会因为对端的错误数据分配超大数组。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+final class ShardProtocol {
+
+    /**
+     * 无参数，结果：分片号、分片数、词数、维度
+     */
+    static final byte INFO = 1;
+    /**
+     * 参数：词，结果：是否存在、向量
+     */
+    static final byte VECTOR = 2;
+    /**
+     * 参数：topN、是否有排除的词、排除的词、维度、向量，结果：个数、每个结果的词与相似度
+     */
+    static final byte NEAREST = 3;
+
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    /**
+     * 一帧（请求或响应）的最大字节数
+     */
+    static final int MAX_FRAME_SIZE = 64 << 20;
+
+    private ShardProtocol() {
+    }
+
+    static DataOutputStream output(ByteArrayOutputStream bytes, byte code) throws IOException {
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(code);
+        return out;
+    }
+
+    static DataInputStream input(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * 读取一帧：4字节长度 + 内容
+     *
+     * @param in 连接的输入流
+     * @return 内容
+     * @throws IOException 读取出错，或长度为负数、超过 {@link #MAX_FRAME_SIZE}
+     */
+    static byte[] readFrame(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FRAME_SIZE) {
+            throw new IOException("帧长度不合法：" + length);
+        }
+        byte[] frame = new byte[length];
+        in.readFully(frame);
+        return frame;
+    }
+
+    /**
+     * 写出一帧并刷新
+     *
+     * @param out   连接的输出流
+     * @param frame 内容
+     * @throws IOException 写出出错，或内容超过 {@link #MAX_FRAME_SIZE}
+     */
+    static void writeFrame(DataOutputStream out, byte[] frame) throws IOException {
+        if (frame.length > MAX_FRAME_SIZE) {
+            throw new IOException("帧长度超出上限：" + frame.length);
+        }
+        out.writeInt(frame.length);
+        out.write(frame);
+        out.flush();
+    }
+
+    /**
+     * 检查从帧中读到的个数：不能为负数，也不能超过帧中剩余字节能容纳的个数
+     *
+     * @param in        帧的输入流
+     * @param count     读到的个数
+     * @param entrySize 每个元素至少占用的字节数
+     * @return count
+     * @throws IOException 个数不合法
+     */
+    static int checkCount(DataInputStream in, int count, int entrySize) throws IOException {
+        if (count < 0 || count > in.available() / entrySize) {
+            throw new IOException("个数不合法：" + count);
+        }
+        return count;
+    }
+
+    static void writeVector(DataOutputStream out, float[] vector) throws IOException {
+        out.writeInt(vector.length);
+        for (float value : vector) {
+            out.writeFloat(value);
+        }
+    }
+
+    static float[] readVector(DataInputStream in) throws IOException {
+        float[] vector = new float[checkCount(in, in.readInt(), Float.BYTES)];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = in.readFloat();
+        }
+        return vector;
+    }
+
+    static void writeNeighbors(DataOutputStream out, ShardNeighbors neighbors) throws IOException {
+        out.writeInt(neighbors.size());
+        for (int i = 0; i < neighbors.size(); i++) {
+            out.writeUTF(neighbors.word(i));
+            out.writeFloat(neighbors.score(i));
+        }
+    }
+
+    static ShardNeighbors readNeighbors(DataInputStream in) throws IOException {
+        // 每个结果至少是2字节长度的空词与4字节相似度
+        int size = checkCount(in, in.readInt(), Short.BYTES + Float.BYTES);
+        String[] words = new String[size];
+        float[] scores = new float[size];
+        for (int i = 0; i < size; i++) {
+            words[i] = in.readUTF();
+            scores[i] = in.readFloat();
+        }
+        return new ShardNeighbors(words, scores, size);
+    }
+}
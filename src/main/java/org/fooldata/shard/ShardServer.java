@@ -0,0 +1,224 @@
+package org.fooldata.shard;
+
+import org.fooldata.model.ModelOptions;
+import org.fooldata.model.Word2VecModel;
+import org.fooldata.util.VectorFileWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 分片服务：解码 {@link ShardProtocol} 请求并交给一个 {@link Shard} 处理<br>
+ * 可以由 {@link LoopbackTransport} 在进程内直接调用，也可以 {@link #start(int)} 在本机端口上监听，
+ * 由其他进程通过 {@link SocketTransport} 访问，每个连接一个线程。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class ShardServer implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardServer.class);
+
+    private final Shard shard;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private ServerSocket serverSocket;
+    private ExecutorService executor;
+
+    public ShardServer(Shard shard) {
+        this.shard = shard;
+    }
+
+    /**
+     * 处理一个请求，出错时返回错误响应，不抛出异常
+     *
+     * @param request 请求
+     * @return 响应
+     */
+    public byte[] handle(byte[] request) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            DataInputStream in = ShardProtocol.input(request);
+            DataOutputStream out = ShardProtocol.output(bytes, ShardProtocol.OK);
+            byte code = in.readByte();
+            switch (code) {
+                case ShardProtocol.INFO:
+                    ShardInfo info = shard.info();
+                    out.writeInt(info.getIndex());
+                    out.writeInt(info.getCount());
+                    out.writeInt(info.getSize());
+                    out.writeInt(info.getDimension());
+                    break;
+                case ShardProtocol.VECTOR:
+                    float[] vector = shard.vector(in.readUTF());
+                    out.writeBoolean(vector != null);
+                    if (vector != null) {
+                        ShardProtocol.writeVector(out, vector);
+                    }
+                    break;
+                case ShardProtocol.NEAREST:
+                    int size = in.readInt();
+                    if (size < 0) {
+                        throw new IOException("topN 不合法：" + size);
+                    }
+                    // 结果不会超过分片的词数，避免按对端给的 topN 分配过大的堆
+                    size = Math.min(size, shard.info().getSize());
+                    boolean excluding = in.readBoolean();
+                    String exclude = in.readUTF();
+                    ShardProtocol.writeNeighbors(out, shard.nearest(ShardProtocol.readVector(in), size,
+                            excluding ? exclude : null));
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知的操作码：" + code);
+            }
+            return bytes.toByteArray();
+        } catch (Exception e) {
+            logger.warn("分片请求处理出错", e);
+            bytes.reset();
+            try {
+                ShardProtocol.output(bytes, ShardProtocol.ERROR).writeUTF(String.valueOf(e.getMessage()));
+            } catch (IOException impossible) {
+                throw new IllegalStateException(impossible);
+            }
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * 在本机回环地址上监听
+     *
+     * @param port 端口，0表示任选一个空闲端口
+     * @throws IOException 监听失败
+     */
+    public synchronized void start(int port) throws IOException {
+        if (serverSocket != null) {
+            throw new IllegalStateException("分片服务已启动，端口：" + serverSocket.getLocalPort());
+        }
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "shard-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ServerSocket listening = serverSocket;
+        executor.execute(() -> accept(listening));
+        logger.info("分片服务已启动，端口：{}", listening.getLocalPort());
+    }
+
+    /**
+     * 监听的端口
+     *
+     * @return 端口，未启动时为-1
+     */
+    public synchronized int getPort() {
+        return serverSocket == null ? -1 : serverSocket.getLocalPort();
+    }
+
+    private void accept(ServerSocket listening) {
+        while (!listening.isClosed()) {
+            try {
+                Socket socket = listening.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                executor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!listening.isClosed()) {
+                    logger.error("分片服务接受连接出错", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            while (true) {
+                ShardProtocol.writeFrame(out, handle(ShardProtocol.readFrame(in)));
+            }
+        } catch (EOFException | SocketException e) {
+            // 对端关闭连接或服务关闭
+        } catch (IOException | RuntimeException e) {
+            // 帧不合法时无法再对齐后续的帧，关闭连接
+            logger.warn("分片连接出错，关闭连接：{}", socket.getRemoteSocketAddress(), e);
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    /**
+     * 停止监听并断开所有连接
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (serverSocket == null) {
+            return;
+        }
+        serverSocket.close();
+        // 阻塞在读取上的连接线程不响应中断，关闭连接使其退出
+        for (Socket socket : connections) {
+            socket.close();
+        }
+        executor.shutdownNow();
+        serverSocket = null;
+        executor = null;
+    }
+
+    /**
+     * 加载 {@link Partitioner#split(Path, Path, int, VectorFileWriter)} 写出的一个分片文件并在本机端口上提供服务<br>
+     * 启动前检查文件中的每个词都属于该分片，分片号或分片数与文件不符时拒绝启动
+     *
+     * @param args 分片文件、端口、分片号、分片数
+     * @throws IOException 加载或监听失败
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("用法：ShardServer 分片文件 端口 分片号 分片数");
+            return;
+        }
+        int index = Integer.parseInt(args[2]);
+        int count = Integer.parseInt(args[3]);
+        Word2VecModel model = new Word2VecModel(args[0], new ModelOptions());
+        for (int id = 0; id < model.size(); id++) {
+            String word = model.word(id);
+            if (Partitioner.shardOf(word, count) != index) {
+                throw new IllegalArgumentException("词“" + word + "”不属于分片" + index + "/" + count + "：" + args[0]);
+            }
+        }
+        ShardServer server = new ShardServer(new LocalShard(model, index, count));
+        server.start(Integer.parseInt(args[1]));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                logger.warn("关闭分片服务出错", e);
+            }
+        }));
+        // 服务线程都是守护线程，主线程等待进程被终止
+        while (true) {
+            try {
+                Thread.sleep(Long.MAX_VALUE);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
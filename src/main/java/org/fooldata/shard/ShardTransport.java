@@ -0,0 +1,23 @@
+package org.fooldata.shard;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 协调者与分片服务之间的请求-响应通道，请求与响应都是 {@link ShardProtocol} 编码的字节<br>
+ * 实现需要支持多线程同时调用。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public interface ShardTransport extends Closeable {
+
+    /**
+     * 发送一个请求并等待响应
+     *
+     * @param request 请求
+     * @return 响应
+     * @throws IOException 通信错误
+     */
+    byte[] call(byte[] request) throws IOException;
+}
@@ -0,0 +1,320 @@
+package org.fooldata.shard;
+
+import org.fooldata.kdtree.WordVector;
+import org.fooldata.metrics.ModelMetrics;
+import org.fooldata.metrics.Operation;
+import org.fooldata.model.ModelOptions;
+import org.fooldata.model.Word2VecModel;
+import org.fooldata.storage.VectorStore;
+import org.fooldata.storage.Vocabulary;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 分片模型的协调者：词表按 {@link Partitioner} 划分为若干分片，每个分片有自己的向量与索引<br>
+ * 按词取向量只访问词所在的分片；近邻查询先取得查询词的向量，再并行发给所有分片，
+ * 各分片返回自己的前 topN 个，协调者合并后保留相似度最高的 topN 个。
+ * 各分片使用精确索引时，合并结果与单个模型的精确结果相同。
+ * 分片可以在本进程内（{@link LocalShard}），也可以在其他进程（{@link RemoteShard}）；
+ * 分片顺序必须与切分时的分片号一致。任一分片出错时整个查询失败。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class ShardedModel implements Closeable {
+
+    private final Shard[] shards;
+    private final ExecutorService executor;
+    private final int dimension;
+    private ModelMetrics metrics = ModelMetrics.NOOP;
+
+    /**
+     * 创建时查询各分片的信息，分片号、分片数或维度与顺序不符时抛出 IllegalArgumentException，
+     * 否则错放的分片会把本属于它的词当作不存在
+     *
+     * @param shards 各分片，下标即分片号
+     */
+    public ShardedModel(List<? extends Shard> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个分片");
+        }
+        this.shards = shards.toArray(new Shard[0]);
+        this.executor = Executors.newFixedThreadPool(this.shards.length, runnable -> {
+            Thread thread = new Thread(runnable, "word2vec-shard");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            this.dimension = check(scatter(Shard::info));
+        } catch (RuntimeException e) {
+            executor.shutdownNow();
+            throw e;
+        }
+    }
+
+    private int check(List<ShardInfo> infos) {
+        int dimension = infos.get(0).getDimension();
+        for (int i = 0; i < infos.size(); i++) {
+            ShardInfo info = infos.get(i);
+            if (info.getIndex() != i || info.getCount() != infos.size()) {
+                throw new IllegalArgumentException("第" + i + "个分片应为分片" + i + "/" + infos.size() + "，实际为" + info);
+            }
+            if (info.getDimension() != dimension) {
+                throw new IllegalArgumentException("分片维度不一致：" + info);
+            }
+        }
+        return dimension;
+    }
+
+    /**
+     * 把词表与向量切分为本进程内的若干分片
+     *
+     * @param vocabulary 词表
+     * @param store      归一化后的向量，行号与词id一致
+     * @param shards     分片数
+     * @param options    各分片模型的选项
+     * @return 分片模型
+     */
+    public static ShardedModel local(Vocabulary vocabulary, VectorStore store, int shards, ModelOptions options) {
+        List<LocalShard> local = new ArrayList<>(shards);
+        Word2VecModel[] models = Partitioner.split(vocabulary, store, shards, options);
+        for (int i = 0; i < models.length; i++) {
+            local.add(new LocalShard(models[i], i, models.length));
+        }
+        return new ShardedModel(local);
+    }
+
+    public ModelMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(ModelMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * 分片数
+     *
+     * @return 分片数
+     */
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * 第 i 个分片
+     *
+     * @param i 分片号
+     * @return 分片
+     */
+    public Shard shard(int i) {
+        return shards[i];
+    }
+
+    /**
+     * 所有分片的词数之和
+     *
+     * @return 词数
+     */
+    public int size() {
+        int size = 0;
+        for (ShardInfo info : scatter(Shard::info)) {
+            size += info.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * 向量维度
+     *
+     * @return 维度
+     */
+    public int dimension() {
+        return dimension;
+    }
+
+    public boolean hasWord(String key) {
+        return rawVector(key) != null;
+    }
+
+    /**
+     * 获取一个键的向量，只访问键所在的分片
+     *
+     * @param key 键
+     * @return 向量，键不存在时返回null
+     */
+    public WordVector vector(String key) {
+        float[] vector = rawVector(key);
+        return vector == null ? null : new WordVector(vector);
+    }
+
+    private float[] rawVector(String key) {
+        int shard = Partitioner.shardOf(key, shards.length);
+        try {
+            return shards[shard].vector(key);
+        } catch (IOException e) {
+            throw new UncheckedIOException("分片" + shard + "查询出错", e);
+        }
+    }
+
+    /**
+     * 余弦相似度，两个词在不同分片时并行取向量
+     *
+     * @param what 一个词
+     * @param with 另一个词
+     * @return 余弦相似度，有词不存在时返回-1
+     */
+    public float similarity(String what, String with) {
+        long start = metrics.isEnabled() ? System.nanoTime() : 0L;
+        int shardWhat = Partitioner.shardOf(what, shards.length);
+        int shardWith = Partitioner.shardOf(with, shards.length);
+        float[] vectorWhat;
+        float[] vectorWith;
+        if (shardWhat == shardWith) {
+            vectorWhat = rawVector(what);
+            vectorWith = vectorWhat == null ? null : rawVector(with);
+        } else {
+            Future<float[]> future = executor.submit(() -> shards[shardWith].vector(with));
+            vectorWhat = rawVector(what);
+            vectorWith = get(future, shardWith);
+        }
+        float similarity = -1f;
+        if (vectorWhat != null && vectorWith != null) {
+            similarity = 0f;
+            for (int i = 0; i < vectorWhat.length; i++) {
+                similarity += vectorWhat[i] * vectorWith[i];
+            }
+        }
+        recordLatency(Operation.SIMILARITY, start);
+        return similarity;
+    }
+
+    /**
+     * 查询与key最相似的元素（不包括key自身）
+     *
+     * @param key  键
+     * @param size topN个
+     * @return 键值对列表, 键是相似词语, 值是相似度, 按相似度降序排列；键不存在时为空
+     */
+    public Map<String, Float> nearest(String key, int size) {
+        long start = metrics.isEnabled() ? System.nanoTime() : 0L;
+        float[] vector = rawVector(key);
+        Map<String, Float> result = vector == null ? Collections.emptyMap() : search(vector, size, key).toMap();
+        recordLatency(Operation.NEAREST, start);
+        return result;
+    }
+
+    /**
+     * 获取与向量最相似的词语
+     *
+     * @param wordVector 归一化后的向量
+     * @param size       topN个
+     * @return 键值对列表, 键是相似词语, 值是相似度, 按相似度降序排列
+     */
+    public Map<String, Float> nearest(WordVector wordVector, int size) {
+        long start = metrics.isEnabled() ? System.nanoTime() : 0L;
+        Map<String, Float> result = search(wordVector.getElementArray(), size, null).toMap();
+        recordLatency(Operation.NEAREST, start);
+        return result;
+    }
+
+    /**
+     * 并行查询所有分片并合并结果
+     *
+     * @param vector  查询向量
+     * @param size    topN个
+     * @param exclude 需要排除的词，可以为null
+     * @return 合并后的结果
+     */
+    public ShardNeighbors search(float[] vector, int size, String exclude) {
+        return ShardNeighbors.merge(scatter(shard -> shard.nearest(vector, size, exclude)), size);
+    }
+
+    private interface ShardCall<T> {
+        T call(Shard shard) throws IOException;
+    }
+
+    /**
+     * 在所有分片上并行执行，最后一个分片在当前线程执行
+     */
+    private <T> List<T> scatter(ShardCall<T> call) {
+        int last = shards.length - 1;
+        List<Future<T>> futures = new ArrayList<>(last);
+        for (int i = 0; i < last; i++) {
+            Shard shard = shards[i];
+            Callable<T> task = () -> call.call(shard);
+            futures.add(executor.submit(task));
+        }
+        List<T> results = new ArrayList<>(shards.length);
+        try {
+            T mine = call.call(shards[last]);
+            for (int i = 0; i < last; i++) {
+                results.add(get(futures.get(i), i));
+            }
+            results.add(mine);
+        } catch (IOException e) {
+            throw new UncheckedIOException("分片" + last + "查询出错", e);
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    private static <T> T get(Future<T> future, int shard) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("分片查询被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException("分片" + shard + "查询出错", (IOException) cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("分片" + shard + "查询出错", cause);
+        }
+    }
+
+    private void recordLatency(Operation operation, long start) {
+        if (metrics.isEnabled()) {
+            metrics.recordLatency(operation, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 停止查询线程，并关闭需要关闭的分片（如 {@link RemoteShard} 的连接）
+     */
+    @Override
+    public void close() throws IOException {
+        executor.shutdownNow();
+        IOException error = null;
+        for (Shard shard : shards) {
+            if (shard instanceof Closeable) {
+                try {
+                    ((Closeable) shard).close();
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.fooldata.shard;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 通过TCP连接访问 {@link ShardServer} 的通道，每帧为4字节长度 + 内容<br>
+ * 连接在调用之间复用，多个线程同时调用时各自占用一个连接；通信出错或收到不合法的帧时连接直接关闭，不再复用。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class SocketTransport implements ShardTransport {
+
+    private final InetSocketAddress address;
+    private final ConcurrentLinkedQueue<Connection> idle = new ConcurrentLinkedQueue<>();
+    private int connectTimeoutMillis = 5000;
+    private int readTimeoutMillis = 30000;
+    private volatile boolean closed;
+
+    public SocketTransport(String host, int port) {
+        this.address = new InetSocketAddress(host, port);
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    public int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    public void setReadTimeoutMillis(int readTimeoutMillis) {
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    @Override
+    public byte[] call(byte[] request) throws IOException {
+        if (closed) {
+            throw new IOException("通道已关闭：" + address);
+        }
+        Connection connection = idle.poll();
+        if (connection == null) {
+            connection = new Connection();
+        }
+        byte[] response;
+        try {
+            response = connection.call(request);
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+        idle.offer(connection);
+        if (closed) {
+            close();
+        }
+        return response;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    private final class Connection implements Closeable {
+
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        Connection() throws IOException {
+            socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(readTimeoutMillis);
+                socket.connect(address, connectTimeoutMillis);
+                in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        byte[] call(byte[] request) throws IOException {
+            ShardProtocol.writeFrame(out, request);
+            return ShardProtocol.readFrame(in);
+        }
+
+        @Override
+        public void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // 关闭失败无需处理
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.fooldata.storage;
+
+import java.nio.FloatBuffer;
+
+/**
+ * 基于 FloatBuffer 的存储，单个 buffer 不能超过2G，按行切分为多段，每一行只落在一个段内
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public abstract class BufferVectorStore implements VectorStore {
+
+    /**
+     * 单个 buffer 的最大字节数
+     */
+    protected static final int MAX_CHUNK_BYTES = Integer.MAX_VALUE;
+
+    protected final FloatBuffer[] chunks;
+    protected final int rowsPerChunk;
+    protected final int size;
+    protected final int dimension;
+
+    protected BufferVectorStore(FloatBuffer[] chunks, int rowsPerChunk, int size, int dimension) {
+        this.chunks = chunks;
+        this.rowsPerChunk = rowsPerChunk;
+        this.size = size;
+        this.dimension = dimension;
+    }
+
+    /**
+     * 每段最多容纳的行数
+     *
+     * @param dimension 维度
+     * @return 行数
+     */
+    protected static int rowsPerChunk(int dimension) {
+        return Math.max(1, MAX_CHUNK_BYTES / Float.BYTES / Math.max(1, dimension));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public float get(int row, int column) {
+        return chunks[row / rowsPerChunk].get((row % rowsPerChunk) * dimension + column);
+    }
+
+    @Override
+    public void getRow(int row, float[] dest) {
+        FloatBuffer chunk = chunks[row / rowsPerChunk];
+        int offset = (row % rowsPerChunk) * dimension;
+        for (int i = 0; i < dimension; i++) {
+            dest[i] = chunk.get(offset + i);
+        }
+    }
+
+    @Override
+    public void setRow(int row, float[] values) {
+        FloatBuffer chunk = chunks[row / rowsPerChunk];
+        int offset = (row % rowsPerChunk) * dimension;
+        for (int i = 0; i < dimension; i++) {
+            chunk.put(offset + i, values[i]);
+        }
+    }
+
+    @Override
+    public float dot(int row, float[] vector) {
+        FloatBuffer chunk = chunks[row / rowsPerChunk];
+        int offset = (row % rowsPerChunk) * dimension;
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < dimension; i += 4) {
+            s0 += chunk.get(offset + i) * vector[i];
+            s1 += chunk.get(offset + i + 1) * vector[i + 1];
+            s2 += chunk.get(offset + i + 2) * vector[i + 2];
+            s3 += chunk.get(offset + i + 3) * vector[i + 3];
+        }
+        for (; i < dimension; i++) {
+            s0 += chunk.get(offset + i) * vector[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    @Override
+    public float dot(int row, int other) {
+        FloatBuffer chunk = chunks[row / rowsPerChunk];
+        int offset = (row % rowsPerChunk) * dimension;
+        FloatBuffer otherChunk = chunks[other / rowsPerChunk];
+        int otherOffset = (other % rowsPerChunk) * dimension;
+        float result = 0;
+        for (int i = 0; i < dimension; i++) {
+            result += chunk.get(offset + i) * otherChunk.get(otherOffset + i);
+        }
+        return result;
+    }
+
+    @Override
+    public float squaredDistance(int row, float[] vector) {
+        FloatBuffer chunk = chunks[row / rowsPerChunk];
+        int offset = (row % rowsPerChunk) * dimension;
+        float result = 0;
+        for (int i = 0; i < dimension; i++) {
+            float diff = chunk.get(offset + i) - vector[i];
+            result += diff * diff;
+        }
+        return result;
+    }
+}
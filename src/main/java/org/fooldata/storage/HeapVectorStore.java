@@ -0,0 +1,188 @@
+package org.fooldata.storage;
+
+import java.util.Arrays;
+
+/**
+ * 堆内存储：所有向量放在同一个 float 数组中
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class HeapVectorStore implements VectorStore {
+
+    /**
+     * 单个数组能容纳的最大元素数
+     */
+    private static final long MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final float[] data;
+    private final int size;
+    private final int dimension;
+
+    public HeapVectorStore(int size, int dimension) {
+        if ((long) size * dimension > MAX_ARRAY_SIZE) {
+            throw new IllegalArgumentException("向量总数超过单个数组上限，请使用堆外存储");
+        }
+        this.data = new float[size * dimension];
+        this.size = size;
+        this.dimension = dimension;
+    }
+
+    /**
+     * 直接包装已有的行优先数组
+     *
+     * @param data      数组，长度不小于 size * dimension
+     * @param size      行数
+     * @param dimension 维度
+     */
+    public HeapVectorStore(float[] data, int size, int dimension) {
+        if (data.length < (long) size * dimension) {
+            throw new IllegalArgumentException("数组长度与行数、维度不匹配");
+        }
+        this.data = data;
+        this.size = size;
+        this.dimension = dimension;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public float get(int row, int column) {
+        return data[row * dimension + column];
+    }
+
+    @Override
+    public void getRow(int row, float[] dest) {
+        System.arraycopy(data, row * dimension, dest, 0, dimension);
+    }
+
+    @Override
+    public void setRow(int row, float[] values) {
+        System.arraycopy(values, 0, data, row * dimension, dimension);
+    }
+
+    @Override
+    public float dot(int row, float[] vector) {
+        int offset = row * dimension;
+        // 四路累加，减少浮点加法的依赖链
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < dimension; i += 4) {
+            s0 += data[offset + i] * vector[i];
+            s1 += data[offset + i + 1] * vector[i + 1];
+            s2 += data[offset + i + 2] * vector[i + 2];
+            s3 += data[offset + i + 3] * vector[i + 3];
+        }
+        for (; i < dimension; i++) {
+            s0 += data[offset + i] * vector[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * 每次同时计算四行，查询向量的每个元素只读取一次
+     */
+    @Override
+    public void dots(int fromRow, int toRow, float[] vector, float[] dest) {
+        int row = fromRow;
+        for (; row + 3 < toRow; row += 4) {
+            int o0 = row * dimension;
+            int o1 = o0 + dimension;
+            int o2 = o1 + dimension;
+            int o3 = o2 + dimension;
+            float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            for (int i = 0; i < dimension; i++) {
+                float q = vector[i];
+                s0 += data[o0 + i] * q;
+                s1 += data[o1 + i] * q;
+                s2 += data[o2 + i] * q;
+                s3 += data[o3 + i] * q;
+            }
+            int d = row - fromRow;
+            dest[d] = s0;
+            dest[d + 1] = s1;
+            dest[d + 2] = s2;
+            dest[d + 3] = s3;
+        }
+        for (; row < toRow; row++) {
+            dest[row - fromRow] = dot(row, vector);
+        }
+    }
+
+    @Override
+    public void dots(int fromRow, int toRow, float[][] vectors, int fromVector, int toVector, float[] dest) {
+        int rows = toRow - fromRow;
+        for (int row = fromRow; row < toRow; row++) {
+            int offset = row * dimension;
+            for (int v = fromVector; v < toVector; v++) {
+                float[] vector = vectors[v];
+                float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+                int i = 0;
+                for (; i + 3 < dimension; i += 4) {
+                    s0 += data[offset + i] * vector[i];
+                    s1 += data[offset + i + 1] * vector[i + 1];
+                    s2 += data[offset + i + 2] * vector[i + 2];
+                    s3 += data[offset + i + 3] * vector[i + 3];
+                }
+                for (; i < dimension; i++) {
+                    s0 += data[offset + i] * vector[i];
+                }
+                dest[(v - fromVector) * rows + row - fromRow] = (s0 + s1) + (s2 + s3);
+            }
+        }
+    }
+
+    @Override
+    public float dot(int row, int other) {
+        int offset = row * dimension;
+        int otherOffset = other * dimension;
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < dimension; i += 4) {
+            s0 += data[offset + i] * data[otherOffset + i];
+            s1 += data[offset + i + 1] * data[otherOffset + i + 1];
+            s2 += data[offset + i + 2] * data[otherOffset + i + 2];
+            s3 += data[offset + i + 3] * data[otherOffset + i + 3];
+        }
+        for (; i < dimension; i++) {
+            s0 += data[offset + i] * data[otherOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    @Override
+    public float squaredDistance(int row, float[] vector) {
+        int offset = row * dimension;
+        float result = 0;
+        for (int i = 0; i < dimension; i++) {
+            float diff = data[offset + i] - vector[i];
+            result += diff * diff;
+        }
+        return result;
+    }
+
+    @Override
+    public VectorStore truncate(int rows) {
+        if (rows >= size) {
+            return this;
+        }
+        return new HeapVectorStore(Arrays.copyOf(data, rows * dimension), rows, dimension);
+    }
+
+    /**
+     * 底层数组，按行优先存放
+     *
+     * @return 数组
+     */
+    public float[] array() {
+        return data;
+    }
+}
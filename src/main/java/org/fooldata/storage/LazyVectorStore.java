@@ -0,0 +1,268 @@
+package org.fooldata.storage;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按需解码的只读向量存储：启动时不解码任何行，某一行第一次被访问时才由 {@link RowReader} 从文件中解码，
+ * 放入容量有限的热点行缓存，超出容量后淘汰最近最少使用的行<br>
+ * 预加载的行（如按词频排在前面的词或指定的词）在创建时解码，常驻内存，不会被淘汰。
+ * 连续范围的点积（精确近邻查询的全量扫描）对未缓存的行解码后直接使用、不放入缓存，一次扫描不会冲掉热点行；
+ * 这类查询要解码全部行，比常驻内存的存储慢得多，懒加载适合只按词取向量、算相似度的服务。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class LazyVectorStore implements VectorStore {
+
+    /**
+     * 从文件解码一行
+     */
+    @FunctionalInterface
+    public interface RowReader {
+        /**
+         * 解码一行，需要支持多线程同时调用
+         *
+         * @param row  行号
+         * @param dest 输出，长度为维度
+         */
+        void read(int row, float[] dest);
+    }
+
+    private final int size;
+    private final int dimension;
+    private final RowReader reader;
+    private final long cacheRows;
+    /**
+     * 热点行缓存，容量为0时为null
+     */
+    private final Cache<Integer, float[]> cache;
+    /**
+     * 预加载的行号，升序
+     */
+    private final int[] pinnedRows;
+    private final float[][] pinned;
+    private final LongAdder decoded;
+
+    /**
+     * @param size      行数
+     * @param dimension 维度
+     * @param reader    解码一行
+     * @param cacheRows 热点行缓存最多容纳的行数，0表示不缓存
+     */
+    public LazyVectorStore(int size, int dimension, RowReader reader, long cacheRows) {
+        this(size, dimension, reader, cacheRows, cacheRows > 0 ? CacheBuilder.newBuilder()
+                        .maximumSize(cacheRows)
+                        .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+                        .recordStats()
+                        .<Integer, float[]>build() : null,
+                new int[0], new float[0][], new LongAdder());
+    }
+
+    private LazyVectorStore(int size, int dimension, RowReader reader, long cacheRows, Cache<Integer, float[]> cache,
+                            int[] pinnedRows, float[][] pinned, LongAdder decoded) {
+        this.size = size;
+        this.dimension = dimension;
+        this.reader = reader;
+        this.cacheRows = cacheRows;
+        this.cache = cache;
+        this.pinnedRows = pinnedRows;
+        this.pinned = pinned;
+        this.decoded = decoded;
+    }
+
+    /**
+     * 预加载若干行，返回常驻这些行的新存储，与原存储共用热点行缓存
+     *
+     * @param rows 行号，可以无序、重复
+     * @return 新存储
+     */
+    public LazyVectorStore preload(int[] rows) {
+        int[] sorted = Arrays.stream(rows).filter(row -> row >= 0 && row < size).sorted().distinct().toArray();
+        int[] mergedRows = new int[pinnedRows.length + sorted.length];
+        float[][] merged = new float[mergedRows.length][];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < pinnedRows.length || j < sorted.length) {
+            if (j == sorted.length || (i < pinnedRows.length && pinnedRows[i] <= sorted[j])) {
+                if (j < sorted.length && pinnedRows[i] == sorted[j]) {
+                    j++;
+                }
+                mergedRows[count] = pinnedRows[i];
+                merged[count++] = pinned[i++];
+            } else {
+                mergedRows[count] = sorted[j];
+                merged[count++] = decode(sorted[j++], new float[dimension]);
+            }
+        }
+        return new LazyVectorStore(size, dimension, reader, cacheRows, cache, Arrays.copyOf(mergedRows, count),
+                Arrays.copyOf(merged, count), decoded);
+    }
+
+    private float[] decode(int row, float[] dest) {
+        if (row < 0 || row >= size) {
+            throw new ArrayIndexOutOfBoundsException(row);
+        }
+        reader.read(row, dest);
+        decoded.increment();
+        return dest;
+    }
+
+    /**
+     * 已解码的行，返回的数组不能修改
+     */
+    private float[] row(int row) {
+        float[] values = resident(row);
+        if (values == null) {
+            values = decode(row, new float[dimension]);
+            if (cache != null) {
+                cache.put(row, values);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 常驻或已缓存的行，都没有时返回null
+     */
+    private float[] resident(int row) {
+        if (pinnedRows.length > 0) {
+            int index = Arrays.binarySearch(pinnedRows, row);
+            if (index >= 0) {
+                return pinned[index];
+            }
+        }
+        return cache == null ? null : cache.getIfPresent(row);
+    }
+
+    /**
+     * 扫描用：已缓存时直接返回，否则解码到 scratch，不放入缓存
+     */
+    private float[] scan(int row, float[] scratch) {
+        float[] values = resident(row);
+        return values != null ? values : decode(row, scratch);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public float get(int row, int column) {
+        return row(row)[column];
+    }
+
+    @Override
+    public void getRow(int row, float[] dest) {
+        System.arraycopy(row(row), 0, dest, 0, dimension);
+    }
+
+    @Override
+    public void setRow(int row, float[] values) {
+        throw new UnsupportedOperationException("懒加载的向量存储是只读的");
+    }
+
+    @Override
+    public float dot(int row, float[] vector) {
+        return dot(row(row), vector);
+    }
+
+    private float dot(float[] values, float[] vector) {
+        float sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += values[i] * vector[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void dots(int fromRow, int toRow, float[] vector, float[] dest) {
+        float[] scratch = new float[dimension];
+        for (int row = fromRow; row < toRow; row++) {
+            dest[row - fromRow] = dot(scan(row, scratch), vector);
+        }
+    }
+
+    @Override
+    public void dots(int fromRow, int toRow, float[][] vectors, int fromVector, int toVector, float[] dest) {
+        int rows = toRow - fromRow;
+        float[] scratch = new float[dimension];
+        for (int row = fromRow; row < toRow; row++) {
+            float[] values = scan(row, scratch);
+            for (int v = fromVector; v < toVector; v++) {
+                dest[(v - fromVector) * rows + row - fromRow] = dot(values, vectors[v]);
+            }
+        }
+    }
+
+    @Override
+    public float dot(int row, int other) {
+        return dot(row(row), row(other));
+    }
+
+    @Override
+    public float squaredDistance(int row, float[] vector) {
+        float[] values = row(row);
+        float sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            float diff = values[i] - vector[i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public VectorStore truncate(int rows) {
+        if (rows >= size) {
+            return this;
+        }
+        return new LazyVectorStore(rows, dimension, reader, cacheRows, cache, pinnedRows, pinned, decoded);
+    }
+
+    /**
+     * 预加载（常驻）的行数
+     *
+     * @return 行数
+     */
+    public int pinnedRows() {
+        return pinnedRows.length;
+    }
+
+    /**
+     * 热点行缓存中的行数
+     *
+     * @return 行数
+     */
+    public long cachedRows() {
+        return cache == null ? 0 : cache.size();
+    }
+
+    /**
+     * 从文件解码的总次数（含预加载与扫描），同一行被淘汰后再次访问会再解码一次
+     *
+     * @return 次数
+     */
+    public long decodedRows() {
+        return decoded.sum();
+    }
+
+    /**
+     * 热点行缓存的统计，包括命中率与淘汰次数；不缓存时返回空统计
+     *
+     * @return 统计
+     */
+    public CacheStats stats() {
+        return cache == null ? new CacheStats(0, 0, 0, 0, 0, 0) : cache.stats();
+    }
+}
@@ -0,0 +1,57 @@
+package org.fooldata.storage;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 只读映射文件中的向量矩阵：启动时不读取也不复制数据，由操作系统按需换页，多个进程映射同一文件时共用页缓存<br>
+ * 矩阵按行连续存放，每行 dimension 个小端序 float32；按 {@link BufferVectorStore} 的分段规则分多次映射。
+ * 映射是只读的，{@link #setRow} 会抛出 ReadOnlyBufferException。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class MappedVectorStore extends BufferVectorStore {
+
+    private MappedVectorStore(FloatBuffer[] chunks, int rowsPerChunk, int size, int dimension) {
+        super(chunks, rowsPerChunk, size, dimension);
+    }
+
+    /**
+     * 映射文件中的矩阵，返回后 channel 可以关闭
+     *
+     * @param channel   文件
+     * @param position  矩阵在文件中的起始位置
+     * @param size      行数
+     * @param dimension 维度
+     * @return 向量存储
+     * @throws IOException 映射失败
+     */
+    public static MappedVectorStore map(FileChannel channel, long position, int size, int dimension) throws IOException {
+        long bytes = (long) size * dimension * Float.BYTES;
+        if (position + bytes > channel.size()) {
+            throw new IOException("文件不完整，向量矩阵需要 " + bytes + " 字节");
+        }
+        int rowsPerChunk = rowsPerChunk(dimension);
+        int chunkCount = Math.max(1, (size + rowsPerChunk - 1) / rowsPerChunk);
+        FloatBuffer[] chunks = new FloatBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            int rows = Math.max(0, Math.min(rowsPerChunk, size - i * rowsPerChunk));
+            long start = position + (long) i * rowsPerChunk * dimension * Float.BYTES;
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, (long) rows * dimension * Float.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asFloatBuffer();
+        }
+        return new MappedVectorStore(chunks, rowsPerChunk, size, dimension);
+    }
+
+    @Override
+    public VectorStore truncate(int rows) {
+        if (rows >= size) {
+            return this;
+        }
+        return new MappedVectorStore(chunks, rowsPerChunk, rows, dimension);
+    }
+}
@@ -0,0 +1,43 @@
+package org.fooldata.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * 堆外存储：向量放在 DirectByteBuffer 中，不占用Java堆，也不增加GC扫描的对象数
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class OffHeapVectorStore extends BufferVectorStore {
+
+    public OffHeapVectorStore(int size, int dimension) {
+        this(allocate(size, dimension), rowsPerChunk(dimension), size, dimension);
+    }
+
+    private OffHeapVectorStore(FloatBuffer[] chunks, int rowsPerChunk, int size, int dimension) {
+        super(chunks, rowsPerChunk, size, dimension);
+    }
+
+    private static FloatBuffer[] allocate(int size, int dimension) {
+        int rowsPerChunk = rowsPerChunk(dimension);
+        int chunkCount = Math.max(1, (size + rowsPerChunk - 1) / rowsPerChunk);
+        FloatBuffer[] chunks = new FloatBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            int rows = Math.min(rowsPerChunk, size - i * rowsPerChunk);
+            chunks[i] = ByteBuffer.allocateDirect(rows * dimension * Float.BYTES)
+                    .order(ByteOrder.nativeOrder())
+                    .asFloatBuffer();
+        }
+        return chunks;
+    }
+
+    @Override
+    public VectorStore truncate(int rows) {
+        if (rows >= size) {
+            return this;
+        }
+        return new OffHeapVectorStore(chunks, rowsPerChunk, rows, dimension);
+    }
+}
@@ -0,0 +1,126 @@
+package org.fooldata.storage;
+
+/**
+ * 词向量存储<br>
+ * 所有向量按行优先连续存放，通过行号（词id）访问，查询时不需要为每个词创建对象。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public interface VectorStore {
+
+    /**
+     * 向量行数
+     *
+     * @return 行数
+     */
+    int size();
+
+    /**
+     * 向量维度
+     *
+     * @return 维度
+     */
+    int dimension();
+
+    /**
+     * 读取一个元素
+     *
+     * @param row    行号
+     * @param column 列号
+     * @return 元素
+     */
+    float get(int row, int column);
+
+    /**
+     * 把一行复制到数组中
+     *
+     * @param row  行号
+     * @param dest 目标数组，长度不小于维度
+     */
+    void getRow(int row, float[] dest);
+
+    /**
+     * 写入一行
+     *
+     * @param row    行号
+     * @param values 向量，长度不小于维度
+     */
+    void setRow(int row, float[] values);
+
+    /**
+     * 某一行与给定向量的点积，两者都是单位向量时即为余弦相似度
+     *
+     * @param row    行号
+     * @param vector 向量
+     * @return 点积
+     */
+    float dot(int row, float[] vector);
+
+    /**
+     * 连续若干行分别与给定向量的点积，按块计算便于复用缓存中的查询向量
+     *
+     * @param fromRow 起始行号（含）
+     * @param toRow   结束行号（不含）
+     * @param vector  向量
+     * @param dest    结果，dest[i] 为第 fromRow + i 行的点积
+     */
+    default void dots(int fromRow, int toRow, float[] vector, float[] dest) {
+        for (int row = fromRow; row < toRow; row++) {
+            dest[row - fromRow] = dot(row, vector);
+        }
+    }
+
+    /**
+     * 连续若干行分别与一组向量的点积，相当于一块矩阵乘法：每行只读取一次，与这组向量逐个计算
+     *
+     * @param fromRow    起始行号（含）
+     * @param toRow      结束行号（不含）
+     * @param vectors    向量数组
+     * @param fromVector 起始向量下标（含）
+     * @param toVector   结束向量下标（不含）
+     * @param dest       结果，dest[(v - fromVector) * (toRow - fromRow) + (row - fromRow)] 为第 row 行与第 v 个向量的点积
+     */
+    default void dots(int fromRow, int toRow, float[][] vectors, int fromVector, int toVector, float[] dest) {
+        int rows = toRow - fromRow;
+        int dimension = dimension();
+        float[] values = new float[dimension];
+        for (int row = fromRow; row < toRow; row++) {
+            getRow(row, values);
+            for (int v = fromVector; v < toVector; v++) {
+                float[] vector = vectors[v];
+                float sum = 0;
+                for (int i = 0; i < dimension; i++) {
+                    sum += values[i] * vector[i];
+                }
+                dest[(v - fromVector) * rows + row - fromRow] = sum;
+            }
+        }
+    }
+
+    /**
+     * 两行的点积
+     *
+     * @param row   行号
+     * @param other 另一行的行号
+     * @return 点积
+     */
+    float dot(int row, int other);
+
+    /**
+     * 某一行与给定向量的欧氏距离的平方
+     *
+     * @param row    行号
+     * @param vector 向量
+     * @return 距离的平方
+     */
+    float squaredDistance(int row, float[] vector);
+
+    /**
+     * 只保留前 rows 行（加载时跳过不规范的行会导致实际行数少于预分配的行数）
+     *
+     * @param rows 保留的行数
+     * @return 截断后的存储
+     */
+    VectorStore truncate(int rows);
+}
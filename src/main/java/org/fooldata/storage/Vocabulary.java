@@ -0,0 +1,380 @@
+package org.fooldata.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * 词表：词与行号（词id）的双向映射，id 即该词向量在 {@link VectorStore} 中的行号<br>
+ * 紧凑存储：所有词的 UTF-8 字节连续存放在一个数组中，词id到字节位置用 offsets 数组表示；
+ * 词到id用开放寻址的 int 哈希表，槽位存放 id + 1，冲突时线性探测，装载因子不超过0.5。
+ * 不为每个词保存 String、Integer 与哈希表节点对象，几百万词的词表占用的堆只有 HashMap 的几分之一，也几乎不增加GC扫描的对象数。
+ * 前缀查询使用按字节序排列的词id数组，在第一次前缀查询时构建。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class Vocabulary {
+
+    /**
+     * 排序时小于该长度的区间使用插入排序
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    /**
+     * 所有词的 UTF-8 字节
+     */
+    private final byte[] bytes;
+    /**
+     * 词 i 的字节位于 [offsets[i], offsets[i + 1])
+     */
+    private final int[] offsets;
+    private final int size;
+    /**
+     * 每个词的哈希值，探测时先比较哈希值，相同再比较字节
+     */
+    private final int[] hashes;
+    /**
+     * 开放寻址哈希表，槽位存放 id + 1，0 表示空
+     */
+    private final int[] table;
+    private final int mask;
+    /**
+     * 按字节序排列的词id，用于前缀查询，首次使用时构建
+     */
+    private volatile int[] sorted;
+
+    public Vocabulary(String[] words) {
+        byte[][] encoded = new byte[words.length][];
+        long total = 0;
+        for (int i = 0; i < words.length; i++) {
+            encoded[i] = words[i].getBytes(StandardCharsets.UTF_8);
+            total += encoded[i].length;
+        }
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("词表的 UTF-8 字节数超过2G");
+        }
+        this.bytes = new byte[(int) total];
+        this.offsets = new int[words.length + 1];
+        int position = 0;
+        for (int i = 0; i < words.length; i++) {
+            System.arraycopy(encoded[i], 0, bytes, position, encoded[i].length);
+            position += encoded[i].length;
+            offsets[i + 1] = position;
+        }
+        this.size = words.length;
+        this.hashes = hashes(bytes, offsets, size);
+        this.table = new int[tableSize(size)];
+        this.mask = table.length - 1;
+        fillTable();
+    }
+
+    /**
+     * 直接使用已编码的词表，不创建 String 对象，适合从文件加载
+     *
+     * @param bytes   所有词的 UTF-8 字节
+     * @param offsets 词 i 的字节位于 [offsets[i], offsets[i + 1])，长度为词数 + 1
+     */
+    public Vocabulary(byte[] bytes, int[] offsets) {
+        this.bytes = bytes;
+        this.offsets = offsets;
+        this.size = offsets.length - 1;
+        this.hashes = hashes(bytes, offsets, size);
+        this.table = new int[tableSize(size)];
+        this.mask = table.length - 1;
+        fillTable();
+    }
+
+    private static int tableSize(int size) {
+        int capacity = Integer.highestOneBit(Math.max(2, size) * 2 - 1) << 1;
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("词表过大：" + size);
+        }
+        return capacity;
+    }
+
+    private static int[] hashes(byte[] bytes, int[] offsets, int size) {
+        int[] hashes = new int[size];
+        for (int i = 0; i < size; i++) {
+            hashes[i] = hash(bytes, offsets[i], offsets[i + 1] - offsets[i]);
+        }
+        return hashes;
+    }
+
+    private void fillTable() {
+        for (int id = 0; id < size; id++) {
+            int hash = hashes[id];
+            int slot = hash & mask;
+            while (true) {
+                int entry = table[slot];
+                if (entry == 0) {
+                    table[slot] = id + 1;
+                    break;
+                }
+                // 重复的词保留第一次出现的id
+                if (hashes[entry - 1] == hash && equals(entry - 1, bytes, offsets[id], offsets[id + 1] - offsets[id])) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+    }
+
+    private static int hash(byte[] key, int from, int length) {
+        int h = 0;
+        for (int i = from; i < from + length; i++) {
+            h = 31 * h + key[i];
+        }
+        // 打散低位，线性探测只使用低位
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private boolean equals(int id, byte[] key, int from, int length) {
+        int start = offsets[id];
+        if (offsets[id + 1] - start != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[start + i] != key[from + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 查询词id
+     *
+     * @param word 词
+     * @return id，不存在时返回-1
+     */
+    public int id(String word) {
+        byte[] key = word.getBytes(StandardCharsets.UTF_8);
+        return id(key, 0, key.length);
+    }
+
+    /**
+     * 查询 UTF-8 编码的词的id
+     *
+     * @param key    字节
+     * @param from   起始位置
+     * @param length 字节数
+     * @return id，不存在时返回-1
+     */
+    public int id(byte[] key, int from, int length) {
+        int hash = hash(key, from, length);
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            if (hashes[entry - 1] == hash && equals(entry - 1, key, from, length)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * 批量查询词id
+     *
+     * @param words 词
+     * @return 与 words 一一对应的id，不存在的词为-1
+     */
+    public int[] ids(List<String> words) {
+        int[] ids = new int[words.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = id(words.get(i));
+        }
+        return ids;
+    }
+
+    /**
+     * 根据id获取词，每次调用都会解码出新的 String
+     *
+     * @param id 词id
+     * @return 词
+     */
+    public String word(int id) {
+        if (id < 0 || id >= size) {
+            throw new ArrayIndexOutOfBoundsException(id);
+        }
+        return new String(bytes, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 词表大小（id 的上界）
+     *
+     * @return 大小
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 以 prefix 开头的词，按字典序（UTF-8 字节序，即 Unicode 码点序）排列
+     *
+     * @param prefix 前缀
+     * @param limit  最多返回的个数
+     * @return 词id
+     */
+    public int[] prefix(String prefix, int limit) {
+        int[] result = new int[Math.max(0, Math.min(limit, size))];
+        if (result.length == 0) {
+            return result;
+        }
+        int[] count = new int[1];
+        forEachPrefix(prefix, id -> {
+            result[count[0]++] = id;
+            return count[0] < result.length;
+        });
+        return count[0] == result.length ? result : Arrays.copyOf(result, count[0]);
+    }
+
+    /**
+     * 按字典序遍历以 prefix 开头的词
+     *
+     * @param prefix  前缀
+     * @param visitor 接收词id，返回false时停止遍历
+     */
+    public void forEachPrefix(String prefix, IntPredicate visitor) {
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        int[] order = sorted();
+        // 第一个不小于前缀的位置
+        int lo = 0;
+        int hi = order.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(order[mid], key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        for (int i = lo; i < order.length && startsWith(order[i], key); i++) {
+            if (!visitor.test(order[i])) {
+                return;
+            }
+        }
+    }
+
+    private boolean startsWith(int id, byte[] prefix) {
+        int start = offsets[id];
+        if (offsets[id + 1] - start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[start + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按无符号字节比较词与 key
+     */
+    private int compare(int id, byte[] key) {
+        int start = offsets[id];
+        int length = offsets[id + 1] - start;
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int diff = (bytes[start + i] & 0xFF) - (key[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - key.length;
+    }
+
+    private int compare(int id, int other) {
+        int start = offsets[id];
+        int length = offsets[id + 1] - start;
+        int otherStart = offsets[other];
+        int otherLength = offsets[other + 1] - otherStart;
+        int n = Math.min(length, otherLength);
+        for (int i = 0; i < n; i++) {
+            int diff = (bytes[start + i] & 0xFF) - (bytes[otherStart + i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - otherLength;
+    }
+
+    private int[] sorted() {
+        int[] order = sorted;
+        if (order == null) {
+            synchronized (this) {
+                order = sorted;
+                if (order == null) {
+                    order = new int[size];
+                    for (int i = 0; i < size; i++) {
+                        order[i] = i;
+                    }
+                    sort(order, 0, size - 1);
+                    sorted = order;
+                }
+            }
+        }
+        return order;
+    }
+
+    /**
+     * 对词id按字节序快速排序，避免装箱成 Integer 再用 Comparator 排序
+     */
+    private void sort(int[] order, int left, int right) {
+        while (right - left >= INSERTION_SORT_THRESHOLD) {
+            int middle = (left + right) >>> 1;
+            if (compare(order[middle], order[left]) < 0) {
+                swap(order, middle, left);
+            }
+            if (compare(order[right], order[left]) < 0) {
+                swap(order, right, left);
+            }
+            if (compare(order[right], order[middle]) < 0) {
+                swap(order, right, middle);
+            }
+            int pivot = order[middle];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (compare(order[i], pivot) < 0) {
+                    i++;
+                }
+                while (compare(order[j], pivot) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(order, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            // 先递归较短的一侧，栈深度不超过 log n
+            if (j - left < right - i) {
+                sort(order, left, j);
+                left = i;
+            } else {
+                sort(order, i, right);
+                right = j;
+            }
+        }
+        for (int i = left + 1; i <= right; i++) {
+            int id = order[i];
+            int j = i - 1;
+            while (j >= left && compare(order[j], id) > 0) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = id;
+        }
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        int tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+}
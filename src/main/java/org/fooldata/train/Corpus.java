@@ -0,0 +1,79 @@
+package org.fooldata.train;
+
+import org.fooldata.storage.Vocabulary;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 训练语料，可以分成若干份由多个线程同时读取，每一份可以反复打开（每轮迭代读一遍）
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public interface Corpus {
+
+    /**
+     * 打开其中一份
+     *
+     * @param part  第几份，从0开始
+     * @param parts 总份数
+     * @return 句子读取器
+     * @throws IOException 打开错误
+     */
+    SentenceReader open(int part, int parts) throws IOException;
+
+    /**
+     * 以词id读取其中一份，跳过词表之外的词，默认逐个查询 {@link #open} 返回的词
+     *
+     * @param part       第几份，从0开始
+     * @param parts      总份数
+     * @param vocabulary 词表
+     * @return 词id读取器
+     * @throws IOException 打开错误
+     */
+    default TokenReader openTokens(int part, int parts, Vocabulary vocabulary) throws IOException {
+        SentenceReader reader = open(part, parts);
+        return new LineTokenReader() {
+            @Override
+            boolean readLine() throws IOException {
+                String[] sentence = reader.next();
+                if (sentence == null) {
+                    return false;
+                }
+                for (String word : sentence) {
+                    int id = vocabulary.id(word);
+                    if (id >= 0) {
+                        append(id);
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+
+    /**
+     * 遍历其中一份的全部词（UTF-8 编码），用于统计词频，默认编码 {@link #open} 返回的词
+     *
+     * @param part    第几份，从0开始
+     * @param parts   总份数
+     * @param visitor 接收每个词
+     * @throws IOException 读取错误
+     */
+    default void forEachToken(int part, int parts, TokenVisitor visitor) throws IOException {
+        try (SentenceReader reader = open(part, parts)) {
+            String[] sentence;
+            while ((sentence = reader.next()) != null) {
+                for (String word : sentence) {
+                    byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+                    visitor.visit(bytes, 0, bytes.length);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.fooldata.train;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 按行读取词id的基础实现：子类每次读一行放入 line，超过输出长度的行分多次返回
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+abstract class LineTokenReader implements TokenReader {
+
+    int[] line = new int[256];
+    int lineLength;
+    private int served;
+    private long wordCount;
+
+    /**
+     * 读取下一行的词id到 line 与 lineLength
+     *
+     * @return 读完时返回false
+     */
+    abstract boolean readLine() throws IOException;
+
+    void append(int id) {
+        if (lineLength == line.length) {
+            line = Arrays.copyOf(line, lineLength * 2);
+        }
+        line[lineLength++] = id;
+    }
+
+    @Override
+    public int next(int[] dest) throws IOException {
+        if (served >= lineLength) {
+            lineLength = 0;
+            served = 0;
+            if (!readLine()) {
+                return -1;
+            }
+            wordCount += lineLength;
+            if (lineLength == 0) {
+                return 0;
+            }
+        }
+        int count = Math.min(dest.length, lineLength - served);
+        System.arraycopy(line, served, dest, 0, count);
+        served += count;
+        return count;
+    }
+
+    @Override
+    public long wordCount() {
+        return wordCount;
+    }
+}
@@ -0,0 +1,36 @@
+package org.fooldata.train;
+
+import java.util.List;
+
+/**
+ * 内存中已经分好词的语料，按句子下标等分
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class ListCorpus implements Corpus {
+
+    private final List<String[]> sentences;
+
+    public ListCorpus(List<String[]> sentences) {
+        this.sentences = sentences;
+    }
+
+    @Override
+    public SentenceReader open(int part, int parts) {
+        int from = (int) ((long) sentences.size() * part / parts);
+        int to = (int) ((long) sentences.size() * (part + 1) / parts);
+        return new SentenceReader() {
+            private int next = from;
+
+            @Override
+            public String[] next() {
+                return next < to ? sentences.get(next++) : null;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
@@ -0,0 +1,21 @@
+package org.fooldata.train;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 按顺序读取语料中的句子
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public interface SentenceReader extends Closeable {
+
+    /**
+     * 读取下一个句子
+     *
+     * @return 句子中的词，读完时返回null
+     * @throws IOException 读取错误
+     */
+    String[] next() throws IOException;
+}
@@ -0,0 +1,89 @@
+package org.fooldata.train;
+
+import java.io.IOException;
+
+/**
+ * 高频词下采样：出现次数为 c 的词以 (sqrt(c / t) + 1) × t / c 的概率保留，t = sample × 总词数，与原版C实现相同
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class Subsampler {
+
+    /**
+     * 每个词保留的概率，不下采样时为null
+     */
+    private final float[] keepProbability;
+
+    /**
+     * @param vocabulary 词表
+     * @param sample     下采样阈值，0表示不下采样
+     */
+    public Subsampler(TrainingVocabulary vocabulary, double sample) {
+        if (sample <= 0) {
+            this.keepProbability = null;
+            return;
+        }
+        int size = vocabulary.size();
+        double threshold = sample * vocabulary.totalCount();
+        this.keepProbability = new float[size];
+        for (int i = 0; i < size; i++) {
+            double count = vocabulary.count(i);
+            keepProbability[i] = (float) ((Math.sqrt(count / threshold) + 1) * threshold / count);
+        }
+    }
+
+    public boolean isEnabled() {
+        return keepProbability != null;
+    }
+
+    /**
+     * 词的保留概率
+     *
+     * @param id 词id
+     * @return 概率，大于1时总是保留
+     */
+    public float keepProbability(int id) {
+        return keepProbability == null ? 1f : keepProbability[id];
+    }
+
+    /**
+     * 对词id流做下采样，被丢弃的词直接从句子中去掉；{@link TokenReader#wordCount()} 仍是下采样之前的词数
+     *
+     * @param reader 词id流
+     * @param seed   随机种子
+     * @return 下采样后的词id流
+     */
+    public TokenReader wrap(TokenReader reader, long seed) {
+        if (keepProbability == null) {
+            return reader;
+        }
+        return new TokenReader() {
+            private long random = seed;
+
+            @Override
+            public int next(int[] dest) throws IOException {
+                int length = reader.next(dest);
+                int kept = 0;
+                for (int i = 0; i < length; i++) {
+                    int id = dest[i];
+                    random = random * 25214903917L + 11;
+                    if (keepProbability[id] >= (random & 0xFFFF) / 65536f) {
+                        dest[kept++] = id;
+                    }
+                }
+                return length < 0 ? -1 : kept;
+            }
+
+            @Override
+            public long wordCount() {
+                return reader.wordCount();
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,185 @@
+package org.fooldata.train;
+
+import org.fooldata.storage.Vocabulary;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 分好词的文本语料文件：每行一个句子，词以空白分隔，UTF-8 编码，可以是 gzip 压缩的<br>
+ * 边读边处理，不把文件读入内存。普通文本按字节范围等分，每份从范围内第一个完整行开始，各线程只读自己的范围；
+ * gzip 文件不能随机定位，每份都从头解压、按行号轮流取行，线程数多时建议先解压。
+ * 统计词频与按词id读取时直接在字节上切分和查表，不为每个词创建 String。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class TextFileCorpus implements Corpus {
+
+    private static final int GZIP_BUFFER_SIZE = 1 << 16;
+
+    private final Path path;
+    private final boolean gzip;
+
+    /**
+     * @param path 文件，按文件头自动识别 gzip
+     * @throws IOException 读取错误
+     */
+    public TextFileCorpus(Path path) throws IOException {
+        this.path = path;
+        try (InputStream in = Files.newInputStream(path)) {
+            this.gzip = in.read() == 0x1f && in.read() == 0x8b;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    @Override
+    public SentenceReader open(int part, int parts) throws IOException {
+        Part reader = new Part(part, parts);
+        List<String> words = new ArrayList<>();
+        return new SentenceReader() {
+            @Override
+            public String[] next() throws IOException {
+                words.clear();
+                if (!reader.nextLine((bytes, from, length) ->
+                        words.add(new String(bytes, from, length, StandardCharsets.UTF_8)))) {
+                    return null;
+                }
+                return words.toArray(new String[0]);
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+
+    @Override
+    public TokenReader openTokens(int part, int parts, Vocabulary vocabulary) throws IOException {
+        Part reader = new Part(part, parts);
+        return new LineTokenReader() {
+            private final TokenVisitor lookup = (bytes, from, length) -> {
+                int id = vocabulary.id(bytes, from, length);
+                if (id >= 0) {
+                    append(id);
+                }
+            };
+
+            @Override
+            boolean readLine() throws IOException {
+                return reader.nextLine(lookup);
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+
+    @Override
+    public void forEachToken(int part, int parts, TokenVisitor visitor) throws IOException {
+        try (Part reader = new Part(part, parts)) {
+            while (reader.nextLine(visitor)) {
+                // 逐行处理
+            }
+        }
+    }
+
+    /**
+     * 读取其中一份
+     */
+    private final class Part implements Closeable {
+        private final TokenScanner scanner;
+        private final int part;
+        private final int parts;
+        /**
+         * 普通文本：起始位置不小于 end 的行属于下一份
+         */
+        private final long end;
+        private long line;
+        private boolean finished;
+
+        Part(int part, int parts) throws IOException {
+            this.part = part;
+            this.parts = parts;
+            if (gzip) {
+                InputStream in = new GZIPInputStream(
+                        new BufferedInputStream(Files.newInputStream(path), GZIP_BUFFER_SIZE), GZIP_BUFFER_SIZE);
+                this.scanner = new TokenScanner(in, 0);
+                this.end = Long.MAX_VALUE;
+                return;
+            }
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            long size = channel.size();
+            long start = size * part / parts;
+            this.end = size * (part + 1) / parts;
+            if (start == 0) {
+                this.scanner = new TokenScanner(Channels.newInputStream(channel), 0);
+            } else {
+                // 从前一个字节开始读到换行符，起始位置恰好是行首时不会跳过这一行
+                channel.position(start - 1);
+                this.scanner = new TokenScanner(Channels.newInputStream(channel), start - 1);
+                scanner.skipLine();
+            }
+        }
+
+        /**
+         * 读取属于这一份的下一行，把其中的词交给 visitor
+         *
+         * @return 读完时返回false
+         */
+        boolean nextLine(TokenVisitor visitor) throws IOException {
+            while (!finished) {
+                if (!gzip && scanner.offset() >= end) {
+                    finished = true;
+                    return false;
+                }
+                boolean mine = !gzip || line % parts == part;
+                line++;
+                boolean any = false;
+                int type;
+                while ((type = scanner.next()) == TokenScanner.TOKEN) {
+                    any = true;
+                    if (mine) {
+                        visitor.visit(scanner.token, 0, scanner.tokenLength);
+                    }
+                }
+                if (type == TokenScanner.END) {
+                    finished = true;
+                    if (!any) {
+                        return false;
+                    }
+                }
+                if (mine) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            scanner.close();
+        }
+    }
+}
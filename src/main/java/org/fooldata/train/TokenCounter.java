@@ -0,0 +1,155 @@
+package org.fooldata.train;
+
+import java.util.Arrays;
+
+/**
+ * 统计词频的开放寻址哈希表，键是 UTF-8 字节，次数是 long<br>
+ * 所有键连续存放在一个字节数组中，不创建 String、Long 与哈希表节点对象；单线程使用。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+final class TokenCounter {
+
+    private byte[] bytes = new byte[1 << 12];
+    private int bytesUsed;
+    /**
+     * 键 i 的字节位于 [offsets[i], offsets[i] + lengths[i])
+     */
+    private int[] offsets = new int[1 << 8];
+    private int[] lengths = new int[1 << 8];
+    private int[] hashes = new int[1 << 8];
+    private long[] counts = new long[1 << 8];
+    private int size;
+    /**
+     * 槽位存放键的下标 + 1，0 表示空，装载因子不超过0.5
+     */
+    private int[] table = new int[1 << 9];
+
+    static int hash(byte[] key, int from, int length) {
+        int h = 0;
+        for (int i = from; i < from + length; i++) {
+            h = 31 * h + key[i];
+        }
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    int size() {
+        return size;
+    }
+
+    void add(byte[] key, int from, int length) {
+        add(key, from, length, hash(key, from, length), 1);
+    }
+
+    void add(byte[] key, int from, int length, int hash, long count) {
+        int mask = table.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                table[slot] = insert(key, from, length, hash, count) + 1;
+                if (size * 2 > table.length) {
+                    rehash(table.length * 2);
+                }
+                return;
+            }
+            int index = entry - 1;
+            if (hashes[index] == hash && equals(index, key, from, length)) {
+                counts[index] += count;
+                return;
+            }
+        }
+    }
+
+    private boolean equals(int index, byte[] key, int from, int length) {
+        if (lengths[index] != length) {
+            return false;
+        }
+        int start = offsets[index];
+        for (int i = 0; i < length; i++) {
+            if (bytes[start + i] != key[from + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int insert(byte[] key, int from, int length, int hash, long count) {
+        if (size == offsets.length) {
+            int capacity = size * 2;
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        if ((long) bytesUsed + length > bytes.length) {
+            long capacity = Math.max((long) bytes.length * 2, (long) bytesUsed + length);
+            if (capacity > Integer.MAX_VALUE - 8) {
+                capacity = Integer.MAX_VALUE - 8;
+                if (bytesUsed + (long) length > capacity) {
+                    throw new IllegalStateException("词的 UTF-8 字节数超过2G");
+                }
+            }
+            bytes = Arrays.copyOf(bytes, (int) capacity);
+        }
+        System.arraycopy(key, from, bytes, bytesUsed, length);
+        offsets[size] = bytesUsed;
+        lengths[size] = length;
+        hashes[size] = hash;
+        counts[size] = count;
+        bytesUsed += length;
+        return size++;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        int mask = capacity - 1;
+        for (int index = 0; index < size; index++) {
+            int slot = hashes[index] & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = index + 1;
+        }
+    }
+
+    /**
+     * 删除次数小于 minCount 的键，并压缩存储
+     *
+     * @param minCount 最小次数
+     */
+    void prune(long minCount) {
+        int kept = 0;
+        int position = 0;
+        for (int index = 0; index < size; index++) {
+            if (counts[index] < minCount) {
+                continue;
+            }
+            System.arraycopy(bytes, offsets[index], bytes, position, lengths[index]);
+            offsets[kept] = position;
+            lengths[kept] = lengths[index];
+            hashes[kept] = hashes[index];
+            counts[kept] = counts[index];
+            position += lengths[index];
+            kept++;
+        }
+        size = kept;
+        bytesUsed = position;
+        int capacity = Integer.highestOneBit(Math.max(2, size) * 2 - 1) << 1;
+        rehash(Math.max(capacity, 1 << 9));
+    }
+
+    /**
+     * 遍历全部键与次数
+     */
+    void forEach(EntryVisitor visitor) {
+        for (int index = 0; index < size; index++) {
+            visitor.visit(bytes, offsets[index], lengths[index], hashes[index], counts[index]);
+        }
+    }
+
+    interface EntryVisitor {
+        void visit(byte[] bytes, int from, int length, int hash, long count);
+    }
+}
@@ -0,0 +1,29 @@
+package org.fooldata.train;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 按句子读取词id，词表之外的词已被跳过
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public interface TokenReader extends Closeable {
+
+    /**
+     * 读取下一个句子的词id，超过 dest 长度的句子分多次返回
+     *
+     * @param dest 输出
+     * @return 词数（可以为0），读完时返回-1
+     * @throws IOException 读取错误
+     */
+    int next(int[] dest) throws IOException;
+
+    /**
+     * 已读取的词表内的词数（下采样之前），用于计算训练进度
+     *
+     * @return 词数
+     */
+    long wordCount();
+}
@@ -0,0 +1,129 @@
+package org.fooldata.train;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * 从字节流中按空白切分词，按字节扫描，不解码成字符<br>
+ * 空格、制表符、回车等是词的分隔符，换行符同时是句子的分隔符。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+final class TokenScanner implements Closeable {
+
+    static final int TOKEN = 0;
+    static final int END_OF_LINE = 1;
+    static final int END = 2;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    /**
+     * 下一个未读字节在文件中的位置
+     */
+    private long offset;
+    /**
+     * 最近读到的词
+     */
+    byte[] token = new byte[64];
+    int tokenLength;
+
+    TokenScanner(InputStream in, long offset) {
+        this.in = in;
+        this.offset = offset;
+    }
+
+    long offset() {
+        return offset;
+    }
+
+    private boolean fill() throws IOException {
+        int n;
+        do {
+            n = in.read(buffer, 0, buffer.length);
+        } while (n == 0);
+        if (n < 0) {
+            return false;
+        }
+        position = 0;
+        limit = n;
+        return true;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == 0x0B || b == 0x0C;
+    }
+
+    /**
+     * 读取下一个词
+     *
+     * @return {@link #TOKEN}（词在 token 中）、{@link #END_OF_LINE} 或 {@link #END}
+     */
+    int next() throws IOException {
+        while (true) {
+            if (position == limit && !fill()) {
+                return END;
+            }
+            byte b = buffer[position];
+            if (b == '\n') {
+                position++;
+                offset++;
+                return END_OF_LINE;
+            }
+            if (isSpace(b)) {
+                position++;
+                offset++;
+                continue;
+            }
+            break;
+        }
+        tokenLength = 0;
+        while (true) {
+            int start = position;
+            while (position < limit) {
+                byte b = buffer[position];
+                if (b == '\n' || isSpace(b)) {
+                    break;
+                }
+                position++;
+            }
+            int length = position - start;
+            if (tokenLength + length > token.length) {
+                token = Arrays.copyOf(token, Math.max(token.length * 2, tokenLength + length));
+            }
+            System.arraycopy(buffer, start, token, tokenLength, length);
+            tokenLength += length;
+            offset += length;
+            if (position < limit || !fill()) {
+                return TOKEN;
+            }
+        }
+    }
+
+    /**
+     * 跳过当前行剩余的部分（包括换行符）
+     */
+    void skipLine() throws IOException {
+        while (true) {
+            if (position == limit && !fill()) {
+                return;
+            }
+            byte b = buffer[position++];
+            offset++;
+            if (b == '\n') {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,18 @@
+package org.fooldata.train;
+
+/**
+ * 接收 UTF-8 编码的词，字节只在回调期间有效
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+@FunctionalInterface
+public interface TokenVisitor {
+
+    /**
+     * @param bytes  字节
+     * @param from   起始位置
+     * @param length 字节数
+     */
+    void visit(byte[] bytes, int from, int length);
+}
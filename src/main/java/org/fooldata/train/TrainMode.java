@@ -0,0 +1,18 @@
+package org.fooldata.train;
+
+/**
+ * 训练模型结构
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public enum TrainMode {
+    /**
+     * 用中心词预测窗口内的每个上下文词，低频词效果较好
+     */
+    SKIP_GRAM,
+    /**
+     * 用窗口内上下文词的平均向量预测中心词，训练更快
+     */
+    CBOW
+}
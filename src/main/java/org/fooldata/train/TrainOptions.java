@@ -0,0 +1,163 @@
+package org.fooldata.train;
+
+/**
+ * 训练参数，默认值与 word2vec 原版C实现一致
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class TrainOptions {
+
+    /**
+     * 模型结构
+     */
+    private TrainMode mode = TrainMode.CBOW;
+
+    /**
+     * 词向量维度
+     */
+    private int dimension = 100;
+
+    /**
+     * 上下文窗口的最大半径，每个中心词实际使用 1 到 window 之间的随机半径
+     */
+    private int window = 5;
+
+    /**
+     * 每个正样本配的负样本数，0表示不使用负采样
+     */
+    private int negative = 5;
+
+    /**
+     * 是否使用层次 softmax，可以与负采样同时使用
+     */
+    private boolean hierarchicalSoftmax = false;
+
+    /**
+     * 初始学习率，0表示按模型结构自动选择（skip-gram 为0.025，CBOW 为0.05）
+     */
+    private float alpha = 0;
+
+    /**
+     * 高频词下采样阈值，0表示不下采样
+     */
+    private double sample = 1e-3;
+
+    /**
+     * 出现次数少于该值的词不进入词表
+     */
+    private int minCount = 5;
+
+    /**
+     * 训练轮数
+     */
+    private int iterations = 5;
+
+    /**
+     * 训练线程数
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 随机种子，单线程训练时结果可以复现
+     */
+    private long seed = 1;
+
+    public TrainMode getMode() {
+        return mode;
+    }
+
+    public void setMode(TrainMode mode) {
+        this.mode = mode;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public void setDimension(int dimension) {
+        this.dimension = dimension;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public void setWindow(int window) {
+        this.window = window;
+    }
+
+    public int getNegative() {
+        return negative;
+    }
+
+    public void setNegative(int negative) {
+        this.negative = negative;
+    }
+
+    public boolean isHierarchicalSoftmax() {
+        return hierarchicalSoftmax;
+    }
+
+    public void setHierarchicalSoftmax(boolean hierarchicalSoftmax) {
+        this.hierarchicalSoftmax = hierarchicalSoftmax;
+    }
+
+    public float getAlpha() {
+        return alpha;
+    }
+
+    public void setAlpha(float alpha) {
+        this.alpha = alpha;
+    }
+
+    /**
+     * 实际使用的初始学习率
+     */
+    float startingAlpha() {
+        if (alpha > 0) {
+            return alpha;
+        }
+        return mode == TrainMode.SKIP_GRAM ? 0.025f : 0.05f;
+    }
+
+    public double getSample() {
+        return sample;
+    }
+
+    public void setSample(double sample) {
+        this.sample = sample;
+    }
+
+    public int getMinCount() {
+        return minCount;
+    }
+
+    public void setMinCount(int minCount) {
+        this.minCount = minCount;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
@@ -0,0 +1,114 @@
+package org.fooldata.train;
+
+import org.fooldata.model.ModelOptions;
+import org.fooldata.model.Word2VecModel;
+import org.fooldata.storage.HeapVectorStore;
+import org.fooldata.storage.Vocabulary;
+import org.fooldata.util.VectorFileWriter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 训练结果：词表与训练得到的词向量矩阵（未归一化，行号与词id一致）
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class TrainingResult {
+
+    private final TrainingVocabulary vocabulary;
+    private final HeapVectorStore vectors;
+    private final long trainedWords;
+    private final long millis;
+
+    TrainingResult(TrainingVocabulary vocabulary, HeapVectorStore vectors, long trainedWords, long millis) {
+        this.vocabulary = vocabulary;
+        this.vectors = vectors;
+        this.trainedWords = trainedWords;
+        this.millis = millis;
+    }
+
+    public TrainingVocabulary getTrainingVocabulary() {
+        return vocabulary;
+    }
+
+    public Vocabulary getVocabulary() {
+        return vocabulary.getVocabulary();
+    }
+
+    /**
+     * 训练得到的原始词向量，与原版C实现输出到文件的向量相同，没有归一化
+     *
+     * @return 向量
+     */
+    public HeapVectorStore getVectors() {
+        return vectors;
+    }
+
+    /**
+     * 归一化后的词向量副本，可以直接用于 {@link Word2VecModel}
+     *
+     * @return 向量
+     */
+    public HeapVectorStore normalizedVectors() {
+        int size = vectors.size();
+        int dimension = vectors.dimension();
+        HeapVectorStore normalized = new HeapVectorStore(size, dimension);
+        float[] row = new float[dimension];
+        for (int i = 0; i < size; i++) {
+            vectors.getRow(i, row);
+            double sum = 0;
+            for (float v : row) {
+                sum += v * v;
+            }
+            if (sum > 0) {
+                float norm = (float) Math.sqrt(sum);
+                for (int j = 0; j < dimension; j++) {
+                    row[j] /= norm;
+                }
+            }
+            normalized.setRow(i, row);
+        }
+        return normalized;
+    }
+
+    public Word2VecModel toModel() {
+        return toModel(new ModelOptions());
+    }
+
+    /**
+     * 用训练结果构建模型
+     *
+     * @param options 模型选项
+     * @return 模型
+     */
+    public Word2VecModel toModel(ModelOptions options) {
+        return new Word2VecModel(getVocabulary(), normalizedVectors(), options);
+    }
+
+    /**
+     * 把训练得到的原始向量写成词向量文件，与原版C实现的输出相同，可以用 {@link Word2VecModel} 直接加载
+     *
+     * @param path   输出文件
+     * @param writer 写入选项
+     * @throws IOException 写入错误
+     */
+    public void saveVectors(Path path, VectorFileWriter writer) throws IOException {
+        writer.write(getVocabulary(), vectors, path);
+    }
+
+    /**
+     * 实际参与训练的词数（下采样之后，所有轮次之和）
+     */
+    public long getTrainedWords() {
+        return trainedWords;
+    }
+
+    /**
+     * 训练耗时，不包括统计词频
+     */
+    public long getMillis() {
+        return millis;
+    }
+}
@@ -0,0 +1,263 @@
+package org.fooldata.train;
+
+import org.fooldata.storage.Vocabulary;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 训练用词表：词按出现次数降序编号，记录每个词的次数，使用层次 softmax 时再构建 Huffman 树<br>
+ * Huffman 编码与路径按词连续存放在两个数组中，不为每个词分配定长数组。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class TrainingVocabulary {
+
+    private final Vocabulary vocabulary;
+    private final long[] counts;
+    private final long totalCount;
+    /**
+     * 词 i 的编码与路径位于 [codeOffsets[i], codeOffsets[i + 1])，首次使用层次 softmax 时构建
+     */
+    private int[] codeOffsets;
+    private byte[] codes;
+    private int[] points;
+
+    /**
+     * @param words  词，按 counts 降序排列
+     * @param counts 每个词的出现次数
+     */
+    public TrainingVocabulary(String[] words, long[] counts) {
+        if (words.length != counts.length) {
+            throw new IllegalArgumentException("词数与次数个数不一致");
+        }
+        for (int i = 1; i < counts.length; i++) {
+            if (counts[i] > counts[i - 1]) {
+                throw new IllegalArgumentException("词必须按出现次数降序排列");
+            }
+        }
+        this.vocabulary = new Vocabulary(words);
+        this.counts = counts;
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        this.totalCount = total;
+    }
+
+    /**
+     * 按出现次数创建词表，次数少于 minCount 的词被丢弃，次数相同的词按字典序排列
+     *
+     * @param counts   词与出现次数
+     * @param minCount 最小出现次数
+     * @return 词表
+     */
+    public static TrainingVocabulary of(Map<String, Long> counts, int minCount) {
+        List<String> words = new ArrayList<>();
+        List<Long> wordCounts = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            if (entry.getValue() >= minCount) {
+                words.add(entry.getKey());
+                wordCounts.add(entry.getValue());
+            }
+        }
+        return sorted(words, wordCounts);
+    }
+
+    /**
+     * 按出现次数降序排列后创建词表，次数相同的词按字典序排列
+     *
+     * @param words  词
+     * @param counts 与 words 一一对应的出现次数
+     * @return 词表
+     */
+    static TrainingVocabulary sorted(List<String> words, List<Long> counts) {
+        Integer[] order = new Integer[words.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int diff = Long.compare(counts.get(b), counts.get(a));
+            return diff != 0 ? diff : words.get(a).compareTo(words.get(b));
+        });
+        String[] sortedWords = new String[order.length];
+        long[] sortedCounts = new long[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedWords[i] = words.get(order[i]);
+            sortedCounts[i] = counts.get(order[i]);
+        }
+        return new TrainingVocabulary(sortedWords, sortedCounts);
+    }
+
+    /**
+     * 读一遍语料统计词频，使用 {@link VocabularyBuilder} 多线程统计
+     *
+     * @param corpus   语料
+     * @param minCount 最小出现次数
+     * @return 词表
+     * @throws IOException 读取错误
+     */
+    public static TrainingVocabulary count(Corpus corpus, int minCount) throws IOException {
+        VocabularyBuilder builder = new VocabularyBuilder();
+        builder.setMinCount(minCount);
+        return builder.build(corpus);
+    }
+
+    /**
+     * 读取词表文件，格式与原版C实现的 -save-vocab 相同：每行一个词与出现次数，以空格分隔
+     *
+     * @param path 词表文件
+     * @return 词表
+     * @throws IOException 读取错误或格式不正确
+     */
+    public static TrainingVocabulary read(Path path) throws IOException {
+        List<String> words = new ArrayList<>();
+        List<Long> counts = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                int split = line.lastIndexOf(' ');
+                if (split <= 0) {
+                    throw new IOException("词表文件格式不正确：" + line);
+                }
+                try {
+                    counts.add(Long.parseLong(line.substring(split + 1)));
+                } catch (NumberFormatException e) {
+                    throw new IOException("词表文件格式不正确：" + line, e);
+                }
+                words.add(line.substring(0, split));
+            }
+        }
+        return sorted(words, counts);
+    }
+
+    /**
+     * 保存词表，格式与原版C实现的 -save-vocab 相同，可以与向量文件放在一起，之后用 {@link #read} 读取后继续训练
+     *
+     * @param path 输出文件
+     * @throws IOException 写入错误
+     */
+    public void write(Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < counts.length; i++) {
+                writer.write(vocabulary.word(i));
+                writer.write(' ');
+                writer.write(Long.toString(counts[i]));
+                writer.write('\n');
+            }
+        }
+    }
+
+    public Vocabulary getVocabulary() {
+        return vocabulary;
+    }
+
+    public int size() {
+        return counts.length;
+    }
+
+    public String word(int id) {
+        return vocabulary.word(id);
+    }
+
+    public int id(String word) {
+        return vocabulary.id(word);
+    }
+
+    public long count(int id) {
+        return counts[id];
+    }
+
+    /**
+     * 词表中所有词的出现次数之和
+     */
+    public long totalCount() {
+        return totalCount;
+    }
+
+    /**
+     * 构建 Huffman 树（与原版C实现相同的线性时间算法），内部节点编号为 0 到 size - 2
+     */
+    synchronized void buildHuffmanTree() {
+        if (codeOffsets != null) {
+            return;
+        }
+        int size = counts.length;
+        long[] count = new long[size * 2 + 1];
+        byte[] binary = new byte[size * 2 + 1];
+        int[] parent = new int[size * 2 + 1];
+        System.arraycopy(counts, 0, count, 0, size);
+        for (int i = size; i < count.length; i++) {
+            count[i] = Long.MAX_VALUE / 4;
+        }
+        // 叶子按次数降序，新生成的内部节点次数递增，两个指针分别取最小的节点
+        int pos1 = size - 1;
+        int pos2 = size;
+        for (int a = 0; a < size - 1; a++) {
+            int min1;
+            if (pos1 >= 0 && count[pos1] < count[pos2]) {
+                min1 = pos1--;
+            } else {
+                min1 = pos2++;
+            }
+            int min2;
+            if (pos1 >= 0 && count[pos1] < count[pos2]) {
+                min2 = pos1--;
+            } else {
+                min2 = pos2++;
+            }
+            count[size + a] = count[min1] + count[min2];
+            parent[min1] = size + a;
+            parent[min2] = size + a;
+            binary[min2] = 1;
+        }
+        int root = size * 2 - 2;
+        int[] offsets = new int[size + 1];
+        for (int word = 0; word < size; word++) {
+            int length = 0;
+            for (int node = word; node != root; node = parent[node]) {
+                length++;
+            }
+            offsets[word + 1] = offsets[word] + length;
+        }
+        byte[] wordCodes = new byte[offsets[size]];
+        int[] wordPoints = new int[offsets[size]];
+        for (int word = 0; word < size; word++) {
+            int length = offsets[word + 1] - offsets[word];
+            // 从叶子向上走，编码倒序写入；路径是从根开始的内部节点
+            int node = word;
+            for (int i = length - 1; i >= 0; i--) {
+                wordCodes[offsets[word] + i] = binary[node];
+                node = parent[node];
+                wordPoints[offsets[word] + i] = node - size;
+            }
+        }
+        this.codes = wordCodes;
+        this.points = wordPoints;
+        this.codeOffsets = offsets;
+    }
+
+    int[] codeOffsets() {
+        return codeOffsets;
+    }
+
+    byte[] codes() {
+        return codes;
+    }
+
+    int[] points() {
+        return points;
+    }
+}
@@ -0,0 +1,157 @@
+package org.fooldata.train;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 并行统计语料的词频，生成训练用词表<br>
+ * 语料分成线程数份，每个线程用自己的 {@link TokenCounter} 计数，互不加锁；
+ * 之后按哈希值把所有计数表分片，每个分片由一个线程合并并按最小次数剪枝，最后按次数降序排列。
+ * 设置了单线程词表上限时，计数表超过上限后像原版C实现一样删除低频词（阈值逐次加一），适合词表极大、内存有限的语料，低频词的次数会偏小。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class VocabularyBuilder {
+
+    private static final Logger logger = LoggerFactory.getLogger(VocabularyBuilder.class);
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int minCount = 5;
+    /**
+     * 每个线程的计数表最多容纳的词数，0表示不限制
+     */
+    private int maxWordsPerThread = 0;
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getMinCount() {
+        return minCount;
+    }
+
+    public void setMinCount(int minCount) {
+        this.minCount = minCount;
+    }
+
+    public int getMaxWordsPerThread() {
+        return maxWordsPerThread;
+    }
+
+    public void setMaxWordsPerThread(int maxWordsPerThread) {
+        this.maxWordsPerThread = maxWordsPerThread;
+    }
+
+    /**
+     * 统计词频并生成词表
+     *
+     * @param corpus 语料
+     * @return 词表，次数相同的词按字典序排列
+     * @throws IOException 读取错误
+     */
+    public TrainingVocabulary build(Corpus corpus) throws IOException {
+        long start = System.currentTimeMillis();
+        int parts = Math.max(1, threads);
+        ExecutorService executor = Executors.newFixedThreadPool(parts, runnable -> {
+            Thread thread = new Thread(runnable, "word2vec-vocabulary");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<TokenCounter>> counting = new ArrayList<>();
+            for (int part = 0; part < parts; part++) {
+                int current = part;
+                counting.add(executor.submit(() -> count(corpus, current, parts)));
+            }
+            List<TokenCounter> counters = new ArrayList<>();
+            for (Future<TokenCounter> future : counting) {
+                counters.add(get(future));
+            }
+
+            List<Future<TokenCounter>> merging = new ArrayList<>();
+            for (int shard = 0; shard < parts; shard++) {
+                int current = shard;
+                merging.add(executor.submit(() -> merge(counters, current, parts)));
+            }
+            List<String> words = new ArrayList<>();
+            List<Long> counts = new ArrayList<>();
+            for (Future<TokenCounter> future : merging) {
+                get(future).forEach((bytes, from, length, hash, count) -> {
+                    words.add(new String(bytes, from, length, StandardCharsets.UTF_8));
+                    counts.add(count);
+                });
+            }
+            TrainingVocabulary vocabulary = TrainingVocabulary.sorted(words, counts);
+            logger.info("词频统计完毕，词表大小：{}，总词数：{}，耗时{}毫秒", vocabulary.size(), vocabulary.totalCount(),
+                    System.currentTimeMillis() - start);
+            return vocabulary;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private TokenCounter count(Corpus corpus, int part, int parts) {
+        TokenCounter counter = new TokenCounter();
+        long[] reduce = {1};
+        try {
+            corpus.forEachToken(part, parts, (bytes, from, length) -> {
+                counter.add(bytes, from, length);
+                if (maxWordsPerThread > 0 && counter.size() > maxWordsPerThread) {
+                    counter.prune(++reduce[0]);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return counter;
+    }
+
+    /**
+     * 合并所有计数表中哈希值属于该分片的词，并按最小次数剪枝
+     */
+    private TokenCounter merge(List<TokenCounter> counters, int shard, int shards) {
+        TokenCounter merged = new TokenCounter();
+        for (TokenCounter counter : counters) {
+            counter.forEach((bytes, from, length, hash, count) -> {
+                if (Math.floorMod(hash, shards) == shard) {
+                    merged.add(bytes, from, length, hash, count);
+                }
+            });
+        }
+        merged.prune(minCount);
+        return merged;
+    }
+
+    private static <T> T get(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("统计词频被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("统计词频出错", cause);
+        }
+    }
+}
@@ -0,0 +1,482 @@
+package org.fooldata.train;
+
+import org.fooldata.storage.HeapVectorStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多线程训练 word2vec（skip-gram / CBOW，负采样 / 层次 softmax），算法与原版C实现一致<br>
+ * 语料按线程数分成若干份，每个线程各自读一份；所有线程无锁地直接更新共享的参数矩阵（Hogwild），
+ * 偶尔互相覆盖的更新对结果影响可以忽略。sigmoid 查预先计算的表，学习率随已处理的词数线性衰减。
+ * 参数矩阵是连续的 float 数组，行内的点积与更新都是顺序访问，与C实现的内存布局相同。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class Word2VecTrainer {
+
+    private static final Logger logger = LoggerFactory.getLogger(Word2VecTrainer.class);
+
+    static final int EXP_TABLE_SIZE = 1000;
+    static final int MAX_EXP = 6;
+    /**
+     * 超过该长度的句子被截成多段训练
+     */
+    static final int MAX_SENTENCE_LENGTH = 1000;
+    /**
+     * 负采样表的最大长度，C实现为1e8，这里按词表大小缩小，最多占用80MB
+     */
+    private static final int MAX_TABLE_SIZE = 20_000_000;
+    private static final double UNIGRAM_POWER = 0.75;
+    /**
+     * 每处理这么多词更新一次全局进度与学习率
+     */
+    private static final int PROGRESS_INTERVAL = 10000;
+    /**
+     * 每处理这么多词输出一次进度日志
+     */
+    private static final long LOG_INTERVAL = 1_000_000;
+    /**
+     * sigmoid(x) 在 [-MAX_EXP, MAX_EXP) 上的取值表
+     */
+    private static final float[] EXP_TABLE = new float[EXP_TABLE_SIZE + 1];
+
+    static {
+        for (int i = 0; i <= EXP_TABLE_SIZE; i++) {
+            double e = Math.exp((i / (double) EXP_TABLE_SIZE * 2 - 1) * MAX_EXP);
+            EXP_TABLE[i] = (float) (e / (e + 1));
+        }
+    }
+
+    private final TrainOptions options;
+
+    public Word2VecTrainer(TrainOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * 统计词频后训练
+     *
+     * @param corpus 语料，会被读 1 + 轮数 遍
+     * @return 训练结果
+     * @throws IOException 读取错误
+     */
+    public TrainingResult train(Corpus corpus) throws IOException {
+        VocabularyBuilder builder = new VocabularyBuilder();
+        builder.setThreads(Math.max(1, options.getThreads()));
+        builder.setMinCount(options.getMinCount());
+        return train(corpus, builder.build(corpus));
+    }
+
+    /**
+     * 使用已有的词表训练，语料中不在词表里的词被跳过
+     *
+     * @param corpus     语料
+     * @param vocabulary 词表
+     * @return 训练结果
+     * @throws IOException 读取错误
+     */
+    public TrainingResult train(Corpus corpus, TrainingVocabulary vocabulary) throws IOException {
+        if (options.getNegative() <= 0 && !options.isHierarchicalSoftmax()) {
+            throw new IllegalArgumentException("负采样与层次 softmax 至少使用一种");
+        }
+        if (vocabulary.size() == 0) {
+            throw new IllegalArgumentException("词表为空");
+        }
+        return new Training(corpus, vocabulary).run();
+    }
+
+    /**
+     * 一次训练的共享状态
+     */
+    private final class Training {
+        final Corpus corpus;
+        final TrainingVocabulary vocabulary;
+        final int size;
+        final int dimension;
+        final int threads;
+        final float startingAlpha;
+        final long trainWords;
+        /**
+         * 输入词向量，即训练结果
+         */
+        final float[] syn0;
+        /**
+         * 层次 softmax 内部节点的参数
+         */
+        final float[] syn1;
+        /**
+         * 负采样的输出词向量
+         */
+        final float[] syn1neg;
+        /**
+         * 负采样表：词按 次数^0.75 的比例占据表中的位置
+         */
+        final int[] table;
+        /**
+         * 高频词下采样
+         */
+        final Subsampler subsampler;
+        /**
+         * 所有线程已处理的词数，用于计算学习率
+         */
+        final AtomicLong wordCountActual = new AtomicLong();
+        /**
+         * 有线程出错后置为true，其他线程在句子之间检查并尽快退出
+         */
+        volatile boolean failed;
+        final long start = System.currentTimeMillis();
+
+        Training(Corpus corpus, TrainingVocabulary vocabulary) {
+            this.corpus = corpus;
+            this.vocabulary = vocabulary;
+            this.size = vocabulary.size();
+            this.dimension = options.getDimension();
+            this.threads = Math.max(1, options.getThreads());
+            this.startingAlpha = options.startingAlpha();
+            this.trainWords = vocabulary.totalCount();
+            if ((long) size * dimension > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("词表大小 × 维度超过单个数组上限");
+            }
+            this.syn0 = new float[size * dimension];
+            long random = options.getSeed();
+            for (int i = 0; i < syn0.length; i++) {
+                random = random * 25214903917L + 11;
+                syn0[i] = (((random & 0xFFFF) / 65536f) - 0.5f) / dimension;
+            }
+            if (options.isHierarchicalSoftmax()) {
+                vocabulary.buildHuffmanTree();
+                this.syn1 = new float[size * dimension];
+            } else {
+                this.syn1 = null;
+            }
+            if (options.getNegative() > 0) {
+                this.syn1neg = new float[size * dimension];
+                this.table = unigramTable();
+            } else {
+                this.syn1neg = null;
+                this.table = null;
+            }
+            this.subsampler = new Subsampler(vocabulary, options.getSample());
+        }
+
+        private int[] unigramTable() {
+            int tableSize = (int) Math.min(MAX_TABLE_SIZE, Math.max(1 << 20, 100L * size));
+            int[] unigrams = new int[tableSize];
+            double total = 0;
+            for (int i = 0; i < size; i++) {
+                total += Math.pow(vocabulary.count(i), UNIGRAM_POWER);
+            }
+            int word = 0;
+            double cumulative = Math.pow(vocabulary.count(0), UNIGRAM_POWER) / total;
+            for (int a = 0; a < tableSize; a++) {
+                unigrams[a] = word;
+                if (a / (double) tableSize > cumulative && word < size - 1) {
+                    word++;
+                    cumulative += Math.pow(vocabulary.count(word), UNIGRAM_POWER) / total;
+                }
+            }
+            return unigrams;
+        }
+
+        TrainingResult run() throws IOException {
+            logger.info("开始训练：{}，维度：{}，线程：{}，轮数：{}", options.getMode(), dimension, threads,
+                    options.getIterations());
+            ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                private int count;
+
+                @Override
+                public synchronized Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "word2vec-train-" + count++);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            long trained = 0;
+            CompletionService<Long> completion = new ExecutorCompletionService<>(executor);
+            try {
+                for (int t = 0; t < threads; t++) {
+                    Worker worker = new Worker(t);
+                    completion.submit(worker::run);
+                }
+                // 按完成顺序取结果，第一个出错的线程立即报告
+                for (int t = 0; t < threads; t++) {
+                    trained += completion.take().get();
+                }
+            } catch (InterruptedException e) {
+                failed = true;
+                Thread.currentThread().interrupt();
+                throw new IOException("训练被中断", e);
+            } catch (ExecutionException e) {
+                failed = true;
+                Throwable cause = e.getCause();
+                if (cause instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) cause).getCause();
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException("训练出错", cause);
+            } finally {
+                executor.shutdownNow();
+                awaitWorkers(executor);
+            }
+            long millis = System.currentTimeMillis() - start;
+            logger.info("训练完毕，处理词数：{}，耗时{}毫秒，每线程每秒{}词", trained, millis,
+                    millis == 0 ? 0 : trained * 1000 / millis / threads);
+            return new TrainingResult(vocabulary, new HeapVectorStore(syn0, size, dimension), trained, millis);
+        }
+
+        /**
+         * 等待训练线程退出，出错时保证抛出异常后不再有线程修改向量
+         */
+        private void awaitWorkers(ExecutorService executor) {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    if (executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                        break;
+                    }
+                    logger.warn("等待训练线程退出");
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * 一个训练线程，持有自己的随机数与临时向量
+         */
+        private final class Worker {
+            final int id;
+            long random;
+            final float[] neu1 = new float[dimension];
+            final float[] neu1e = new float[dimension];
+            final int[] sentence = new int[MAX_SENTENCE_LENGTH];
+            float alpha = startingAlpha;
+            long wordCount;
+            long lastWordCount;
+            long nextLog = LOG_INTERVAL;
+            long trained;
+
+            Worker(int id) {
+                this.id = id;
+                this.random = options.getSeed() + id;
+            }
+
+            long run() {
+                try {
+                    for (int iteration = 0; iteration < options.getIterations() && !stopped(); iteration++) {
+                        long base = wordCount;
+                        TokenReader tokens = corpus.openTokens(id, threads, vocabulary.getVocabulary());
+                        try (TokenReader reader = subsampler.wrap(tokens, random + iteration)) {
+                            int length;
+                            while (!stopped() && (length = reader.next(sentence)) >= 0) {
+                                trainSentence(length);
+                                wordCount = base + reader.wordCount();
+                                if (wordCount - lastWordCount > PROGRESS_INTERVAL) {
+                                    updateProgress();
+                                }
+                            }
+                        }
+                    }
+                    updateProgress();
+                } catch (IOException e) {
+                    failed = true;
+                    throw new UncheckedIOException(e);
+                } catch (RuntimeException | Error e) {
+                    failed = true;
+                    throw e;
+                }
+                return trained;
+            }
+
+            private boolean stopped() {
+                return failed || Thread.currentThread().isInterrupted();
+            }
+
+            /**
+             * 汇总已处理的词数，按全局进度线性衰减学习率
+             */
+            private void updateProgress() {
+                long actual = wordCountActual.addAndGet(wordCount - lastWordCount);
+                if (id == 0 && actual >= nextLog) {
+                    nextLog = actual + LOG_INTERVAL;
+                    long millis = Math.max(1, System.currentTimeMillis() - start);
+                    logger.info("学习率：{}，进度：{}%，每线程每秒{}词", alpha,
+                            String.format("%.2f", actual * 100.0 / (options.getIterations() * trainWords + 1)),
+                            actual * 1000 / millis / threads);
+                }
+                lastWordCount = wordCount;
+                alpha = startingAlpha * (1 - actual / (float) (options.getIterations() * trainWords + 1));
+                if (alpha < startingAlpha * 0.0001f) {
+                    alpha = startingAlpha * 0.0001f;
+                }
+            }
+
+            private void trainSentence(int length) {
+                trained += length;
+                int window = options.getWindow();
+                for (int position = 0; position < length; position++) {
+                    int word = sentence[position];
+                    random = random * 25214903917L + 11;
+                    int shrink = (int) Long.remainderUnsigned(random, window);
+                    if (options.getMode() == TrainMode.CBOW) {
+                        trainCbow(length, position, word, window, shrink);
+                    } else {
+                        trainSkipGram(length, position, word, window, shrink);
+                    }
+                }
+            }
+
+            private void trainCbow(int length, int position, int word, int window, int shrink) {
+                Arrays.fill(neu1, 0);
+                Arrays.fill(neu1e, 0);
+                int contextWords = 0;
+                for (int a = shrink; a < window * 2 + 1 - shrink; a++) {
+                    int c = position - window + a;
+                    if (a == window || c < 0 || c >= length) {
+                        continue;
+                    }
+                    add(syn0, sentence[c] * dimension, neu1, 1f);
+                    contextWords++;
+                }
+                if (contextWords == 0) {
+                    return;
+                }
+                for (int i = 0; i < dimension; i++) {
+                    neu1[i] /= contextWords;
+                }
+                learn(word, neu1, 0);
+                for (int a = shrink; a < window * 2 + 1 - shrink; a++) {
+                    int c = position - window + a;
+                    if (a == window || c < 0 || c >= length) {
+                        continue;
+                    }
+                    addTo(neu1e, syn0, sentence[c] * dimension);
+                }
+            }
+
+            private void trainSkipGram(int length, int position, int word, int window, int shrink) {
+                for (int a = shrink; a < window * 2 + 1 - shrink; a++) {
+                    int c = position - window + a;
+                    if (a == window || c < 0 || c >= length) {
+                        continue;
+                    }
+                    int l1 = sentence[c] * dimension;
+                    Arrays.fill(neu1e, 0);
+                    learn(word, syn0, l1);
+                    addTo(neu1e, syn0, l1);
+                }
+            }
+
+            /**
+             * 用输入向量 input[offset, offset + dimension) 预测 word，输出层的梯度直接更新，输入向量的梯度累加到 neu1e
+             */
+            private void learn(int word, float[] input, int offset) {
+                if (syn1 != null) {
+                    int[] codeOffsets = vocabulary.codeOffsets();
+                    byte[] codes = vocabulary.codes();
+                    int[] points = vocabulary.points();
+                    for (int d = codeOffsets[word]; d < codeOffsets[word + 1]; d++) {
+                        int l2 = points[d] * dimension;
+                        float f = dot(input, offset, syn1, l2);
+                        if (f <= -MAX_EXP || f >= MAX_EXP) {
+                            continue;
+                        }
+                        f = EXP_TABLE[(int) ((f + MAX_EXP) * (EXP_TABLE_SIZE / MAX_EXP / 2))];
+                        float g = (1 - codes[d] - f) * alpha;
+                        add(syn1, l2, neu1e, g);
+                        add(input, offset, syn1, l2, g);
+                    }
+                }
+                if (syn1neg != null) {
+                    for (int d = 0; d <= options.getNegative(); d++) {
+                        int target;
+                        int label;
+                        if (d == 0) {
+                            target = word;
+                            label = 1;
+                        } else {
+                            random = random * 25214903917L + 11;
+                            target = table[(int) Long.remainderUnsigned(random >>> 16, table.length)];
+                            if (target == word) {
+                                continue;
+                            }
+                            label = 0;
+                        }
+                        int l2 = target * dimension;
+                        float f = dot(input, offset, syn1neg, l2);
+                        float g;
+                        if (f > MAX_EXP) {
+                            g = (label - 1) * alpha;
+                        } else if (f < -MAX_EXP) {
+                            g = label * alpha;
+                        } else {
+                            g = (label - EXP_TABLE[(int) ((f + MAX_EXP) * (EXP_TABLE_SIZE / MAX_EXP / 2))]) * alpha;
+                        }
+                        add(syn1neg, l2, neu1e, g);
+                        add(input, offset, syn1neg, l2, g);
+                    }
+                }
+            }
+
+            private float dot(float[] a, int aOffset, float[] b, int bOffset) {
+                float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+                int i = 0;
+                for (; i + 3 < dimension; i += 4) {
+                    s0 += a[aOffset + i] * b[bOffset + i];
+                    s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+                    s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+                    s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+                }
+                for (; i < dimension; i++) {
+                    s0 += a[aOffset + i] * b[bOffset + i];
+                }
+                return (s0 + s1) + (s2 + s3);
+            }
+
+            /**
+             * dest += g × source[offset, offset + dimension)
+             */
+            private void add(float[] source, int offset, float[] dest, float g) {
+                for (int i = 0; i < dimension; i++) {
+                    dest[i] += g * source[offset + i];
+                }
+            }
+
+            /**
+             * dest[destOffset, destOffset + dimension) += g × source[sourceOffset, sourceOffset + dimension)
+             */
+            private void add(float[] source, int sourceOffset, float[] dest, int destOffset, float g) {
+                for (int i = 0; i < dimension; i++) {
+                    dest[destOffset + i] += g * source[sourceOffset + i];
+                }
+            }
+
+            /**
+             * dest[offset, offset + dimension) += source
+             */
+            private void addTo(float[] source, float[] dest, int offset) {
+                for (int i = 0; i < dimension; i++) {
+                    dest[offset + i] += source[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.fooldata.util;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 原子替换文件：先写同目录下的临时文件，刷到磁盘后改名覆盖目标文件<br>
+ * 目标文件始终是完整的旧文件或完整的新文件；已经映射旧文件的读取方仍然读旧的 inode，不会因为文件被截断而 SIGBUS。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public final class AtomicFiles {
+
+    private AtomicFiles() {
+    }
+
+    /**
+     * 目标文件同目录下的临时文件名，同目录才能保证改名是原子的
+     *
+     * @param path 目标文件
+     * @return 临时文件
+     */
+    public static Path tempFile(Path path) {
+        Path target = path.toAbsolutePath();
+        String name = "." + target.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp";
+        return target.resolveSibling(name);
+    }
+
+    /**
+     * 用已经刷到磁盘的临时文件替换目标文件
+     *
+     * @param temp 临时文件
+     * @param path 目标文件
+     * @throws IOException 文件系统不支持原子改名或改名失败，临时文件会被删除
+     */
+    public static void publish(Path temp, Path path) throws IOException {
+        try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            discard(temp);
+            throw new IOException("文件系统不支持原子改名：" + path, e);
+        } catch (IOException e) {
+            discard(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * 删除未发布的临时文件，删除失败不影响原来的异常
+     *
+     * @param temp 临时文件
+     */
+    public static void discard(Path temp) {
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException ignored) {
+            // 留下的临时文件以点开头，不会被当成模型文件
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package org.fooldata.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * 带缓冲的小端序二进制文件写入，同时计算写入内容的 CRC32<br>
+ * 数组按块批量写入缓冲区，不逐个数值调用；与 {@link MappedFileCursor} 配对读取。<br>
+ * 内容先写入同目录的临时文件，{@link #commit()} 刷盘后原子改名覆盖目标文件；没有提交就关闭时删除临时文件，目标文件不变。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class BinaryFileWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path path;
+    private final Path temp;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32 crc = new CRC32();
+    private long position;
+    private boolean committed;
+
+    /**
+     * 准备写入（或覆盖）文件，从 start 开始写入，之前的部分留给调用方之后写入文件头
+     *
+     * @param path  文件
+     * @param start 起始位置
+     */
+    public BinaryFileWriter(Path path, long start) throws IOException {
+        this.path = path;
+        this.temp = AtomicFiles.tempFile(path);
+        this.channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        channel.position(start);
+        this.position = start;
+    }
+
+    /**
+     * 当前写入位置（包含缓冲区中尚未写出的部分）
+     */
+    public long position() {
+        return position + buffer.position();
+    }
+
+    /**
+     * 已写入内容的 CRC32，不包含起始位置之前的部分
+     */
+    public long checksum() throws IOException {
+        flush();
+        return crc.getValue();
+    }
+
+    /**
+     * 已写入内容再接上 trailer 的 CRC32，用于把文件头（不含校验和字段）也算进校验和<br>
+     * 调用之后不应再顺序写入
+     *
+     * @param trailer 附加的数据，从当前位置到 limit，不改变其位置
+     */
+    public long checksum(ByteBuffer trailer) throws IOException {
+        flush();
+        crc.update(trailer.duplicate());
+        return crc.getValue();
+    }
+
+    public void putInt(int value) throws IOException {
+        require(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    public void putLong(long value) throws IOException {
+        require(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    public void putFloat(float value) throws IOException {
+        require(Float.BYTES);
+        buffer.putFloat(value);
+    }
+
+    public void putInts(int[] values, int offset, int length) throws IOException {
+        while (length > 0) {
+            require(Integer.BYTES);
+            int count = Math.min(length, buffer.remaining() / Integer.BYTES);
+            buffer.asIntBuffer().put(values, offset, count);
+            ((Buffer) buffer).position(buffer.position() + count * Integer.BYTES);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    public void putFloats(float[] values, int offset, int length) throws IOException {
+        while (length > 0) {
+            require(Float.BYTES);
+            int count = Math.min(length, buffer.remaining() / Float.BYTES);
+            buffer.asFloatBuffer().put(values, offset, count);
+            ((Buffer) buffer).position(buffer.position() + count * Float.BYTES);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    public void putBytes(byte[] values, int offset, int length) throws IOException {
+        while (length > 0) {
+            require(1);
+            int count = Math.min(length, buffer.remaining());
+            buffer.put(values, offset, count);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * 补0使写入位置对齐到 alignment 的整数倍
+     *
+     * @param alignment 对齐字节数
+     */
+    public void align(int alignment) throws IOException {
+        while (position() % alignment != 0) {
+            require(1);
+            buffer.put((byte) 0);
+        }
+    }
+
+    private void require(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * 把缓冲区写入文件
+     */
+    public void flush() throws IOException {
+        ((Buffer) buffer).flip();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer);
+        }
+        ((Buffer) buffer).clear();
+    }
+
+    /**
+     * 在指定位置写入（通常是文件头），不影响顺序写入的位置与校验和
+     *
+     * @param data     数据，从当前位置写到 limit
+     * @param position 文件中的位置
+     */
+    public void writeAt(ByteBuffer data, long position) throws IOException {
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+    }
+
+    /**
+     * 刷盘并用临时文件原子替换目标文件
+     */
+    public void commit() throws IOException {
+        try {
+            flush();
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+        AtomicFiles.publish(temp, path);
+        committed = true;
+    }
+
+    /**
+     * 没有提交时放弃写入的内容，目标文件保持原样
+     */
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            try {
+                channel.close();
+            } finally {
+                AtomicFiles.discard(temp);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.fooldata.util;
+
+/**
+ * IEEE 754 半精度浮点数（float16）与 float 的相互转换，转换时舍入到最近的偶数<br>
+ * 半精度有10位尾数，[-1, 1] 内的相似度误差不超过 0.0005，存储只需2个字节。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public final class Float16 {
+
+    private Float16() {
+    }
+
+    /**
+     * float 转为半精度
+     *
+     * @param value 值
+     * @return 半精度的二进制表示
+     */
+    public static short fromFloat(float value) {
+        int bits = Float.floatToIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int rawExponent = (bits >>> 23) & 0xFF;
+        int mantissa = bits & 0x7FFFFF;
+        if (rawExponent == 0xFF) {
+            // 无穷大与NaN
+            return (short) (sign | 0x7C00 | (mantissa != 0 ? 0x200 : 0));
+        }
+        int exponent = rawExponent - 127 + 15;
+        if (exponent >= 0x1F) {
+            return (short) (sign | 0x7C00);
+        }
+        if (exponent <= 0) {
+            // 非规格化数
+            if (exponent < -10) {
+                return (short) sign;
+            }
+            mantissa |= 0x800000;
+            int shift = 14 - exponent;
+            int half = mantissa >> shift;
+            int remainder = mantissa & ((1 << shift) - 1);
+            int halfway = 1 << (shift - 1);
+            if (remainder > halfway || (remainder == halfway && (half & 1) != 0)) {
+                half++;
+            }
+            return (short) (sign | half);
+        }
+        int half = (exponent << 10) | (mantissa >> 13);
+        int remainder = mantissa & 0x1FFF;
+        // 进位可能进到指数位，结果仍然正确（最大时进位为无穷大）
+        if (remainder > 0x1000 || (remainder == 0x1000 && (half & 1) != 0)) {
+            half++;
+        }
+        return (short) (sign | half);
+    }
+
+    /**
+     * 半精度转为 float
+     *
+     * @param half 半精度的二进制表示
+     * @return 值
+     */
+    public static float toFloat(short half) {
+        int bits = half & 0xFFFF;
+        int sign = (bits & 0x8000) << 16;
+        int exponent = (bits >>> 10) & 0x1F;
+        int mantissa = bits & 0x3FF;
+        if (exponent == 0) {
+            float value = mantissa * 0x1p-24f;
+            return sign == 0 ? value : -value;
+        }
+        if (exponent == 0x1F) {
+            return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+        }
+        return Float.intBitsToFloat(sign | ((exponent - 15 + 127) << 23) | (mantissa << 13));
+    }
+}
@@ -0,0 +1,202 @@
+package org.fooldata.util;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 基于 FileChannel.map 的顺序读取游标<br>
+ * 单次映射不能超过2G，大文件按窗口分段映射，读到窗口末尾时从当前位置重新映射。
+ * 数值按小端序读取（与 word2vec 原版 C 实现写出的 .bin 文件、{@link BinaryFileWriter} 写出的文件一致）。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class MappedFileCursor implements Closeable {
+
+    /**
+     * 默认映射窗口大小
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int windowSize;
+
+    private MappedByteBuffer buffer;
+    /**
+     * 当前窗口在文件中的起始位置
+     */
+    private long windowStart;
+
+    public MappedFileCursor(Path path) throws IOException {
+        this(path, DEFAULT_WINDOW_SIZE);
+    }
+
+    public MappedFileCursor(Path path, int windowSize) throws IOException {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("映射窗口大小必须为正数");
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.windowSize = windowSize;
+        map(0);
+    }
+
+    private void map(long start) throws IOException {
+        long length = Math.min(windowSize, fileSize - start);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        windowStart = start;
+    }
+
+    /**
+     * 保证当前窗口内至少还有 n 个字节可读，文件剩余不足 n 个字节时映射到文件末尾
+     *
+     * @param n 字节数
+     */
+    private void ensure(int n) throws IOException {
+        if (buffer.remaining() < n && windowStart + buffer.limit() < fileSize) {
+            map(position());
+        }
+    }
+
+    public long position() {
+        return windowStart + buffer.position();
+    }
+
+    /**
+     * 移动到文件中的某个位置
+     *
+     * @param position 位置
+     */
+    public void seek(long position) throws IOException {
+        if (position < 0 || position > fileSize) {
+            throw new EOFException("位置超出文件范围：" + position);
+        }
+        if (position >= windowStart && position <= windowStart + buffer.limit()) {
+            ((Buffer) buffer).position((int) (position - windowStart));
+        } else {
+            map(position);
+        }
+    }
+
+    public long size() {
+        return fileSize;
+    }
+
+    public boolean hasRemaining() {
+        return position() < fileSize;
+    }
+
+    public byte get() throws IOException {
+        ensure(1);
+        if (!buffer.hasRemaining()) {
+            throw new EOFException();
+        }
+        return buffer.get();
+    }
+
+    /**
+     * 查看下一个字节但不移动位置
+     *
+     * @return 下一个字节，到达文件末尾返回-1
+     */
+    public int peek() throws IOException {
+        ensure(1);
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        return buffer.get(buffer.position()) & 0xFF;
+    }
+
+    /**
+     * 批量读取小端序 float
+     *
+     * @param dest   目标数组
+     * @param offset 目标数组起始位置
+     * @param length 读取个数
+     */
+    public void getFloats(float[] dest, int offset, int length) throws IOException {
+        while (length > 0) {
+            int count = Math.min(length, available(Float.BYTES) / Float.BYTES);
+            buffer.asFloatBuffer().get(dest, offset, count);
+            ((Buffer) buffer).position(buffer.position() + count * Float.BYTES);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * 批量读取小端序 int
+     *
+     * @param dest   目标数组
+     * @param offset 目标数组起始位置
+     * @param length 读取个数
+     */
+    public void getInts(int[] dest, int offset, int length) throws IOException {
+        while (length > 0) {
+            int count = Math.min(length, available(Integer.BYTES) / Integer.BYTES);
+            buffer.asIntBuffer().get(dest, offset, count);
+            ((Buffer) buffer).position(buffer.position() + count * Integer.BYTES);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * 批量读取字节
+     *
+     * @param dest   目标数组
+     * @param offset 目标数组起始位置
+     * @param length 读取个数
+     */
+    public void getBytes(byte[] dest, int offset, int length) throws IOException {
+        while (length > 0) {
+            int count = Math.min(length, available(1));
+            buffer.get(dest, offset, count);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    public int getInt() throws IOException {
+        available(Integer.BYTES);
+        return buffer.getInt();
+    }
+
+    public long getLong() throws IOException {
+        available(Long.BYTES);
+        return buffer.getLong();
+    }
+
+    public float getFloat() throws IOException {
+        available(Float.BYTES);
+        return buffer.getFloat();
+    }
+
+    /**
+     * 保证当前窗口至少还有一个 unit 大小的数据可读，用于批量读取时逐个窗口推进
+     *
+     * @return 当前窗口剩余的字节数
+     */
+    private int available(int unit) throws IOException {
+        ensure(unit);
+        if (buffer.remaining() < unit) {
+            throw new EOFException("文件不完整，位置：" + position());
+        }
+        return buffer.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer = null;
+        channel.close();
+    }
+}
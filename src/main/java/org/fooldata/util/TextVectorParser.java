@@ -0,0 +1,474 @@
+package org.fooldata.util;
+
+import org.fooldata.storage.VectorStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+
+/**
+ * 多线程解析文本格式的词向量文件<br>
+ * 文件按换行对齐切分为若干字节区间，每个区间映射到内存后由一个线程直接在字节上解析词与浮点数，
+ * 不为每行创建 String，也不使用正则切分。解析分两步：先并行统计每个区间的行数确定每行的行号，
+ * 再并行解析并把归一化后的向量写入存储。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+class TextVectorParser {
+
+    private static final Logger logger = LoggerFactory.getLogger(TextVectorParser.class);
+
+    /**
+     * 单个区间的最大字节数（单次映射不能超过2G）
+     */
+    private static final long MAX_RANGE_SIZE = 1 << 30;
+    /**
+     * 每个线程分到的区间数，区间切得细一些可以平衡各线程的负载
+     */
+    private static final int RANGES_PER_THREAD = 4;
+    /**
+     * 可以精确表示的10的幂
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final Path path;
+    private final int threads;
+    private final BiFunction<Integer, Integer, VectorStore> storeFactory;
+
+    private int dimension;
+    private String[] vocab;
+    private VectorStore store;
+
+    /**
+     * @param path         文件路径
+     * @param threads      解析线程数
+     * @param storeFactory 根据行数与维度创建存储
+     */
+    TextVectorParser(Path path, int threads, BiFunction<Integer, Integer, VectorStore> storeFactory) {
+        this.path = path;
+        this.threads = Math.max(1, threads);
+        this.storeFactory = storeFactory;
+    }
+
+    void parse() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long dataStart = nextLineStart(channel, 0, fileSize);
+            int declaredSize = parseHeader(channel, dataStart);
+            long[] bounds = split(channel, dataStart, fileSize);
+            int ranges = bounds.length - 1;
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, ranges)));
+            try {
+                // 1. 统计每个区间的行数，得到每个区间第一行的行号
+                List<Callable<Integer>> counters = new ArrayList<>(ranges);
+                for (int i = 0; i < ranges; i++) {
+                    long start = bounds[i];
+                    long end = bounds[i + 1];
+                    counters.add(() -> countLines(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start)));
+                }
+                int[] lineCounts = collect(pool, counters);
+                int[] firstRows = new int[ranges];
+                long total = 0;
+                for (int i = 0; i < ranges; i++) {
+                    firstRows[i] = (int) total;
+                    total += lineCounts[i];
+                }
+                if (total > Integer.MAX_VALUE) {
+                    throw new IOException("词向量行数超过上限：" + total);
+                }
+                vocab = new String[(int) total];
+                store = storeFactory.apply((int) total, dimension);
+
+                // 2. 并行解析，每个区间的有效行从该区间的第一行号开始连续写入
+                List<Callable<Integer>> parsers = new ArrayList<>(ranges);
+                for (int i = 0; i < ranges; i++) {
+                    long start = bounds[i];
+                    long end = bounds[i + 1];
+                    int firstRow = firstRows[i];
+                    parsers.add(() -> new RangeParser(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start)).parse(firstRow));
+                }
+                int[] validCounts = collect(pool, parsers);
+
+                // 3. 去掉不规范的行留下的空洞
+                int wordSize = compact(firstRows, validCounts);
+                if (wordSize != declaredSize) {
+                    logger.info("文本词向量文件实际词数{}与文件头声明的{}不一致", wordSize, declaredSize);
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    private static int[] collect(ExecutorService pool, List<Callable<Integer>> tasks) throws IOException {
+        int[] results = new int[tasks.size()];
+        try {
+            List<Future<Integer>> futures = pool.invokeAll(tasks);
+            for (int i = 0; i < futures.size(); i++) {
+                results[i] = futures.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("词向量解析被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("词向量解析出错", e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * 解析首行“词数 维度”
+     *
+     * @return 文件头声明的词数
+     */
+    private int parseHeader(FileChannel channel, long dataStart) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate((int) Math.min(dataStart, 1024));
+        channel.read(header, 0);
+        String[] params = new String(header.array(), 0, header.position(), StandardCharsets.UTF_8).trim().split("\\s+");
+        if (params.length != 2) {
+            throw new IOException("词向量文件头格式不正确");
+        }
+        dimension = Integer.parseInt(params[1]);
+        return Integer.parseInt(params[0]);
+    }
+
+    /**
+     * 把 [start, end) 按线程数切分，每个边界都对齐到下一行的行首
+     *
+     * @return 边界数组，第 i 个区间为 [bounds[i], bounds[i + 1])
+     */
+    private long[] split(FileChannel channel, long start, long end) throws IOException {
+        long length = end - start;
+        long rangeSize = Math.max(1, Math.min(MAX_RANGE_SIZE, (length + threads * RANGES_PER_THREAD - 1) / (threads * RANGES_PER_THREAD)));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(start);
+        long position = start;
+        while (position < end) {
+            long next = position + rangeSize >= end ? end : nextLineStart(channel, position + rangeSize, end);
+            if (next - position > MAX_RANGE_SIZE) {
+                throw new IOException("词向量文件有一行超过" + MAX_RANGE_SIZE + "字节");
+            }
+            bounds.add(next);
+            position = next;
+        }
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * 查找 position 之后（含）第一个换行符的下一个位置
+     */
+    private static long nextLineStart(FileChannel channel, long position, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        while (position < end) {
+            ((Buffer) buffer).clear();
+            int n = channel.read(buffer, position);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += n;
+        }
+        return end;
+    }
+
+    private static int countLines(MappedByteBuffer buffer) {
+        int limit = buffer.limit();
+        int lines = 0;
+        for (int i = 0; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                lines++;
+            }
+        }
+        if (limit > 0 && buffer.get(limit - 1) != '\n') {
+            lines++;
+        }
+        return lines;
+    }
+
+    /**
+     * 把各区间的有效行依次前移，返回有效行总数
+     */
+    private int compact(int[] firstRows, int[] validCounts) {
+        float[] row = new float[dimension];
+        int dest = 0;
+        for (int i = 0; i < firstRows.length; i++) {
+            if (firstRows[i] != dest) {
+                for (int j = 0; j < validCounts[i]; j++) {
+                    store.getRow(firstRows[i] + j, row);
+                    store.setRow(dest + j, row);
+                    vocab[dest + j] = vocab[firstRows[i] + j];
+                }
+            }
+            dest += validCounts[i];
+        }
+        if (dest != vocab.length) {
+            vocab = Arrays.copyOf(vocab, dest);
+            store = store.truncate(dest);
+        }
+        return dest;
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    /**
+     * 解析一个区间
+     */
+    private class RangeParser extends LineParser {
+        private final float[] row = new float[dimension];
+
+        RangeParser(MappedByteBuffer buffer) {
+            super(buffer);
+        }
+
+        /**
+         * @param firstRow 本区间第一行的行号
+         * @return 有效行数
+         */
+        int parse(int firstRow) {
+            int limit = buffer.limit();
+            int index = firstRow;
+            int lineStart = 0;
+            while (lineStart < limit) {
+                int lineEnd = lineStart;
+                while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+                if (parseLine(lineStart, lineEnd, index)) {
+                    index++;
+                }
+                lineStart = lineEnd + 1;
+            }
+            return index - firstRow;
+        }
+
+        private boolean parseLine(int start, int end, int index) {
+            pos = start;
+            skipBlank(end);
+            if (pos == end) {
+                return false;
+            }
+            int wordStart = pos;
+            while (pos < end && !isBlank(buffer.get(pos))) {
+                pos++;
+            }
+            int wordEnd = pos;
+            if (!parseFloats(end, row)) {
+                logger.info("词向量有一行格式不规范（可能是单词含有空格）：" + decode(start, end));
+                return false;
+            }
+            vocab[index] = decode(wordStart, wordEnd);
+            normalize(row);
+            store.setRow(index, row);
+            return true;
+        }
+    }
+
+    /**
+     * 归一化为单位向量，零向量保持不变
+     */
+    static void normalize(float[] row) {
+        double len = 0;
+        for (float value : row) {
+            len += value * value;
+        }
+        if (len != 0) {
+            len = Math.sqrt(len);
+            for (int j = 0; j < row.length; j++) {
+                row[j] /= len;
+            }
+        }
+    }
+
+    /**
+     * 在字节上解析一行中的浮点数，解析状态保存在字段中，避免为每个词或浮点数创建对象；只使用绝对位置读取，多个解析器可以共用一个 buffer
+     */
+    static class LineParser {
+        final ByteBuffer buffer;
+        private byte[] bytes = new byte[64];
+        int pos;
+        private boolean error;
+
+        LineParser(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * 从当前位置解析 row.length 个浮点数，之后到 end 只能有空白
+         *
+         * @param end 行尾（不含）
+         * @param row 输出
+         * @return 数值个数不对或格式错误时返回false
+         */
+        boolean parseFloats(int end, float[] row) {
+            error = false;
+            for (int j = 0; j < row.length; j++) {
+                skipBlank(end);
+                if (pos == end) {
+                    return false;
+                }
+                float value = parseFloat(end);
+                if (error) {
+                    return false;
+                }
+                row[j] = value;
+            }
+            skipBlank(end);
+            return pos == end;
+        }
+
+        void skipBlank(int end) {
+            while (pos < end && isBlank(buffer.get(pos))) {
+                pos++;
+            }
+        }
+
+        /**
+         * 解析一个十进制浮点数，格式不常见（如 NaN、超出范围的指数）时退回 Float.parseFloat
+         */
+        private float parseFloat(int end) {
+            int start = pos;
+            boolean negative = false;
+            byte b = buffer.get(pos);
+            if (b == '-' || b == '+') {
+                negative = b == '-';
+                pos++;
+            }
+            long mantissa = 0;
+            int significantDigits = 0;
+            int exponent = 0;
+            boolean hasDigits = false;
+            while (pos < end && (b = buffer.get(pos)) >= '0' && b <= '9') {
+                if (significantDigits < 18) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (mantissa != 0) {
+                        significantDigits++;
+                    }
+                } else {
+                    exponent++;
+                }
+                hasDigits = true;
+                pos++;
+            }
+            if (pos < end && buffer.get(pos) == '.') {
+                pos++;
+                while (pos < end && (b = buffer.get(pos)) >= '0' && b <= '9') {
+                    if (significantDigits < 18) {
+                        mantissa = mantissa * 10 + (b - '0');
+                        if (mantissa != 0) {
+                            significantDigits++;
+                        }
+                        exponent--;
+                    }
+                    hasDigits = true;
+                    pos++;
+                }
+            }
+            if (hasDigits && pos < end && ((b = buffer.get(pos)) == 'e' || b == 'E')) {
+                pos++;
+                boolean negativeExponent = false;
+                if (pos < end && ((b = buffer.get(pos)) == '-' || b == '+')) {
+                    negativeExponent = b == '-';
+                    pos++;
+                }
+                int value = 0;
+                boolean hasExponentDigits = false;
+                while (pos < end && (b = buffer.get(pos)) >= '0' && b <= '9') {
+                    if (value < 10000) {
+                        value = value * 10 + (b - '0');
+                    }
+                    hasExponentDigits = true;
+                    pos++;
+                }
+                if (!hasExponentDigits) {
+                    return fallback(start, end);
+                }
+                exponent += negativeExponent ? -value : value;
+            }
+            if (!hasDigits || (pos < end && !isBlank(buffer.get(pos)))) {
+                return fallback(start, end);
+            }
+            double value = mantissa;
+            if (exponent < 0) {
+                if (exponent < -22) {
+                    return fallback(start, end);
+                }
+                value /= POWERS_OF_TEN[-exponent];
+            } else if (exponent > 0) {
+                if (exponent > 22) {
+                    return fallback(start, end);
+                }
+                value *= POWERS_OF_TEN[exponent];
+            }
+            return (float) (negative ? -value : value);
+        }
+
+        private float fallback(int start, int end) {
+            pos = start;
+            while (pos < end && !isBlank(buffer.get(pos))) {
+                pos++;
+            }
+            try {
+                return Float.parseFloat(decode(start, pos));
+            } catch (NumberFormatException e) {
+                error = true;
+                return 0f;
+            }
+        }
+
+        String decode(int start, int end) {
+            int length = end - start;
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                bytes[i] = buffer.get(start + i);
+            }
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    int getDimension() {
+        return dimension;
+    }
+
+    String[] getVocab() {
+        return vocab;
+    }
+
+    VectorStore getStore() {
+        return store;
+    }
+}
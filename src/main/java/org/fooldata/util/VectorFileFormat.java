@@ -0,0 +1,18 @@
+package org.fooldata.util;
+
+/**
+ * 词向量文件格式
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public enum VectorFileFormat {
+    /**
+     * 文本格式：首行为“词数 维度”，之后每行一个词及其向量
+     */
+    TEXT,
+    /**
+     * word2vec 原版二进制格式（.bin）：文本首行之后，每个词以空格结尾，紧跟维度个小端序 float32
+     */
+    BINARY
+}
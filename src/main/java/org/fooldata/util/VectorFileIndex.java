@@ -0,0 +1,341 @@
+package org.fooldata.util;
+
+import org.fooldata.storage.LazyVectorStore;
+import org.fooldata.storage.Vocabulary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 词向量文件的行索引：扫描一遍文件，只记录词表与每个词的向量在文件中的位置，不解析向量<br>
+ * 文件按不超过1G的窗口只读映射，窗口在行首切分，每一行完整地落在一个窗口内；
+ * {@link #read} 按需解码一行并归一化，配合 {@link LazyVectorStore} 实现懒加载。
+ * 二进制格式扫描时只读取词，按维度直接跳过向量，启动耗时只与词表大小有关；文本格式需要逐字节查找行尾，但不解析浮点数。
+ * 文本格式不在扫描时校验每行的数值个数，格式不规范的行在解码时记录日志并视为零向量。
+ * gzip 压缩的文件无法随机读取，不支持懒加载。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class VectorFileIndex implements LazyVectorStore.RowReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(VectorFileIndex.class);
+
+    /**
+     * 单个映射窗口的最大字节数
+     */
+    private static final long MAX_WINDOW_SIZE = 1 << 30;
+
+    private final Path path;
+    private final VectorFileFormat format;
+    private final int dimension;
+    private final Vocabulary vocabulary;
+    /**
+     * 第 i 个词的向量在文件中的起始位置（词之后的分隔符之后）
+     */
+    private final long[] offsets;
+    /**
+     * 文本格式中第 i 个词的向量部分的字节数（到行尾，不含换行符），二进制格式为null
+     */
+    private final int[] lengths;
+    private final long[] windowStarts;
+    private final MappedByteBuffer[] windows;
+
+    private VectorFileIndex(Path path, VectorFileFormat format, int dimension, Vocabulary vocabulary, long[] offsets,
+                            int[] lengths, long[] windowStarts, MappedByteBuffer[] windows) {
+        this.path = path;
+        this.format = format;
+        this.dimension = dimension;
+        this.vocabulary = vocabulary;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.windowStarts = windowStarts;
+        this.windows = windows;
+    }
+
+    /**
+     * 扫描文件建立索引
+     *
+     * @param path 词向量文件，文本或二进制格式
+     * @return 索引
+     * @throws IOException 读取错误、文件是 gzip 压缩的或格式不正确
+     */
+    public static VectorFileIndex build(Path path) throws IOException {
+        return build(path, MAX_WINDOW_SIZE);
+    }
+
+    static VectorFileIndex build(Path path, long windowSize) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            if (in.read() == 0x1F && in.read() == 0x8B) {
+                throw new IOException("gzip 压缩的词向量文件不支持懒加载：" + path);
+            }
+        }
+        long start = System.currentTimeMillis();
+        VectorFileFormat format = new VectorIoUtil(path.toString()).detectFormat();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Scanner scanner = new Scanner(channel, format, windowSize);
+            scanner.scan();
+            VectorFileIndex index = new VectorFileIndex(path, format, scanner.dimension,
+                    new Vocabulary(Arrays.copyOf(scanner.words, scanner.wordBytes),
+                            Arrays.copyOf(scanner.wordOffsets, scanner.count + 1)),
+                    Arrays.copyOf(scanner.offsets, scanner.count),
+                    format == VectorFileFormat.TEXT ? Arrays.copyOf(scanner.lengths, scanner.count) : null,
+                    scanner.windowStarts.stream().mapToLong(Long::longValue).toArray(),
+                    scanner.windows.toArray(new MappedByteBuffer[0]));
+            if (scanner.count != scanner.declaredSize) {
+                logger.info("词向量文件实际词数{}与文件头声明的{}不一致", scanner.count, scanner.declaredSize);
+            }
+            logger.info("词向量文件索引完毕：{}，格式：{}，词数：{}，耗时{}毫秒", path, format, scanner.count,
+                    System.currentTimeMillis() - start);
+            return index;
+        }
+    }
+
+    /**
+     * 按需解码的向量存储
+     *
+     * @param cacheRows 热点行缓存最多容纳的行数
+     * @return 存储，行号与 {@link #getVocabulary()} 的词id一致
+     */
+    public LazyVectorStore store(long cacheRows) {
+        return new LazyVectorStore(offsets.length, dimension, this, cacheRows);
+    }
+
+    @Override
+    public void read(int row, float[] dest) {
+        long offset = offsets[row];
+        int window = Arrays.binarySearch(windowStarts, offset);
+        if (window < 0) {
+            window = -window - 2;
+        }
+        MappedByteBuffer buffer = windows[window];
+        int position = (int) (offset - windowStarts[window]);
+        if (format == VectorFileFormat.BINARY) {
+            for (int i = 0; i < dimension; i++) {
+                dest[i] = buffer.getFloat(position + i * Float.BYTES);
+            }
+        } else {
+            TextVectorParser.LineParser parser = new TextVectorParser.LineParser(buffer);
+            parser.pos = position;
+            if (!parser.parseFloats(position + lengths[row], dest)) {
+                logger.warn("词向量有一行格式不规范，按零向量处理：{}", vocabulary.word(row));
+                Arrays.fill(dest, 0f);
+            }
+        }
+        TextVectorParser.normalize(dest);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public VectorFileFormat getFormat() {
+        return format;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public int size() {
+        return offsets.length;
+    }
+
+    public Vocabulary getVocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * 顺序扫描文件，窗口放不下下一行时从该行的行首开始映射新窗口
+     */
+    private static final class Scanner {
+        final FileChannel channel;
+        final VectorFileFormat format;
+        final long fileSize;
+        final long windowSize;
+        final List<Long> windowStarts = new ArrayList<>();
+        final List<MappedByteBuffer> windows = new ArrayList<>();
+        int declaredSize;
+        int dimension;
+        int count;
+        byte[] words = new byte[1 << 16];
+        int wordBytes;
+        int[] wordOffsets = new int[1024];
+        long[] offsets = new long[1024];
+        int[] lengths = new int[1024];
+
+        Scanner(FileChannel channel, VectorFileFormat format, long windowSize) throws IOException {
+            this.channel = channel;
+            this.format = format;
+            this.windowSize = windowSize;
+            this.fileSize = channel.size();
+        }
+
+        private MappedByteBuffer map(long start) throws IOException {
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                    Math.min(windowSize, fileSize - start));
+            window.order(ByteOrder.LITTLE_ENDIAN);
+            windowStarts.add(start);
+            windows.add(window);
+            return window;
+        }
+
+        void scan() throws IOException {
+            MappedByteBuffer window = map(0);
+            int headerEnd = indexOf(window, 0, window.limit(), (byte) '\n');
+            if (headerEnd < 0) {
+                throw new IOException("词向量文件头格式不正确");
+            }
+            byte[] header = new byte[headerEnd];
+            for (int i = 0; i < headerEnd; i++) {
+                header[i] = window.get(i);
+            }
+            String[] params = new String(header, StandardCharsets.UTF_8).trim().split("\\s+");
+            if (params.length != 2) {
+                throw new IOException("词向量文件头格式不正确");
+            }
+            declaredSize = Integer.parseInt(params[0]);
+            dimension = Integer.parseInt(params[1]);
+            // 文件头可能不可信，预分配的行数不超过文件能容纳的行数
+            ensureCapacity((int) Math.max(1, Math.min(declaredSize, fileSize / (2L * Math.max(1, dimension)))));
+            long windowStart = 0;
+            int position = headerEnd + 1;
+            while (windowStart + position < fileSize) {
+                int next = format == VectorFileFormat.BINARY ? scanBinary(window, position) : scanText(window, position);
+                if (next >= 0) {
+                    position = next;
+                    continue;
+                }
+                // 这一行跨过了窗口末尾，从行首重新映射
+                if (position == 0) {
+                    throw new IOException("词向量文件有一行超过" + windowSize + "字节");
+                }
+                windowStart += position;
+                window = map(windowStart);
+                position = 0;
+            }
+        }
+
+        /**
+         * 扫描一个二进制格式的词
+         *
+         * @return 下一个词的位置，这一行不完整地落在窗口内时返回-1
+         */
+        private int scanBinary(MappedByteBuffer window, int position) throws IOException {
+            int limit = window.limit();
+            // 跳过上一个向量之后的换行符（部分实现不写换行）
+            while (position < limit && isSeparator(window.get(position))) {
+                position++;
+            }
+            if (position == limit) {
+                return atEnd(window) ? limit : -1;
+            }
+            int wordStart = position;
+            int wordEnd = indexOf(window, wordStart, limit, (byte) ' ');
+            long vectorEnd = wordEnd + 1 + (long) dimension * Float.BYTES;
+            if (wordEnd < 0 || vectorEnd > limit) {
+                if (atEnd(window)) {
+                    logger.info("二进制词向量文件末尾不完整，忽略最后一行");
+                    return limit;
+                }
+                return -1;
+            }
+            addWord(window, wordStart, wordEnd, wordEnd + 1, 0);
+            return (int) vectorEnd;
+        }
+
+        /**
+         * 扫描一个文本格式的行
+         *
+         * @return 下一行的位置，这一行不完整地落在窗口内时返回-1
+         */
+        private int scanText(MappedByteBuffer window, int position) {
+            int limit = window.limit();
+            int lineEnd = indexOf(window, position, limit, (byte) '\n');
+            if (lineEnd < 0) {
+                if (!atEnd(window)) {
+                    return -1;
+                }
+                lineEnd = limit;
+            }
+            int wordStart = position;
+            while (wordStart < lineEnd && isBlank(window.get(wordStart))) {
+                wordStart++;
+            }
+            int wordEnd = wordStart;
+            while (wordEnd < lineEnd && !isBlank(window.get(wordEnd))) {
+                wordEnd++;
+            }
+            if (wordEnd > wordStart) {
+                int end = lineEnd;
+                if (end > wordEnd && window.get(end - 1) == '\r') {
+                    end--;
+                }
+                addWord(window, wordStart, wordEnd, wordEnd, end - wordEnd);
+            }
+            return lineEnd == limit ? limit : lineEnd + 1;
+        }
+
+        private boolean atEnd(MappedByteBuffer window) {
+            return windowStarts.get(windowStarts.size() - 1) + window.limit() >= fileSize;
+        }
+
+        private void addWord(MappedByteBuffer window, int wordStart, int wordEnd, int vectorStart, int length) {
+            ensureCapacity(count + 1);
+            int wordLength = wordEnd - wordStart;
+            if (wordBytes + wordLength > words.length) {
+                long capacity = Math.max((long) words.length * 2, (long) wordBytes + wordLength);
+                if (capacity > Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("词表的 UTF-8 字节数超过2G");
+                }
+                words = Arrays.copyOf(words, (int) capacity);
+            }
+            for (int i = 0; i < wordLength; i++) {
+                words[wordBytes + i] = window.get(wordStart + i);
+            }
+            wordBytes += wordLength;
+            wordOffsets[count + 1] = wordBytes;
+            offsets[count] = windowStarts.get(windowStarts.size() - 1) + vectorStart;
+            lengths[count] = length;
+            count++;
+        }
+
+        private void ensureCapacity(int rows) {
+            if (rows + 1 > wordOffsets.length) {
+                int capacity = Math.max(rows + 1, wordOffsets.length * 2);
+                wordOffsets = Arrays.copyOf(wordOffsets, capacity);
+                offsets = Arrays.copyOf(offsets, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+            }
+        }
+
+        private static int indexOf(MappedByteBuffer buffer, int from, int to, byte target) {
+            for (int i = from; i < to; i++) {
+                if (buffer.get(i) == target) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static boolean isSeparator(byte b) {
+            return b == '\n' || b == '\r' || b == ' ';
+        }
+
+        private static boolean isBlank(byte b) {
+            return b == ' ' || b == '\t' || b == '\r';
+        }
+    }
+}
@@ -0,0 +1,432 @@
+package org.fooldata.util;
+
+import org.fooldata.storage.VectorStore;
+import org.fooldata.storage.Vocabulary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 把词表与向量写成 word2vec 文本格式或二进制格式，可选 gzip 压缩，写出的文件可以由 {@link VectorIoUtil} 读取<br>
+ * 行按块编码：每块直接在字节数组上写词与浮点数，浮点数按固定小数位数逐字节格式化，不经过 String.format 与 Float.toString；
+ * 多线程时各线程并行编码（与压缩）不同的块，由调用线程按顺序写入 FileChannel，同时在途的块数有上限，内存占用与文件大小无关。
+ * 压缩时每块是一个独立的 gzip 成员，多个成员首尾相接仍是合法的 gzip 文件，gzip、GZIPInputStream 都能直接解压。
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class VectorFileWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(VectorFileWriter.class);
+
+    /**
+     * 每块的目标字节数（压缩前）
+     */
+    private static final int BLOCK_SIZE = 1 << 20;
+    /**
+     * 每个线程最多在途的块数
+     */
+    private static final int BLOCKS_PER_THREAD = 2;
+    private static final int MAX_DECIMALS = 9;
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L
+    };
+    /**
+     * 整数部分不小于该值时按 Float.toString 输出，避免 long 溢出
+     */
+    private static final float MAX_FIXED = 1e9f;
+    /**
+     * gzip 成员头：magic、deflate、无标志位、无时间戳、无额外标志、未知操作系统
+     */
+    private static final byte[] GZIP_HEADER = {0x1F, (byte) 0x8B, 8, 0, 0, 0, 0, 0, 0, (byte) 0xFF};
+    private static final int GZIP_TRAILER_SIZE = 8;
+    /**
+     * 0 到 99 的十位与个位数字
+     */
+    private static final byte[] DIGIT_TENS = new byte[100];
+    private static final byte[] DIGIT_ONES = new byte[100];
+
+    static {
+        for (int i = 0; i < 100; i++) {
+            DIGIT_TENS[i] = (byte) ('0' + i / 10);
+            DIGIT_ONES[i] = (byte) ('0' + i % 10);
+        }
+    }
+
+    private VectorFileFormat format = VectorFileFormat.BINARY;
+    private boolean gzip;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    /**
+     * 文本格式的小数位数，默认与原版C实现的 %lf 相同
+     */
+    private int decimals = 6;
+    /**
+     * gzip 压缩级别，默认最快：压缩率比默认级别低得不多，速度快数倍
+     */
+    private int compressionLevel = Deflater.BEST_SPEED;
+
+    public VectorFileFormat getFormat() {
+        return format;
+    }
+
+    public void setFormat(VectorFileFormat format) {
+        this.format = format;
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    public void setGzip(boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getDecimals() {
+        return decimals;
+    }
+
+    public void setDecimals(int decimals) {
+        if (decimals < 0 || decimals > MAX_DECIMALS) {
+            throw new IllegalArgumentException("小数位数应在0到" + MAX_DECIMALS + "之间：" + decimals);
+        }
+        this.decimals = decimals;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        if (compressionLevel < Deflater.BEST_SPEED || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("压缩级别应在1到9之间：" + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * 写出词向量文件，首行为“词数 维度”，之后每个词一行
+     *
+     * @param vocabulary 词表
+     * @param store      向量，行号与词id一致
+     * @param path       输出文件
+     * @throws IOException 写入错误
+     */
+    public void write(Vocabulary vocabulary, VectorStore store, Path path) throws IOException {
+        int size = vocabulary.size();
+        if (store.size() < size) {
+            throw new IllegalArgumentException("向量行数少于词表大小");
+        }
+        long start = System.currentTimeMillis();
+        int rowsPerBlock = Math.max(1, BLOCK_SIZE / estimateRowBytes(store.dimension()));
+        int blocks = (size + rowsPerBlock - 1) / rowsPerBlock;
+        int workers = Math.max(1, Math.min(threads, blocks));
+        long written = 0;
+        Encoder encoder = new Encoder(vocabulary, store);
+        // 先写同目录的临时文件，刷盘后原子改名，中断时旧文件保持完整，正在映射旧文件的读取方也不受影响
+        Path temp = AtomicFiles.tempFile(path);
+        boolean published = false;
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                byte[] header = (size + " " + store.dimension() + "\n").getBytes(StandardCharsets.UTF_8);
+                written += writeFully(channel, encoder.finish(header, header.length));
+                if (workers == 1) {
+                    for (int block = 0; block < blocks; block++) {
+                        int length = encoder.encode(block * rowsPerBlock, Math.min(size, (block + 1) * rowsPerBlock));
+                        // 同步写出，直接使用编码缓冲
+                        written += writeFully(channel, encoder.finish(encoder.buffer, length));
+                    }
+                } else {
+                    written += writeParallel(channel, vocabulary, store, rowsPerBlock, blocks, workers);
+                }
+                channel.force(true);
+            }
+            AtomicFiles.publish(temp, path);
+            published = true;
+        } finally {
+            encoder.close();
+            if (!published) {
+                AtomicFiles.discard(temp);
+            }
+        }
+        logger.info("词向量文件已写入：{}，格式：{}{}，词数：{}，{}字节，耗时{}毫秒", path, format, gzip ? "（gzip）" : "",
+                size, written, System.currentTimeMillis() - start);
+    }
+
+    private long writeParallel(FileChannel channel, Vocabulary vocabulary, VectorStore store, int rowsPerBlock,
+                               int blocks, int workers) throws IOException {
+        int size = vocabulary.size();
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "word2vec-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Encoder> created = new ArrayList<>();
+        ThreadLocal<Encoder> encoders = ThreadLocal.withInitial(() -> {
+            Encoder encoder = new Encoder(vocabulary, store);
+            synchronized (created) {
+                created.add(encoder);
+            }
+            return encoder;
+        });
+        Deque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+        long written = 0;
+        try {
+            for (int block = 0; block < blocks; block++) {
+                int from = block * rowsPerBlock;
+                int to = Math.min(size, from + rowsPerBlock);
+                pending.add(executor.submit(() -> {
+                    Encoder encoder = encoders.get();
+                    int length = encoder.encode(from, to);
+                    // 编码缓冲会被下一块复用，未压缩时复制一份交给写入线程
+                    return gzip ? encoder.finish(encoder.buffer, length)
+                            : ByteBuffer.wrap(Arrays.copyOf(encoder.buffer, length));
+                }));
+                if (pending.size() >= workers * BLOCKS_PER_THREAD) {
+                    written += writeFully(channel, get(pending.poll()));
+                }
+            }
+            while (!pending.isEmpty()) {
+                written += writeFully(channel, get(pending.poll()));
+            }
+        } finally {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (created) {
+                created.forEach(Encoder::close);
+            }
+        }
+        return written;
+    }
+
+    private static ByteBuffer get(Future<ByteBuffer> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("写入词向量文件被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException("写入词向量文件出错", e.getCause());
+        }
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return length;
+    }
+
+    /**
+     * 一行大约的字节数（不含词），用于确定每块的行数
+     */
+    private int estimateRowBytes(int dimension) {
+        int perValue = format == VectorFileFormat.BINARY ? Float.BYTES : decimals + 4;
+        return 16 + dimension * perValue;
+    }
+
+    /**
+     * 按固定小数位数格式化浮点数，四舍五入；绝对值不小于1e9、NaN 与无穷大按 Float.toString 输出
+     *
+     * @param value    值
+     * @param decimals 小数位数
+     * @param dest     输出，剩余空间至少为 decimals + 16 字节
+     * @param position 写入位置
+     * @return 写入之后的位置
+     */
+    static int formatFloat(float value, int decimals, byte[] dest, int position) {
+        if (!(Math.abs(value) < MAX_FIXED)) {
+            byte[] text = Float.toString(value).getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(text, 0, dest, position, text.length);
+            return position + text.length;
+        }
+        if (value < 0) {
+            dest[position++] = '-';
+        }
+        // 整数部分与小数部分分开取整，都在 int 范围内，避免 long 除法
+        double abs = Math.abs((double) value);
+        int integer = (int) abs;
+        int scale = (int) POWERS_OF_TEN[decimals];
+        int fraction = (int) ((abs - integer) * scale + 0.5);
+        if (fraction == scale) {
+            integer++;
+            fraction = 0;
+        }
+        if (integer < 10) {
+            dest[position++] = (byte) ('0' + integer);
+        } else {
+            int digits = 2;
+            for (int rest = integer / 100; rest > 0; rest /= 10) {
+                digits++;
+            }
+            position = writeDigits(integer, digits, dest, position);
+        }
+        if (decimals > 0) {
+            dest[position++] = '.';
+            position = writeDigits(fraction, decimals, dest, position);
+        }
+        return position;
+    }
+
+    /**
+     * 写出 value 的低 digits 位十进制数字，不足时左侧补0，每次处理两位
+     */
+    private static int writeDigits(int value, int digits, byte[] dest, int position) {
+        int i = position + digits - 1;
+        while (i > position) {
+            int quotient = value / 100;
+            int pair = value - quotient * 100;
+            dest[i] = DIGIT_ONES[pair];
+            dest[i - 1] = DIGIT_TENS[pair];
+            value = quotient;
+            i -= 2;
+        }
+        if (i == position) {
+            dest[i] = (byte) ('0' + value % 10);
+        }
+        return position + digits;
+    }
+
+    /**
+     * 编码一块行，每个线程一个，复用行缓冲与字节缓冲
+     */
+    private final class Encoder {
+        private final Vocabulary vocabulary;
+        private final VectorStore store;
+        private final float[] row;
+        byte[] buffer = new byte[BLOCK_SIZE + (BLOCK_SIZE >> 2)];
+        private final CRC32 crc = new CRC32();
+        /**
+         * 压缩时首次使用创建，每块 reset 后复用
+         */
+        private Deflater deflater;
+
+        Encoder(Vocabulary vocabulary, VectorStore store) {
+            this.vocabulary = vocabulary;
+            this.store = store;
+            this.row = new float[store.dimension()];
+        }
+
+        /**
+         * 把 [from, to) 的行编码到 buffer
+         *
+         * @return 字节数
+         */
+        int encode(int from, int to) {
+            int dimension = row.length;
+            int maxValueBytes = format == VectorFileFormat.BINARY ? Float.BYTES : decimals + 16;
+            int length = 0;
+            for (int id = from; id < to; id++) {
+                byte[] word = vocabulary.word(id).getBytes(StandardCharsets.UTF_8);
+                require(length + word.length + 2 + (long) dimension * (maxValueBytes + 1));
+                System.arraycopy(word, 0, buffer, length, word.length);
+                length += word.length;
+                store.getRow(id, row);
+                if (format == VectorFileFormat.BINARY) {
+                    buffer[length++] = ' ';
+                    for (int j = 0; j < dimension; j++) {
+                        length = putIntLE(Float.floatToRawIntBits(row[j]), buffer, length);
+                    }
+                } else {
+                    for (int j = 0; j < dimension; j++) {
+                        buffer[length++] = ' ';
+                        length = formatFloat(row[j], decimals, buffer, length);
+                    }
+                }
+                buffer[length++] = '\n';
+            }
+            return length;
+        }
+
+        /**
+         * 需要压缩时把一块压缩为一个完整的 gzip 成员（文件头、deflate 数据、CRC32 与长度），否则直接包装
+         */
+        ByteBuffer finish(byte[] bytes, int length) {
+            if (!gzip) {
+                return ByteBuffer.wrap(bytes, 0, length);
+            }
+            if (deflater == null) {
+                deflater = new Deflater(compressionLevel, true);
+            } else {
+                deflater.reset();
+            }
+            crc.reset();
+            crc.update(bytes, 0, length);
+            byte[] out = Arrays.copyOf(GZIP_HEADER, GZIP_HEADER.length + length / 2 + 64);
+            int position = GZIP_HEADER.length;
+            deflater.setInput(bytes, 0, length);
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (position == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                position += deflater.deflate(out, position, out.length - position);
+            }
+            if (position + GZIP_TRAILER_SIZE > out.length) {
+                out = Arrays.copyOf(out, position + GZIP_TRAILER_SIZE);
+            }
+            position = putIntLE((int) crc.getValue(), out, position);
+            position = putIntLE(length, out, position);
+            return ByteBuffer.wrap(out, 0, position);
+        }
+
+        private int putIntLE(int value, byte[] dest, int position) {
+            dest[position] = (byte) value;
+            dest[position + 1] = (byte) (value >>> 8);
+            dest[position + 2] = (byte) (value >>> 16);
+            dest[position + 3] = (byte) (value >>> 24);
+            return position + Integer.BYTES;
+        }
+
+        void close() {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+
+        private void require(long capacity) {
+            if (capacity > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("一行词向量超过2G");
+            }
+            if (capacity > buffer.length) {
+                buffer = Arrays.copyOf(buffer, (int) Math.max(capacity, buffer.length * 2L));
+            }
+        }
+    }
+}
@@ -1,14 +1,25 @@
 package org.fooldata.util;
 
-import com.google.common.io.Files;
-import com.google.common.io.LineProcessor;
 import org.apache.commons.lang3.ArrayUtils;
+import org.fooldata.storage.HeapVectorStore;
+import org.fooldata.storage.OffHeapVectorStore;
+import org.fooldata.storage.VectorStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
 
 /**
  * @author 陈明超
@@ -19,67 +30,254 @@ public class VectorIoUtil {
     private Logger logger = LoggerFactory.getLogger(VectorIoUtil.class);
 
     private final static Charset ENCODING = Charset.forName("UTF-8");
+    /**
+     * 识别文件格式时读取的文件头字节数
+     */
+    private final static int SNIFF_SIZE = 1 << 20;
     private int wordSize, arraySize;
     private String[] vocab;
-    private float[][] matrix;
+    private VectorStore store;
     private final String file;
+    /**
+     * 是否把向量放在堆外内存
+     */
+    private boolean offHeap;
+    /**
+     * 解析文本格式时使用的线程数
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
 
     public VectorIoUtil(String file) {
         this.file = file;
     }
 
-    class CounterLine implements LineProcessor<Integer> {
-        private int rowNum = 0;
-        private int index = 0;
-
-        @Override
-        public boolean processLine(String line) throws IOException {
-            if (rowNum == 0) {
-                wordSize = Integer.parseInt(line.split("\\s+")[0].trim());
-                arraySize = Integer.parseInt(line.split("\\s+")[1].trim());
-                vocab = new String[wordSize];
-                matrix = new float[wordSize][];
-            } else {
-                String[] params = line.split("\\s+");
-                if (params.length != arraySize + 1) {
-                    logger.info("词向量有一行格式不规范（可能是单词含有空格）：" + line);
-                    --wordSize;
-                    return true;
+    /**
+     * 读取词向量文件，自动识别文本格式与二进制格式，读取后的向量均已归一化<br>
+     * gzip 压缩的文件先解压到临时文件，再按未压缩的文件读取
+     *
+     * @throws IOException 读取出错
+     */
+    public void readVectorFile() throws IOException {
+        Path path = Paths.get(file);
+        if (!isGzip(path)) {
+            readVectorFile(path);
+            return;
+        }
+        Path plain = Files.createTempFile("word2vec", ".vectors");
+        try {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(path), 1 << 16)) {
+                Files.copy(in, plain, StandardCopyOption.REPLACE_EXISTING);
+            }
+            logger.info("gzip 词向量文件已解压：{}", path);
+            readVectorFile(plain);
+        } finally {
+            Files.deleteIfExists(plain);
+        }
+    }
+
+    private void readVectorFile(Path path) throws IOException {
+        VectorFileFormat format = detectFormat(path);
+        logger.info("词向量文件格式：{}", format);
+        if (format == VectorFileFormat.BINARY) {
+            readBinaryVectorFile(path, MappedFileCursor.DEFAULT_WINDOW_SIZE);
+        } else {
+            readTextVectorFile(path);
+        }
+    }
+
+    /**
+     * 文件是否以 gzip 的 magic 开头
+     */
+    private static boolean isGzip(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return in.read() == 0x1F && in.read() == 0x8B;
+        }
+    }
+
+    /**
+     * 识别词向量文件格式<br>
+     * 首行之后的第一行能按文本格式解析出“词 + 维度个浮点数”即认为是文本格式，否则是二进制格式；gzip 压缩的文件识别解压后的格式
+     *
+     * @return 文件格式
+     * @throws IOException 读取出错
+     */
+    public VectorFileFormat detectFormat() throws IOException {
+        return detectFormat(Paths.get(file));
+    }
+
+    private VectorFileFormat detectFormat(Path path) throws IOException {
+        byte[] head = new byte[SNIFF_SIZE];
+        int length = 0;
+        boolean gzip = isGzip(path);
+        try (InputStream in = gzip ? new GZIPInputStream(Files.newInputStream(path)) : Files.newInputStream(path)) {
+            int n;
+            while (length < head.length && (n = in.read(head, length, head.length - length)) > 0) {
+                length += n;
+            }
+        }
+        int headerEnd = indexOf(head, 0, length, (byte) '\n');
+        if (headerEnd < 0) {
+            return VectorFileFormat.TEXT;
+        }
+        String[] header = new String(head, 0, headerEnd, ENCODING).trim().split("\\s+");
+        if (header.length != 2) {
+            return VectorFileFormat.TEXT;
+        }
+        int dimension = Integer.parseInt(header[1]);
+        int lineEnd = indexOf(head, headerEnd + 1, length, (byte) '\n');
+        if (lineEnd < 0) {
+            lineEnd = length;
+        }
+        String line;
+        try {
+            CharBuffer chars = ENCODING.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(head, headerEnd + 1, lineEnd - headerEnd - 1));
+            line = chars.toString().trim();
+        } catch (CharacterCodingException e) {
+            return VectorFileFormat.BINARY;
+        }
+        if (line.isEmpty()) {
+            return VectorFileFormat.TEXT;
+        }
+        String[] params = line.split("\\s+");
+        if (params.length != dimension + 1) {
+            return VectorFileFormat.BINARY;
+        }
+        try {
+            for (int i = 1; i < params.length; i++) {
+                Float.parseFloat(params[i]);
+            }
+        } catch (NumberFormatException e) {
+            return VectorFileFormat.BINARY;
+        }
+        return VectorFileFormat.TEXT;
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to, byte target) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 读取 word2vec 原版二进制格式，通过 FileChannel.map 直接从映射内存中读取词表与小端序 float
+     *
+     * @throws IOException 读取出错
+     */
+    void readBinaryVectorFile(Path path, int windowSize) throws IOException {
+        try (MappedFileCursor cursor = new MappedFileCursor(path, windowSize)) {
+            wordSize = (int) readHeaderNumber(cursor);
+            arraySize = (int) readHeaderNumber(cursor);
+            vocab = new String[wordSize];
+            store = createStore(wordSize, arraySize);
+            float[] row = new float[arraySize];
+            byte[] wordBytes = new byte[64];
+            int index = 0;
+            while (index < wordSize) {
+                // 跳过上一个向量之后的换行符（部分实现不写换行）
+                int next = cursor.peek();
+                while (next == '\n' || next == '\r' || next == ' ') {
+                    cursor.get();
+                    next = cursor.peek();
                 }
-                vocab[index] = params[0];
-                matrix[index] = new float[arraySize];
-                double len = 0;
-                for (int j = 0; j < arraySize; j++) {
-                    matrix[index][j] = Float.parseFloat(params[j + 1]);
-                    len += matrix[index][j] * matrix[index][j];
+                if (next < 0) {
+                    break;
                 }
-                len = Math.sqrt(len);
+                int wordLength = 0;
+                byte b;
+                while ((b = cursor.get()) != ' ') {
+                    if (b == '\n') {
+                        continue;
+                    }
+                    if (wordLength == wordBytes.length) {
+                        wordBytes = Arrays.copyOf(wordBytes, wordLength * 2);
+                    }
+                    wordBytes[wordLength++] = b;
+                }
+                vocab[index] = new String(wordBytes, 0, wordLength, ENCODING);
+                cursor.getFloats(row, 0, arraySize);
+                double len = 0;
                 for (int j = 0; j < arraySize; j++) {
-                    matrix[index][j] /= len;
+                    len += row[j] * row[j];
                 }
+                normalize(row, len);
+                store.setRow(index, row);
                 index++;
             }
-            rowNum++;
-            return true;
+            if (index != wordSize) {
+                logger.info("二进制词向量文件实际词数{}少于文件头声明的{}", index, wordSize);
+                wordSize = index;
+                vocab = ArrayUtils.subarray(vocab, 0, wordSize);
+                store = store.truncate(wordSize);
+            }
+            logger.info("w2v二进制文件加载完毕，共{}个词", wordSize);
+        } catch (IOException | RuntimeException e) {
+            logger.error("词向量加载出错:{}", e);
+            throw new IOException("词向量加载出错", e);
         }
+    }
 
-        @Override
-        public Integer getResult() {
-            logger.info("w2v文件加载完毕，共{}行", rowNum);
-            return rowNum;
+    /**
+     * 读取文件头中的一个十进制整数
+     */
+    private static long readHeaderNumber(MappedFileCursor cursor) throws IOException {
+        int b = cursor.get();
+        while (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+            b = cursor.get();
         }
+        long value = 0;
+        while (b >= '0' && b <= '9') {
+            value = value * 10 + (b - '0');
+            b = cursor.get();
+        }
+        return value;
     }
 
-    public void readVectorFile() throws IOException {
+    /**
+     * 按 offHeap 选项创建 size 行 dimension 列的向量存储
+     */
+    private VectorStore createStore(int size, int dimension) {
+        return offHeap ? new OffHeapVectorStore(size, dimension) : new HeapVectorStore(size, dimension);
+    }
+
+    /**
+     * 归一化为单位向量，零向量保持不变
+     *
+     * @param row 向量
+     * @param len 向量各元素的平方和
+     */
+    private static void normalize(float[] row, double len) {
+        if (len == 0) {
+            return;
+        }
+        len = Math.sqrt(len);
+        for (int j = 0; j < row.length; j++) {
+            row[j] /= len;
+        }
+    }
+
+    /**
+     * 多线程解析文本格式
+     *
+     * @throws IOException 读取出错
+     */
+    private void readTextVectorFile(Path path) throws IOException {
         try {
-            Files.asCharSource(new File(file), ENCODING).readLines(new CounterLine());
-            if (wordSize != vocab.length) {
-                vocab = ArrayUtils.subarray(vocab, 0, wordSize);
-                matrix = ArrayUtils.subarray(matrix, 0, wordSize);
-            }
-        } catch (IOException e) {
+            TextVectorParser parser = new TextVectorParser(path, threads, this::createStore);
+            parser.parse();
+            vocab = parser.getVocab();
+            store = parser.getStore();
+            arraySize = parser.getDimension();
+            wordSize = vocab.length;
+            logger.info("w2v文件加载完毕，共{}个词", wordSize);
+        } catch (IOException | RuntimeException e) {
             logger.error("词向量加载出错:{}", e);
-            throw new IOException("词向量加载出错");
+            throw new IOException("词向量加载出错", e);
         }
     }
 
@@ -96,7 +294,7 @@ public class VectorIoUtil {
     }
 
     public float getMatrixElement(int row, int column) {
-        return matrix[row][column];
+        return store.get(row, column);
     }
 
     public int getWordSize() {
@@ -107,10 +305,46 @@ public class VectorIoUtil {
         return vocab;
     }
 
+    /**
+     * 加载后的向量存储，行号与 {@link #getVocab()} 的下标一致
+     *
+     * @return 向量存储
+     */
+    public VectorStore getStore() {
+        return store;
+    }
+
+    /**
+     * 以二维数组返回全部向量，每次调用都从 {@link #getStore()} 复制一份，大模型会占用同样大小的堆内存
+     *
+     * @return 向量矩阵的副本，行号与 {@link #getVocab()} 的下标一致
+     * @deprecated 向量已改为连续存储，请使用 {@link #getStore()}
+     */
+    @Deprecated
     public float[][] getMatrix() {
+        float[][] matrix = new float[store.size()][store.dimension()];
+        for (int row = 0; row < matrix.length; row++) {
+            store.getRow(row, matrix[row]);
+        }
         return matrix;
     }
 
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    public void setOffHeap(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
     public String getFile() {
         return file;
     }
@@ -0,0 +1,84 @@
+package org.fooldata.algorithm;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class TopKTest {
+
+    @Test
+    public void testMatchesSort() {
+        Random random = new Random(7);
+        float[] scores = new float[1000];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = random.nextFloat();
+        }
+        Integer[] order = new Integer[scores.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(scores[b], scores[a]));
+
+        // 分成三段分别收集再合并，结果应与整体收集一致
+        TopK whole = new TopK(20);
+        TopK[] parts = {new TopK(20), new TopK(20), new TopK(20)};
+        for (int i = 0; i < scores.length; i++) {
+            whole.offer(i, scores[i]);
+            parts[i % 3].offer(i, scores[i]);
+        }
+        TopK merged = parts[0].merge(parts[1]).merge(parts[2]);
+        for (TopK topK : new TopK[]{whole, merged}) {
+            assertTrue(topK.isFull());
+            int[] ids = new int[20];
+            float[] result = new float[20];
+            assertEquals(20, topK.drainDescending(ids, result));
+            assertEquals(0, topK.size());
+            for (int i = 0; i < 20; i++) {
+                assertEquals((int) order[i], ids[i]);
+                assertEquals(scores[order[i]], result[i], 0f);
+            }
+        }
+    }
+
+    @Test
+    public void testThresholdAndReset() {
+        TopK topK = new TopK(2);
+        assertEquals(Float.NEGATIVE_INFINITY, topK.threshold(), 0f);
+        assertTrue(topK.offer(1, 0.5f));
+        assertTrue(topK.offer(2, 0.1f));
+        assertEquals(0.1f, topK.threshold(), 0f);
+        assertFalse(topK.accepts(0.1f));
+        assertFalse(topK.offer(3, 0.05f));
+        assertTrue(topK.offer(4, 0.9f));
+        assertEquals(0.5f, topK.minScore(), 0f);
+
+        topK.reset(3);
+        assertEquals(0, topK.size());
+        assertEquals(3, topK.capacity());
+        topK.offer(5, -1f);
+        int[] ids = new int[3];
+        float[] scores = new float[3];
+        assertEquals(1, topK.drainDescending(ids, scores));
+        assertEquals(5, ids[0]);
+    }
+
+    @Test
+    public void testMaxHeapToList() {
+        MaxHeap<Integer> heap = new MaxHeap<>(3, Integer::compare);
+        for (int i = 0; i < 10; i++) {
+            heap.add(i);
+        }
+        List<Integer> list = heap.toList();
+        assertEquals(Arrays.asList(9, 8, 7), list);
+    }
+}
@@ -0,0 +1,41 @@
+package org.fooldata.eval;
+
+import org.fooldata.index.IndexType;
+import org.fooldata.model.ModelOptions;
+import org.fooldata.storage.HeapVectorStore;
+import org.fooldata.storage.TestVectors;
+import org.fooldata.storage.Vocabulary;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class RecallEvaluatorTest {
+
+    @Test
+    public void testEvaluate() {
+        HeapVectorStore store = TestVectors.randomStore(2000, 16, 11);
+        RecallEvaluator evaluator = new RecallEvaluator(new Vocabulary(TestVectors.words(2000)), store, 10, 100, 1);
+        assertEquals(100, evaluator.getQueryCount());
+
+        // 精确索引与标准答案一致
+        ModelOptions exact = new ModelOptions();
+        exact.setIndexType(IndexType.EXACT);
+        EvaluationResult result = evaluator.evaluate("EXACT", exact);
+        assertEquals(1.0, result.getRecall(), 1e-9);
+        assertEquals(0.0, result.getMeanRankError(), 0.01);
+        assertTrue(result.getQps() > 0);
+
+        // 搜索宽度很小的HNSW召回率不会更高
+        ModelOptions hnsw = new ModelOptions();
+        hnsw.setIndexType(IndexType.HNSW);
+        hnsw.setHnswM(4);
+        hnsw.setHnswEfSearch(10);
+        EvaluationResult approximate = evaluator.evaluate("HNSW", hnsw);
+        assertTrue(approximate.getRecall() <= 1.0 && approximate.getRecall() > 0.3);
+        assertTrue(approximate.getMeanRankError() >= 0);
+    }
+}
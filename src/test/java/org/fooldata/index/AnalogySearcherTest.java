@@ -0,0 +1,86 @@
+package org.fooldata.index;
+
+import org.fooldata.storage.HeapVectorStore;
+import org.fooldata.storage.TestVectors;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class AnalogySearcherTest {
+
+    private static float[] row(HeapVectorStore store, int id) {
+        float[] row = new float[store.dimension()];
+        store.getRow(id, row);
+        return row;
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        int size = ParallelScanner.PARTITION_SIZE + 500;
+        HeapVectorStore store = TestVectors.randomStore(size, 12, 29);
+        AnalogySearcher searcher = new AnalogySearcher(store);
+        Random random = new Random(31);
+        int queries = 20;
+        float[][] vectors = new float[queries * 3][];
+        int[][] exclude = new int[queries][];
+        BitSet excluded = new BitSet();
+        excluded.set(7);
+        for (int q = 0; q < queries; q++) {
+            exclude[q] = new int[]{random.nextInt(size), random.nextInt(size), random.nextInt(size)};
+            for (int j = 0; j < 3; j++) {
+                vectors[3 * q + j] = row(store, exclude[q][j]);
+            }
+        }
+        for (AnalogyMethod method : AnalogyMethod.values()) {
+            Neighbors[] batch = searcher.searchBatch(vectors, exclude, 10, method, excluded);
+            for (int q = 0; q < queries; q++) {
+                float[] a = vectors[3 * q];
+                float[] b = vectors[3 * q + 1];
+                float[] c = vectors[3 * q + 2];
+                Neighbors single = searcher.search(a, b, c, exclude[q], 10, method, excluded);
+                // 暴力计算最高分
+                int best = -1;
+                float bestScore = Float.NEGATIVE_INFINITY;
+                for (int id = 0; id < size; id++) {
+                    if (id == exclude[q][0] || id == exclude[q][1] || id == exclude[q][2] || excluded.get(id)) {
+                        continue;
+                    }
+                    float score = AnalogySearcher.score(method, store.dot(id, a), store.dot(id, b), store.dot(id, c));
+                    if (score > bestScore) {
+                        bestScore = score;
+                        best = id;
+                    }
+                }
+                assertEquals(10, single.size());
+                assertEquals(best, single.id(0));
+                assertEquals(bestScore, single.score(0), 1e-5f);
+                for (int i = 0; i < 10; i++) {
+                    assertEquals(single.id(i), batch[q].id(i));
+                    assertEquals(single.score(i), batch[q].score(i), 1e-5f);
+                    for (int id : exclude[q]) {
+                        assertNotEquals(id, single.id(i));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFewerCandidatesThanTopN() {
+        HeapVectorStore store = TestVectors.randomStore(5, 8, 37);
+        AnalogySearcher searcher = new AnalogySearcher(store);
+        int[] exclude = {0, 1, 2};
+        for (AnalogyMethod method : AnalogyMethod.values()) {
+            Neighbors neighbors = searcher.search(row(store, 0), row(store, 1), row(store, 2), exclude, 10, method, null);
+            assertEquals(2, neighbors.size());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.fooldata.index;
+
+import org.fooldata.storage.HeapVectorStore;
+import org.fooldata.storage.OffHeapVectorStore;
+import org.fooldata.storage.TestVectors;
+import org.fooldata.storage.VectorStore;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class ExactSearcherTest {
+
+    @Test
+    public void testMatchesSort() {
+        // 超过一个分区，覆盖并行扫描与合并；维度不是4的倍数，覆盖分块计算的尾部
+        int size = ParallelScanner.PARTITION_SIZE * 3 + 17;
+        VectorStore heap = TestVectors.randomStore(size, 13, 19);
+        VectorStore offHeap = TestVectors.fill(new OffHeapVectorStore(size, 13), 19);
+        Random random = new Random(23);
+        float[] query = new float[13];
+        for (int q = 0; q < 5; q++) {
+            TestVectors.randomUnit(random, query);
+            int[] expected = TestVectors.exactNearest(heap, query, 50);
+            for (VectorStore store : new VectorStore[]{heap, offHeap}) {
+                Neighbors neighbors = new ExactSearcher(store).search(query, 50);
+                assertEquals(50, neighbors.size());
+                for (int i = 0; i < 50; i++) {
+                    assertEquals(heap.dot(expected[i], query), neighbors.score(i), 1e-6f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testExcluded() {
+        HeapVectorStore store = TestVectors.randomStore(1000, 8, 29);
+        float[] query = new float[8];
+        store.getRow(5, query);
+        ExactSearcher searcher = new ExactSearcher(store);
+        assertEquals(5, searcher.search(query, 1).id(0));
+        BitSet excluded = new BitSet();
+        excluded.set(5);
+        Neighbors neighbors = searcher.search(query, 1000, excluded);
+        assertEquals(999, neighbors.size());
+        for (int i = 0; i < neighbors.size(); i++) {
+            assertNotEquals(5, neighbors.id(i));
+        }
+    }
+
+    @Test
+    public void testDefaultExclusionMatchesScan() {
+        HeapVectorStore store = TestVectors.randomStore(1000, 8, 31);
+        ExactSearcher searcher = new ExactSearcher(store);
+        // 只实现基本查询的索引走默认实现：过滤后不足时扩大查询范围
+        NearestIndex filtering = new NearestIndex() {
+            @Override
+            public Neighbors search(float[] vector, int topN) {
+                return searcher.search(vector, topN);
+            }
+
+            @Override
+            public int size() {
+                return searcher.size();
+            }
+        };
+        float[] query = new float[8];
+        store.getRow(3, query);
+        BitSet excluded = new BitSet();
+        for (int id : searcher.search(query, 40).ids()) {
+            excluded.set(id);
+        }
+        Neighbors expected = searcher.search(query, 10, excluded, null);
+        Neighbors actual = filtering.search(query, 10, excluded, null);
+        assertEquals(10, expected.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.id(i), actual.id(i));
+        }
+    }
+
+    @Test
+    public void testBatchMatchesSingle() {
+        // 查询数不是分组大小的倍数，行数超过一个分区
+        int size = ParallelScanner.PARTITION_SIZE * 2 + 31;
+        VectorStore heap = TestVectors.randomStore(size, 13, 37);
+        VectorStore offHeap = TestVectors.fill(new OffHeapVectorStore(size, 13), 37);
+        Random random = new Random(41);
+        float[][] queries = new float[ParallelScanner.QUERY_TILE * 3 + 5][13];
+        for (float[] query : queries) {
+            TestVectors.randomUnit(random, query);
+        }
+        BitSet excluded = new BitSet();
+        excluded.set(0, 100);
+        for (VectorStore store : new VectorStore[]{heap, offHeap}) {
+            ExactSearcher searcher = new ExactSearcher(store);
+            Neighbors[] batch = searcher.searchBatch(queries, 10, excluded);
+            assertEquals(queries.length, batch.length);
+            for (int q = 0; q < queries.length; q++) {
+                Neighbors expected = searcher.search(queries[q], 10, excluded);
+                assertEquals(expected.size(), batch[q].size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.id(i), batch[q].id(i));
+                    assertEquals(expected.score(i), batch[q].score(i), 1e-5f);
+                }
+            }
+        }
+        assertEquals(0, new ExactSearcher(heap).searchBatch(new float[0][], 10).length);
+        // 没有查询时不扫描
+        Neighbors[] empty = new ParallelScanner().scanBatch(size, 0, 10, null,
+                (fromRow, toRow, fromQuery, toQuery, dest) -> fail("没有查询时不应扫描"));
+        assertEquals(0, empty.length);
+    }
+}
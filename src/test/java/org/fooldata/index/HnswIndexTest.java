@@ -0,0 +1,52 @@
+package org.fooldata.index;
+
+import org.fooldata.storage.HeapVectorStore;
+import org.fooldata.storage.TestVectors;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class HnswIndexTest {
+
+    @Test
+    public void testRecall() {
+        HeapVectorStore store = TestVectors.randomStore(5000, 32, 11);
+        for (int threads : new int[]{1, 4}) {
+            HnswIndex index = HnswIndex.build(store, 16, 200, 100, threads);
+            assertEquals(store.size(), index.size());
+            Random random = new Random(13);
+            float[] query = new float[32];
+            int hits = 0;
+            int queries = 50;
+            for (int q = 0; q < queries; q++) {
+                TestVectors.randomUnit(random, query);
+                Neighbors neighbors = index.search(query, 10);
+                assertEquals(10, neighbors.size());
+                for (int i = 1; i < neighbors.size(); i++) {
+                    assertTrue(neighbors.score(i - 1) >= neighbors.score(i));
+                }
+                hits += TestVectors.hits(TestVectors.exactNearest(store, query, 10), neighbors);
+            }
+            double recall = hits / (double) (queries * 10);
+            assertTrue("recall@10 = " + recall, recall >= 0.9);
+        }
+    }
+
+    @Test
+    public void testFindsItself() {
+        HeapVectorStore store = TestVectors.randomStore(2000, 16, 17);
+        HnswIndex index = HnswIndex.build(store, 8, 100, 50, 2);
+        float[] row = new float[16];
+        for (int id = 0; id < store.size(); id += 97) {
+            store.getRow(id, row);
+            assertEquals(id, index.search(row, 1).id(0));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.fooldata.kdtree;
+
+import org.fooldata.index.Neighbors;
+import org.fooldata.storage.HeapVectorStore;
+import org.fooldata.storage.TestVectors;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class BalancedKdTreeTest {
+
+    @Test
+    public void testExactSearch() {
+        // 足够大，覆盖并行构建；维度较低，KD树的剪枝才有效果
+        HeapVectorStore store = TestVectors.randomStore(20000, 6, 3);
+        // 插入一些重复向量
+        float[] row = new float[6];
+        for (int i = 0; i < 100; i++) {
+            store.getRow(i, row);
+            store.setRow(i + 100, row);
+        }
+        Random random = new Random(5);
+        float[] query = new float[6];
+        for (SplitRule rule : SplitRule.values()) {
+            BalancedKdTree tree = BalancedKdTree.build(store, rule);
+            assertEquals(store.size(), tree.size());
+            for (int q = 0; q < 20; q++) {
+                TestVectors.randomUnit(random, query);
+                Neighbors result = Neighbors.drain(tree.getNearVectors(10, query));
+                int[] expected = TestVectors.exactNearest(store, query, 10);
+                assertEquals(10, result.size());
+                for (int i = 0; i < 10; i++) {
+                    assertEquals(store.dot(expected[i], query), store.dot(result.id(i), query), 1e-6f);
+                    assertEquals(-store.squaredDistance(result.id(i), query), result.score(i), 0f);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.fooldata.knn;
+
+import org.fooldata.index.ExactSearcher;
+import org.fooldata.index.Neighbors;
+import org.fooldata.model.Word2VecModel;
+import org.fooldata.storage.HeapVectorStore;
+import org.fooldata.storage.TestVectors;
+import org.fooldata.storage.Vocabulary;
+import org.fooldata.util.Float16;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class KnnTableTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final int SIZE = KnnTableBuilder.BATCH_SIZE + 100;
+    private static final int K = 20;
+
+    @Test
+    public void testFloat16() {
+        for (float value : new float[]{0f, -0f, 1f, -1f, 0.5f, 0.1f, -0.333f, 65504f, 1e-7f}) {
+            assertEquals(value, Float16.toFloat(Float16.fromFloat(value)), Math.abs(value) / 1024 + 1e-7f);
+        }
+        assertEquals(Float.POSITIVE_INFINITY, Float16.toFloat(Float16.fromFloat(1e6f)), 0f);
+        assertEquals(Float.NaN, Float16.toFloat(Float16.fromFloat(Float.NaN)), 0f);
+    }
+
+    @Test
+    public void testMatchesExact() throws IOException {
+        HeapVectorStore store = TestVectors.randomStore(SIZE, 12, 11);
+        Vocabulary vocabulary = new Vocabulary(TestVectors.words(SIZE));
+        ExactSearcher searcher = new ExactSearcher(store);
+        BitSet excluded = new BitSet();
+        excluded.set(7);
+        Path path = folder.newFile("knn.bin").toPath();
+        KnnTableBuilder.build(vocabulary, store, searcher, excluded, K, path);
+
+        // 极小的映射段，覆盖跨段读取
+        for (KnnTable table : new KnnTable[]{KnnTable.open(path), KnnTable.open(path, 1 << 12)}) {
+            assertEquals(SIZE, table.size());
+            assertEquals(K, table.k());
+            assertEquals("词100", table.getVocabulary().word(100));
+            assertEquals(0, table.count(7));
+            for (int id = 0; id < SIZE; id += 97) {
+                if (id == 7) {
+                    continue;
+                }
+                float[] query = new float[12];
+                store.getRow(id, query);
+                Neighbors expected = searcher.search(query, K + 2, excluded);
+                Neighbors neighbors = table.neighbors(id, K);
+                assertEquals(K, neighbors.size());
+                int e = 0;
+                for (int i = 0; i < K; i++, e++) {
+                    if (expected.id(e) == id) {
+                        e++;
+                    }
+                    assertEquals(expected.id(e), neighbors.id(i));
+                    assertEquals(expected.score(e), neighbors.score(i), 1e-3f);
+                }
+                assertEquals(5, table.neighbors(id, 5).size());
+            }
+        }
+    }
+
+    @Test
+    public void testModelFromTable() throws IOException {
+        Word2VecModel model = new Word2VecModel(new Vocabulary(TestVectors.words(500)), TestVectors.randomStore(500, 12, 13));
+        Path path = folder.newFile("model.knn").toPath();
+        model.writeKnnTable(path, K);
+
+        Word2VecModel readOnly = new Word2VecModel(KnnTable.open(path));
+        assertEquals(500, readOnly.size());
+        Map<String, Float> expected = model.nearest("词3", 10);
+        Map<String, Float> actual = readOnly.nearest("词3", 10);
+        assertEquals(expected.keySet(), actual.keySet());
+        // 没有词向量时最多返回 k 个
+        assertEquals(K, readOnly.nearest("词3", 50).size());
+        Neighbors[] batch = readOnly.nearestBatch(Arrays.asList("词3", "不存在"), 10);
+        assertEquals(10, batch[0].size());
+        assertEquals(0, batch[1].size());
+
+        String first = actual.keySet().iterator().next();
+        readOnly.remove(first);
+        assertFalse(readOnly.nearest("词3", 10).containsKey(first));
+        assertEquals(10, readOnly.nearest("词3", 10).size());
+
+        // 有词向量的模型附加近邻表，k 超过表中的 k 时回退到索引
+        model.setKnnTable(KnnTable.open(path));
+        assertEquals(expected.keySet(), model.nearest("词3", 10).keySet());
+        assertEquals(30, model.nearest("词3", 30).size());
+        assertNotEquals(-1f, model.similarity("词3", "词4"), 0f);
+    }
+
+    @Test
+    public void testRebuildKeepsMappedTable() throws IOException {
+        Word2VecModel model = new Word2VecModel(new Vocabulary(TestVectors.words(500)), TestVectors.randomStore(500, 12, 13));
+        Path path = folder.newFile("model.knn").toPath();
+        model.writeKnnTable(path, K);
+        KnnTable mapped = KnnTable.open(path);
+        Neighbors before = mapped.neighbors(3, K);
+
+        // 在已映射的表上重建：旧的映射读到的仍是完整的旧表，新文件是新的 k，不留临时文件
+        model.writeKnnTable(path, 5);
+        Neighbors after = mapped.neighbors(3, K);
+        assertEquals(K, mapped.k());
+        assertArrayEquals(before.ids(), after.ids());
+        assertEquals(5, KnnTable.open(path).k());
+        String[] files = folder.getRoot().list();
+        assertNotNull(files);
+        assertEquals(1, files.length);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnlyHasNoVectors() throws IOException {
+        Word2VecModel model = new Word2VecModel(new Vocabulary(TestVectors.words(50)), TestVectors.randomStore(50, 12, 13));
+        Path path = folder.newFile("small.knn").toPath();
+        model.writeKnnTable(path, 5);
+        new Word2VecModel(KnnTable.open(path)).similarity("词1", "词2");
+    }
+}
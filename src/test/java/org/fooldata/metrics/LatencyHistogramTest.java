@@ -0,0 +1,44 @@
+package org.fooldata.metrics;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        int previous = -1;
+        for (long value = 0; value < 1 << 20; value++) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(bucket == previous || bucket == previous + 1);
+            assertTrue(value <= LatencyHistogram.upperBound(bucket));
+            previous = bucket;
+        }
+        assertTrue(LatencyHistogram.upperBound(LatencyHistogram.bucket(Long.MAX_VALUE)) >= Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(0.5));
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            histogram.record(1000 + random.nextInt(9000));
+        }
+        assertEquals(100000, histogram.getCount());
+        assertEquals(5500, histogram.getMean(), 50);
+        // 相对误差不超过12.5%
+        assertEquals(5500, histogram.percentile(0.5), 5500 * 0.125);
+        assertEquals(9910, histogram.percentile(0.99), 9910 * 0.125);
+        assertTrue(histogram.percentile(1) <= histogram.getMax());
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+    }
+}
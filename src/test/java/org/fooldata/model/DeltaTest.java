@@ -0,0 +1,91 @@
+package org.fooldata.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class DeltaTest {
+
+    private static final int BASE = 100;
+
+    private static float[] vector(float value) {
+        return new float[]{value, -value};
+    }
+
+    private static float first(Delta delta, int id) {
+        float[] row = new float[2];
+        delta.getRow(delta.row(id), row);
+        return row[0];
+    }
+
+    @Test
+    public void testVersionsAreIsolated() {
+        Delta empty = Delta.empty(BASE, 2);
+        Delta v1 = empty.withWord("甲", vector(1));
+        Delta v2 = v1.withVector(3, vector(2));
+        Delta v3 = v2.withVector(BASE, vector(3)).withWord("乙", vector(4));
+        // 删除后重新加入的词得到新id
+        Delta v4 = v3.withWord("甲", vector(5));
+
+        assertEquals(-1, empty.id("甲"));
+        assertEquals(BASE, v1.id("甲"));
+        assertEquals(BASE, v3.id("甲"));
+        assertEquals(BASE + 2, v4.id("甲"));
+        assertEquals(-1, v2.id("乙"));
+        assertEquals(BASE + 1, v3.id("乙"));
+
+        assertEquals(1f, first(v1, BASE), 0f);
+        assertEquals(1f, first(v2, BASE), 0f);
+        assertEquals(3f, first(v3, BASE), 0f);
+        assertEquals(-1, v1.row(3));
+        assertEquals(2f, first(v4, 3), 0f);
+
+        // 被取代的行仍在行数之内，扫描时跳过
+        assertEquals(4, v3.rowCount());
+        assertFalse(v3.isLive(0));
+        assertTrue(v2.isLive(0));
+        int live = 0;
+        for (int row = 0; row < v4.rowCount(); row++) {
+            if (v4.isLive(row)) {
+                live++;
+            }
+        }
+        assertEquals(4, live);
+    }
+
+    @Test
+    public void testBranchCopies() {
+        Delta v1 = Delta.empty(BASE, 2).withWord("甲", vector(1));
+        Delta left = v1.withWord("乙", vector(2));
+        // 在旧版本上修改，不影响已有的分支
+        Delta right = v1.withWord("丙", vector(3));
+        assertEquals(BASE + 1, left.id("乙"));
+        assertEquals(-1, left.id("丙"));
+        assertEquals(BASE + 1, right.id("丙"));
+        assertEquals(-1, right.id("乙"));
+        assertEquals(2f, first(left, BASE + 1), 0f);
+        assertEquals(3f, first(right, BASE + 1), 0f);
+        assertEquals("乙", left.word(BASE + 1));
+        assertEquals("丙", right.word(BASE + 1));
+    }
+
+    @Test
+    public void testGrowsAcrossChunks() {
+        Delta delta = Delta.empty(BASE, 2);
+        Delta[] versions = new Delta[Delta.CHUNK_ROWS * 3];
+        for (int i = 0; i < versions.length; i++) {
+            delta = delta.withWord("词" + i, vector(i));
+            versions[i] = delta;
+        }
+        for (int i = 0; i < versions.length; i += 97) {
+            assertEquals(BASE + i, versions[i].id("词" + i));
+            assertEquals(i, first(versions[i], BASE + i), 0f);
+            assertEquals(BASE + i + 1, versions[i].idBound());
+            assertEquals(-1, versions[i].id("词" + (i + 1)));
+        }
+    }
+}
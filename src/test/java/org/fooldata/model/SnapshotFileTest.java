@@ -0,0 +1,155 @@
+package org.fooldata.model;
+
+import org.fooldata.index.IndexType;
+import org.fooldata.storage.TestVectors;
+import org.fooldata.storage.Vocabulary;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class SnapshotFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final int SIZE = 300;
+    private static final int DIMENSION = 16;
+
+    private Word2VecModel model(IndexType indexType) {
+        ModelOptions options = new ModelOptions();
+        options.setIndexType(indexType);
+        return new Word2VecModel(new Vocabulary(TestVectors.words(SIZE)), TestVectors.randomStore(SIZE, DIMENSION, 5),
+                options);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        for (IndexType indexType : new IndexType[]{IndexType.BALANCED_KD_TREE, IndexType.HNSW, IndexType.EXACT}) {
+            Word2VecModel model = model(indexType);
+            Path path = folder.newFile(indexType + ".snapshot").toPath();
+            model.saveSnapshot(path);
+
+            Word2VecModel loaded = Word2VecModel.openSnapshot(path);
+            assertEquals(model.size(), loaded.size());
+            assertEquals(model.dimension(), loaded.dimension());
+            for (int i = 0; i < SIZE; i += 7) {
+                String word = "词" + i;
+                assertArrayEquals(model.vector(word).getElementArray(), loaded.vector(word).getElementArray(), 0f);
+                assertEquals(model.nearest(word, 10).keySet(), loaded.nearest(word, 10).keySet());
+            }
+        }
+    }
+
+    @Test
+    public void testRebuildWithOtherIndex() throws IOException {
+        Word2VecModel model = model(IndexType.HNSW);
+        Path path = folder.newFile("model.snapshot").toPath();
+        model.saveSnapshot(path);
+        ModelOptions options = new ModelOptions();
+        options.setIndexType(IndexType.EXACT);
+        Word2VecModel loaded = Word2VecModel.openSnapshot(path, options);
+        // 精确索引的结果与原模型的精确查询一致
+        String[] expected = model.nearest2("词3", 11).keySet().toArray(new String[0]);
+        String[] actual = loaded.nearest("词3", 10).keySet().toArray(new String[0]);
+        assertArrayEquals(Arrays.copyOfRange(expected, 1, 11), actual);
+    }
+
+    @Test
+    public void testSaveAfterMutations() throws IOException {
+        Word2VecModel model = model(IndexType.BALANCED_KD_TREE);
+        model.remove("词1");
+        model.add("新词", model.vector("词2").getElementArray());
+        Path path = folder.newFile("model.snapshot").toPath();
+        model.saveSnapshot(path);
+
+        Word2VecModel loaded = Word2VecModel.openSnapshot(path);
+        assertEquals(SIZE, loaded.size());
+        assertFalse(loaded.hasWord("词1"));
+        assertEquals("词2", loaded.nearest("新词", 1).keySet().iterator().next());
+        assertEquals(model.nearest("词5", 10).keySet(), loaded.nearest("词5", 10).keySet());
+    }
+
+    @Test
+    public void testCorruption() throws IOException {
+        Word2VecModel model = model(IndexType.BALANCED_KD_TREE);
+        Path path = folder.newFile("model.snapshot").toPath();
+        model.saveSnapshot(path);
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(file.length() / 2);
+            int b = file.read();
+            file.seek(file.length() / 2);
+            file.write(b ^ 0xFF);
+        }
+        try {
+            Word2VecModel.openSnapshot(path);
+            fail("校验和不一致时应当抛出异常");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("校验和"));
+        }
+        // 关闭校验后可以加载
+        ModelOptions options = new ModelOptions();
+        options.setVerifySnapshotChecksum(false);
+        assertEquals(SIZE, Word2VecModel.openSnapshot(path, options).size());
+
+        // 文件头也在校验范围内：改动标志位后不会被当成没有保存索引的快照加载
+        Path header = folder.newFile("header.snapshot").toPath();
+        model.saveSnapshot(header);
+        try (RandomAccessFile file = new RandomAccessFile(header.toFile(), "rw")) {
+            file.seek(20);
+            int b = file.read();
+            file.seek(20);
+            file.write(b ^ 1);
+        }
+        try {
+            Word2VecModel.openSnapshot(header);
+            fail("文件头被改动时应当抛出异常");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("校验和"));
+        }
+
+        Path truncated = folder.newFile("truncated.snapshot").toPath();
+        model.saveSnapshot(truncated);
+        try (RandomAccessFile file = new RandomAccessFile(truncated.toFile(), "rw")) {
+            file.setLength(file.length() - 4);
+        }
+        try {
+            Word2VecModel.openSnapshot(truncated);
+            fail("文件不完整时应当抛出异常");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("不完整"));
+        }
+    }
+
+    @Test
+    public void testOverwriteKeepsOpenReaders() throws IOException {
+        Path path = folder.newFile("model.snapshot").toPath();
+        model(IndexType.BALANCED_KD_TREE).saveSnapshot(path);
+        Word2VecModel opened = Word2VecModel.openSnapshot(path);
+        float[] before = opened.vector("词7").getElementArray();
+
+        // 覆盖正在映射的快照：旧模型仍然读取原来的内容，新文件完整可用，不留临时文件
+        ModelOptions options = new ModelOptions();
+        options.setIndexType(IndexType.HNSW);
+        Word2VecModel other = new Word2VecModel(new Vocabulary(TestVectors.words(SIZE)),
+                TestVectors.randomStore(SIZE, DIMENSION, 6), options);
+        other.saveSnapshot(path);
+        assertArrayEquals(before, opened.vector("词7").getElementArray(), 0f);
+        assertEquals(5, opened.nearest("词7", 5).size());
+        assertArrayEquals(other.vector("词7").getElementArray(),
+                Word2VecModel.openSnapshot(path, options).vector("词7").getElementArray(), 0f);
+        String[] files = folder.getRoot().list();
+        assertNotNull(files);
+        assertEquals(1, files.length);
+    }
+}
@@ -0,0 +1,484 @@
+package org.fooldata.model;
+
+import org.fooldata.index.AnalogyMethod;
+import org.fooldata.index.ExactSearcher;
+import org.fooldata.index.IndexType;
+import org.fooldata.index.Neighbors;
+import org.fooldata.kdtree.WordVector;
+import org.fooldata.metrics.LoadPhase;
+import org.fooldata.metrics.Operation;
+import org.fooldata.metrics.SimpleMetrics;
+import org.fooldata.storage.HeapVectorStore;
+import org.fooldata.storage.LazyVectorStore;
+import org.fooldata.storage.OffHeapVectorStore;
+import org.fooldata.storage.TestVectors;
+import org.fooldata.storage.VectorStore;
+import org.fooldata.storage.Vocabulary;
+import org.fooldata.util.VectorFileIndex;
+import org.fooldata.util.VectorFileWriter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class Word2VecModelTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final int SIZE = 500;
+    private static final int DIMENSION = 16;
+
+    private Word2VecModel model() {
+        return new Word2VecModel(new Vocabulary(TestVectors.words(SIZE)), TestVectors.randomStore(SIZE, DIMENSION, 7));
+    }
+
+    @Test
+    public void testStoresAgree() {
+        VectorStore heap = TestVectors.fill(new HeapVectorStore(SIZE, DIMENSION), 7);
+        VectorStore offHeap = TestVectors.fill(new OffHeapVectorStore(SIZE, DIMENSION), 7);
+        float[] query = new float[DIMENSION];
+        heap.getRow(3, query);
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(heap.dot(i, query), offHeap.dot(i, query), 1e-5f);
+            assertEquals(heap.dot(i, 3), offHeap.dot(i, 3), 1e-5f);
+            assertEquals(heap.squaredDistance(i, query), offHeap.squaredDistance(i, query), 1e-5f);
+        }
+        assertEquals(10, offHeap.truncate(10).size());
+    }
+
+    @Test
+    public void testLazyLoading() throws Exception {
+        Word2VecModel model = model();
+        File file = folder.newFile("lazy.bin");
+        model.saveVectors(file.toPath(), new VectorFileWriter());
+        ModelOptions options = new ModelOptions();
+        options.setLazyLoading(true);
+        options.setLazyCacheRows(50);
+        options.setPreloadRows(10);
+        options.setPreloadWords(Arrays.asList("词100", "不存在的词"));
+        Word2VecModel lazy = new Word2VecModel(file.getPath(), options);
+        assertEquals(SIZE, lazy.size());
+        assertArrayEquals(model.vector("词42").getElementArray(), lazy.vector("词42").getElementArray(), 1e-6f);
+        assertEquals(model.similarity("词1", "词2"), lazy.similarity("词1", "词2"), 1e-6f);
+        // 懒加载使用精确扫描，结果与原模型的精确查询一致
+        assertEquals(model.nearest2("词7", 10).keySet(), lazy.nearest2("词7", 10).keySet());
+        assertEquals(model.nearest2("词7", 11).keySet().stream().skip(1).collect(Collectors.toList()),
+                new ArrayList<>(lazy.nearest("词7", 10).keySet()));
+
+        // 超过合并阈值也不自动合并，新词留在增量段里，向量仍然按需解码
+        options.setCompactionDeltaSize(2);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(lazy.add("新词" + i, model.vector("词" + (i + 20)).getElementArray()));
+        }
+        assertEquals("新词3", lazy.nearest("词23", 1).keySet().iterator().next());
+        VectorFileIndex index = VectorFileIndex.build(file.toPath());
+        LazyVectorStore store = index.store(10);
+        ModelSnapshot s = ModelSnapshot.build(index.getVocabulary(), store, new ExactSearcher(store), options, 1);
+        for (int i = 0; i < 5; i++) {
+            s = s.withVector("新词" + i, model.vector("词" + i).getElementArray(), i + 2);
+        }
+        assertFalse(s.needsCompaction(options));
+    }
+
+    @Test
+    public void testNearest() {
+        Word2VecModel model = model();
+        for (int i = 0; i < 20; i++) {
+            String word = "词" + i;
+            Map<String, Float> nearest = model.nearest(word, 5);
+            assertEquals(5, nearest.size());
+            assertFalse(nearest.containsKey(word));
+            float last = Float.MAX_VALUE;
+            for (Map.Entry<String, Float> entry : nearest.entrySet()) {
+                assertEquals(model.similarity(word, entry.getKey()), entry.getValue(), 1e-6f);
+                assertTrue(entry.getValue() <= last);
+                last = entry.getValue();
+            }
+            // nearest2 是精确结果，第一个是自身；平衡KD树的查找也是精确的
+            Map<String, Float> exact = model.nearest2(word);
+            assertEquals(20, exact.size());
+            String[] expected = exact.keySet().toArray(new String[0]);
+            assertEquals(word, expected[0]);
+            assertArrayEquals(Arrays.copyOfRange(expected, 1, 6), nearest.keySet().toArray(new String[0]));
+        }
+    }
+
+    @Test
+    public void testHnswIndex() {
+        ModelOptions options = new ModelOptions();
+        options.setIndexType(IndexType.HNSW);
+        Word2VecModel model = new Word2VecModel(new Vocabulary(TestVectors.words(SIZE)), TestVectors.randomStore(SIZE, DIMENSION, 7), options);
+        for (int i = 0; i < 20; i++) {
+            String word = "词" + i;
+            Map<String, Float> nearest = model.nearest(word, 5);
+            assertEquals(5, nearest.size());
+            assertFalse(nearest.containsKey(word));
+            // 小词表上 HNSW 的第一个结果应与精确结果一致
+            String[] exact = model.nearest2(word).keySet().toArray(new String[0]);
+            assertEquals(exact[1], nearest.keySet().iterator().next());
+        }
+    }
+
+    @Test
+    public void testQuantizedWithoutFloatVectors() {
+        HeapVectorStore store = TestVectors.randomStore(SIZE, DIMENSION, 7);
+        for (IndexType type : new IndexType[]{IndexType.PQ, IndexType.INT8}) {
+            ModelOptions options = new ModelOptions();
+            options.setIndexType(type);
+            options.setKeepFloatVectors(false);
+            Word2VecModel model = new Word2VecModel(new Vocabulary(TestVectors.words(SIZE)), store, options);
+            assertEquals(SIZE, model.size());
+            assertEquals(DIMENSION, model.dimension());
+            assertEquals(5, model.nearest("词1", 5).size());
+            // 没有原始向量，相似度由量化后的向量计算，只是近似值
+            assertEquals(store.dot(1, 2), model.similarity("词1", "词2"), 0.2f);
+        }
+    }
+
+    @Test
+    public void testQuantizedMetrics() {
+        for (IndexType type : new IndexType[]{IndexType.PQ, IndexType.INT8}) {
+            SimpleMetrics metrics = new SimpleMetrics();
+            ModelOptions options = new ModelOptions();
+            options.setIndexType(type);
+            options.setMetrics(metrics);
+            Word2VecModel model = new Word2VecModel(new Vocabulary(TestVectors.words(SIZE)),
+                    TestVectors.randomStore(SIZE, DIMENSION, 7), options);
+            model.nearest("词1", 10);
+            // 扫描全部编码，再加上精确重排的候选（包括被排除的自身，共 11 × rerankFactor 个）
+            long distances = metrics.distanceComputations(Operation.NEAREST);
+            assertTrue(type + "：" + distances, distances > SIZE && distances <= SIZE + 11L * options.getRerankFactor());
+            assertEquals(1, metrics.searches(Operation.NEAREST));
+        }
+    }
+
+    @Test
+    public void testNearestBatch() {
+        for (IndexType type : new IndexType[]{IndexType.EXACT, IndexType.BALANCED_KD_TREE}) {
+            ModelOptions options = new ModelOptions();
+            options.setIndexType(type);
+            Word2VecModel model = new Word2VecModel(new Vocabulary(TestVectors.words(SIZE)),
+                    TestVectors.randomStore(SIZE, DIMENSION, 7), options);
+            Neighbors[] batch = model.nearestBatch(Arrays.asList("词1", "不存在", "词2", "词3"), 5);
+            assertEquals(4, batch.length);
+            assertEquals(0, batch[1].size());
+            for (int i : new int[]{0, 2, 3}) {
+                String word = "词" + (i == 0 ? 1 : i);
+                Map<String, Float> expected = model.nearest(word, 5);
+                assertEquals(expected.size(), batch[i].size());
+                int j = 0;
+                for (Map.Entry<String, Float> entry : expected.entrySet()) {
+                    assertEquals(entry.getKey(), model.word(batch[i].id(j)));
+                    assertEquals(entry.getValue(), batch[i].score(j++), 1e-5f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCache() {
+        ModelOptions options = new ModelOptions();
+        options.setCacheSize(1000);
+        Word2VecModel model = new Word2VecModel(new Vocabulary(TestVectors.words(SIZE)),
+                TestVectors.randomStore(SIZE, DIMENSION, 7), options);
+        Word2VecModel uncached = model();
+        NearestCache cache = model.getCache();
+        assertEquals(uncached.nearest("词1", 10), model.nearest("词1", 10));
+        assertEquals(0, cache.hitCount());
+        // 较小的k由已缓存的结果截取
+        assertEquals(uncached.nearest("词1", 3), model.nearest("词1", 3));
+        assertEquals(uncached.nearest("词1", 10), model.nearest("词1", 10));
+        assertEquals(2, cache.hitCount());
+        // 较大的k未命中，重新查询后替换缓存
+        assertEquals(uncached.nearest("词1", 20), model.nearest("词1", 20));
+        assertEquals(2, cache.missCount());
+        assertEquals(1, cache.size());
+
+        // 删除结果中的词后，包含该词的缓存在读取时失效，删除本身不扫描缓存
+        String neighbor = model.nearest("词1", 1).keySet().iterator().next();
+        model.remove(neighbor);
+        uncached.remove(neighbor);
+        assertEquals(1, cache.size());
+        Map<String, Float> nearest = model.nearest("词1", 20);
+        assertFalse(nearest.containsKey(neighbor));
+        assertEquals(uncached.nearest("词1", 20), nearest);
+        assertEquals(0.5, cache.hitRate(), 1e-9);
+
+        // 容量按近邻总数计算
+        for (int i = 0; i < 200; i++) {
+            model.nearest("词" + i, 20);
+        }
+        assertTrue(cache.size() <= 1000 / 20);
+    }
+
+    @Test
+    public void testReloadWhileQuerying() throws Exception {
+        ModelOptions options = new ModelOptions();
+        options.setCacheSize(1000);
+        Word2VecModel model = new Word2VecModel(new Vocabulary(TestVectors.words(SIZE)),
+                TestVectors.randomStore(SIZE, DIMENSION, 7), options);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[4];
+        for (int t = 0; t < readers.length; t++) {
+            int seed = t;
+            readers[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                try {
+                    while (running.get()) {
+                        String word = "词" + random.nextInt(SIZE);
+                        Map<String, Float> nearest = model.nearest(word, 5);
+                        // 查询期间词被删除时结果为空，否则总是完整的
+                        assertTrue(nearest.isEmpty() || nearest.size() == 5);
+                        model.nearest2(word, 3);
+                        model.similarity(word, "词0");
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            readers[t].start();
+        }
+        long version = model.version();
+        for (int i = 0; i < 5; i++) {
+            model.remove("词" + (i + 1));
+            model.reload(new Vocabulary(TestVectors.words(SIZE)), TestVectors.randomStore(SIZE, DIMENSION, 100 + i));
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get());
+        assertTrue(model.version() > version);
+        // 重新加载后删除记录不再保留，结果与新向量一致
+        assertTrue(model.hasWord("词1"));
+        Word2VecModel expected = new Word2VecModel(new Vocabulary(TestVectors.words(SIZE)),
+                TestVectors.randomStore(SIZE, DIMENSION, 104));
+        assertEquals(expected.nearest("词1", 5), model.nearest("词1", 5));
+    }
+
+    @Test
+    public void testReloadAsync() throws Exception {
+        File file = folder.newFile("vectors.txt");
+        HeapVectorStore store = TestVectors.randomStore(50, 4, 3);
+        StringBuilder sb = new StringBuilder("50 4\n");
+        float[] row = new float[4];
+        for (int i = 0; i < 50; i++) {
+            store.getRow(i, row);
+            sb.append("新词").append(i);
+            for (float v : row) {
+                sb.append(' ').append(v);
+            }
+            sb.append('\n');
+        }
+        Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+
+        Word2VecModel model = model();
+        model.reloadAsync(file.getPath()).get();
+        assertEquals(50, model.size());
+        assertEquals(4, model.dimension());
+        assertTrue(model.hasWord("新词3"));
+        assertFalse(model.hasWord("词3"));
+
+        try {
+            model.reloadAsync(file.getPath() + ".missing").get();
+            fail();
+        } catch (ExecutionException e) {
+            // 加载失败时继续使用旧快照
+            assertTrue(model.hasWord("新词3"));
+        }
+    }
+
+    @Test
+    public void testRemove() {
+        Word2VecModel model = model();
+        WordVector vector = model.vector("词1");
+        vector.getElementArray()[0] = 100f;
+        assertNotEquals(100f, model.vector("词1").getElementArray()[0], 0f);
+
+        assertNotNull(model.remove("词1"));
+        assertNull(model.remove("词1"));
+        assertFalse(model.hasWord("词1"));
+        assertEquals(SIZE - 1, model.size());
+        assertEquals(-1f, model.similarity("词1", "词2"), 0f);
+        assertTrue(model.nearest("词1").isEmpty());
+        assertFalse(model.nearest2("词2").containsKey("词1"));
+        for (int i = 2; i < 20; i++) {
+            assertFalse(model.nearest("词" + i, 10).containsKey("词1"));
+        }
+    }
+
+    @Test
+    public void testAddUpdateRemove() {
+        Word2VecModel model = model();
+        float[] vector3 = model.vector("词3").getElementArray();
+        float[] vector7 = model.vector("词7").getElementArray();
+
+        assertTrue(model.add("新词", scale(vector3, 2f)));
+        assertFalse(model.add("新词", vector7));
+        assertEquals(SIZE + 1, model.size());
+        assertArrayEquals(vector3, model.vector("新词").getElementArray(), 1e-6f);
+        assertEquals(1f, model.similarity("新词", "词3"), 1e-5f);
+        assertEquals("词3", model.nearest("新词", 1).keySet().iterator().next());
+        assertEquals("新词", model.nearest("词3", 1).keySet().iterator().next());
+
+        WordVector old = model.update("词5", vector7);
+        assertNotNull(old);
+        assertArrayEquals(vector7, model.vector("词5").getElementArray(), 1e-6f);
+        assertEquals("词5", model.nearest("词7", 1).keySet().iterator().next());
+        // 旧向量已是墓碑，不能再被查到
+        Map<String, Float> nearOld = model.nearest(new WordVector(old.getElementArray()), 3);
+        assertNotEquals(1f, nearOld.values().iterator().next(), 1e-5f);
+
+        assertNotNull(model.remove("新词"));
+        assertFalse(model.hasWord("新词"));
+        assertFalse(model.nearest("词3", 10).containsKey("新词"));
+        assertFalse(model.nearest2("词3").containsKey("新词"));
+        assertTrue(model.add("新词", vector3));
+        assertEquals("新词", model.nearest("词3", 1).keySet().iterator().next());
+
+        Map<String, Float> before = model.nearest("词7", 10);
+        Neighbors[] batch = model.nearestBatch(Arrays.asList("词7", "新词"), 10);
+        assertEquals(before.keySet(), toMap(model, batch[0]).keySet());
+
+        long version = model.version();
+        model.compact();
+        assertTrue(model.version() > version);
+        assertEquals(SIZE + 1, model.size());
+        assertEquals(before.keySet(), model.nearest("词7", 10).keySet());
+        assertArrayEquals(vector7, model.vector("词5").getElementArray(), 1e-6f);
+        assertEquals("新词", model.nearest("词3", 1).keySet().iterator().next());
+    }
+
+    @Test
+    public void testAutoCompaction() throws Exception {
+        ModelOptions options = new ModelOptions();
+        options.setIndexType(IndexType.HNSW);
+        options.setCompactionDeltaSize(5);
+        Word2VecModel model = new Word2VecModel(new Vocabulary(TestVectors.words(SIZE)),
+                TestVectors.randomStore(SIZE, DIMENSION, 7), options);
+        for (int i = 0; i < 5; i++) {
+            model.add("新词" + i, model.vector("词" + i).getElementArray());
+        }
+        // 与自动合并在同一个线程上排队，返回时自动合并已经完成
+        model.compactAsync().get();
+        assertEquals(SIZE + 5, model.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("词" + i, model.nearest("新词" + i, 1).keySet().iterator().next());
+        }
+        for (int id = 0; id < model.size(); id++) {
+            assertTrue(model.hasWord(model.word(id)));
+        }
+    }
+
+    @Test
+    public void testWordsWithPrefix() {
+        Word2VecModel model = model();
+        assertEquals(Arrays.asList("词1", "词10", "词100"), model.wordsWithPrefix("词1", 3));
+        model.remove("词10");
+        model.add("词1新", model.vector("词2").getElementArray());
+        assertEquals(Arrays.asList("词1", "词100", "词101"), model.wordsWithPrefix("词1", 3));
+        assertEquals(Arrays.asList("词1新"), model.wordsWithPrefix("词1新", 10));
+        assertTrue(model.wordsWithPrefix("不存在", 10).isEmpty());
+    }
+
+    @Test
+    public void testAnalogy() {
+        Word2VecModel model = model();
+        float[] a = model.vector("词1").getElementArray();
+        float[] b = model.vector("词2").getElementArray();
+        float[] c = model.vector("词3").getElementArray();
+        float[] answer = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            answer[i] = a[i] - b[i] + c[i];
+        }
+        // 新增的词在增量段中，也要参与类比打分
+        model.add("答案", answer);
+        for (AnalogyMethod method : AnalogyMethod.values()) {
+            Map<String, Float> result = model.analogy("词1", "词2", "词3", 5, method);
+            assertEquals(5, result.size());
+            assertEquals("答案", result.keySet().iterator().next());
+            assertFalse(result.containsKey("词1") || result.containsKey("词2") || result.containsKey("词3"));
+
+            Neighbors[] batch = model.analogyBatch(Arrays.asList(new String[]{"词1", "词2", "词3"},
+                    new String[]{"词1", "不存在", "词3"}), 5, method);
+            assertEquals(result.keySet(), toMap(model, batch[0]).keySet());
+            assertEquals(0, batch[1].size());
+        }
+        assertTrue(model.analogy("词1", "不存在", "词3", 5).isEmpty());
+    }
+
+    private static float[] scale(float[] vector, float factor) {
+        float[] scaled = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            scaled[i] = vector[i] * factor;
+        }
+        return scaled;
+    }
+
+    private static Map<String, Float> toMap(Word2VecModel model, Neighbors neighbors) {
+        Map<String, Float> result = new LinkedHashMap<>();
+        for (int i = 0; i < neighbors.size(); i++) {
+            result.put(model.word(neighbors.id(i)), neighbors.score(i));
+        }
+        return result;
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        SimpleMetrics metrics = new SimpleMetrics();
+        ModelOptions options = new ModelOptions();
+        options.setMetrics(metrics);
+        Word2VecModel model = new Word2VecModel(new Vocabulary(TestVectors.words(SIZE)),
+                TestVectors.randomStore(SIZE, DIMENSION, 7), options);
+        assertTrue(metrics.loadPhase(LoadPhase.INDEX_BUILD) >= 0);
+        for (int i = 0; i < 20; i++) {
+            model.nearest("词" + i, 10);
+            model.similarity("词" + i, "词" + (i + 1));
+        }
+        model.nearest2("词1", 10);
+        assertEquals(20, metrics.latency(Operation.NEAREST).getCount());
+        assertEquals(20, metrics.latency(Operation.SIMILARITY).getCount());
+        assertEquals(20, metrics.searches(Operation.NEAREST));
+        // 每次查询至少访问从根到叶子的路径，距离计算不超过全部向量
+        long visited = metrics.visitedNodes(Operation.NEAREST);
+        long distances = metrics.distanceComputations(Operation.NEAREST);
+        assertTrue(visited >= 20);
+        assertTrue(distances >= 20 * 10 && distances <= 20L * SIZE);
+        assertTrue(metrics.backtracks(Operation.NEAREST) + metrics.prunedBranches(Operation.NEAREST) > 0);
+        assertEquals(SIZE, metrics.distanceComputations(Operation.NEAREST_EXACT));
+        // 有词不存在时也记录类比查询的耗时
+        model.analogy("词1", "词2", "词3", 5);
+        model.analogy("词1", "没有的词", "词3", 5);
+        assertEquals(2, metrics.latency(Operation.ANALOGY).getCount());
+
+        File file = folder.newFile("model.snapshot");
+        model.saveSnapshot(file.toPath());
+        Word2VecModel.openSnapshot(file.toPath(), options);
+        assertEquals(1, metrics.latency(Operation.LOAD).getCount());
+        assertTrue(metrics.loadPhase(LoadPhase.VERIFY) >= 0);
+        assertTrue(metrics.loadPhase(LoadPhase.INDEX_READ) >= 0);
+
+        // 默认不记录
+        assertFalse(new ModelOptions().getMetrics().isEnabled());
+    }
+}
@@ -0,0 +1,70 @@
+package org.fooldata.quantization;
+
+import org.fooldata.index.Neighbors;
+import org.fooldata.storage.HeapVectorStore;
+import org.fooldata.storage.TestVectors;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class Int8VectorStoreTest {
+
+    private static final int DIMENSION = 30;
+
+    @Test
+    public void testDotsCloseToFloat() {
+        HeapVectorStore store = TestVectors.randomStore(500, DIMENSION, 43);
+        float[] query = TestVectors.randomUnit(new Random(5), new float[DIMENSION]);
+        byte[] quantized = new byte[DIMENSION];
+        float[] scores = new float[store.size()];
+        for (Int8Scale scale : Int8Scale.values()) {
+            Int8VectorStore codes = Int8VectorStore.quantize(store, scale);
+            assertEquals(scale, codes.getScaleMode());
+            float queryScale = codes.quantizeQuery(query, quantized);
+            codes.intDots(0, store.size(), quantized, queryScale, scores);
+            for (int row = 0; row < store.size(); row++) {
+                float expected = store.dot(row, query);
+                assertEquals(expected, codes.dot(row, query), 0.02f);
+                assertEquals(expected, scores[row], 0.03f);
+                assertEquals(store.dot(row, row + 1 == store.size() ? 0 : row + 1),
+                        codes.dot(row, row + 1 == store.size() ? 0 : row + 1), 0.02f);
+                assertEquals(store.get(row, 3), codes.get(row, 3), 0.02f);
+            }
+        }
+    }
+
+    @Test
+    public void testRecallWithRerank() {
+        HeapVectorStore store = TestVectors.randomStore(4000, DIMENSION, 47);
+        Random random = new Random(53);
+        float[] query = new float[DIMENSION];
+        for (Int8Scale scale : Int8Scale.values()) {
+            Int8VectorStore codes = Int8VectorStore.quantize(store, scale);
+            Int8Index reranked = new Int8Index(codes, store, 4);
+            Int8Index approximate = new Int8Index(codes, null, 0);
+            int rerankedHits = 0;
+            int approximateHits = 0;
+            int queries = 30;
+            for (int q = 0; q < queries; q++) {
+                TestVectors.randomUnit(random, query);
+                int[] expected = TestVectors.exactNearest(store, query, 10);
+                Neighbors neighbors = reranked.search(query, 10);
+                assertEquals(10, neighbors.size());
+                for (int i = 0; i < neighbors.size(); i++) {
+                    assertEquals(store.dot(neighbors.id(i), query), neighbors.score(i), 1e-6f);
+                }
+                rerankedHits += TestVectors.hits(expected, neighbors);
+                approximateHits += TestVectors.hits(expected, approximate.search(query, 10));
+            }
+            assertTrue("recall@10 = " + rerankedHits / (queries * 10.0), rerankedHits >= queries * 10 * 0.98);
+            assertTrue("recall@10 = " + approximateHits / (queries * 10.0), approximateHits >= queries * 10 * 0.8);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.fooldata.quantization;
+
+import org.fooldata.index.Neighbors;
+import org.fooldata.storage.HeapVectorStore;
+import org.fooldata.storage.TestVectors;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class ProductQuantizerTest {
+
+    private static final int DIMENSION = 30;
+
+    @Test
+    public void testTableMatchesDecode() {
+        HeapVectorStore store = TestVectors.randomStore(2000, DIMENSION, 31);
+        // 维度不能被子空间数整除
+        ProductQuantizer quantizer = ProductQuantizer.train(store, 7, 1);
+        PqVectorStore codes = quantizer.encode(store);
+        assertEquals(2000 * 7, codes.codeBytes());
+        float[] query = TestVectors.randomUnit(new Random(3), new float[DIMENSION]);
+        float[] table = new float[7 * ProductQuantizer.MAX_CENTROIDS];
+        quantizer.dotTable(query, table);
+        float[] scores = new float[100];
+        codes.dotsByTable(0, 100, table, scores);
+        float[] decoded = new float[DIMENSION];
+        for (int row = 0; row < 100; row++) {
+            codes.getRow(row, decoded);
+            float expected = 0;
+            for (int j = 0; j < DIMENSION; j++) {
+                expected += decoded[j] * query[j];
+                assertEquals(decoded[j], codes.get(row, j), 0f);
+            }
+            assertEquals(expected, scores[row], 1e-5f);
+            assertEquals(expected, codes.dot(row, query), 1e-5f);
+        }
+    }
+
+    @Test
+    public void testRecallWithRerank() {
+        HeapVectorStore store = TestVectors.randomStore(4000, DIMENSION, 37);
+        PqVectorStore codes = ProductQuantizer.train(store, 10, 1).encode(store);
+        PqIndex reranked = new PqIndex(codes, store, 10);
+        PqIndex approximate = new PqIndex(codes, null, 0);
+        Random random = new Random(41);
+        float[] query = new float[DIMENSION];
+        int rerankedHits = 0;
+        int approximateHits = 0;
+        int queries = 30;
+        for (int q = 0; q < queries; q++) {
+            TestVectors.randomUnit(random, query);
+            int[] expected = TestVectors.exactNearest(store, query, 10);
+            Neighbors neighbors = reranked.search(query, 10);
+            assertEquals(10, neighbors.size());
+            // 重排后的分数是精确值
+            for (int i = 0; i < neighbors.size(); i++) {
+                assertEquals(store.dot(neighbors.id(i), query), neighbors.score(i), 1e-6f);
+            }
+            rerankedHits += TestVectors.hits(expected, neighbors);
+            approximateHits += TestVectors.hits(expected, approximate.search(query, 10));
+        }
+        assertTrue("recall@10 = " + rerankedHits / (queries * 10.0), rerankedHits >= queries * 10 * 0.8);
+        assertTrue(rerankedHits >= approximateHits);
+    }
+}
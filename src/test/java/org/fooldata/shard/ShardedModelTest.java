@@ -0,0 +1,224 @@
+package org.fooldata.shard;
+
+import org.fooldata.index.IndexType;
+import org.fooldata.model.ModelOptions;
+import org.fooldata.model.Word2VecModel;
+import org.fooldata.storage.HeapVectorStore;
+import org.fooldata.storage.TestVectors;
+import org.fooldata.storage.Vocabulary;
+import org.fooldata.util.VectorFileWriter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class ShardedModelTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final int SIZE = 600;
+    private static final int DIMENSION = 16;
+    private static final int SHARDS = 3;
+
+    private final Vocabulary vocabulary = new Vocabulary(TestVectors.words(SIZE));
+    private final HeapVectorStore store = TestVectors.randomStore(SIZE, DIMENSION, 11);
+
+    private static ModelOptions exact() {
+        ModelOptions options = new ModelOptions();
+        options.setIndexType(IndexType.EXACT);
+        return options;
+    }
+
+    private void assertSameAs(Word2VecModel expected, ShardedModel sharded) {
+        assertEquals(expected.size(), sharded.size());
+        assertEquals(DIMENSION, sharded.dimension());
+        for (String key : new String[]{"词0", "词17", "词599"}) {
+            Map<String, Float> want = expected.nearest(key, 10);
+            Map<String, Float> got = sharded.nearest(key, 10);
+            assertEquals(new ArrayList<>(want.keySet()), new ArrayList<>(got.keySet()));
+            for (String word : want.keySet()) {
+                assertEquals(want.get(word), got.get(word), 1e-6f);
+            }
+            assertArrayEquals(expected.vector(key).getElementArray(), sharded.vector(key).getElementArray(), 1e-6f);
+        }
+        assertEquals(expected.nearest(expected.vector("词5"), 5).keySet(),
+                sharded.nearest(sharded.vector("词5"), 5).keySet());
+        assertEquals(expected.similarity("词1", "词2"), sharded.similarity("词1", "词2"), 1e-6f);
+        assertEquals(expected.similarity("词3", "词3"), sharded.similarity("词3", "词3"), 1e-6f);
+        assertEquals(-1f, sharded.similarity("词1", "不存在"), 0f);
+        assertTrue(sharded.nearest("不存在", 10).isEmpty());
+        assertNull(sharded.vector("不存在"));
+    }
+
+    @Test
+    public void testPartition() {
+        Word2VecModel[] models = Partitioner.split(vocabulary, store, SHARDS, exact());
+        int total = 0;
+        for (int s = 0; s < SHARDS; s++) {
+            total += models[s].size();
+            // 分布大致均匀
+            assertTrue(models[s].size() > SIZE / SHARDS / 2);
+            // 分片内保持原来的词序
+            int previous = -1;
+            for (int id = 0; id < models[s].size(); id++) {
+                String word = models[s].word(id);
+                assertEquals(s, Partitioner.shardOf(word, SHARDS));
+                int original = vocabulary.id(word);
+                assertTrue(original > previous);
+                previous = original;
+            }
+        }
+        assertEquals(SIZE, total);
+    }
+
+    @Test
+    public void testMerge() {
+        ShardNeighbors a = new ShardNeighbors(new String[]{"a", "b"}, new float[]{0.9f, 0.5f}, 2);
+        ShardNeighbors b = new ShardNeighbors(new String[]{"c", "d", "e"}, new float[]{0.8f, 0.7f, 0.1f}, 3);
+        ShardNeighbors merged = ShardNeighbors.merge(Arrays.asList(a, ShardNeighbors.EMPTY, b), 4);
+        assertArrayEquals(new String[]{"a", "c", "d", "b"}, merged.words());
+        assertArrayEquals(new float[]{0.9f, 0.8f, 0.7f, 0.5f}, merged.scores(), 0f);
+        assertEquals(5, ShardNeighbors.merge(Arrays.asList(a, b), 10).size());
+    }
+
+    @Test
+    public void testLocalShards() throws IOException {
+        Word2VecModel single = new Word2VecModel(vocabulary, store, exact());
+        try (ShardedModel sharded = ShardedModel.local(vocabulary, store, SHARDS, exact())) {
+            assertEquals(SHARDS, sharded.shardCount());
+            assertSameAs(single, sharded);
+        }
+    }
+
+    @Test
+    public void testLoopbackTransport() throws IOException {
+        Word2VecModel single = new Word2VecModel(vocabulary, store, exact());
+        ModelOptions options = exact();
+        options.setOffHeap(true);
+        Word2VecModel[] models = Partitioner.split(vocabulary, store, SHARDS, options);
+        List<Shard> shards = new ArrayList<>();
+        for (int i = 0; i < SHARDS; i++) {
+            shards.add(new RemoteShard(new LoopbackTransport(new ShardServer(new LocalShard(models[i], i, SHARDS)))));
+        }
+        try (ShardedModel sharded = new ShardedModel(shards)) {
+            assertSameAs(single, sharded);
+        }
+    }
+
+    @Test
+    public void testShardOrderChecked() {
+        Word2VecModel[] models = Partitioner.split(vocabulary, store, SHARDS, exact());
+        List<Shard> swapped = Arrays.asList(new LocalShard(models[1], 1, SHARDS), new LocalShard(models[0], 0, SHARDS),
+                new LocalShard(models[2], 2, SHARDS));
+        try {
+            new ShardedModel(swapped);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("第0个分片"));
+        }
+        try {
+            new ShardedModel(Arrays.asList(new LocalShard(models[0], 0, SHARDS), new LocalShard(models[1], 1, SHARDS)));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("分片0/2"));
+        }
+    }
+
+    @Test
+    public void testInvalidFrames() throws IOException {
+        Word2VecModel[] models = Partitioner.split(vocabulary, store, SHARDS, exact());
+        ShardServer server = new ShardServer(new LocalShard(models[0], 0, SHARDS));
+        // 请求中的 topN 为负数、向量长度超出帧的内容时返回错误响应，不分配数组
+        assertEquals(ShardProtocol.ERROR, server.handle(nearestRequest(-1, 4))[0]);
+        assertEquals(ShardProtocol.ERROR, server.handle(nearestRequest(10, Integer.MAX_VALUE))[0]);
+        assertEquals(ShardProtocol.OK, server.handle(nearestRequest(Integer.MAX_VALUE, DIMENSION))[0]);
+        try {
+            server.start(0);
+            // 帧长度为负数或超出上限时服务关闭连接
+            for (int length : new int[]{-1, Integer.MAX_VALUE}) {
+                try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+                    socket.setSoTimeout(5000);
+                    DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                    out.writeInt(length);
+                    out.flush();
+                    assertEquals(-1, socket.getInputStream().read());
+                }
+            }
+            // 服务仍然可用
+            try (RemoteShard shard = new RemoteShard(new SocketTransport("127.0.0.1", server.getPort()))) {
+                assertEquals(models[0].size(), shard.info().getSize());
+            }
+        } finally {
+            server.close();
+        }
+    }
+
+    private static byte[] nearestRequest(int size, int dimension) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = ShardProtocol.output(bytes, ShardProtocol.NEAREST);
+        out.writeInt(size);
+        out.writeBoolean(false);
+        out.writeUTF("");
+        out.writeInt(dimension);
+        for (int i = 0; i < Math.min(dimension, DIMENSION); i++) {
+            out.writeFloat(i == 0 ? 1f : 0f);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void testSocketTransport() throws IOException {
+        Word2VecModel single = new Word2VecModel(vocabulary, store, exact());
+        List<ShardServer> servers = new ArrayList<>();
+        List<Shard> shards = new ArrayList<>();
+        try {
+            // 从词向量文件切分出各分片的文件，各分片单独加载
+            Path file = folder.newFile("vectors.bin").toPath();
+            new VectorFileWriter().write(vocabulary, store, file);
+            VectorFileWriter writer = new VectorFileWriter();
+            writer.setGzip(true);
+            Path[] files = Partitioner.split(file, folder.newFolder("shards").toPath(), SHARDS, writer);
+            for (int i = 0; i < SHARDS; i++) {
+                assertEquals("shard-" + i + "-of-3.bin.gz", files[i].getFileName().toString());
+                Word2VecModel model = new Word2VecModel(files[i].toString(), exact());
+                ShardServer server = new ShardServer(new LocalShard(model, i, SHARDS));
+                server.start(0);
+                servers.add(server);
+                shards.add(new RemoteShard(new SocketTransport("127.0.0.1", server.getPort())));
+            }
+            try (ShardedModel sharded = new ShardedModel(shards)) {
+                assertSameAs(single, sharded);
+                // 任一分片不可用时查询失败
+                servers.get(1).close();
+                try {
+                    sharded.nearest(sharded.vector("词0"), 10);
+                    fail();
+                } catch (UncheckedIOException e) {
+                    assertTrue(e.getMessage().contains("分片1"));
+                }
+            }
+        } finally {
+            for (ShardServer server : servers) {
+                server.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.fooldata.storage;
+
+import org.fooldata.index.Neighbors;
+
+import java.util.Random;
+
+/**
+ * 测试用的随机词向量
+ *
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class TestVectors {
+
+    public static String[] words(int size) {
+        String[] words = new String[size];
+        for (int i = 0; i < size; i++) {
+            words[i] = "词" + i;
+        }
+        return words;
+    }
+
+    /**
+     * 用随机单位向量填满存储
+     */
+    public static <T extends VectorStore> T fill(T store, long seed) {
+        Random random = new Random(seed);
+        float[] row = new float[store.dimension()];
+        for (int i = 0; i < store.size(); i++) {
+            randomUnit(random, row);
+            store.setRow(i, row);
+        }
+        return store;
+    }
+
+    public static HeapVectorStore randomStore(int size, int dimension, long seed) {
+        return fill(new HeapVectorStore(size, dimension), seed);
+    }
+
+    public static float[] randomUnit(Random random, float[] row) {
+        double len = 0;
+        for (int j = 0; j < row.length; j++) {
+            row[j] = (float) random.nextGaussian();
+            len += row[j] * row[j];
+        }
+        for (int j = 0; j < row.length; j++) {
+            row[j] /= Math.sqrt(len);
+        }
+        return row;
+    }
+
+    /**
+     * 暴力计算与向量最相似的词id，按相似度降序排列
+     */
+    public static int[] exactNearest(VectorStore store, float[] vector, int k) {
+        Integer[] ids = new Integer[store.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+        }
+        java.util.Arrays.sort(ids, (a, b) -> Float.compare(store.dot(b, vector), store.dot(a, vector)));
+        int[] result = new int[Math.min(k, ids.length)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ids[i];
+        }
+        return result;
+    }
+
+    /**
+     * 精确结果中有几个出现在查询结果里，用于计算召回率
+     */
+    public static int hits(int[] expected, Neighbors neighbors) {
+        int hits = 0;
+        for (int id : expected) {
+            for (int i = 0; i < neighbors.size(); i++) {
+                if (neighbors.id(i) == id) {
+                    hits++;
+                    break;
+                }
+            }
+        }
+        return hits;
+    }
+}
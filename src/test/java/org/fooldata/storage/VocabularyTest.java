@@ -0,0 +1,106 @@
+package org.fooldata.storage;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class VocabularyTest {
+
+    @Test
+    public void testLookup() {
+        String[] words = {"机器学习", "深度学习", "word2vec", "", "机器", "word2vec", "😀表情"};
+        Vocabulary vocabulary = new Vocabulary(words);
+        assertEquals(words.length, vocabulary.size());
+        for (int i = 0; i < words.length; i++) {
+            assertEquals(words[i], vocabulary.word(i));
+        }
+        // 重复的词保留第一次出现的id
+        assertEquals(2, vocabulary.id("word2vec"));
+        assertEquals(3, vocabulary.id(""));
+        assertEquals(6, vocabulary.id("😀表情"));
+        assertEquals(-1, vocabulary.id("机器学"));
+        assertArrayEquals(new int[]{0, -1, 4}, vocabulary.ids(Arrays.asList("机器学习", "不存在", "机器")));
+
+        byte[] key = "x深度学习".getBytes(StandardCharsets.UTF_8);
+        assertEquals(1, vocabulary.id(key, 1, key.length - 1));
+    }
+
+    @Test
+    public void testManyWords() {
+        int size = 20000;
+        String[] words = new String[size];
+        for (int i = 0; i < size; i++) {
+            words[i] = "词" + Integer.toString(i * 7919, 36);
+        }
+        Vocabulary vocabulary = new Vocabulary(words);
+        for (int i = 0; i < size; i++) {
+            assertEquals(i, vocabulary.id(words[i]));
+        }
+
+        // 从编码后的字节构建的词表与原词表一致
+        byte[][] encoded = new byte[size][];
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            encoded[i] = words[i].getBytes(StandardCharsets.UTF_8);
+            total += encoded[i].length;
+        }
+        byte[] bytes = new byte[total];
+        int[] offsets = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(encoded[i], 0, bytes, offsets[i], encoded[i].length);
+            offsets[i + 1] = offsets[i] + encoded[i].length;
+        }
+        Vocabulary fromBytes = new Vocabulary(bytes, offsets);
+        for (int i = 0; i < size; i += 13) {
+            assertEquals(i, fromBytes.id(words[i]));
+            assertEquals(words[i], fromBytes.word(i));
+        }
+    }
+
+    @Test
+    public void testPrefix() {
+        Random random = new Random(3);
+        String alphabet = "abc机器学";
+        String[] words = new String[3000];
+        for (int i = 0; i < words.length; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = 1 + random.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            words[i] = sb.toString();
+        }
+        Vocabulary vocabulary = new Vocabulary(words);
+        TreeSet<String> sorted = new TreeSet<>(Arrays.asList(words));
+        for (String prefix : new String[]{"", "a", "ab", "机", "机器", "学a", "cc", "zzz"}) {
+            List<String> expected = new ArrayList<>();
+            for (String word : sorted) {
+                if (word.startsWith(prefix)) {
+                    expected.add(word);
+                }
+            }
+            List<String> actual = new ArrayList<>();
+            for (int id : vocabulary.prefix(prefix, words.length)) {
+                String word = vocabulary.word(id);
+                // 重复的词只取一次
+                if (actual.isEmpty() || !actual.get(actual.size() - 1).equals(word)) {
+                    actual.add(word);
+                }
+            }
+            assertEquals(prefix, expected, actual);
+        }
+        assertEquals(5, vocabulary.prefix("a", 5).length);
+        assertEquals(0, vocabulary.prefix("a", 0).length);
+    }
+}
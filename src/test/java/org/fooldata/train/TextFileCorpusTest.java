@@ -0,0 +1,160 @@
+package org.fooldata.train;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class TextFileCorpusTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path write(String name, List<String[]> sentences, boolean gzip) throws IOException {
+        Path path = folder.newFile(name).toPath();
+        OutputStream stream = Files.newOutputStream(path);
+        if (gzip) {
+            stream = new GZIPOutputStream(stream);
+        }
+        try (Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8)) {
+            for (String[] sentence : sentences) {
+                // 混用空格与制表符分隔
+                writer.write(String.join(sentence.length % 2 == 0 ? " " : "\t  ", sentence));
+                writer.write('\n');
+            }
+        }
+        return path;
+    }
+
+    private static Map<String, Long> count(List<String[]> sentences) {
+        Map<String, Long> counts = new HashMap<>();
+        for (String[] sentence : sentences) {
+            for (String word : sentence) {
+                counts.merge(word, 1L, Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    @Test
+    public void testPartsCoverAllLines() throws IOException {
+        List<String[]> sentences = Word2VecTrainerTest.topicCorpus(2000, 3);
+        for (boolean gzip : new boolean[]{false, true}) {
+            TextFileCorpus corpus = new TextFileCorpus(write("corpus" + gzip + ".txt", sentences, gzip));
+            assertEquals(gzip, corpus.isGzip());
+            for (int parts : new int[]{1, 3, 7}) {
+                List<String> lines = new ArrayList<>();
+                for (int part = 0; part < parts; part++) {
+                    try (SentenceReader reader = corpus.open(part, parts)) {
+                        String[] sentence;
+                        while ((sentence = reader.next()) != null) {
+                            lines.add(String.join(" ", sentence));
+                        }
+                    }
+                }
+                List<String> expected = new ArrayList<>();
+                for (String[] sentence : sentences) {
+                    expected.add(String.join(" ", sentence));
+                }
+                // 每一行恰好被其中一份读到一次
+                lines.sort(null);
+                expected.sort(null);
+                assertEquals(expected, lines);
+            }
+        }
+    }
+
+    @Test
+    public void testVocabularyBuilder() throws IOException {
+        List<String[]> sentences = Word2VecTrainerTest.topicCorpus(2000, 4);
+        sentences.add(new String[]{"罕见词"});
+        Map<String, Long> expected = count(sentences);
+        TextFileCorpus corpus = new TextFileCorpus(write("corpus.txt", sentences, false));
+        for (int threads : new int[]{1, 4}) {
+            VocabularyBuilder builder = new VocabularyBuilder();
+            builder.setThreads(threads);
+            builder.setMinCount(2);
+            TrainingVocabulary vocabulary = builder.build(corpus);
+            assertEquals(expected.size() - 1, vocabulary.size());
+            assertEquals(-1, vocabulary.id("罕见词"));
+            for (int i = 0; i < vocabulary.size(); i++) {
+                assertEquals((long) expected.get(vocabulary.word(i)), vocabulary.count(i));
+                if (i > 0) {
+                    assertTrue(vocabulary.count(i) <= vocabulary.count(i - 1));
+                }
+            }
+            // 与 HashMap 统计的结果顺序一致
+            TrainingVocabulary reference = TrainingVocabulary.of(expected, 2);
+            for (int i = 0; i < vocabulary.size(); i++) {
+                assertEquals(reference.word(i), vocabulary.word(i));
+            }
+        }
+    }
+
+    @Test
+    public void testTokensAndSubsampling() throws IOException {
+        List<String[]> sentences = Word2VecTrainerTest.topicCorpus(2000, 5);
+        TextFileCorpus corpus = new TextFileCorpus(write("corpus.txt", sentences, false));
+        TrainingVocabulary vocabulary = TrainingVocabulary.of(count(sentences), 1);
+        int[] dest = new int[Word2VecTrainer.MAX_SENTENCE_LENGTH];
+        long read = 0;
+        for (int part = 0; part < 3; part++) {
+            try (TokenReader reader = corpus.openTokens(part, 3, vocabulary.getVocabulary())) {
+                int length;
+                while ((length = reader.next(dest)) >= 0) {
+                    for (int i = 0; i < length; i++) {
+                        assertTrue(dest[i] >= 0 && dest[i] < vocabulary.size());
+                    }
+                    read += length;
+                }
+            }
+        }
+        assertEquals(vocabulary.totalCount(), read);
+
+        Subsampler subsampler = new Subsampler(vocabulary, 1e-3);
+        long kept = 0;
+        long counted;
+        try (TokenReader reader = subsampler.wrap(corpus.openTokens(0, 1, vocabulary.getVocabulary()), 1)) {
+            int length;
+            while ((length = reader.next(dest)) >= 0) {
+                kept += length;
+            }
+            counted = reader.wordCount();
+        }
+        // 进度按下采样之前的词数计算，高频词被丢弃一部分
+        assertEquals(vocabulary.totalCount(), counted);
+        assertTrue(kept < counted);
+        assertTrue(kept > 0);
+    }
+
+    @Test
+    public void testVocabularyFile() throws IOException {
+        TrainingVocabulary vocabulary = TrainingVocabulary.of(count(Word2VecTrainerTest.topicCorpus(500, 6)), 1);
+        Path path = folder.newFile("vocab.txt").toPath();
+        vocabulary.write(path);
+        TrainingVocabulary loaded = TrainingVocabulary.read(path);
+        assertEquals(vocabulary.size(), loaded.size());
+        for (int i = 0; i < vocabulary.size(); i++) {
+            assertEquals(vocabulary.word(i), loaded.word(i));
+            assertEquals(vocabulary.count(i), loaded.count(i));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.fooldata.train;
+
+import org.fooldata.model.Word2VecModel;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class Word2VecTrainerTest {
+
+    private static final int TOPICS = 5;
+    private static final int WORDS_PER_TOPIC = 10;
+
+    /**
+     * 每个句子只使用同一个主题的词，训练后同主题的词应当互为近邻
+     */
+    static List<String[]> topicCorpus(int sentences, long seed) {
+        Random random = new Random(seed);
+        List<String[]> corpus = new ArrayList<>();
+        for (int s = 0; s < sentences; s++) {
+            int topic = random.nextInt(TOPICS);
+            String[] sentence = new String[10];
+            for (int i = 0; i < sentence.length; i++) {
+                sentence[i] = "主题" + topic + "词" + random.nextInt(WORDS_PER_TOPIC);
+            }
+            corpus.add(sentence);
+        }
+        return corpus;
+    }
+
+    private static TrainOptions options(TrainMode mode, boolean hierarchicalSoftmax) {
+        TrainOptions options = new TrainOptions();
+        options.setMode(mode);
+        options.setDimension(20);
+        options.setMinCount(1);
+        options.setSample(0);
+        options.setThreads(2);
+        options.setIterations(3);
+        options.setHierarchicalSoftmax(hierarchicalSoftmax);
+        options.setNegative(hierarchicalSoftmax ? 0 : 5);
+        return options;
+    }
+
+    @Test
+    public void testTopicsSeparate() throws Exception {
+        ListCorpus corpus = new ListCorpus(topicCorpus(3000, 1));
+        for (TrainMode mode : TrainMode.values()) {
+            for (boolean hs : new boolean[]{false, true}) {
+                TrainingResult result = new Word2VecTrainer(options(mode, hs)).train(corpus);
+                assertEquals(TOPICS * WORDS_PER_TOPIC, result.getVocabulary().size());
+                assertEquals(20, result.getVectors().dimension());
+                Word2VecModel model = result.toModel();
+                int correct = 0;
+                int total = 0;
+                for (int topic = 0; topic < TOPICS; topic++) {
+                    Map<String, Float> nearest = model.nearest("主题" + topic + "词0", 5);
+                    for (String word : nearest.keySet()) {
+                        if (word.startsWith("主题" + topic)) {
+                            correct++;
+                        }
+                        total++;
+                    }
+                }
+                assertTrue(mode + " hs=" + hs + " " + correct + "/" + total, correct >= total * 0.9);
+            }
+        }
+    }
+
+    @Test
+    public void testFirstFailureStopsWorkers() throws Exception {
+        ListCorpus sentences = new ListCorpus(topicCorpus(3000, 2));
+        AtomicLong read = new AtomicLong();
+        Corpus corpus = (part, parts) -> {
+            if (part == parts - 1) {
+                throw new IOException("语料损坏");
+            }
+            SentenceReader reader = sentences.open(part, parts);
+            return new SentenceReader() {
+                @Override
+                public String[] next() throws IOException {
+                    read.incrementAndGet();
+                    return reader.next();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    reader.close();
+                }
+            };
+        };
+        TrainOptions options = options(TrainMode.SKIP_GRAM, false);
+        options.setThreads(3);
+        options.setIterations(1000);
+        try {
+            new Word2VecTrainer(options).train(corpus, TrainingVocabulary.count(sentences, 1));
+            fail();
+        } catch (IOException e) {
+            assertEquals("语料损坏", e.getMessage());
+        }
+        // 出错的线程立即报告，其他线程不必读完全部轮次；抛出异常后不再有线程读取语料、修改向量
+        long after = read.get();
+        assertTrue(after < 1000L * 2000);
+        Thread.sleep(50);
+        assertEquals(after, read.get());
+    }
+
+    @Test
+    public void testHuffmanTree() {
+        TrainingVocabulary vocabulary = new TrainingVocabulary(new String[]{"a", "b", "c", "d"}, new long[]{8, 4, 2, 1});
+        vocabulary.buildHuffmanTree();
+        int[] offsets = vocabulary.codeOffsets();
+        // 最高频的词编码最短，所有路径都从根（内部节点 size - 2）开始
+        assertEquals(1, offsets[1] - offsets[0]);
+        assertEquals(3, offsets[4] - offsets[3]);
+        for (int word = 0; word < 4; word++) {
+            assertEquals(2, vocabulary.points()[offsets[word]]);
+        }
+    }
+}
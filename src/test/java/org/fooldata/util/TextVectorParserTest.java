@@ -0,0 +1,73 @@
+package org.fooldata.util;
+
+import org.fooldata.storage.HeapVectorStore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class TextVectorParserTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testParallelParse() throws IOException {
+        int size = 300;
+        int dimension = 5;
+        Random random = new Random(1);
+        String[] formats = {"%s", "%.6f", "%e", "%.2E"};
+        float[][] expected = new float[size][dimension];
+        StringBuilder sb = new StringBuilder();
+        sb.append(size + 2).append(' ').append(dimension).append('\n');
+        for (int i = 0; i < size; i++) {
+            sb.append("词").append(i);
+            double len = 0;
+            for (int j = 0; j < dimension; j++) {
+                String token = String.format(Locale.ROOT, formats[(i + j) % formats.length], (random.nextFloat() - 0.5f) * 10);
+                expected[i][j] = Float.parseFloat(token);
+                len += expected[i][j] * expected[i][j];
+                sb.append(j == 0 ? " " : "\t").append(token);
+            }
+            for (int j = 0; j < dimension; j++) {
+                expected[i][j] /= Math.sqrt(len);
+            }
+            sb.append(i % 7 == 0 ? " \r\n" : "\n");
+            if (i == 100) {
+                sb.append("两个 词 0.1 0.2 0.3 0.4 0.5\n");
+            }
+            if (i == 200) {
+                sb.append("坏数字 0.1 0.2 abc 0.4 0.5\n\n");
+            }
+        }
+        File file = folder.newFile("vectors.txt");
+        Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+
+        for (int threads : new int[]{1, 3, 8}) {
+            TextVectorParser parser = new TextVectorParser(file.toPath(), threads, HeapVectorStore::new);
+            parser.parse();
+            assertEquals(dimension, parser.getDimension());
+            assertEquals(size, parser.getVocab().length);
+            assertEquals(size, parser.getStore().size());
+            float[] row = new float[dimension];
+            for (int i = 0; i < size; i++) {
+                assertEquals("词" + i, parser.getVocab()[i]);
+                parser.getStore().getRow(i, row);
+                assertArrayEquals(expected[i], row, 1e-6f);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.fooldata.util;
+
+import org.fooldata.storage.HeapVectorStore;
+import org.fooldata.storage.LazyVectorStore;
+import org.fooldata.storage.TestVectors;
+import org.fooldata.storage.Vocabulary;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class VectorFileIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final int SIZE = 1000;
+    private static final int DIMENSION = 12;
+
+    @Test
+    public void testMatchesEagerLoading() throws IOException {
+        Vocabulary vocabulary = new Vocabulary(TestVectors.words(SIZE));
+        HeapVectorStore store = TestVectors.randomStore(SIZE, DIMENSION, 3);
+        for (VectorFileFormat format : VectorFileFormat.values()) {
+            VectorFileWriter writer = new VectorFileWriter();
+            writer.setFormat(format);
+            Path path = folder.newFile("vectors-" + format).toPath();
+            writer.write(vocabulary, store, path);
+            VectorIoUtil eager = new VectorIoUtil(path.toString());
+            eager.readVectorFile();
+
+            // 极小的映射窗口，覆盖行跨窗口时重新映射的逻辑
+            for (long windowSize : new long[]{1 << 30, 4096}) {
+                VectorFileIndex index = VectorFileIndex.build(path, windowSize);
+                assertEquals(format, index.getFormat());
+                assertEquals(SIZE, index.size());
+                assertEquals(DIMENSION, index.dimension());
+                LazyVectorStore lazy = index.store(100);
+                float[] expected = new float[DIMENSION];
+                float[] actual = new float[DIMENSION];
+                // 倒序访问，与文件顺序无关
+                for (int i = SIZE - 1; i >= 0; i--) {
+                    assertEquals(eager.getWord(i), index.getVocabulary().word(i));
+                    assertEquals(i, index.getVocabulary().id(eager.getWord(i)));
+                    eager.getStore().getRow(i, expected);
+                    lazy.getRow(i, actual);
+                    assertArrayEquals(expected, actual, 1e-6f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCacheAndPreload() throws IOException {
+        Vocabulary vocabulary = new Vocabulary(TestVectors.words(SIZE));
+        HeapVectorStore store = TestVectors.randomStore(SIZE, DIMENSION, 4);
+        Path path = folder.newFile("vectors.bin").toPath();
+        new VectorFileWriter().write(vocabulary, store, path);
+        LazyVectorStore lazy = VectorFileIndex.build(path).store(10);
+        assertEquals(0, lazy.decodedRows());
+
+        float[] row = new float[DIMENSION];
+        for (int i = 0; i < 5; i++) {
+            lazy.getRow(3, row);
+        }
+        // 重复访问同一行只解码一次
+        assertEquals(1, lazy.decodedRows());
+        assertEquals(4, lazy.stats().hitCount());
+
+        // 全量扫描不放入缓存
+        float[] dots = new float[SIZE];
+        lazy.dots(0, SIZE, row, dots);
+        assertEquals(1, lazy.cachedRows());
+        assertEquals(1f, dots[3], 1e-5f);
+
+        LazyVectorStore preloaded = lazy.preload(new int[]{7, 2, 7, 500});
+        assertEquals(3, preloaded.pinnedRows());
+        long decoded = preloaded.decodedRows();
+        for (int i = 0; i < 100; i++) {
+            // 逐出缓存中的其他行之后，预加载的行仍然常驻
+            preloaded.getRow(100 + i, row);
+        }
+        assertTrue(preloaded.cachedRows() <= 10);
+        long before = preloaded.decodedRows();
+        preloaded.getRow(500, row);
+        preloaded.getRow(2, row);
+        assertEquals(before, preloaded.decodedRows());
+        assertEquals(decoded + 100, before);
+    }
+}
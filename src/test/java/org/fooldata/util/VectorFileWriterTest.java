@@ -0,0 +1,172 @@
+package org.fooldata.util;
+
+import org.fooldata.model.Word2VecModel;
+import org.fooldata.storage.HeapVectorStore;
+import org.fooldata.storage.TestVectors;
+import org.fooldata.storage.Vocabulary;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class VectorFileWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final int SIZE = 30000;
+    private static final int DIMENSION = 16;
+
+    private static String format(float value, int decimals) {
+        byte[] dest = new byte[64];
+        int length = VectorFileWriter.formatFloat(value, decimals, dest, 0);
+        return new String(dest, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void testFormatFloat() {
+        assertEquals("0.000000", format(0f, 6));
+        assertEquals("1.500000", format(1.5f, 6));
+        assertEquals("-0.250000", format(-0.25f, 6));
+        assertEquals("12.346", format(12.3456f, 3));
+        assertEquals("-1", format(-0.5f, 0));
+        assertEquals("1.000", format(0.9999999f, 3));
+        assertEquals("Infinity", format(Float.POSITIVE_INFINITY, 6));
+        assertEquals(Float.toString(3e12f), format(3e12f, 6));
+        Random random = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            float value = (random.nextFloat() * 2 - 1) * (random.nextBoolean() ? 1 : 1000);
+            assertEquals(value, Float.parseFloat(format(value, 6)), 1e-6f);
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Vocabulary vocabulary = new Vocabulary(TestVectors.words(SIZE));
+        HeapVectorStore store = TestVectors.randomStore(SIZE, DIMENSION, 7);
+        for (VectorFileFormat format : VectorFileFormat.values()) {
+            for (boolean gzip : new boolean[]{false, true}) {
+                for (int threads : new int[]{1, 4}) {
+                    VectorFileWriter writer = new VectorFileWriter();
+                    writer.setFormat(format);
+                    writer.setGzip(gzip);
+                    writer.setThreads(threads);
+                    Path path = folder.newFile(format + "-" + gzip + "-" + threads).toPath();
+                    writer.write(vocabulary, store, path);
+                    if (gzip) {
+                        try (InputStream in = Files.newInputStream(path)) {
+                            assertEquals(0x1F, in.read());
+                            assertEquals(0x8B, in.read());
+                        }
+                    }
+
+                    VectorIoUtil reader = new VectorIoUtil(path.toString());
+                    assertEquals(format, reader.detectFormat());
+                    reader.readVectorFile();
+                    assertEquals(SIZE, reader.getNumWords());
+                    assertEquals(DIMENSION, reader.getArraySize());
+                    float[] expected = new float[DIMENSION];
+                    float[] actual = new float[DIMENSION];
+                    for (int i = 0; i < SIZE; i++) {
+                        assertEquals(vocabulary.word(i), reader.getWord(i));
+                        store.getRow(i, expected);
+                        reader.getStore().getRow(i, actual);
+                        assertArrayEquals(expected, actual, format == VectorFileFormat.BINARY ? 1e-6f : 1e-5f);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGzipMembersConcatenate() throws IOException {
+        Vocabulary vocabulary = new Vocabulary(TestVectors.words(SIZE));
+        HeapVectorStore store = TestVectors.randomStore(SIZE, DIMENSION, 8);
+        VectorFileWriter writer = new VectorFileWriter();
+        writer.setFormat(VectorFileFormat.TEXT);
+        writer.setThreads(3);
+        Path plain = folder.newFile("plain.txt").toPath();
+        writer.write(vocabulary, store, plain);
+        writer.setGzip(true);
+        Path compressed = folder.newFile("compressed.txt.gz").toPath();
+        writer.write(vocabulary, store, compressed);
+        // 多个 gzip 成员解压后与未压缩的文件完全相同
+        byte[] expected = Files.readAllBytes(plain);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(compressed))) {
+            byte[] buffer = new byte[expected.length + 1];
+            int length = 0;
+            int n;
+            while ((n = in.read(buffer, length, buffer.length - length)) > 0) {
+                length += n;
+            }
+            assertEquals(expected.length, length);
+            for (int i = 0; i < length; i++) {
+                assertEquals(expected[i], buffer[i]);
+            }
+        }
+        assertTrue(Files.size(compressed) < expected.length);
+    }
+
+    @Test
+    public void testFailedWriteKeepsOldFile() throws IOException {
+        Vocabulary vocabulary = new Vocabulary(TestVectors.words(SIZE));
+        HeapVectorStore store = TestVectors.randomStore(SIZE, DIMENSION, 10);
+        VectorFileWriter writer = new VectorFileWriter();
+        Path path = folder.newFile("model.bin").toPath();
+        writer.write(vocabulary, store, path);
+        byte[] expected = Files.readAllBytes(path);
+
+        HeapVectorStore failing = new HeapVectorStore(SIZE, DIMENSION) {
+            @Override
+            public void getRow(int row, float[] dest) {
+                if (row == SIZE / 2) {
+                    throw new IllegalStateException("读取失败");
+                }
+                super.getRow(row, dest);
+            }
+        };
+        for (int threads : new int[]{1, 3}) {
+            writer.setThreads(threads);
+            try {
+                writer.write(vocabulary, failing, path);
+                fail("读取向量失败时应当抛出异常");
+            } catch (IllegalStateException e) {
+                assertEquals("读取失败", e.getMessage());
+            }
+            // 写到一半失败时原文件不变，也不留临时文件
+            assertArrayEquals(expected, Files.readAllBytes(path));
+            String[] files = folder.getRoot().list();
+            assertNotNull(files);
+            assertEquals(1, files.length);
+        }
+    }
+
+    @Test
+    public void testSaveModelVectors() throws IOException {
+        Word2VecModel model = new Word2VecModel(new Vocabulary(TestVectors.words(200)),
+                TestVectors.randomStore(200, DIMENSION, 9));
+        model.remove("词1");
+        model.add("新词", model.vector("词2").getElementArray());
+        Path path = folder.newFile("model.bin").toPath();
+        model.saveVectors(path, new VectorFileWriter());
+
+        Word2VecModel loaded = new Word2VecModel(path.toString());
+        assertEquals(200, loaded.size());
+        assertFalse(loaded.hasWord("词1"));
+        assertEquals("词2", loaded.nearest("新词", 1).keySet().iterator().next());
+        assertEquals(model.nearest("词5", 10).keySet(), loaded.nearest("词5", 10).keySet());
+    }
+}
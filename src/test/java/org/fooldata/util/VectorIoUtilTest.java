@@ -0,0 +1,124 @@
+package org.fooldata.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author 陈明超
+ * @date 2026/10/17
+ */
+public class VectorIoUtilTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String[] WORDS = {"机器学习", "深度学习", "word2vec", "向量", "模型", "数据"};
+    private static final int DIMENSION = 7;
+
+    private float[][] randomMatrix() {
+        Random random = new Random(42);
+        float[][] matrix = new float[WORDS.length][DIMENSION];
+        for (float[] row : matrix) {
+            for (int j = 0; j < DIMENSION; j++) {
+                row[j] = random.nextFloat() * 2 - 1;
+            }
+        }
+        return matrix;
+    }
+
+    private File writeText(float[][] matrix) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append(WORDS.length).append(' ').append(DIMENSION).append('\n');
+        for (int i = 0; i < WORDS.length; i++) {
+            sb.append(WORDS[i]);
+            for (float v : matrix[i]) {
+                sb.append(' ').append(v);
+            }
+            sb.append('\n');
+        }
+        File file = folder.newFile("vectors.txt");
+        Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private File writeBinary(float[][] matrix, boolean newline) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write((WORDS.length + " " + DIMENSION + "\n").getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < WORDS.length; i++) {
+            out.write((WORDS[i] + " ").getBytes(StandardCharsets.UTF_8));
+            ByteBuffer buffer = ByteBuffer.allocate(DIMENSION * 4).order(ByteOrder.LITTLE_ENDIAN);
+            for (float v : matrix[i]) {
+                buffer.putFloat(v);
+            }
+            out.write(buffer.array());
+            if (newline) {
+                out.write('\n');
+            }
+        }
+        File file = folder.newFile("vectors" + newline + ".bin");
+        Files.write(file.toPath(), out.toByteArray());
+        return file;
+    }
+
+    @Test
+    public void testDetectFormat() throws IOException {
+        float[][] matrix = randomMatrix();
+        assertEquals(VectorFileFormat.TEXT, new VectorIoUtil(writeText(matrix).getPath()).detectFormat());
+        assertEquals(VectorFileFormat.BINARY, new VectorIoUtil(writeBinary(matrix, true).getPath()).detectFormat());
+        assertEquals(VectorFileFormat.BINARY, new VectorIoUtil(writeBinary(matrix, false).getPath()).detectFormat());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testBinaryMatchesText() throws IOException {
+        float[][] matrix = randomMatrix();
+        VectorIoUtil text = new VectorIoUtil(writeText(matrix).getPath());
+        text.readVectorFile();
+        // 兼容旧接口：getMatrix 返回与向量存储一致的副本
+        float[][] copied = text.getMatrix();
+        assertEquals(text.getNumWords(), copied.length);
+        float[] row = new float[text.getArraySize()];
+        for (int i = 0; i < copied.length; i++) {
+            text.getStore().getRow(i, row);
+            assertArrayEquals(row, copied[i], 0f);
+        }
+        for (boolean newline : new boolean[]{true, false}) {
+            File file = writeBinary(matrix, newline);
+            VectorIoUtil binary = new VectorIoUtil(file.getPath());
+            binary.readVectorFile();
+            assertBinaryEquals(text, binary);
+
+            // 极小的映射窗口，覆盖分段重新映射的逻辑
+            VectorIoUtil windowed = new VectorIoUtil(file.getPath());
+            windowed.readBinaryVectorFile(file.toPath(), DIMENSION * 4 + 16);
+            assertBinaryEquals(text, windowed);
+        }
+    }
+
+    private void assertBinaryEquals(VectorIoUtil expected, VectorIoUtil actual) {
+        assertEquals(expected.getNumWords(), actual.getNumWords());
+        assertEquals(expected.getArraySize(), actual.getArraySize());
+        assertArrayEquals(expected.getVocab(), actual.getVocab());
+        int dimension = expected.getArraySize();
+        float[] expectedRow = new float[dimension];
+        float[] actualRow = new float[dimension];
+        for (int i = 0; i < expected.getNumWords(); i++) {
+            expected.getStore().getRow(i, expectedRow);
+            actual.getStore().getRow(i, actualRow);
+            assertArrayEquals(expectedRow, actualRow, 1e-6f);
+        }
+    }
+}